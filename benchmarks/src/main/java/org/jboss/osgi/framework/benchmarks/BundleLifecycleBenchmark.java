@@ -0,0 +1,117 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.osgi.framework.benchmarks.bundle.NoopActivator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.startlevel.BundleStartLevel;
+import org.osgi.framework.wiring.FrameworkWiring;
+
+/**
+ * Bundle install/resolve/start/stop/uninstall cycles and framework start level transitions.
+ *
+ * @since 18-Oct-2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BundleLifecycleBenchmark {
+
+    @Param({ "100" })
+    public int startLevelBundles;
+
+    @Param({ "10" })
+    public int startLevels;
+
+    private FrameworkHarness harness;
+
+    static SyntheticBundle activatorBundle(String symbolicName) {
+        SyntheticBundle bundle = new SyntheticBundle(symbolicName);
+        bundle.header("Bundle-Activator", NoopActivator.class.getName());
+        bundle.header("Import-Package", "org.osgi.framework");
+        bundle.addClass(NoopActivator.class);
+        return bundle;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        harness = new FrameworkHarness();
+        for (int i = 0; i < startLevelBundles; i++) {
+            Bundle bundle = harness.installBundle(activatorBundle("startlevel.bundle" + i));
+            bundle.adapt(BundleStartLevel.class).setStartLevel(2 + i % startLevels);
+            bundle.start();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        harness.shutdown();
+    }
+
+    @Benchmark
+    public void installResolveStartStopUninstall() throws Exception {
+        Bundle bundle = harness.installBundle(activatorBundle("lifecycle.bundle"));
+        FrameworkWiring wiring = harness.getFramework().adapt(FrameworkWiring.class);
+        wiring.resolveBundles(Collections.singleton(bundle));
+        bundle.start();
+        bundle.stop();
+        bundle.uninstall();
+    }
+
+    @Benchmark
+    public void startLevelTransition() throws Exception {
+        harness.setFrameworkStartLevel(1 + startLevels);
+        harness.setFrameworkStartLevel(1);
+    }
+
+    @Benchmark
+    public void installUninstallBatch() throws Exception {
+        List<Bundle> bundles = new ArrayList<Bundle>();
+        for (int i = 0; i < 10; i++) {
+            bundles.add(harness.installBundle(activatorBundle("batch.bundle" + i)));
+        }
+        for (Bundle bundle : bundles) {
+            bundle.uninstall();
+        }
+    }
+}
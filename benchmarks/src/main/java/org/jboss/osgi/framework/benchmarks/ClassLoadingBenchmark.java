@@ -0,0 +1,136 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.osgi.framework.benchmarks.bundle.Payload;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.framework.Bundle;
+
+/**
+ * Class loading through the HostBundleClassLoader and dynamic import misses through the FallbackLoader.
+ *
+ * @since 18-Oct-2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClassLoadingBenchmark {
+
+    private FrameworkHarness harness;
+    private Bundle bundle;
+    private Bundle dynamicBundle;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        harness = new FrameworkHarness();
+        SyntheticBundle payload = new SyntheticBundle("classloading.bundle");
+        payload.header("Import-Package", "org.osgi.framework");
+        payload.addClass(Payload.class);
+        bundle = harness.installBundle(payload);
+        bundle.loadClass(Payload.class.getName());
+
+        SyntheticBundle dynamic = new SyntheticBundle("dynamic.bundle");
+        dynamic.header("DynamicImport-Package", "*");
+        dynamicBundle = harness.installBundle(dynamic);
+        dynamicBundle.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        harness.shutdown();
+    }
+
+    @Benchmark
+    public Class<?> loadClassLocal() throws Exception {
+        return bundle.loadClass(Payload.class.getName());
+    }
+
+    @Benchmark
+    public Class<?> loadClassFromSystemBundle() throws Exception {
+        return bundle.loadClass("org.osgi.framework.Bundle");
+    }
+
+    @Benchmark
+    public Object dynamicImportMiss() {
+        try {
+            return dynamicBundle.loadClass("org.acme.missing.NoSuchClass");
+        } catch (ClassNotFoundException ex) {
+            return ex;
+        }
+    }
+
+    /**
+     * Defines the payload class in a fresh bundle class loader on every invocation.
+     */
+    @State(Scope.Thread)
+    public static class ColdState {
+
+        FrameworkHarness harness;
+        Bundle bundle;
+
+        @Setup(Level.Trial)
+        public void setupTrial() throws Exception {
+            harness = new FrameworkHarness();
+        }
+
+        @Setup(Level.Invocation)
+        public void setupInvocation() throws Exception {
+            SyntheticBundle payload = new SyntheticBundle("cold.bundle");
+            payload.addClass(Payload.class);
+            bundle = harness.installBundle(payload);
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDownInvocation() throws Exception {
+            bundle.uninstall();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDownTrial() throws Exception {
+            harness.shutdown();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 10)
+    @Measurement(iterations = 50)
+    public Class<?> resolveAndDefineClass(ColdState state) throws Exception {
+        return state.bundle.loadClass(Payload.class.getName());
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.benchmarks;
+
+import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.osgi.framework.Bundle;
+
+/**
+ * Entry lookups the way extenders scan bundles.
+ *
+ * @since 18-Oct-2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FindEntriesBenchmark {
+
+    @Param({ "2" })
+    public int depth;
+
+    @Param({ "8" })
+    public int width;
+
+    private FrameworkHarness harness;
+    private Bundle bundle;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        harness = new FrameworkHarness();
+        SyntheticBundle resources = new SyntheticBundle("entries.bundle");
+        resources.addResourceTree("OSGI-INF", depth, width);
+        bundle = harness.installBundle(resources);
+        bundle.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        harness.shutdown();
+    }
+
+    @Benchmark
+    public void findEntriesRecursive(Blackhole blackhole) {
+        consume(blackhole, bundle.findEntries("/", "*.xml", true));
+    }
+
+    @Benchmark
+    public void findEntriesSingleDirectory(Blackhole blackhole) {
+        consume(blackhole, bundle.findEntries("OSGI-INF", "*.xml", false));
+    }
+
+    @Benchmark
+    public void getEntryPaths(Blackhole blackhole) {
+        consume(blackhole, bundle.getEntryPaths("OSGI-INF/dir-0"));
+    }
+
+    @Benchmark
+    public Object getEntry() {
+        return bundle.getEntry("OSGI-INF/dir-1/resource-1.xml");
+    }
+
+    private static void consume(Blackhole blackhole, Enumeration<?> entries) {
+        if (entries != null) {
+            while (entries.hasMoreElements()) {
+                blackhole.consume(entries.nextElement());
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.msc.service.ServiceController.Mode;
+import org.jboss.osgi.framework.internal.FrameworkBuilderImpl;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleException;
+import org.osgi.framework.Constants;
+import org.osgi.framework.FrameworkEvent;
+import org.osgi.framework.FrameworkListener;
+import org.osgi.framework.launch.Framework;
+import org.osgi.framework.startlevel.FrameworkStartLevel;
+
+/**
+ * Boots an embedded framework through the {@link FrameworkBuilderImpl} with a private storage area.
+ *
+ * @since 18-Oct-2026
+ */
+public final class FrameworkHarness {
+
+    private static final AtomicLong locationCount = new AtomicLong();
+
+    private final File storageDir;
+    private final Framework framework;
+
+    public FrameworkHarness() throws BundleException, IOException {
+        this(new HashMap<String, String>());
+    }
+
+    public FrameworkHarness(Map<String, String> props) throws BundleException, IOException {
+        storageDir = File.createTempFile("jbosgi-benchmark", "");
+        if (!storageDir.delete() || !storageDir.mkdirs())
+            throw new IOException("Cannot create storage area: " + storageDir);
+
+        Map<String, String> frameworkProps = new HashMap<String, String>(props);
+        frameworkProps.put(Constants.FRAMEWORK_STORAGE, storageDir.getAbsolutePath());
+        frameworkProps.put(Constants.FRAMEWORK_STORAGE_CLEAN, Constants.FRAMEWORK_STORAGE_CLEAN_ONFIRSTINIT);
+        framework = new FrameworkBuilderImpl(frameworkProps, Mode.ACTIVE).createFramework();
+        framework.start();
+    }
+
+    public Framework getFramework() {
+        return framework;
+    }
+
+    public BundleContext getSystemContext() {
+        return framework.getBundleContext();
+    }
+
+    public Bundle installBundle(SyntheticBundle bundle) throws BundleException {
+        String location = "synthetic:" + locationCount.incrementAndGet();
+        return getSystemContext().installBundle(location, bundle.openStream());
+    }
+
+    /**
+     * Set the framework start level and wait for the {@link FrameworkEvent#STARTLEVEL_CHANGED} event
+     */
+    public void setFrameworkStartLevel(int level) throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        FrameworkListener listener = new FrameworkListener() {
+            @Override
+            public void frameworkEvent(FrameworkEvent event) {
+                if (event.getType() == FrameworkEvent.STARTLEVEL_CHANGED) {
+                    latch.countDown();
+                }
+            }
+        };
+        FrameworkStartLevel startLevel = framework.adapt(FrameworkStartLevel.class);
+        startLevel.setStartLevel(level, listener);
+        if (!latch.await(60, TimeUnit.SECONDS))
+            throw new IllegalStateException("Start level not reached: " + level);
+    }
+
+    public void shutdown() throws BundleException, InterruptedException {
+        try {
+            framework.stop();
+            framework.waitForStop(60000);
+        } finally {
+            deleteRecursively(storageDir);
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
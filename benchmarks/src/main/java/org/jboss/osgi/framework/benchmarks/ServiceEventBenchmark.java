@@ -0,0 +1,102 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceListener;
+import org.osgi.framework.ServiceRegistration;
+
+/**
+ * Service event fan-out to N service listeners, half of which use a filter that does not match.
+ *
+ * @since 18-Oct-2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServiceEventBenchmark {
+
+    public interface Marker {
+    }
+
+    static class MarkerImpl implements Marker {
+    }
+
+    static class CountingListener implements ServiceListener {
+        final AtomicLong count = new AtomicLong();
+
+        @Override
+        public void serviceChanged(ServiceEvent event) {
+            count.incrementAndGet();
+        }
+    }
+
+    @Param({ "1", "10", "100" })
+    public int listenerCount;
+
+    private FrameworkHarness harness;
+    private BundleContext context;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        harness = new FrameworkHarness();
+        context = harness.getSystemContext();
+        for (int i = 0; i < listenerCount; i++) {
+            if (i % 2 == 0) {
+                context.addServiceListener(new CountingListener());
+            } else {
+                context.addServiceListener(new CountingListener(), "(objectClass=no.such.Service)");
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        harness.shutdown();
+    }
+
+    @Benchmark
+    public void registerUnregister() {
+        ServiceRegistration<Marker> reg = context.registerService(Marker.class, new MarkerImpl(), null);
+        reg.unregister();
+    }
+}
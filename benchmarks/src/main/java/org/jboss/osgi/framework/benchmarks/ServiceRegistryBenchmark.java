@@ -0,0 +1,127 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.ServiceRegistration;
+
+/**
+ * Service registry hot paths: register/unregister, lookup with and without filter, get/unget.
+ *
+ * @since 18-Oct-2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServiceRegistryBenchmark {
+
+    public interface Greeting {
+        String greet();
+    }
+
+    static class GreetingImpl implements Greeting {
+        @Override
+        public String greet() {
+            return "hello";
+        }
+    }
+
+    @Param({ "100", "1000" })
+    public int serviceCount;
+
+    private FrameworkHarness harness;
+    private BundleContext context;
+    private List<ServiceRegistration<Greeting>> registrations;
+    private ServiceReference<Greeting> reference;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        harness = new FrameworkHarness();
+        context = harness.getSystemContext();
+        registrations = new ArrayList<ServiceRegistration<Greeting>>();
+        for (int i = 0; i < serviceCount; i++) {
+            Hashtable<String, Object> props = new Hashtable<String, Object>();
+            props.put("index", Integer.valueOf(i));
+            props.put("group", "group-" + (i % 10));
+            registrations.add(context.registerService(Greeting.class, new GreetingImpl(), props));
+        }
+        reference = registrations.get(0).getReference();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        for (ServiceRegistration<Greeting> reg : registrations) {
+            reg.unregister();
+        }
+        harness.shutdown();
+    }
+
+    @Benchmark
+    public void registerUnregister() {
+        ServiceRegistration<Greeting> reg = context.registerService(Greeting.class, new GreetingImpl(), null);
+        reg.unregister();
+    }
+
+    @Benchmark
+    public Object getServiceReferencesNoFilter() throws Exception {
+        return context.getServiceReferences(Greeting.class.getName(), null);
+    }
+
+    @Benchmark
+    public Object getServiceReferencesFilter() throws Exception {
+        return context.getServiceReferences(Greeting.class.getName(), "(&(group=group-3)(index>=50))");
+    }
+
+    @Benchmark
+    public Object getServiceReference() {
+        return context.getServiceReference(Greeting.class);
+    }
+
+    @Benchmark
+    public Object getUngetService() {
+        Greeting service = context.getService(reference);
+        context.ungetService(reference);
+        return service;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.osgi.framework.Constants;
+
+/**
+ * Generates bundle archives in memory, so that the benchmarks run without any external artifacts.
+ *
+ * @since 18-Oct-2026
+ */
+public final class SyntheticBundle {
+
+    private final Manifest manifest = new Manifest();
+    private final Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+
+    public SyntheticBundle(String symbolicName) {
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.putValue(Constants.BUNDLE_MANIFESTVERSION, "2");
+        attributes.putValue(Constants.BUNDLE_SYMBOLICNAME, symbolicName);
+        attributes.putValue(Constants.BUNDLE_VERSION, "1.0.0");
+    }
+
+    public SyntheticBundle header(String name, String value) {
+        manifest.getMainAttributes().putValue(name, value);
+        return this;
+    }
+
+    public SyntheticBundle entry(String path, byte[] content) {
+        entries.put(path, content);
+        return this;
+    }
+
+    /**
+     * Add the class file of the given class, which must be available on the benchmark class path
+     */
+    public SyntheticBundle addClass(Class<?> clazz) {
+        String path = clazz.getName().replace('.', '/') + ".class";
+        InputStream input = clazz.getClassLoader().getResourceAsStream(path);
+        if (input == null)
+            throw new IllegalStateException("Cannot obtain class file: " + path);
+        try {
+            try {
+                return entry(path, toByteArray(input));
+            } finally {
+                input.close();
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot read class file: " + path, ex);
+        }
+    }
+
+    /**
+     * Add a tree of resources with the given depth and fan out
+     */
+    public SyntheticBundle addResourceTree(String root, int depth, int width) {
+        addResourceTree(root, depth, width, 0);
+        return this;
+    }
+
+    private void addResourceTree(String dir, int depth, int width, int level) {
+        for (int i = 0; i < width; i++) {
+            entry(dir + "/resource-" + i + ".xml", ("<resource id='" + i + "'/>").getBytes());
+            entry(dir + "/resource-" + i + ".txt", ("resource " + i).getBytes());
+            if (level < depth) {
+                addResourceTree(dir + "/dir-" + i, depth, width, level + 1);
+            }
+        }
+    }
+
+    public byte[] toByteArray() {
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            JarOutputStream jar = new JarOutputStream(baos, manifest);
+            try {
+                for (Entry<String, byte[]> entry : entries.entrySet()) {
+                    jar.putNextEntry(new JarEntry(entry.getKey()));
+                    jar.write(entry.getValue());
+                    jar.closeEntry();
+                }
+            } finally {
+                jar.close();
+            }
+            return baos.toByteArray();
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot create bundle archive", ex);
+        }
+    }
+
+    public InputStream openStream() {
+        return new ByteArrayInputStream(toByteArray());
+    }
+
+    private static byte[] toByteArray(InputStream input) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            baos.write(buffer, 0, read);
+        }
+        return baos.toByteArray();
+    }
+}
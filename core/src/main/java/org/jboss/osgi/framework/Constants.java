@@ -47,4 +47,64 @@ public interface Constants extends org.osgi.framework.Constants {
 
     /** A list of URLs to bundles that get installed and started on framework startup */
     String PROPERTY_AUTO_START_URLS = "org.jboss.osgi.auto.start";
-}
\ No newline at end of file
+
+    /** If true, the framework records a timeline of its startup phases */
+    String PROPERTY_STARTUP_TRACE = "org.jboss.osgi.framework.startup.trace";
+
+    /** The name of the file in the storage area that the startup trace report is written to */
+    String PROPERTY_STARTUP_TRACE_FILE = "org.jboss.osgi.framework.startup.trace.file";
+
+    /** The time in milliseconds after which a synchronous event listener is reported as slow. The default is 0, which disables the check */
+    String PROPERTY_EVENTS_SLOW_LISTENER_THRESHOLD = "org.jboss.osgi.framework.events.slowListenerThreshold";
+
+    /** The time in milliseconds after which an asynchronous event listener is reported as slow. It defaults to the synchronous threshold */
+    String PROPERTY_EVENTS_SLOW_ASYNC_LISTENER_THRESHOLD = "org.jboss.osgi.framework.events.slowAsyncListenerThreshold";
+
+    /** The maximum number of pending asynchronous events per listener. Further events for that listener are dropped and reported. The default is 0, which means unbounded */
+    String PROPERTY_EVENTS_ASYNC_BACKLOG = "org.jboss.osgi.framework.events.asyncBacklog";
+
+    /** The number of threads of a framework executor. The default is 1, for the FrameworkEvents executor it is min(4, number of processors). The property can be qualified with the executor name, for example org.jboss.osgi.framework.executor.FrameworkEvents.threads */
+    String PROPERTY_EXECUTOR_THREADS = "org.jboss.osgi.framework.executor.threads";
+
+    /** The maximum number of pending tasks of a framework executor. The default is 0, which means unbounded. The property can be qualified with the executor name */
+    String PROPERTY_EXECUTOR_QUEUE_SIZE = "org.jboss.osgi.framework.executor.queueSize";
+
+    /** The time in milliseconds a task submitter waits for a free slot in a full executor queue before the task is rejected. The default is 30000 */
+    String PROPERTY_EXECUTOR_OFFER_TIMEOUT = "org.jboss.osgi.framework.executor.offerTimeout";
+
+    /** If true, framework executors run their tasks on virtual threads when the runtime supports them */
+    String PROPERTY_EXECUTOR_VIRTUAL_THREADS = "org.jboss.osgi.framework.executor.virtualThreads";
+
+    /** If true, the bundles of a start level are stopped in parallel on framework shutdown */
+    String PROPERTY_SHUTDOWN_PARALLEL = "org.jboss.osgi.framework.shutdown.parallel";
+
+    /** The time in milliseconds a bundle may take to stop during a parallel shutdown. The default is 10000 */
+    String PROPERTY_SHUTDOWN_BUNDLE_TIMEOUT = "org.jboss.osgi.framework.shutdown.bundleTimeout";
+
+    /** The maximum number of bundle archives the framework keeps mounted. Idle archives beyond that are closed and mounted again on demand. The default is 512, 0 means unbounded */
+    String PROPERTY_STORAGE_MAX_OPEN_ARCHIVES = "org.jboss.osgi.framework.storage.maxOpenArchives";
+
+    /** The time in milliseconds an archive must be idle before it can be closed. The default is 30000 */
+    String PROPERTY_STORAGE_ARCHIVE_IDLE_TIME = "org.jboss.osgi.framework.storage.archiveIdleTime";
+
+    /** If true, woven classes are cached in the storage area and replayed on later class loads without calling the weaving hooks */
+    String PROPERTY_WEAVING_CACHE = "org.jboss.osgi.framework.weaving.cache";
+
+    /** If true, the classes that bundles define during startup are recorded in the storage area and preloaded in the background on the next start */
+    String PROPERTY_CLASSLOAD_PROFILE = "org.jboss.osgi.framework.classload.profile";
+
+    /** The time in milliseconds after the framework became active during which defined classes are recorded. The default is 30000 */
+    String PROPERTY_CLASSLOAD_PROFILE_DURATION = "org.jboss.osgi.framework.classload.profile.duration";
+
+    /** If true, bundle revisions are unpacked into a directory in the storage area. The bundle storage mode header overrides this per bundle */
+    String PROPERTY_STORAGE_EXPLODED = "org.jboss.osgi.framework.storage.exploded";
+
+    /** The manifest header that selects the storage mode of a bundle */
+    String STORAGE_MODE_HEADER = "JBossOSGi-StorageMode";
+
+    /** The storage mode that keeps a bundle revision as an archive */
+    String STORAGE_MODE_ARCHIVE = "archive";
+
+    /** The storage mode that unpacks a bundle revision into a directory */
+    String STORAGE_MODE_EXPLODED = "exploded";
+}
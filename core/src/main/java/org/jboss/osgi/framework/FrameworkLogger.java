@@ -230,4 +230,36 @@ public interface FrameworkLogger extends BasicLogger {
     @LogMessage(level = INFO)
     @Message(id = 11043, value = "Bundle refreshed: %s")
     void infoBundleRefreshed(Bundle bundle);
+
+    @LogMessage(level = INFO)
+    @Message(id = 11044, value = "Framework startup took %d ms, process CPU %d ms")
+    void infoStartupTraceCompleted(long wallMillis, long cpuMillis);
+
+    @LogMessage(level = INFO)
+    @Message(id = 11045, value = "Startup %s [%s] took %d ms")
+    void infoStartupTraceRecord(String category, String name, long wallMillis);
+
+    @LogMessage(level = ERROR)
+    @Message(id = 11046, value = "Cannot write startup trace: %s")
+    void errorCannotWriteStartupTrace(@Cause Throwable cause, File file);
+
+    @LogMessage(level = WARN)
+    @Message(id = 11047, value = "Virtual threads are not supported by this runtime, using platform threads for: %s")
+    void warnVirtualThreadsNotSupported(String executorName);
+
+    @LogMessage(level = WARN)
+    @Message(id = 11048, value = "Bundle did not stop within %d ms: %s")
+    void warnBundleStopTimeout(long budget, Bundle bundle);
+
+    @LogMessage(level = WARN)
+    @Message(id = 11049, value = "Bundle took %d ms to stop, the budget is %d ms: %s")
+    void warnBundleStopOverrun(long duration, long budget, Bundle bundle);
+
+    @LogMessage(level = INFO)
+    @Message(id = 11050, value = "Parallel shutdown stopped %d bundles in %d ms, %d exceeded their budget")
+    void infoParallelShutdownCompleted(int bundles, long duration, int overruns);
+
+    @LogMessage(level = WARN)
+    @Message(id = 11051, value = "Stopping %s while its dependent %s is still stopping")
+    void warnStoppingProviderOfPendingBundle(Bundle provider, Bundle dependent);
 }
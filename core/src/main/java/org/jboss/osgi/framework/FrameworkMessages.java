@@ -319,4 +319,40 @@ public interface FrameworkMessages {
 
     @Message(id = 11287, value = "Illegal dynamic import statement generated by weaving hook: %s")
     IllegalArgumentException illegalArgumentDynamicWeavingImport(@Cause Throwable cause, String importSpec);
+
+    @Message(id = 11288, value = "Slow listener %s took %d ms to process %s")
+    BundleException slowEventListener(String listener, long millis, String event);
+
+    @Message(id = 11289, value = "Event backlog of listener %s exceeded %d, dropping %s")
+    BundleException eventBacklogOverflow(String listener, int backlog, String event);
+
+    @Message(id = 11290, value = "Invalid filter, %s at position %d")
+    String invalidFilterSyntax(String problem, int position);
+
+    @Message(id = 11291, value = "Service properties contain case variants of the same key: %s, %s")
+    IllegalArgumentException illegalArgumentDuplicatePropertyKey(String key, String otherKey);
+
+    @Message(id = 11292, value = "Cannot create directory: %s")
+    IOException cannotCreateDirectory(File dir);
+
+    @Message(id = 11293, value = "Native library content changed while extracting: %s")
+    IOException nativeLibraryContentChanged(URL url);
+
+    @Message(id = 11294, value = "Cannot compute content digest")
+    IOException cannotComputeContentDigest(@Cause Throwable cause);
+
+    @Message(id = 11295, value = "Cannot mount archive: %s")
+    IllegalStateException illegalStateCannotMountArchive(@Cause Throwable cause, URL location);
+
+    @Message(id = 11296, value = "Invalid archive entry '%s' in: %s")
+    IOException invalidArchiveEntry(String name, File archive);
+
+    @Message(id = 11297, value = "Invalid signer record: %s")
+    IOException invalidSignerRecord(@Cause Throwable cause, File file);
+
+    @Message(id = 11298, value = "Invalid signers type: %d")
+    IllegalArgumentException illegalArgumentInvalidSignersType(int signersType);
+
+    @Message(id = 11299, value = "Preload would activate bundle: %s")
+    IllegalStateException illegalStatePreloadWouldActivate(Bundle bundle);
 }
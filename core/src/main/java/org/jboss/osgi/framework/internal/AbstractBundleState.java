@@ -42,7 +42,6 @@ import java.util.MissingResourceException;
 import java.util.PropertyResourceBundle;
 import java.util.ResourceBundle;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
@@ -90,7 +89,7 @@ abstract class AbstractBundleState<R extends BundleStateRevision> extends Abstra
     private final ReentrantLock bundleLock = new ReentrantLock();
     private final AtomicInteger bundleState = new AtomicInteger(UNINSTALLED);
     private final List<ServiceState<?>> registeredServices = new CopyOnWriteArrayList<ServiceState<?>>();
-    private final ConcurrentHashMap<ServiceState<?>, AtomicInteger> usedServices = new ConcurrentHashMap<ServiceState<?>, AtomicInteger>();
+    private final ServiceUseCounts usedServices = new ServiceUseCounts();
 
     private AbstractBundleContext<? extends AbstractBundleState<?>> bundleContext;
     private Exception lastResolverException;
@@ -337,27 +336,29 @@ abstract class AbstractBundleState<R extends BundleStateRevision> extends Abstra
     }
 
     Set<ServiceState<?>> getServicesInUseInternal() {
-        return Collections.unmodifiableSet(usedServices.keySet());
+        return usedServices.getServiceStates();
     }
 
-    void addServiceInUse(ServiceState<?> serviceState) {
+    /**
+     * Add a use of the given service.
+     *
+     * @return the new use count
+     */
+    int addServiceInUse(ServiceState<?> serviceState) {
         LOGGER.tracef("Add service in use %s to: %s", serviceState, this);
-        usedServices.putIfAbsent(serviceState, new AtomicInteger());
-        AtomicInteger count = usedServices.get(serviceState);
-        count.incrementAndGet();
+        return usedServices.increment(serviceState);
+    }
+
+    /**
+     * Add a use of the given service if this bundle already uses it.
+     */
+    boolean addServiceInUseIfUsed(ServiceState<?> serviceState) {
+        return usedServices.incrementIfInUse(serviceState);
     }
 
     int removeServiceInUse(ServiceState<?> serviceState) {
         LOGGER.tracef("Remove service in use %s from: %s", serviceState, this);
-        AtomicInteger count = usedServices.get(serviceState);
-        if (count == null)
-            return -1;
-
-        int countVal = count.decrementAndGet();
-        if (countVal == 0)
-            usedServices.remove(serviceState);
-
-        return countVal;
+        return usedServices.decrement(serviceState);
     }
 
     @Override
@@ -0,0 +1,288 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.internal;
+
+import static org.jboss.osgi.framework.FrameworkLogger.LOGGER;
+import static org.jboss.osgi.framework.FrameworkMessages.MESSAGES;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.osgi.framework.Constants;
+import org.jboss.osgi.framework.spi.ArchiveMetrics;
+import org.jboss.osgi.framework.spi.StorageState.RootArchiveProvider;
+import org.jboss.osgi.vfs.AbstractVFS;
+import org.jboss.osgi.vfs.VFSUtils;
+import org.jboss.osgi.vfs.VirtualFile;
+
+/**
+ * Manages the archives that the framework mounts for bundle content.
+ *
+ * An archive is mounted on first access. When more than the configured number of archives are open,
+ * the least recently used archives that have been idle for a while and are not in use by a reader are closed.
+ * They are mounted again when they are next accessed.
+ *
+ * The root archives of restored storage states are mounted here as well. They are pinned, because the
+ * bundle deployment hands out the root file, and stay mounted until the storage state closes them.
+ *
+ * @since 18-Oct-2026
+ */
+final class ArchiveManager implements ArchiveMetrics, RootArchiveProvider {
+
+    static final int DEFAULT_MAX_OPEN_ARCHIVES = 512;
+    static final long DEFAULT_IDLE_TIME = 30000;
+
+    private final BundleManagerPlugin bundleManager;
+    private final LinkedHashMap<Archive, Boolean> openArchives = new LinkedHashMap<Archive, Boolean>(64, 0.75f, true);
+    private final ConcurrentMap<URL, Archive> rootArchives = new ConcurrentHashMap<URL, Archive>();
+    private final AtomicLong openCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private volatile int maxOpenArchives;
+    private volatile long idleTime;
+
+    ArchiveManager(BundleManagerPlugin bundleManager) {
+        this(bundleManager, -1, -1);
+    }
+
+    // A negative limit is read from the framework properties on first use
+    ArchiveManager(BundleManagerPlugin bundleManager, int maxOpenArchives, long idleTime) {
+        this.bundleManager = bundleManager;
+        this.maxOpenArchives = maxOpenArchives;
+        this.idleTime = idleTime;
+    }
+
+    /**
+     * Create an archive for the given location, which is mounted on first access.
+     */
+    Archive createArchive(URL location) {
+        return new Archive(location, false);
+    }
+
+    @Override
+    public VirtualFile mountArchive(URL location) throws IOException {
+        Archive archive = rootArchives.get(location);
+        if (archive == null) {
+            Archive created = new Archive(location, true);
+            archive = rootArchives.putIfAbsent(location, created);
+            if (archive == null) {
+                archive = created;
+            }
+        }
+        return archive.getVirtualFile();
+    }
+
+    @Override
+    public void closeArchive(URL location) {
+        Archive archive = rootArchives.remove(location);
+        if (archive != null) {
+            archive.close();
+        }
+    }
+
+    @Override
+    public int getOpenArchives() {
+        synchronized (openArchives) {
+            return openArchives.size();
+        }
+    }
+
+    @Override
+    public int getMaxOpenArchives() {
+        int result = maxOpenArchives;
+        if (result < 0) {
+            result = (int) getLongProperty(Constants.PROPERTY_STORAGE_MAX_OPEN_ARCHIVES, DEFAULT_MAX_OPEN_ARCHIVES);
+            maxOpenArchives = result;
+        }
+        return result;
+    }
+
+    @Override
+    public long getOpenCount() {
+        return openCount.get();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    private long getIdleTime() {
+        long result = idleTime;
+        if (result < 0) {
+            result = getLongProperty(Constants.PROPERTY_STORAGE_ARCHIVE_IDLE_TIME, DEFAULT_IDLE_TIME);
+            idleTime = result;
+        }
+        return result;
+    }
+
+    private long getLongProperty(String key, long defaultValue) {
+        Object value = bundleManager.getProperty(key);
+        if (value != null) {
+            try {
+                return Math.max(0, Long.parseLong(value.toString().trim()));
+            } catch (NumberFormatException ex) {
+                LOGGER.debugf("Invalid value for %s: %s", key, value);
+            }
+        }
+        return defaultValue;
+    }
+
+    private void accessed(Archive archive) {
+        List<Archive> candidates = null;
+        synchronized (openArchives) {
+            // The archive may have been closed or evicted since it was mounted, it must not come back here
+            if (!archive.isMounted())
+                return;
+            openArchives.put(archive, Boolean.TRUE);
+            int max = getMaxOpenArchives();
+            int excess = openArchives.size() - max;
+            if (max > 0 && excess > 0) {
+                long idleBefore = System.currentTimeMillis() - getIdleTime();
+                candidates = new ArrayList<Archive>();
+                Iterator<Archive> iterator = openArchives.keySet().iterator();
+                while (iterator.hasNext() && candidates.size() < excess) {
+                    Archive aux = iterator.next();
+                    if (!aux.isMounted()) {
+                        iterator.remove();
+                    } else if (aux != archive && !aux.pinned && aux.lastAccess <= idleBefore) {
+                        candidates.add(aux);
+                    }
+                }
+            }
+        }
+        if (candidates != null) {
+            long idleBefore = System.currentTimeMillis() - getIdleTime();
+            for (Archive aux : candidates) {
+                if (aux.evict(idleBefore)) {
+                    evictionCount.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private void closed(Archive archive) {
+        synchronized (openArchives) {
+            openArchives.remove(archive);
+        }
+    }
+
+    /**
+     * An archive that is mounted on demand.
+     */
+    final class Archive {
+
+        private final URL location;
+        private final boolean pinned;
+        private volatile VirtualFile virtualFile;
+        private volatile long lastAccess;
+        private int readers;
+        private volatile boolean closed;
+
+        private Archive(URL location, boolean pinned) {
+            this.location = location;
+            this.pinned = pinned;
+        }
+
+        URL getLocation() {
+            return location;
+        }
+
+        /**
+         * Get the mounted virtual file, mounting the archive if necessary.
+         */
+        VirtualFile getVirtualFile() throws IOException {
+            return mount(false);
+        }
+
+        /**
+         * Get the mounted virtual file and keep the archive mounted until {@link #release()} is called.
+         */
+        VirtualFile acquire() throws IOException {
+            return mount(true);
+        }
+
+        void release() {
+            synchronized (this) {
+                assert readers > 0 : "Archive not acquired: " + location;
+                readers--;
+                lastAccess = System.currentTimeMillis();
+            }
+        }
+
+        private VirtualFile mount(boolean acquire) throws IOException {
+            VirtualFile result;
+            synchronized (this) {
+                if (closed)
+                    throw MESSAGES.cannotObtainContent(location);
+                if (virtualFile == null) {
+                    LOGGER.tracef("Mount archive: %s", location);
+                    virtualFile = AbstractVFS.toVirtualFile(location);
+                    openCount.incrementAndGet();
+                }
+                if (acquire) {
+                    readers++;
+                }
+                lastAccess = System.currentTimeMillis();
+                result = virtualFile;
+            }
+            accessed(this);
+            return result;
+        }
+
+        boolean isMounted() {
+            return !closed && virtualFile != null;
+        }
+
+        private boolean evict(long idleBefore) {
+            synchronized (this) {
+                if (virtualFile == null || pinned || readers > 0 || lastAccess > idleBefore)
+                    return false;
+                LOGGER.tracef("Unmount idle archive: %s", location);
+                VFSUtils.safeClose(virtualFile);
+                virtualFile = null;
+                closed(this);
+            }
+            return true;
+        }
+
+        void close() {
+            synchronized (this) {
+                VFSUtils.safeClose(virtualFile);
+                virtualFile = null;
+                closed = true;
+                closed(this);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Archive[" + location + "]";
+        }
+    }
+}
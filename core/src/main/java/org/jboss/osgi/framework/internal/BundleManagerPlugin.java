@@ -65,7 +65,12 @@ import org.jboss.osgi.framework.Services;
 import org.jboss.osgi.framework.spi.AbstractIntegrationService;
 import org.jboss.osgi.framework.spi.BundleLifecycle;
 import org.jboss.osgi.framework.spi.BundleManager;
+import org.jboss.osgi.framework.spi.ClassLoadingMetrics;
 import org.jboss.osgi.framework.spi.DeploymentProvider;
+import org.jboss.osgi.framework.spi.EventDeliveryMetrics;
+import org.jboss.osgi.framework.spi.ArchiveMetrics;
+import org.jboss.osgi.framework.spi.ExecutionMetrics;
+import org.jboss.osgi.framework.spi.ExecutorMetrics;
 import org.jboss.osgi.framework.spi.FrameworkBuilder;
 import org.jboss.osgi.framework.spi.FrameworkEvents;
 import org.jboss.osgi.framework.spi.FrameworkStartLevelSupport;
@@ -77,6 +82,10 @@ import org.jboss.osgi.framework.spi.LockManager.LockContext;
 import org.jboss.osgi.framework.spi.LockManager.LockableItem;
 import org.jboss.osgi.framework.spi.LockManager.Method;
 import org.jboss.osgi.framework.spi.ModuleManager;
+import org.jboss.osgi.framework.spi.StartLevelManager;
+import org.jboss.osgi.framework.spi.StartupTrace;
+import org.jboss.osgi.framework.spi.StartupTrace.Category;
+import org.jboss.osgi.framework.spi.StartupTrace.Span;
 import org.jboss.osgi.framework.spi.StorageState;
 import org.jboss.osgi.metadata.OSGiMetaData;
 import org.jboss.osgi.resolver.XBundle;
@@ -98,8 +107,6 @@ import org.osgi.framework.VersionRange;
 import org.osgi.framework.hooks.bundle.CollisionHook;
 import org.osgi.framework.launch.Framework;
 import org.osgi.framework.startlevel.FrameworkStartLevel;
-import org.osgi.framework.wiring.BundleWire;
-import org.osgi.framework.wiring.BundleWiring;
 import org.osgi.framework.wiring.FrameworkWiring;
 import org.osgi.service.resolver.ResolutionException;
 
@@ -160,6 +167,26 @@ final class BundleManagerPlugin extends AbstractIntegrationService<BundleManager
     private final AtomicBoolean managerStopped = new AtomicBoolean();
     private final ServiceContainer serviceContainer;
     private final UniquenessPolicy uniquenessPolicy;
+    private final WireIndex wireIndex = new WireIndex();
+    private final StartupTraceImpl startupTrace;
+    private final ClassLoadingMetricsImpl classLoadingMetrics = new ClassLoadingMetricsImpl(this);
+    private final ArchiveManager archiveManager = new ArchiveManager(this);
+    private final WovenClassCache wovenClassCache = new WovenClassCache(this);
+    private final ClassLoadProfiler classLoadProfiler = new ClassLoadProfiler(this);
+    private final ExecutionMetrics executionMetrics = new ExecutionMetrics() {
+        @Override
+        public List<ExecutorMetrics> getExecutorMetrics() {
+            List<ExecutorMetrics> result = new ArrayList<ExecutorMetrics>();
+            synchronized (executorServices) {
+                for (ExecutorService service : executorServices) {
+                    if (service instanceof ExecutorMetrics) {
+                        result.add((ExecutorMetrics) service);
+                    }
+                }
+            }
+            return Collections.unmodifiableList(result);
+        }
+    };
     private Framework framework;
     private SystemBundleState cachedSystemBundle;
     private ServiceTarget serviceTarget;
@@ -198,6 +225,11 @@ final class BundleManagerPlugin extends AbstractIntegrationService<BundleManager
         // Get and cache the BSNVERSION
         uniquenessPolicy = UniquenessPolicy.valueOf((String) getProperty(Constants.FRAMEWORK_BSNVERSION));
 
+        // Create the startup trace
+        String traceFile = (String) getProperty(Constants.PROPERTY_STARTUP_TRACE_FILE);
+        boolean traceEnabled = traceFile != null || Boolean.parseBoolean(String.valueOf(getProperty(Constants.PROPERTY_STARTUP_TRACE)));
+        startupTrace = new StartupTraceImpl(traceEnabled, traceFile);
+
         boolean allowContainerShutdown = frameworkBuilder.getServiceContainer() == null;
         shutdownContainer = new ShutdownContainer(serviceContainer, allowContainerShutdown);
     }
@@ -278,6 +310,14 @@ final class BundleManagerPlugin extends AbstractIntegrationService<BundleManager
         return uniquenessPolicy;
     }
 
+    WireIndex getWireIndex() {
+        return wireIndex;
+    }
+
+    StartupTraceImpl getStartupTrace() {
+        return startupTrace;
+    }
+
     /**
      * Required by spec:
      *
@@ -289,6 +329,11 @@ final class BundleManagerPlugin extends AbstractIntegrationService<BundleManager
      *
      * {@link ServiceContainer} The Bundle metadata.
      * {@link XEnvironment} The Bundle's storage state.
+     * {@link StartupTrace} The framework startup timeline.
+     * {@link ClassLoadingMetrics} The class loading statistics.
+     * {@link EventDeliveryMetrics} The event delivery statistics.
+     * {@link ExecutionMetrics} The statistics of the framework executors.
+     * {@link ArchiveMetrics} The statistics of the mounted bundle archives.
      */
     @SuppressWarnings("unchecked")
     <T> T adapt(Class<T> type) {
@@ -303,6 +348,17 @@ final class BundleManagerPlugin extends AbstractIntegrationService<BundleManager
                 return (T) getServiceContainer();
             } else if (type.isAssignableFrom(XEnvironment.class)) {
                 return (T) getFrameworkState().getEnvironment();
+            } else if (type.isAssignableFrom(StartupTrace.class)) {
+                return (T) getStartupTrace();
+            } else if (type.isAssignableFrom(ClassLoadingMetrics.class)) {
+                return (T) classLoadingMetrics;
+            } else if (type.isAssignableFrom(ExecutionMetrics.class)) {
+                return (T) executionMetrics;
+            } else if (type.isAssignableFrom(ArchiveMetrics.class)) {
+                return (T) archiveManager;
+            } else if (type.isAssignableFrom(EventDeliveryMetrics.class) && isFrameworkCreated()) {
+                FrameworkEvents events = getFrameworkState().getFrameworkEvents();
+                return events instanceof FrameworkEventsImpl ? (T) ((FrameworkEventsImpl) events).getDeliveryStatistics() : null;
             }
         }
         return null;
@@ -325,6 +381,18 @@ final class BundleManagerPlugin extends AbstractIntegrationService<BundleManager
         return Boolean.TRUE.equals(injectedFrameworkActive.getOptionalValue());
     }
 
+    ArchiveManager getArchiveManager() {
+        return archiveManager;
+    }
+
+    WovenClassCache getWovenClassCache() {
+        return wovenClassCache;
+    }
+
+    ClassLoadProfiler getClassLoadProfiler() {
+        return classLoadProfiler;
+    }
+
     FrameworkState getFrameworkState() {
         return injectedFramework.getOptionalValue();
     }
@@ -464,6 +532,15 @@ final class BundleManagerPlugin extends AbstractIntegrationService<BundleManager
         if (deployment == null)
             throw MESSAGES.illegalArgumentNull("deployment");
 
+        Span span = startupTrace.begin(Category.INSTALL, deployment.getLocation());
+        try {
+            return createBundleRevisionInternal(context, deployment, serviceTarget);
+        } finally {
+            span.end();
+        }
+    }
+
+    private XBundleRevision createBundleRevisionInternal(BundleContext context, Deployment deployment, ServiceTarget serviceTarget) throws BundleException {
         if (serviceTarget == null)
             serviceTarget = getServiceTarget();
 
@@ -648,6 +725,10 @@ final class BundleManagerPlugin extends AbstractIntegrationService<BundleManager
                 removeRevision(brev, options);
             }
         }
+        StartLevelManager startLevelManager = getFrameworkState().getStartLevelManager();
+        if (startLevelManager instanceof StartLevelManagerImpl) {
+            ((StartLevelManagerImpl) startLevelManager).bundleUninstalled(userBundle);
+        }
         LOGGER.debugf("Removed bundle: %s", userBundle);
     }
 
@@ -660,6 +741,7 @@ final class BundleManagerPlugin extends AbstractIntegrationService<BundleManager
     public void removeRevision(XBundleRevision brev, int options) {
         LOGGER.debugf("Removing revision: %s", brev);
         getFrameworkState().getFrameworkEnvironment().uninstallResources(brev);
+        wireIndex.removeRevision(brev);
         if (brev instanceof UserBundleRevision) {
             UserBundleRevision userRev = (UserBundleRevision) brev;
             userRev.getBundleState().removeRevision(userRev);
@@ -749,21 +831,21 @@ final class BundleManagerPlugin extends AbstractIntegrationService<BundleManager
         return lockableItems.toArray(new LockableItem[lockableItems.size()]);
     }
 
-    private void getTransitiveSetOfLockableItemsForUninstall(Set<LockableItem> lockableItems, Bundle bundle) {
+    private void getTransitiveSetOfLockableItemsForUninstall(Set<LockableItem> lockableItems, XBundle bundle) {
         if (!lockableItems.contains(bundle) && bundle.getBundleId() > 0) {
             lockableItems.add((LockableItem) bundle);
-            BundleWiring wiring = bundle.adapt(BundleWiring.class);
-            if (wiring != null) {
-                for (BundleWire wire : wiring.getRequiredWires(null)) {
-                    Bundle provider = wire.getProvider().getBundle();
-                    if (provider.getState() == Bundle.UNINSTALLED) {
-                        getTransitiveSetOfLockableItemsForUninstall(lockableItems, provider);
+            XBundleRevision brev = bundle.getBundleRevision();
+            if (brev != null && brev.getWiringSupport().getWiring(false) != null) {
+                for (XBundleRevision provider : wireIndex.getProviders(brev)) {
+                    XBundle providerBundle = provider.getBundle();
+                    if (providerBundle.getState() == Bundle.UNINSTALLED) {
+                        getTransitiveSetOfLockableItemsForUninstall(lockableItems, providerBundle);
                     }
                 }
-                for (BundleWire wire : wiring.getProvidedWires(null)) {
-                    Bundle requirer = wire.getRequirer().getBundle();
-                    if (requirer.getState() == Bundle.UNINSTALLED) {
-                        getTransitiveSetOfLockableItemsForUninstall(lockableItems, requirer);
+                for (XBundleRevision requirer : wireIndex.getRequirers(brev)) {
+                    XBundle requirerBundle = requirer.getBundle();
+                    if (requirerBundle.getState() == Bundle.UNINSTALLED) {
+                        getTransitiveSetOfLockableItemsForUninstall(lockableItems, requirerBundle);
                     }
                 }
             }
@@ -851,6 +933,9 @@ final class BundleManagerPlugin extends AbstractIntegrationService<BundleManager
             // ignore
         }
 
+        // Stop the class preload and write the class load profile
+        classLoadProfiler.close();
+
         // Shutdown all executor services
         synchronized (executorServices) {
             for (ExecutorService service : executorServices) {
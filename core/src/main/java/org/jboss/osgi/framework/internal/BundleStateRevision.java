@@ -38,7 +38,6 @@ import org.jboss.osgi.resolver.XBundleRevision;
 import org.jboss.osgi.resolver.XBundleRevisionBuilder;
 import org.jboss.osgi.resolver.XBundleRevisionBuilderFactory;
 import org.jboss.osgi.resolver.spi.AbstractBundleRevision;
-import org.jboss.osgi.vfs.VFSUtils;
 import org.osgi.framework.BundleException;
 
 /**
@@ -155,7 +154,7 @@ abstract class BundleStateRevision extends AbstractBundleRevision {
     }
 
     void close() {
-        VFSUtils.safeClose(storageState.getRootFile());
+        storageState.closeRootFile();
     }
 
     @Override
@@ -0,0 +1,342 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.internal;
+
+import static org.jboss.osgi.framework.FrameworkLogger.LOGGER;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.modules.filter.PathFilter;
+import org.jboss.osgi.framework.Constants;
+
+/**
+ * Records the classes that bundles define during startup and preloads them on the next start.
+ *
+ * A profile entry is keyed by the bundle location and its last modified time, so that an updated bundle
+ * is recorded again. Classes are recorded until the configured time after the framework became active.
+ * When the class loader of a bundle with a profile entry is created, its classes are defined in the
+ * background. Classes that would trigger a lazy activation are never preloaded.
+ *
+ * @since 18-Oct-2026
+ */
+final class ClassLoadProfiler {
+
+    static final String PROFILE_FILE = "classload-profile.txt";
+    static final long DEFAULT_DURATION = 30000;
+
+    private static final String KEY_PREFIX = "@";
+    private static final ThreadLocal<Boolean> preloading = new ThreadLocal<Boolean>();
+
+    private final BundleManagerPlugin bundleManager;
+    private final ConcurrentMap<String, Set<String>> recorded = new ConcurrentHashMap<String, Set<String>>();
+    private final Set<String> activeKeys = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private volatile Boolean enabled;
+    private volatile Map<String, List<String>> profile;
+    private volatile boolean recording = true;
+    private volatile long recordUntil = Long.MAX_VALUE;
+    private ScheduledExecutorService executor;
+    private boolean closed;
+
+    ClassLoadProfiler(BundleManagerPlugin bundleManager) {
+        this.bundleManager = bundleManager;
+    }
+
+    boolean isEnabled() {
+        Boolean result = enabled;
+        if (result == null) {
+            Object value = bundleManager.getProperty(Constants.PROPERTY_CLASSLOAD_PROFILE);
+            result = value != null && Boolean.parseBoolean(value.toString().trim());
+            enabled = result;
+        }
+        return result;
+    }
+
+    /**
+     * True if the current thread is defining classes for a preload.
+     */
+    static boolean isPreloading() {
+        return preloading.get() != null;
+    }
+
+    /**
+     * Preload the profiled classes of the given bundle in the background.
+     */
+    void classLoaderCreated(final HostBundleClassLoader loader, final UserBundleState bundleState, final PathFilter lazyFilter) {
+        if (!isEnabled())
+            return;
+
+        String key = getProfileKey(bundleState);
+        activeKeys.add(key);
+        final List<String> classNames = getProfile().get(key);
+        if (classNames == null)
+            return;
+
+        ScheduledExecutorService service = getExecutor();
+        if (service == null)
+            return;
+
+        service.execute(new Runnable() {
+            @Override
+            public void run() {
+                int count = preloadClasses(loader, bundleState, lazyFilter, classNames);
+                LOGGER.debugf("Preloaded %d classes for: %s", count, bundleState);
+            }
+        });
+    }
+
+    /**
+     * Define the given classes in the class loader of the bundle, skipping those that would trigger a lazy activation.
+     *
+     * @return the number of classes that were loaded
+     */
+    int preloadClasses(HostBundleClassLoader loader, UserBundleState bundleState, PathFilter lazyFilter, List<String> classNames) {
+        int count = 0;
+        for (String className : classNames) {
+            if (bundleManager.hasStopped())
+                break;
+            int index = className.lastIndexOf('.');
+            String path = index > 0 ? className.substring(0, index).replace('.', '/') : "";
+            if (bundleState.awaitLazyActivation() && lazyFilter.accept(path))
+                continue;
+            preloading.set(Boolean.TRUE);
+            try {
+                loader.loadClassLocal(className, false);
+                count++;
+            } catch (Throwable th) {
+                LOGGER.tracef("Cannot preload %s: %s", className, th);
+            } finally {
+                preloading.remove();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Record a class that was defined by the given bundle.
+     */
+    void classDefined(UserBundleState bundleState, String className) {
+        if (!recording || isPreloading() || !isEnabled())
+            return;
+        if (System.currentTimeMillis() > recordUntil)
+            return;
+
+        String key = getProfileKey(bundleState);
+        if (getProfile().containsKey(key))
+            return;
+
+        Set<String> classNames = recorded.get(key);
+        if (classNames == null) {
+            classNames = Collections.synchronizedSet(new LinkedHashSet<String>());
+            Set<String> existing = recorded.putIfAbsent(key, classNames);
+            if (existing != null) {
+                classNames = existing;
+            }
+        }
+        classNames.add(className);
+    }
+
+    /**
+     * Limit the recording to the configured time from now and write the profile when it has passed.
+     */
+    void frameworkActive() {
+        if (!isEnabled())
+            return;
+
+        long duration = DEFAULT_DURATION;
+        Object value = bundleManager.getProperty(Constants.PROPERTY_CLASSLOAD_PROFILE_DURATION);
+        if (value != null) {
+            try {
+                duration = Math.max(0, Long.parseLong(value.toString().trim()));
+            } catch (NumberFormatException ex) {
+                LOGGER.debugf("Invalid value for %s: %s", Constants.PROPERTY_CLASSLOAD_PROFILE_DURATION, value);
+            }
+        }
+        recordUntil = System.currentTimeMillis() + duration;
+
+        ScheduledExecutorService service = getExecutor();
+        if (service != null) {
+            service.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    writeProfile();
+                }
+            }, duration, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Write the profile if it is still being recorded and stop the preload threads.
+     */
+    void close() {
+        ScheduledExecutorService service;
+        synchronized (this) {
+            service = executor;
+            executor = null;
+            closed = true;
+        }
+        if (service != null) {
+            service.shutdownNow();
+        }
+        if (isEnabled()) {
+            writeProfile();
+        }
+    }
+
+    private synchronized ScheduledExecutorService getExecutor() {
+        if (executor == null && !closed) {
+            final AtomicInteger count = new AtomicInteger();
+            int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+            executor = Executors.newScheduledThreadPool(threads, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable run) {
+                    Thread thread = new Thread(run);
+                    thread.setName("Framework Class Preload Thread #" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+
+    private static String getProfileKey(UserBundleState bundleState) {
+        return bundleState.getLocation() + "|" + bundleState.getLastModified();
+    }
+
+    private File getProfileFile() {
+        File storageArea = bundleManager.getFrameworkState().getStorageManager().getStorageArea();
+        return new File(storageArea, PROFILE_FILE);
+    }
+
+    private Map<String, List<String>> getProfile() {
+        Map<String, List<String>> result = profile;
+        if (result == null) {
+            synchronized (this) {
+                result = profile;
+                if (result == null) {
+                    result = readProfile(getProfileFile());
+                    profile = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Map<String, List<String>> readProfile(File file) {
+        Map<String, List<String>> result = new HashMap<String, List<String>>();
+        if (!file.isFile())
+            return result;
+
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+            try {
+                List<String> classNames = null;
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith(KEY_PREFIX)) {
+                        classNames = new ArrayList<String>();
+                        result.put(line.substring(KEY_PREFIX.length()), Collections.unmodifiableList(classNames));
+                    } else if (classNames != null && line.length() > 0) {
+                        classNames.add(line);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException ex) {
+            LOGGER.debugf(ex, "Cannot read class load profile: %s", file);
+            result.clear();
+        }
+        return result;
+    }
+
+    private synchronized void writeProfile() {
+        if (!recording)
+            return;
+
+        recording = false;
+
+        // Keep the entries of the bundles that were seen in this run
+        Map<String, List<String>> previous = getProfile();
+        File file = getProfileFile();
+        try {
+            File tmpFile = File.createTempFile(PROFILE_FILE, ".tmp", file.getParentFile());
+            try {
+                Writer writer = new OutputStreamWriter(new FileOutputStream(tmpFile), "UTF-8");
+                try {
+                    for (String key : activeKeys) {
+                        List<String> classNames = previous.get(key);
+                        if (classNames == null) {
+                            Set<String> recordedNames = recorded.get(key);
+                            if (recordedNames == null)
+                                continue;
+                            synchronized (recordedNames) {
+                                classNames = new ArrayList<String>(recordedNames);
+                            }
+                        }
+                        writer.write(KEY_PREFIX + key + "\n");
+                        for (String className : classNames) {
+                            writer.write(className + "\n");
+                        }
+                    }
+                } finally {
+                    writer.close();
+                }
+                try {
+                    Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException ex) {
+                    Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                tmpFile.delete();
+            }
+            LOGGER.debugf("Class load profile written: %s", file);
+        } catch (IOException ex) {
+            LOGGER.debugf(ex, "Cannot write class load profile: %s", file);
+        }
+        recorded.clear();
+    }
+}
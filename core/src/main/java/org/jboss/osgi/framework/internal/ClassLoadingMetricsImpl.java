@@ -0,0 +1,65 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jboss.osgi.framework.spi.ClassLoadingMetrics;
+import org.jboss.osgi.resolver.XBundle;
+import org.osgi.framework.Bundle;
+
+/**
+ * The default {@link ClassLoadingMetrics}.
+ *
+ * The counters are owned by the {@link UserBundleState} and live as long as the bundle.
+ *
+ * @since 18-Oct-2026
+ */
+final class ClassLoadingMetricsImpl implements ClassLoadingMetrics {
+
+    private final BundleManagerPlugin bundleManager;
+
+    ClassLoadingMetricsImpl(BundleManagerPlugin bundleManager) {
+        this.bundleManager = bundleManager;
+    }
+
+    @Override
+    public BundleStatistics getStatistics(Bundle bundle) {
+        if (bundle instanceof UserBundleState && !((UserBundleState) bundle).isFragment()) {
+            return ((UserBundleState) bundle).getClassLoadingStatistics();
+        }
+        return null;
+    }
+
+    @Override
+    public List<BundleStatistics> getStatistics() {
+        List<BundleStatistics> result = new ArrayList<BundleStatistics>();
+        for (XBundle bundle : bundleManager.getBundles()) {
+            BundleStatistics stats = getStatistics(bundle);
+            if (stats != null) {
+                result.add(stats);
+            }
+        }
+        return result;
+    }
+}
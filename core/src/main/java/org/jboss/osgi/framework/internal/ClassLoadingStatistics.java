@@ -0,0 +1,170 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.internal;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.osgi.framework.spi.ClassLoadingMetrics.BundleStatistics;
+
+/**
+ * The class loading counters of a {@link UserBundleState}.
+ *
+ * @since 18-Oct-2026
+ */
+final class ClassLoadingStatistics implements BundleStatistics {
+
+    private final UserBundleState bundleState;
+    private final AtomicLong classesDefined = new AtomicLong();
+    private final AtomicLong localLoads = new AtomicLong();
+    private final AtomicLong localMisses = new AtomicLong();
+    private final AtomicLong delegatedLoads = new AtomicLong();
+    private final AtomicLong classLoadTime = new AtomicLong();
+    private final AtomicLong classBytesRead = new AtomicLong();
+    private final AtomicLong dynamicImportHits = new AtomicLong();
+    private final AtomicLong dynamicImportMisses = new AtomicLong();
+    private final AtomicLong lazyActivations = new AtomicLong();
+    private final ConcurrentMap<String, AtomicLong> weavingTimes = new ConcurrentHashMap<String, AtomicLong>();
+
+    ClassLoadingStatistics(UserBundleState bundleState) {
+        this.bundleState = bundleState;
+    }
+
+    void localLoad(boolean found, long nanos) {
+        if (found) {
+            localLoads.incrementAndGet();
+        } else {
+            localMisses.incrementAndGet();
+        }
+        classLoadTime.addAndGet(nanos);
+    }
+
+    void classDefined() {
+        classesDefined.incrementAndGet();
+    }
+
+    void classBytesRead(int length) {
+        classBytesRead.addAndGet(length);
+    }
+
+    void delegatedLoad() {
+        delegatedLoads.incrementAndGet();
+    }
+
+    void dynamicImport(boolean hit) {
+        if (hit) {
+            dynamicImportHits.incrementAndGet();
+        } else {
+            dynamicImportMisses.incrementAndGet();
+        }
+    }
+
+    void weavingTime(String hookName, long nanos) {
+        AtomicLong value = weavingTimes.get(hookName);
+        if (value == null) {
+            AtomicLong other = weavingTimes.putIfAbsent(hookName, value = new AtomicLong());
+            if (other != null) {
+                value = other;
+            }
+        }
+        value.addAndGet(nanos);
+    }
+
+    void lazyActivation() {
+        lazyActivations.incrementAndGet();
+    }
+
+    @Override
+    public long getBundleId() {
+        return bundleState.getBundleId();
+    }
+
+    @Override
+    public String getSymbolicName() {
+        return bundleState.getSymbolicName();
+    }
+
+    @Override
+    public long getClassesDefined() {
+        return classesDefined.get();
+    }
+
+    @Override
+    public long getLocalLoads() {
+        return localLoads.get();
+    }
+
+    @Override
+    public long getLocalMisses() {
+        return localMisses.get();
+    }
+
+    @Override
+    public long getDelegatedLoads() {
+        return delegatedLoads.get();
+    }
+
+    @Override
+    public long getClassLoadTime() {
+        return classLoadTime.get();
+    }
+
+    @Override
+    public long getClassBytesRead() {
+        return classBytesRead.get();
+    }
+
+    @Override
+    public long getDynamicImportHits() {
+        return dynamicImportHits.get();
+    }
+
+    @Override
+    public long getDynamicImportMisses() {
+        return dynamicImportMisses.get();
+    }
+
+    @Override
+    public Map<String, Long> getWeavingTimes() {
+        Map<String, Long> result = new HashMap<String, Long>();
+        for (Entry<String, AtomicLong> entry : weavingTimes.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().get());
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    @Override
+    public long getLazyActivations() {
+        return lazyActivations.get();
+    }
+
+    @Override
+    public String toString() {
+        return "ClassLoadingStatistics[" + bundleState + ",defined=" + getClassesDefined() + ",local=" + getLocalLoads() + ",misses="
+                + getLocalMisses() + ",delegated=" + getDelegatedLoads() + ",time=" + getClassLoadTime() + "]";
+    }
+}
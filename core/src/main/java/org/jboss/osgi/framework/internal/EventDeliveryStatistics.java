@@ -0,0 +1,214 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.jboss.osgi.framework.spi.EventDeliveryMetrics;
+import org.jboss.osgi.spi.ConstantsHelper;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.FrameworkEvent;
+import org.osgi.framework.ServiceEvent;
+
+/**
+ * The event delivery counters of the {@link FrameworkEventsImpl}.
+ *
+ * Event types are single bit flags, so each event class keeps its histograms in an array indexed by bit position.
+ *
+ * @since 18-Oct-2026
+ */
+final class EventDeliveryStatistics implements EventDeliveryMetrics {
+
+    static final int BUNDLE_EVENT = 0;
+    static final int FRAMEWORK_EVENT = 1;
+    static final int SERVICE_EVENT = 2;
+
+    // Buckets grow by a factor of four, starting at 10 microseconds
+    private static final long[] BUCKET_BOUNDS = new long[12];
+    static {
+        long bound = TimeUnit.MICROSECONDS.toNanos(10);
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            BUCKET_BOUNDS[i] = bound;
+            bound *= 4;
+        }
+    }
+
+    private final List<AtomicReferenceArray<LatencyHistogram>> histograms = new ArrayList<AtomicReferenceArray<LatencyHistogram>>();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicLong slowListeners = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final long syncThreshold;
+    private final long asyncThreshold;
+
+    EventDeliveryStatistics(long syncThresholdMillis, long asyncThresholdMillis) {
+        this.syncThreshold = TimeUnit.MILLISECONDS.toNanos(syncThresholdMillis);
+        this.asyncThreshold = TimeUnit.MILLISECONDS.toNanos(asyncThresholdMillis);
+        for (int i = 0; i <= SERVICE_EVENT; i++) {
+            histograms.add(new AtomicReferenceArray<LatencyHistogram>(Integer.SIZE));
+        }
+    }
+
+    /**
+     * Record a listener call and return true if it exceeded the slow listener threshold.
+     */
+    boolean record(int eventClass, int type, long nanos, boolean async) {
+        AtomicReferenceArray<LatencyHistogram> array = histograms.get(eventClass);
+        int index = Integer.numberOfTrailingZeros(type);
+        LatencyHistogram histogram = array.get(index);
+        if (histogram == null) {
+            array.compareAndSet(index, null, new LatencyHistogram(getName(eventClass, type)));
+            histogram = array.get(index);
+        }
+        histogram.record(nanos);
+
+        long threshold = async ? asyncThreshold : syncThreshold;
+        if (threshold > 0 && nanos > threshold) {
+            slowListeners.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    void taskQueued() {
+        queueDepth.incrementAndGet();
+    }
+
+    void taskDone() {
+        queueDepth.decrementAndGet();
+    }
+
+    void eventDropped() {
+        droppedEvents.incrementAndGet();
+    }
+
+    @Override
+    public List<Histogram> getHistograms() {
+        List<Histogram> result = new ArrayList<Histogram>();
+        for (AtomicReferenceArray<LatencyHistogram> array : histograms) {
+            for (int i = 0; i < array.length(); i++) {
+                LatencyHistogram histogram = array.get(i);
+                if (histogram != null) {
+                    result.add(histogram);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    @Override
+    public long getSlowListenerCount() {
+        return slowListeners.get();
+    }
+
+    @Override
+    public long getDroppedEventCount() {
+        return droppedEvents.get();
+    }
+
+    private static String getName(int eventClass, int type) {
+        switch (eventClass) {
+            case BUNDLE_EVENT:
+                return BundleEvent.class.getSimpleName() + "." + ConstantsHelper.bundleEvent(type);
+            case FRAMEWORK_EVENT:
+                return FrameworkEvent.class.getSimpleName() + "." + ConstantsHelper.frameworkEvent(type);
+            default:
+                return ServiceEvent.class.getSimpleName() + "." + ConstantsHelper.serviceEvent(type);
+        }
+    }
+
+    static final class LatencyHistogram implements Histogram {
+
+        private final String name;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS.length + 1);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalTime = new AtomicLong();
+        private final AtomicLong maxTime = new AtomicLong();
+
+        LatencyHistogram(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos) {
+            int index = 0;
+            while (index < BUCKET_BOUNDS.length && nanos >= BUCKET_BOUNDS[index]) {
+                index++;
+            }
+            buckets.incrementAndGet(index);
+            count.incrementAndGet();
+            totalTime.addAndGet(nanos);
+            long max = maxTime.get();
+            while (nanos > max && !maxTime.compareAndSet(max, nanos)) {
+                max = maxTime.get();
+            }
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public long getCount() {
+            return count.get();
+        }
+
+        @Override
+        public long getTotalTime() {
+            return totalTime.get();
+        }
+
+        @Override
+        public long getMaxTime() {
+            return maxTime.get();
+        }
+
+        @Override
+        public long[] getBucketBounds() {
+            return BUCKET_BOUNDS.clone();
+        }
+
+        @Override
+        public long[] getBucketCounts() {
+            long[] result = new long[buckets.length()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = buckets.get(i);
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "Histogram[" + name + ",count=" + getCount() + ",total=" + getTotalTime() + ",max=" + getMaxTime() + "]";
+        }
+    }
+}
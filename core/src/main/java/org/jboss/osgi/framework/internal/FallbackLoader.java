@@ -40,7 +40,6 @@ import java.util.concurrent.locks.ReentrantLock;
 import org.jboss.modules.LocalLoader;
 import org.jboss.modules.ModuleClassLoader;
 import org.jboss.modules.Resource;
-import org.jboss.osgi.framework.spi.BundleManager;
 import org.jboss.osgi.framework.spi.SystemPaths;
 import org.jboss.osgi.framework.spi.URLResource;
 import org.jboss.osgi.resolver.XBundle;
@@ -80,7 +79,8 @@ final class FallbackLoader implements LocalLoader {
     private final HostBundleRevision hostRev;
     private final Set<String> importedPaths;
     private final FrameworkState frameworkState;
-    private final BundleManager bundleManager;
+    private final BundleManagerPlugin bundleManager;
+    private final ClassLoadingStatistics statistics;
 
     private List<XPackageRequirement> weavingImports;
 
@@ -92,6 +92,7 @@ final class FallbackLoader implements LocalLoader {
         this.hostBundle = hostRev.getBundleState();
         this.bundleManager = hostBundle.getBundleManager();
         this.frameworkState = hostBundle.getFrameworkState();
+        this.statistics = hostBundle.getClassLoadingStatistics();
         hostRev.setFallbackLoader(this);
     }
 
@@ -136,6 +137,7 @@ final class FallbackLoader implements LocalLoader {
 
         Class<?> result = null;
         XBundleRevision brev = context.targetRevision;
+        statistics.dynamicImport(brev != null);
         if (brev != null) {
             try {
                 ModuleClassLoader moduleClassLoader = brev.getModuleClassLoader();
@@ -152,6 +154,7 @@ final class FallbackLoader implements LocalLoader {
                 XWiring providerWiring = (XWiring) brev.getBundle().adapt(BundleWiring.class);
                 requirerWiring.addRequiredWire(wire);
                 providerWiring.addProvidedWire(wire);
+                bundleManager.getWireIndex().addWire(wire);
             }
         }
         return result;
@@ -177,6 +180,7 @@ final class FallbackLoader implements LocalLoader {
 
             findRevisionDynamically(context, matchingPatterns);
             XBundleRevision brev = context.targetRevision;
+            statistics.dynamicImport(brev != null);
             if (brev == null)
                 return Collections.emptyList();
 
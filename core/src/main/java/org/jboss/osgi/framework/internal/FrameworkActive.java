@@ -51,6 +51,8 @@ import org.jboss.osgi.framework.spi.NativeCodePlugin;
 import org.jboss.osgi.framework.spi.ServiceManagerPlugin;
 import org.jboss.osgi.framework.spi.StartLevelManager;
 import org.jboss.osgi.framework.spi.StartLevelManagerPlugin;
+import org.jboss.osgi.framework.spi.StartupTrace.Category;
+import org.jboss.osgi.framework.spi.StartupTrace.Span;
 import org.jboss.osgi.framework.spi.StorageManagerPlugin;
 import org.jboss.osgi.framework.spi.SystemPathsPlugin;
 import org.jboss.osgi.framework.spi.SystemServicesPlugin;
@@ -148,7 +150,12 @@ public final class FrameworkActive extends AbstractFrameworkService {
 
         // Increase to initial start level
         StartLevelManager startLevelPlugin = frameworkState.getStartLevelManager();
-        startLevelPlugin.increaseFrameworkStartLevel(getBeginningStartLevel(bundleManager));
+        Span span = bundleManager.getStartupTrace().begin(Category.PHASE, "FrameworkActive.startLevel");
+        try {
+            startLevelPlugin.increaseFrameworkStartLevel(getBeginningStartLevel(bundleManager));
+        } finally {
+            span.end();
+        }
 
         // Mark Framework as active in the bundle manager
         bundleManager.injectedFrameworkActive.inject(Boolean.TRUE);
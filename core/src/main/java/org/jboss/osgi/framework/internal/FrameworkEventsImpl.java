@@ -31,15 +31,23 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.jboss.osgi.framework.Constants;
 import org.jboss.osgi.framework.spi.FrameworkEvents;
+import org.jboss.osgi.framework.spi.KeyedExecutor;
 import org.jboss.osgi.framework.spi.LockManager;
 import org.jboss.osgi.framework.spi.LockManager.LockContext;
 import org.jboss.osgi.framework.spi.ServiceState;
@@ -52,11 +60,9 @@ import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.BundleEvent;
 import org.osgi.framework.BundleListener;
-import org.osgi.framework.Constants;
 import org.osgi.framework.Filter;
 import org.osgi.framework.FrameworkEvent;
 import org.osgi.framework.FrameworkListener;
-import org.osgi.framework.FrameworkUtil;
 import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceEvent;
 import org.osgi.framework.ServiceListener;
@@ -76,16 +82,23 @@ import org.osgi.framework.hooks.service.ListenerHook.ListenerInfo;
  * @since 18-Aug-2009
  */
 @SuppressWarnings("deprecation")
-final class FrameworkEventsImpl implements FrameworkEvents {
+public final class FrameworkEventsImpl implements FrameworkEvents {
 
     private final BundleManagerPlugin bundleManager;
     private final ExecutorService executorService;
     private final LockManager lockManager;
+    private final EventDeliveryStatistics statistics;
+    private final int asyncBacklog;
+    private final ThreadLocal<BundleEventBatch> currentBatch = new ThreadLocal<BundleEventBatch>();
 
     /** The bundleState listeners */
     private final Map<XBundle, List<BundleListenerRegistration>> bundleListeners = new ConcurrentHashMap<XBundle, List<BundleListenerRegistration>>();
+    /** Incremented on every change to the bundle listeners */
+    private volatile int bundleListenersVersion;
     /** The framework listeners */
     private final Map<XBundle, List<FrameworkListener>> frameworkListeners = new ConcurrentHashMap<XBundle, List<FrameworkListener>>();
+    /** The mailboxes of the asynchronous listeners, one per listener object */
+    private final Map<Object, EventMailbox> listenerMailboxes = new WeakHashMap<Object, EventMailbox>();
     /** The service listeners */
     private final Map<XBundle, List<ServiceListenerRegistration>> serviceListeners = new ConcurrentHashMap<XBundle, List<ServiceListenerRegistration>>();
 
@@ -98,6 +111,10 @@ final class FrameworkEventsImpl implements FrameworkEvents {
         this.bundleManager = bundleManager;
         this.executorService = executorService;
         this.lockManager = lockManager;
+        long syncThreshold = getLongProperty(Constants.PROPERTY_EVENTS_SLOW_LISTENER_THRESHOLD, 0);
+        long asyncThreshold = getLongProperty(Constants.PROPERTY_EVENTS_SLOW_ASYNC_LISTENER_THRESHOLD, syncThreshold);
+        this.statistics = new EventDeliveryStatistics(syncThreshold, asyncThreshold);
+        this.asyncBacklog = (int) getLongProperty(Constants.PROPERTY_EVENTS_ASYNC_BACKLOG, 0);
         asyncBundleEvents.add(new Integer(BundleEvent.INSTALLED));
         asyncBundleEvents.add(new Integer(BundleEvent.RESOLVED));
         asyncBundleEvents.add(new Integer(BundleEvent.STARTED));
@@ -115,6 +132,15 @@ final class FrameworkEventsImpl implements FrameworkEvents {
         infoEvents.add(ConstantsHelper.bundleEvent(BundleEvent.UNINSTALLED));
     }
 
+    EventDeliveryStatistics getDeliveryStatistics() {
+        return statistics;
+    }
+
+    private long getLongProperty(String key, long defaultValue) {
+        Object value = bundleManager.getProperty(key);
+        return value != null ? Long.parseLong(value.toString().trim()) : defaultValue;
+    }
+
     @Override
     public void addBundleListener(final XBundle bundle, final BundleListener listener) {
         assert listener != null : "Null listener";
@@ -124,9 +150,10 @@ final class FrameworkEventsImpl implements FrameworkEvents {
                 registrations = new ArrayList<BundleListenerRegistration>();
                 bundleListeners.put(bundle, registrations);
             }
-            BundleListenerRegistration registration = new BundleListenerRegistration(bundle, listener);
+            BundleListenerRegistration registration = new BundleListenerRegistration(bundle, listener, getMailbox(listener));
             if (registrations.contains(registration) == false) {
                 registrations.add(registration);
+                bundleListenersVersion++;
             }
         }
     }
@@ -143,6 +170,7 @@ final class FrameworkEventsImpl implements FrameworkEvents {
                         BundleListenerRegistration registration = iterator.next();
                         if (registration.getListener() == listener) {
                             iterator.remove();
+                            bundleListenersVersion++;
                             break;
                         }
                     }
@@ -157,6 +185,7 @@ final class FrameworkEventsImpl implements FrameworkEvents {
     public void removeBundleListeners(final XBundle bundleState) {
         synchronized (bundleListeners) {
             bundleListeners.remove(bundleState);
+            bundleListenersVersion++;
         }
     }
 
@@ -164,6 +193,7 @@ final class FrameworkEventsImpl implements FrameworkEvents {
     public void removeAllBundleListeners() {
         synchronized (bundleListeners) {
             bundleListeners.clear();
+            bundleListenersVersion++;
         }
     }
 
@@ -187,10 +217,11 @@ final class FrameworkEventsImpl implements FrameworkEvents {
         synchronized (frameworkListeners) {
             List<FrameworkListener> listeners = frameworkListeners.get(bundleState);
             if (listeners != null) {
-                if (listeners.size() > 1)
+                if (listeners.size() > 1) {
                     listeners.remove(listener);
-                else
+                } else {
                     removeFrameworkListeners(bundleState);
+                }
             }
         }
     }
@@ -209,6 +240,18 @@ final class FrameworkEventsImpl implements FrameworkEvents {
         }
     }
 
+    // A listener object that is registered for several kinds of events gets them in the order they were fired
+    private EventMailbox getMailbox(Object listener) {
+        synchronized (listenerMailboxes) {
+            EventMailbox mailbox = listenerMailboxes.get(listener);
+            if (mailbox == null) {
+                mailbox = new EventMailbox();
+                listenerMailboxes.put(listener, mailbox);
+            }
+            return mailbox;
+        }
+    }
+
     @Override
     public void addServiceListener(final XBundle bundleState, final ServiceListener listener, final String filterstr) throws InvalidSyntaxException {
         assert listener != null : "Null listener";
@@ -224,7 +267,7 @@ final class FrameworkEventsImpl implements FrameworkEvents {
             removeServiceListener(bundleState, listener);
 
             // Create the new listener registration
-            Filter filter = (filterstr != null ? FrameworkUtil.createFilter(filterstr) : NoFilter.INSTANCE);
+            Filter filter = (filterstr != null ? ServiceFilter.getFilter(filterstr) : NoFilter.INSTANCE);
             ServiceListenerRegistration slreg = new ServiceListenerRegistration(bundleState, listener, filter);
 
             // The {@link ListenerHook} added method is called to provide the hook implementation with information on newly
@@ -348,36 +391,30 @@ final class FrameworkEventsImpl implements FrameworkEvents {
         if (bundleManager.isFrameworkCreated() == false)
             return;
 
-        // Get a snapshot of the current listeners
-        final List<BundleListenerRegistration> registrations = new ArrayList<BundleListenerRegistration>();
-        synchronized (bundleListeners) {
-            for (Entry<XBundle, List<BundleListenerRegistration>> entry : bundleListeners.entrySet()) {
-                for (BundleListenerRegistration blreg : entry.getValue()) {
-                    registrations.add(blreg);
-                }
-            }
-        }
+        // Get a snapshot of the current listeners, a batch reuses its snapshot until the listeners change
+        final BundleEventBatch batch = currentBatch.get();
+        BundleListenerSnapshot snapshot = batch != null ? batch.getSnapshot() : createBundleListenerSnapshot();
+        final List<BundleListenerRegistration> registrations = new ArrayList<BundleListenerRegistration>(snapshot.registrations);
 
         // Expose the bundleState wrapper not the state itself
         final BundleEvent event = new BundleEventImpl(type, bundle, context != null ? context.getBundle() : bundle);
         final String typeName = ConstantsHelper.bundleEvent(event.getType());
 
         // Call the bundle {@link EventHook}
-        Collection<BundleContext> contexts = new ArrayList<BundleContext>();
-        for (XBundle aux : bundleListeners.keySet()) {
-            contexts.add(aux.getBundleContext());
-        }
         SystemBundleState sysbundle = bundleManager.getSystemBundle();
         BundleContext syscontext = sysbundle.getBundleContext();
-        contexts = new RemoveOnlyCollection<BundleContext>(contexts);
-        callBundleEventHooks(syscontext, contexts, event);
-
-        // Remove the filtered {@link BundleListener} registrations
-        Iterator<BundleListenerRegistration> iterator = registrations.iterator();
-        while(iterator.hasNext()) {
-            BundleListenerRegistration blreg = iterator.next();
-            if (!contexts.contains(blreg.getBundleContext())) {
-                iterator.remove();
+        List<EventHook> hooks = batch != null ? batch.getHooks(syscontext) : getBundleEventHooks(syscontext);
+        if (!hooks.isEmpty()) {
+            Collection<BundleContext> contexts = new RemoveOnlyCollection<BundleContext>(new ArrayList<BundleContext>(snapshot.contexts));
+            callBundleEventHooks(hooks, contexts, event);
+
+            // Remove the filtered {@link BundleListener} registrations
+            Iterator<BundleListenerRegistration> iterator = registrations.iterator();
+            while(iterator.hasNext()) {
+                BundleListenerRegistration blreg = iterator.next();
+                if (!contexts.contains(blreg.getBundleContext())) {
+                    iterator.remove();
+                }
             }
         }
 
@@ -389,7 +426,7 @@ final class FrameworkEventsImpl implements FrameworkEvents {
         LockContext currentLock = lockManager.getCurrentLockContext();
 
         // Synchronous listeners first
-        iterator = registrations.iterator();
+        Iterator<BundleListenerRegistration> iterator = registrations.iterator();
         while (iterator.hasNext()) {
             BundleListenerRegistration blreg = iterator.next();
             BundleListener listener = blreg.listener;
@@ -400,42 +437,232 @@ final class FrameworkEventsImpl implements FrameworkEvents {
                         LOGGER.debugf("Calling out to client code with current lock: %s", currentLock);
                     }
                     iterator.remove();
-                    listener.bundleChanged(event);
+                    long start = System.nanoTime();
+                    try {
+                        listener.bundleChanged(event);
+                    } finally {
+                        listenerCompleted(EventDeliveryStatistics.BUNDLE_EVENT, type, typeName, listener, blreg.getBundle(), start, false);
+                    }
                 }
             } catch (Throwable th) {
                 LOGGER.warnErrorWhileFiringBundleEvent(th, typeName, bundle);
             }
         }
 
-        if (!registrations.isEmpty()) {
+        // BundleListeners are called with a BundleEvent object when a bundleState has been
+        // installed, resolved, started, stopped, updated, unresolved, or uninstalled
+        if (registrations.isEmpty() || !asyncBundleEvents.contains(type))
+            return;
+
+        if (batch != null) {
+            batch.add(registrations, event);
+        } else if (executorService instanceof KeyedExecutor) {
+            // Every listener has its own mailbox, so that a slow listener does not delay the others
+            for (final BundleListenerRegistration blreg : registrations) {
+                Runnable delivery = new Runnable() {
+                    @Override
+                    public void run() {
+                        deliverBundleEvent(blreg, event, typeName);
+                    }
+                };
+                executeAsync(blreg.mailbox, delivery, blreg.listener, blreg.getBundle(), typeName);
+            }
+        } else {
+            Runnable runner = new Runnable() {
+                @Override
+                public void run() {
+                    for (BundleListenerRegistration blreg : registrations) {
+                        deliverBundleEvent(blreg, event, typeName);
+                    }
+                }
+            };
+            executeAsync(runner);
+        }
+    }
+
+    private BundleListenerSnapshot createBundleListenerSnapshot() {
+        synchronized (bundleListeners) {
+            return new BundleListenerSnapshot(bundleListenersVersion, bundleListeners);
+        }
+    }
+
+    /**
+     * A batch of bundle events that must be ended by the thread that began it.
+     */
+    public interface EventBatch {
+
+        void end();
+    }
+
+    private static final EventBatch NO_BATCH = new EventBatch() {
+        @Override
+        public void end() {
+        }
+    };
+
+    /**
+     * Begin a batch of bundle events on the current thread.
+     *
+     * While a batch is open, the listeners and event hooks are looked up once and the asynchronous
+     * bundle events are collected and handed to each listener in order when the batch ends.
+     * Synchronous listeners are still called immediately. Batches may be nested, the events are
+     * delivered when the outermost batch ends.
+     *
+     * Events of another {@link FrameworkEvents} implementation are not batched.
+     */
+    public static EventBatch beginEventBatch(FrameworkEvents events) {
+        return events instanceof FrameworkEventsImpl ? ((FrameworkEventsImpl) events).beginEventBatch() : NO_BATCH;
+    }
+
+    EventBatch beginEventBatch() {
+        BundleEventBatch batch = currentBatch.get();
+        if (batch == null) {
+            batch = new BundleEventBatch();
+            currentBatch.set(batch);
+        }
+        batch.depth++;
+        return batch;
+    }
+
+    private void flushBatch(Map<BundleListenerRegistration, List<BundleEvent>> pending) {
+        if (executorService instanceof KeyedExecutor) {
+            if (executorService.isShutdown())
+                return;
+
+            // One task per listener that delivers its events in order, every event takes a backlog slot
+            for (Entry<BundleListenerRegistration, List<BundleEvent>> entry : pending.entrySet()) {
+                final BundleListenerRegistration blreg = entry.getKey();
+                List<BundleEvent> events = entry.getValue();
+                int accepted = blreg.mailbox.offer(asyncBacklog, events.size());
+                for (int i = accepted; i < events.size(); i++) {
+                    eventDropped(blreg.mailbox, blreg.listener, blreg.getBundle(), ConstantsHelper.bundleEvent(events.get(i).getType()));
+                }
+                if (accepted == 0)
+                    continue;
+
+                final List<BundleEvent> accepts = events.subList(0, accepted);
+                Runnable delivery = new Runnable() {
+                    @Override
+                    public void run() {
+                        for (BundleEvent event : accepts) {
+                            deliverBundleEvent(blreg, event, ConstantsHelper.bundleEvent(event.getType()));
+                        }
+                    }
+                };
+                submitAsync(blreg.mailbox, accepted, delivery, blreg.listener, blreg.getBundle(), ConstantsHelper.bundleEvent(accepts.get(0).getType()));
+            }
+        } else {
+            final Map<BundleListenerRegistration, List<BundleEvent>> entries = pending;
             Runnable runner = new Runnable() {
                 @Override
                 public void run() {
-                    // BundleListeners are called with a BundleEvent object when a bundleState has been
-                    // installed, resolved, started, stopped, updated, unresolved, or uninstalled
-                    if (asyncBundleEvents.contains(type)) {
-                        for (BundleListenerRegistration blreg : registrations) {
-                            BundleListener listener = blreg.listener;
-                            try {
-                                if (!(listener instanceof SynchronousBundleListener)) {
-                                    listener.bundleChanged(event);
-                                }
-                            } catch (Throwable th) {
-                                LOGGER.warnErrorWhileFiringBundleEvent(th, typeName, bundle);
-                            }
+                    for (Entry<BundleListenerRegistration, List<BundleEvent>> entry : entries.entrySet()) {
+                        for (BundleEvent event : entry.getValue()) {
+                            deliverBundleEvent(entry.getKey(), event, ConstantsHelper.bundleEvent(event.getType()));
                         }
                     }
                 }
             };
+            executeAsync(runner);
+        }
+    }
+
+    private void deliverBundleEvent(BundleListenerRegistration blreg, BundleEvent event, String typeName) {
+        BundleListener listener = blreg.listener;
+        try {
+            long start = System.nanoTime();
+            try {
+                listener.bundleChanged(event);
+            } finally {
+                listenerCompleted(EventDeliveryStatistics.BUNDLE_EVENT, event.getType(), typeName, listener, blreg.getBundle(), start, true);
+            }
+        } catch (Throwable th) {
+            LOGGER.warnErrorWhileFiringBundleEvent(th, typeName, event.getBundle());
+        }
+    }
+
+    private void executeAsync(final Runnable runner) {
+        if (!executorService.isShutdown()) {
+            statistics.taskQueued();
+            try {
+                executorService.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            runner.run();
+                        } finally {
+                            statistics.taskDone();
+                        }
+                    }
+                });
+            } catch (RuntimeException ex) {
+                statistics.taskDone();
+                throw ex;
+            }
+        }
+    }
+
+    private void executeAsync(final EventMailbox mailbox, final Runnable delivery, Object listener, XBundle owner, String typeName) {
+        if (executorService.isShutdown())
+            return;
+
+        if (mailbox.offer(asyncBacklog, 1) == 0) {
+            eventDropped(mailbox, listener, owner, typeName);
+            return;
+        }
+        submitAsync(mailbox, 1, delivery, listener, owner, typeName);
+    }
+
+    // Submit a delivery of the given number of events that already took their slots in the mailbox
+    private void submitAsync(final EventMailbox mailbox, final int count, final Runnable delivery, Object listener, XBundle owner, String typeName) {
+        statistics.taskQueued();
+        try {
+            ((KeyedExecutor) executorService).execute(mailbox, new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        delivery.run();
+                    } finally {
+                        mailbox.done(count);
+                        statistics.taskDone();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            mailbox.done(count);
+            statistics.taskDone();
             if (!executorService.isShutdown()) {
-                executorService.execute(runner);
+                for (int i = 0; i < count; i++) {
+                    eventDropped(mailbox, listener, owner, typeName);
+                }
             }
         }
     }
 
-    private void callBundleEventHooks(BundleContext syscontext, Collection<BundleContext> contexts, BundleEvent event) {
+    private void eventDropped(EventMailbox mailbox, Object listener, XBundle owner, String typeName) {
+        statistics.eventDropped();
+        // Report once per overflow, the listener may itself be the receiver of the warning
+        if (mailbox.overflow()) {
+            String listenerName = listener.getClass().getName();
+            fireFrameworkEvent(owner, FrameworkEvent.WARNING, MESSAGES.eventBacklogOverflow(listenerName, asyncBacklog, typeName));
+        }
+    }
+
+    private void listenerCompleted(int eventClass, int type, String typeName, Object listener, XBundle owner, long start, boolean async) {
+        long elapsed = System.nanoTime() - start;
+        boolean slow = statistics.record(eventClass, type, elapsed, async);
+
+        // A slow listener that processes the warning must not cause another warning
+        if (slow && !(eventClass == EventDeliveryStatistics.FRAMEWORK_EVENT && type == FrameworkEvent.WARNING)) {
+            String listenerName = listener.getClass().getName();
+            long millis = TimeUnit.NANOSECONDS.toMillis(elapsed);
+            fireFrameworkEvent(owner, FrameworkEvent.WARNING, MESSAGES.slowEventListener(listenerName, millis, typeName));
+        }
+    }
+
+    private void callBundleEventHooks(List<EventHook> hooks, Collection<BundleContext> contexts, BundleEvent event) {
         // Call the registered event listener hooks
-        for (EventHook hook : getBundleEventHooks(syscontext)) {
+        for (EventHook hook : hooks) {
             try {
                 hook.event(event, contexts);
             } catch (Exception ex) {
@@ -472,19 +699,25 @@ final class FrameworkEventsImpl implements FrameworkEvents {
         if (bundleManager.isFrameworkCreated() == false)
             return;
 
-        // Get a snapshot of the current listeners
+        // Get a snapshot of the current listeners and their owners
         final ArrayList<FrameworkListener> listeners = new ArrayList<FrameworkListener>();
+        final ArrayList<XBundle> owners = new ArrayList<XBundle>();
+        final ArrayList<EventMailbox> mailboxes = new ArrayList<EventMailbox>();
         synchronized (frameworkListeners) {
             if (providedListeners != null) {
                 for (FrameworkListener listener : providedListeners) {
                     if (listener != null) {
                         listeners.add(listener);
+                        owners.add(bundle);
+                        mailboxes.add(getMailbox(listener));
                     }
                 }
             }
             for (Entry<XBundle, List<FrameworkListener>> entry : frameworkListeners.entrySet()) {
                 for (FrameworkListener listener : entry.getValue()) {
                     listeners.add(listener);
+                    owners.add(entry.getKey());
+                    mailboxes.add(getMailbox(listener));
                 }
             }
         }
@@ -507,30 +740,56 @@ final class FrameworkEventsImpl implements FrameworkEvents {
         if (listeners.isEmpty())
             return;
 
-        Runnable runner = new Runnable() {
-            @Override
-            public void run() {
-                // Call the listeners
-                for (FrameworkListener listener : listeners) {
-                    try {
-                        listener.frameworkEvent(event);
-                    } catch (RuntimeException ex) {
-                        LOGGER.warnErrorWhileFiringEvent(ex, typeName);
-
-                        // The Framework must publish a FrameworkEvent.ERROR if a callback to an
-                        // event listener generates an unchecked exception - except when the callback
-                        // happens while delivering a FrameworkEvent.ERROR
-                        if (type != FrameworkEvent.ERROR) {
-                            fireFrameworkEvent(bundle, FrameworkEvent.ERROR, ex);
-                        }
-                    } catch (Throwable th) {
-                        LOGGER.warnErrorWhileFiringEvent(th, typeName);
+        // Bundle events that were fired before must not be overtaken by this event
+        BundleEventBatch batch = currentBatch.get();
+        if (batch != null) {
+            batch.flush();
+        }
+
+        if (executorService instanceof KeyedExecutor) {
+            for (int i = 0; i < listeners.size(); i++) {
+                final FrameworkListener listener = listeners.get(i);
+                final XBundle owner = owners.get(i);
+                EventMailbox mailbox = mailboxes.get(i);
+                Runnable delivery = new Runnable() {
+                    @Override
+                    public void run() {
+                        deliverFrameworkEvent(listener, owner, bundle, event, typeName);
+                    }
+                };
+                executeAsync(mailbox, delivery, listener, owner, typeName);
+            }
+        } else {
+            Runnable runner = new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < listeners.size(); i++) {
+                        deliverFrameworkEvent(listeners.get(i), owners.get(i), bundle, event, typeName);
                     }
                 }
+            };
+            executeAsync(runner);
+        }
+    }
+
+    private void deliverFrameworkEvent(FrameworkListener listener, XBundle owner, XBundle bundle, FrameworkEvent event, String typeName) {
+        int type = event.getType();
+        long start = System.nanoTime();
+        try {
+            listener.frameworkEvent(event);
+        } catch (RuntimeException ex) {
+            LOGGER.warnErrorWhileFiringEvent(ex, typeName);
+
+            // The Framework must publish a FrameworkEvent.ERROR if a callback to an
+            // event listener generates an unchecked exception - except when the callback
+            // happens while delivering a FrameworkEvent.ERROR
+            if (type != FrameworkEvent.ERROR) {
+                fireFrameworkEvent(bundle, FrameworkEvent.ERROR, ex);
             }
-        };
-        if (!executorService.isShutdown()) {
-            executorService.execute(runner);
+        } catch (Throwable th) {
+            LOGGER.warnErrorWhileFiringEvent(th, typeName);
+        } finally {
+            listenerCompleted(EventDeliveryStatistics.FRAMEWORK_EVENT, type, typeName, listener, owner, start, true);
         }
     }
 
@@ -602,6 +861,7 @@ final class FrameworkEventsImpl implements FrameworkEvents {
                         continue;
                 }
 
+                long start = System.nanoTime();
                 try {
                     String filterstr = info.getFilter();
                     ServiceListener listener = listenerReg.getListener();
@@ -621,6 +881,8 @@ final class FrameworkEventsImpl implements FrameworkEvents {
                     }
                 } catch (Throwable th) {
                     LOGGER.warnErrorWhileFiringServiceEvent(th, typeName, serviceState);
+                } finally {
+                    listenerCompleted(EventDeliveryStatistics.SERVICE_EVENT, event.getType(), typeName, listenerReg.getListener(), listenerReg.getBundle(), start, false);
                 }
             }
         }
@@ -776,9 +1038,11 @@ final class FrameworkEventsImpl implements FrameworkEvents {
         private final BundleListener listener;
         private final BundleContext bundleContext;
         private final XBundle bundle;
+        private final EventMailbox mailbox;
 
-        BundleListenerRegistration(XBundle bundle, BundleListener listener) {
+        BundleListenerRegistration(XBundle bundle, BundleListener listener, EventMailbox mailbox) {
             this.listener = listener;
+            this.mailbox = mailbox;
             this.bundle = bundle;
             this.bundleContext = bundle.getBundleContext();
         }
@@ -817,6 +1081,118 @@ final class FrameworkEventsImpl implements FrameworkEvents {
         }
     }
 
+    /**
+     * The bundle listeners and their contexts at a given listener version.
+     */
+    static final class BundleListenerSnapshot {
+        private final int version;
+        private final List<BundleListenerRegistration> registrations = new ArrayList<BundleListenerRegistration>();
+        private final List<BundleContext> contexts = new ArrayList<BundleContext>();
+
+        BundleListenerSnapshot(int version, Map<XBundle, List<BundleListenerRegistration>> bundleListeners) {
+            this.version = version;
+            for (Entry<XBundle, List<BundleListenerRegistration>> entry : bundleListeners.entrySet()) {
+                registrations.addAll(entry.getValue());
+                contexts.add(entry.getKey().getBundleContext());
+            }
+        }
+    }
+
+    /**
+     * The bundle events of the current thread that are collected until the outermost batch ends.
+     */
+    final class BundleEventBatch implements EventBatch {
+
+        // Deliver early if a batch gets large, so that memory and latency stay bounded
+        private static final int MAX_PENDING_EVENTS = 256;
+
+        private int depth;
+        private int pendingEvents;
+        private BundleListenerSnapshot snapshot;
+        private List<EventHook> hooks;
+        private Map<BundleListenerRegistration, List<BundleEvent>> pending = new IdentityHashMap<BundleListenerRegistration, List<BundleEvent>>();
+
+        BundleListenerSnapshot getSnapshot() {
+            if (snapshot == null || snapshot.version != bundleListenersVersion) {
+                snapshot = createBundleListenerSnapshot();
+            }
+            return snapshot;
+        }
+
+        List<EventHook> getHooks(BundleContext syscontext) {
+            if (hooks == null) {
+                hooks = getBundleEventHooks(syscontext);
+            }
+            return hooks;
+        }
+
+        void add(List<BundleListenerRegistration> registrations, BundleEvent event) {
+            for (BundleListenerRegistration blreg : registrations) {
+                List<BundleEvent> events = pending.get(blreg);
+                if (events == null) {
+                    events = new ArrayList<BundleEvent>();
+                    pending.put(blreg, events);
+                }
+                events.add(event);
+            }
+            if (++pendingEvents >= MAX_PENDING_EVENTS) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (!pending.isEmpty()) {
+                Map<BundleListenerRegistration, List<BundleEvent>> events = pending;
+                pending = new IdentityHashMap<BundleListenerRegistration, List<BundleEvent>>();
+                pendingEvents = 0;
+                flushBatch(events);
+            }
+        }
+
+        @Override
+        public void end() {
+            assert currentBatch.get() == this : "Batch not owned by current thread";
+            if (--depth == 0) {
+                currentBatch.remove();
+                flush();
+            }
+        }
+    }
+
+    /**
+     * The pending asynchronous events of one listener object. It is also the key that orders their delivery on the executor.
+     *
+     * Events for the same listener object are delivered in the order they were fired, also when the object listens for
+     * bundle and framework events. There is no ordering between different listener objects.
+     */
+    static final class EventMailbox {
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicBoolean overflowing = new AtomicBoolean();
+
+        // Returns the number of the given events that fit into the backlog
+        int offer(int backlog, int count) {
+            while (true) {
+                int current = pending.get();
+                int accepted = backlog > 0 ? Math.min(count, backlog - current) : count;
+                if (accepted <= 0)
+                    return 0;
+                if (pending.compareAndSet(current, current + accepted))
+                    return accepted;
+            }
+        }
+
+        void done(int count) {
+            if (pending.addAndGet(-count) == 0) {
+                overflowing.set(false);
+            }
+        }
+
+        // Returns true if this is the first dropped event since the backlog was last drained
+        boolean overflow() {
+            return overflowing.compareAndSet(false, true);
+        }
+    }
+
     static class ListenerInfoImpl implements ListenerInfo {
 
         private final ServiceListenerRegistration registration;
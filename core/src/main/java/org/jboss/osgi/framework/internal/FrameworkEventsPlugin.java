@@ -53,6 +53,12 @@ final class FrameworkEventsPlugin extends ExecutorServicePlugin<FrameworkEvents>
         super(IntegrationServices.FRAMEWORK_EVENTS_PLUGIN, "Framework Events Thread");
     }
 
+    @Override
+    protected int getDefaultThreads() {
+        // Asynchronous listeners are called through their own ordered mailbox, a few threads isolate slow listeners
+        return Math.min(4, Runtime.getRuntime().availableProcessors());
+    }
+
     @Override
     protected void addServiceDependencies(ServiceBuilder<FrameworkEvents> builder) {
         super.addServiceDependencies(builder);
@@ -27,8 +27,8 @@ import static org.jboss.osgi.framework.FrameworkLogger.LOGGER;
 import static org.jboss.osgi.framework.FrameworkMessages.MESSAGES;
 
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 
 import org.jboss.modules.Module;
@@ -63,7 +63,8 @@ import org.osgi.framework.wiring.BundleWire;
  */
 public final class FrameworkModuleLoaderImpl extends ModuleLoader implements FrameworkModuleLoader {
 
-    private final Map<ModuleIdentifier, ModuleHolder> moduleSpecs = new ConcurrentHashMap<ModuleIdentifier, ModuleHolder>();
+    // Each holder is the lock for its identifier, so that modules for independent bundles load in parallel
+    private final ConcurrentMap<ModuleIdentifier, ModuleHolder> moduleSpecs = new ConcurrentHashMap<ModuleIdentifier, ModuleHolder>();
     private final ServiceRegistry serviceRegistry;
 
     public FrameworkModuleLoaderImpl(ServiceRegistry serviceRegistry) {
@@ -82,20 +83,21 @@ public final class FrameworkModuleLoaderImpl extends ModuleLoader implements Fra
 
     @Override
     public ModuleSpec findModule(ModuleIdentifier identifier) throws ModuleLoadException {
-        synchronized (moduleSpecs) {
-            ModuleHolder moduleHolder = moduleSpecs.get(identifier);
-            return moduleHolder != null ? moduleHolder.getModuleSpec() : null;
-        }
+        ModuleHolder moduleHolder = moduleSpecs.get(identifier);
+        return moduleHolder != null ? moduleHolder.getModuleSpec() : null;
     }
 
     @Override
     protected Module preloadModule(ModuleIdentifier identifier) throws ModuleLoadException {
-        Module module = null;
-        synchronized (moduleSpecs) {
-            ModuleHolder moduleHolder = moduleSpecs.get(identifier);
-            if (moduleHolder != null) {
+        ModuleHolder moduleHolder = moduleSpecs.get(identifier);
+        if (moduleHolder == null)
+            return null;
+
+        Module module = moduleHolder.getModule();
+        if (module == null) {
+            synchronized (moduleHolder) {
                 module = moduleHolder.getModule();
-                if (module == null) {
+                if (module == null && !moduleHolder.isRemoved()) {
                     module = loadModuleLocal(identifier);
                     moduleHolder.setModule(module);
                 }
@@ -117,50 +119,52 @@ public final class FrameworkModuleLoaderImpl extends ModuleLoader implements Fra
 
     @Override
     public void addModuleSpec(XBundleRevision brev, ModuleSpec moduleSpec) {
-        synchronized (moduleSpecs) {
-            LOGGER.tracef("addModule: %s", moduleSpec.getModuleIdentifier());
-            ModuleIdentifier identifier = moduleSpec.getModuleIdentifier();
-            if (moduleSpecs.get(identifier) != null)
-                throw MESSAGES.illegalStateModuleAlreadyExists(identifier);
-            ModuleHolder moduleHolder = new ModuleHolder(moduleSpec);
-            moduleSpecs.put(identifier, moduleHolder);
-        }
+        LOGGER.tracef("addModule: %s", moduleSpec.getModuleIdentifier());
+        ModuleIdentifier identifier = moduleSpec.getModuleIdentifier();
+        ModuleHolder moduleHolder = new ModuleHolder(moduleSpec);
+        if (moduleSpecs.putIfAbsent(identifier, moduleHolder) != null)
+            throw MESSAGES.illegalStateModuleAlreadyExists(identifier);
     }
 
     @Override
     public void addModule(XBundleRevision brev, Module module) {
-        synchronized (moduleSpecs) {
-            LOGGER.tracef("addModule: %s", module.getIdentifier());
-            ModuleIdentifier identifier = module.getIdentifier();
-            if (moduleSpecs.get(identifier) != null)
-                throw MESSAGES.illegalStateModuleAlreadyExists(identifier);
-            ModuleHolder moduleHolder = new ModuleHolder(module);
-            moduleSpecs.put(identifier, moduleHolder);
-        }
+        LOGGER.tracef("addModule: %s", module.getIdentifier());
+        ModuleIdentifier identifier = module.getIdentifier();
+        ModuleHolder moduleHolder = new ModuleHolder(module);
+        if (moduleSpecs.putIfAbsent(identifier, moduleHolder) != null)
+            throw MESSAGES.illegalStateModuleAlreadyExists(identifier);
     }
 
     @Override
     public void removeModule(XBundleRevision brev) {
-        synchronized (moduleSpecs) {
-            ModuleIdentifier identifier = brev.getModuleIdentifier();
-            LOGGER.tracef("removeModule: %s", identifier);
-            moduleSpecs.remove(identifier);
-
-            // Remove the module service
-            ServiceController<?> moduleService = serviceRegistry.getService(getModuleServiceName(identifier));
-            if (moduleService != null) {
-                moduleService.setMode(Mode.REMOVE);
-            }
+        ModuleIdentifier identifier = brev.getModuleIdentifier();
+        LOGGER.tracef("removeModule: %s", identifier);
+        ModuleHolder moduleHolder = moduleSpecs.remove(identifier);
+        if (moduleHolder == null) {
+            removeModuleInternal(identifier);
+            return;
+        }
+        synchronized (moduleHolder) {
+            moduleHolder.setRemoved();
+            removeModuleInternal(identifier);
+        }
+    }
 
-            // Unload the Module from the ModuleLoader
-            try {
-                Module module = loadModuleLocal(identifier);
-                if (module != null) {
-                    unloadModuleLocal(module);
-                }
-            } catch (ModuleLoadException ex) {
-                // ignore
+    private void removeModuleInternal(ModuleIdentifier identifier) {
+        // Remove the module service
+        ServiceController<?> moduleService = serviceRegistry.getService(getModuleServiceName(identifier));
+        if (moduleService != null) {
+            moduleService.setMode(Mode.REMOVE);
+        }
+
+        // Unload the Module from the ModuleLoader
+        try {
+            Module module = loadModuleLocal(identifier);
+            if (module != null) {
+                unloadModuleLocal(module);
             }
+        } catch (ModuleLoadException ex) {
+            // ignore
         }
     }
 
@@ -203,8 +207,9 @@ public final class FrameworkModuleLoaderImpl extends ModuleLoader implements Fra
 
     static class ModuleHolder {
 
-        private ModuleSpec moduleSpec;
-        private Module module;
+        private final ModuleSpec moduleSpec;
+        private volatile Module module;
+        private boolean removed;
 
         ModuleHolder(ModuleSpec moduleSpec) {
             assert moduleSpec != null : "Null moduleSpec";
@@ -213,6 +218,7 @@ public final class FrameworkModuleLoaderImpl extends ModuleLoader implements Fra
 
         ModuleHolder(Module module) {
             assert module != null : "Null module";
+            this.moduleSpec = null;
             this.module = module;
         }
 
@@ -227,5 +233,13 @@ public final class FrameworkModuleLoaderImpl extends ModuleLoader implements Fra
         void setModule(Module module) {
             this.module = module;
         }
+
+        boolean isRemoved() {
+            return removed;
+        }
+
+        void setRemoved() {
+            removed = true;
+        }
     }
 }
@@ -40,6 +40,9 @@ import org.jboss.osgi.framework.Constants;
 import org.jboss.osgi.framework.spi.FrameworkBuilder;
 import org.jboss.osgi.framework.spi.FrameworkBuilder.FrameworkPhase;
 import org.jboss.osgi.framework.spi.ServiceTracker;
+import org.jboss.osgi.framework.spi.StartupTrace.Category;
+import org.jboss.osgi.framework.spi.StartupTrace.Span;
+import org.jboss.osgi.framework.spi.StorageManager;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.BundleException;
@@ -137,13 +140,18 @@ final class FrameworkProxy implements Framework {
             bundleManager = (BundleManagerPlugin) frameworkBuilder.createFrameworkServices(serviceContainer, firstInit);
             bundleManager.setManagerState(Bundle.STARTING);
 
-            ServiceTracker<Object> serviceTracker = new ServiceTracker<Object>("Framework.init");
-            frameworkBuilder.installServices(FrameworkPhase.CREATE, serviceTarget, serviceTracker);
-            frameworkBuilder.installServices(FrameworkPhase.INIT, serviceTarget, serviceTracker);
+            Span span = bundleManager.getStartupTrace().begin(Category.PHASE, "Framework.init");
+            try {
+                ServiceTracker<Object> serviceTracker = new ServiceTracker<Object>("Framework.init");
+                frameworkBuilder.installServices(FrameworkPhase.CREATE, serviceTarget, serviceTracker);
+                frameworkBuilder.installServices(FrameworkPhase.INIT, serviceTarget, serviceTracker);
 
-            // Wait for all CREATE and INIT services to complete
-            if (!serviceTracker.awaitCompletion()) {
-                throw serviceTracker.getFirstFailure();
+                // Wait for all CREATE and INIT services to complete
+                if (!serviceTracker.awaitCompletion()) {
+                    throw serviceTracker.getFirstFailure();
+                }
+            } finally {
+                span.end();
             }
 
             bundleManager.setFramework(this);
@@ -189,15 +197,26 @@ final class FrameworkProxy implements Framework {
         LOGGER.debugf("Start framework");
         try {
 
-            ServiceTracker<Object> serviceTracker = new ServiceTracker<Object>("Framework.start");
-            frameworkBuilder.installServices(FrameworkPhase.ACTIVE, bundleManager.getServiceTarget(), serviceTracker);
+            StartupTraceImpl startupTrace = bundleManager.getStartupTrace();
+            Span span = startupTrace.begin(Category.PHASE, "Framework.start");
+            try {
+                ServiceTracker<Object> serviceTracker = new ServiceTracker<Object>("Framework.start");
+                frameworkBuilder.installServices(FrameworkPhase.ACTIVE, bundleManager.getServiceTarget(), serviceTracker);
 
-            // Wait for all CREATE and INIT services to complete
-            if (!serviceTracker.awaitCompletion()) {
-                throw serviceTracker.getFirstFailure();
+                // Wait for all CREATE and INIT services to complete
+                if (!serviceTracker.awaitCompletion()) {
+                    throw serviceTracker.getFirstFailure();
+                }
+            } finally {
+                span.end();
             }
 
             bundleManager.setManagerState(Bundle.ACTIVE);
+            bundleManager.getClassLoadProfiler().frameworkActive();
+
+            // Stop recording the startup timeline
+            StorageManager storageManager = bundleManager.getFrameworkState().getStorageManager();
+            startupTrace.complete(storageManager.getStorageArea());
 
         } catch (BundleException ex) {
             throw ex;
@@ -43,6 +43,8 @@ import org.jboss.osgi.framework.spi.LockManager.LockContext;
 import org.jboss.osgi.framework.spi.LockManager.Method;
 import org.jboss.osgi.framework.spi.ModuleManager;
 import org.jboss.osgi.framework.spi.NativeCode;
+import org.jboss.osgi.framework.spi.StartupTrace.Category;
+import org.jboss.osgi.framework.spi.StartupTrace.Span;
 import org.jboss.osgi.metadata.NativeLibraryMetaData;
 import org.jboss.osgi.resolver.XBundle;
 import org.jboss.osgi.resolver.XBundleRevision;
@@ -110,6 +112,17 @@ final class FrameworkResolverImpl implements XResolver {
     }
 
     private Map<Resource, List<Wire>> resolveInternal(XResolveContext resolveContext, boolean applyResults) throws ResolutionException {
+        StartupTraceImpl startupTrace = bundleManager.getStartupTrace();
+        String name = startupTrace.isEnabled() ? "FrameworkResolver.resolve[" + resolveContext.getMandatoryResources().size() + "]" : null;
+        Span span = startupTrace.begin(Category.RESOLVE, name);
+        try {
+            return resolveTraced(resolveContext, applyResults);
+        } finally {
+            span.end();
+        }
+    }
+
+    private Map<Resource, List<Wire>> resolveTraced(XResolveContext resolveContext, boolean applyResults) throws ResolutionException {
 
         // Resolver Hooks also must not be allowed to start another resolve operation, for example by starting a bundle or resolving bundles.
         // The framework must detect this and throw an Illegal State Exception.
@@ -257,6 +270,7 @@ final class FrameworkResolverImpl implements XResolver {
             XBundleRevision res = (XBundleRevision) entry.getKey();
             res.getWiringSupport().setWiring((XWiring) entry.getValue());
         }
+        bundleManager.getWireIndex().addWires(wiremap);
 
         // Change the bundle state to RESOLVED
         setBundleStatesToResolved(brevmap);
@@ -35,6 +35,7 @@ import java.util.ListIterator;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 
+import org.jboss.osgi.framework.internal.FrameworkEventsImpl.EventBatch;
 import org.jboss.osgi.framework.spi.BundleManager;
 import org.jboss.osgi.framework.spi.FrameworkEvents;
 import org.jboss.osgi.framework.spi.FrameworkWiringLock;
@@ -49,21 +50,15 @@ import org.jboss.osgi.resolver.XEnvironment;
 import org.jboss.osgi.resolver.XResolveContext;
 import org.jboss.osgi.resolver.XResolver;
 import org.jboss.osgi.resolver.XResource;
-import org.jboss.osgi.resolver.XWiringSupport;
-import org.jboss.osgi.resolver.spi.AbstractBundleWire;
 import org.jboss.osgi.resolver.spi.ResolverHookException;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleException;
 import org.osgi.framework.FrameworkEvent;
 import org.osgi.framework.FrameworkListener;
-import org.osgi.framework.namespace.HostNamespace;
 import org.osgi.framework.startlevel.BundleStartLevel;
 import org.osgi.framework.wiring.BundleRevision;
 import org.osgi.framework.wiring.BundleRevisions;
-import org.osgi.framework.wiring.BundleWiring;
 import org.osgi.framework.wiring.FrameworkWiring;
-import org.osgi.resource.Wire;
-import org.osgi.resource.Wiring;
 import org.osgi.service.resolver.ResolutionException;
 
 /**
@@ -151,6 +146,7 @@ public final class FrameworkWiringImpl implements FrameworkWiring {
         }
 
         LockContext context = null;
+        EventBatch batch = FrameworkEventsImpl.beginEventBatch(events);
         try {
             // Lock the dependency closure
             LockableItem wireLock = lockManager.getItemForType(FrameworkWiringLock.class);
@@ -207,11 +203,18 @@ public final class FrameworkWiringImpl implements FrameworkWiring {
                 }
             }
 
+            // Hand out the bundle events before the refresh is reported
+            batch.end();
+            batch = null;
+
             XBundle systemBundle = bundleManager.getSystemBundle();
             events.fireFrameworkEvent(systemBundle, FrameworkEvent.PACKAGES_REFRESHED, null, listeners);
         } catch (BundleException ex) {
             throw MESSAGES.illegalStateCannotRefreshBundles(ex);
         } finally {
+            if (batch != null) {
+                batch.end();
+            }
             lockManager.unlockItems(context);
         }
     }
@@ -261,19 +264,10 @@ public final class FrameworkWiringImpl implements FrameworkWiring {
     @Override
     public Collection<Bundle> getRemovalPendingBundles() {
         Collection<Bundle> result = new HashSet<Bundle>();
-        for (XBundle bundle : bundleManager.getBundles(null)) {
+        for (XBundleRevision brev : bundleManager.getWireIndex().getRemovalPendingRevisions()) {
+            XBundle bundle = brev.getBundle();
             if (bundle.getBundleId() != 0) {
-                BundleRevisions revisions = bundle.adapt(BundleRevisions.class);
-                for (BundleRevision rev : revisions.getRevisions()) {
-                    XBundleRevision brev = (XBundleRevision) rev;
-                    XWiringSupport wiringSupport = brev.getWiringSupport();
-                    if (!wiringSupport.isEffective()) {
-                        BundleWiring bwiring = (BundleWiring) wiringSupport.getWiring(false);
-                        if (bwiring != null && bwiring.isInUse()) {
-                            result.add(bundle);
-                        }
-                    }
-                }
+                result.add(bundle);
             }
         }
         return Collections.unmodifiableCollection(result);
@@ -284,39 +278,36 @@ public final class FrameworkWiringImpl implements FrameworkWiring {
         if (bundles == null)
             throw MESSAGES.illegalArgumentNull("bundles");
 
+        WireIndex wireIndex = bundleManager.getWireIndex();
         Set<Bundle> closure = new HashSet<Bundle>();
         for (Bundle bundle : bundles) {
-            transitiveDependencyClosure((XBundle) bundle, closure);
+            transitiveDependencyClosure(wireIndex, (XBundle) bundle, closure);
         }
         return Collections.unmodifiableCollection(closure);
     }
 
-    private void transitiveDependencyClosure(XBundle bundle, Set<Bundle> closure) {
+    private void transitiveDependencyClosure(WireIndex wireIndex, XBundle bundle, Set<Bundle> closure) {
         if (bundle.getBundleId() != 0 && closure.contains(bundle) == false) {
             closure.add(bundle);
 
             BundleRevisions brevs = bundle.adapt(BundleRevisions.class);
             for (BundleRevision aux : brevs.getRevisions()) {
                 XBundleRevision brev = (XBundleRevision) aux;
-                Wiring wiring = brev.getWiringSupport().getWiring(false);
-                if (wiring != null) {
-                    transitiveDependencyClosure(brev, wiring, closure);
+                if (brev.getWiringSupport().getWiring(false) != null) {
+                    transitiveDependencyClosure(wireIndex, brev, closure);
                 }
             }
         }
     }
 
-    private void transitiveDependencyClosure(XBundleRevision brev, Wiring wiring, Set<Bundle> closure) {
+    private void transitiveDependencyClosure(WireIndex wireIndex, XBundleRevision brev, Set<Bundle> closure) {
         if (brev instanceof FragmentBundleRevision) {
-            for (Wire wire : wiring.getRequiredResourceWires(HostNamespace.HOST_NAMESPACE)) {
-                AbstractBundleWire bwire = (AbstractBundleWire) wire;
-                Bundle provider = bwire.getProviderWiring(false).getBundle();
-                transitiveDependencyClosure((XBundle) provider, closure);
+            for (XBundleRevision host : wireIndex.getHosts(brev)) {
+                transitiveDependencyClosure(wireIndex, host.getBundle(), closure);
             }
         } else {
-            for (Wire wire : wiring.getProvidedResourceWires(null)) {
-                XBundleRevision requirer = (XBundleRevision) wire.getRequirer();
-                transitiveDependencyClosure(requirer.getBundle(), closure);
+            for (XBundleRevision requirer : wireIndex.getRequirers(brev)) {
+                transitiveDependencyClosure(wireIndex, requirer.getBundle(), closure);
             }
         }
     }
@@ -22,6 +22,8 @@ package org.jboss.osgi.framework.internal;
  * #L%
  */
 
+import static org.jboss.osgi.framework.FrameworkMessages.MESSAGES;
+
 import org.jboss.modules.ClassSpec;
 import org.jboss.modules.ModuleClassLoader;
 import org.jboss.modules.ModuleClassLoaderFactory;
@@ -45,17 +47,24 @@ final class HostBundleClassLoader extends BundleReferenceClassLoader<UserBundleS
     }
     
     private final PathFilter lazyFilter;
+    private final ClassLoadingStatistics statistics;
+    private final ClassLoadProfiler profiler;
 
     private HostBundleClassLoader(Configuration configuration, UserBundleState bundleState, PathFilter lazyFilter) {
         super(configuration, bundleState);
         this.lazyFilter = lazyFilter;
+        this.statistics = bundleState.getClassLoadingStatistics();
+        this.profiler = bundleState.getBundleManager().getClassLoadProfiler();
     }
 
     @Override
     public Class<?> loadClassLocal(String className, boolean resolve) throws ClassNotFoundException {
         WeavingContext context = WeavingContext.create(getBundleState());
+        long start = System.nanoTime();
+        Class<?> result = null;
         try {
-            return super.loadClassLocal(className, resolve);
+            result = super.loadClassLocal(className, resolve);
+            return result;
         } catch (ClassFormatError cfe) {
             ContextClass wovenClass = context.getContextClass(className);
             if (wovenClass != null) {
@@ -63,15 +72,23 @@ final class HostBundleClassLoader extends BundleReferenceClassLoader<UserBundleS
             }
             throw cfe;
         } finally {
+            statistics.localLoad(result != null, System.nanoTime() - start);
             context.close();
         }
     }
 
     @Override
     protected void preDefine(ClassSpec classSpec, String className) {
+        byte[] bytes = classSpec.getBytes();
+        if (bytes != null) {
+            statistics.classBytesRead(bytes.length);
+        }
         if (getBundleState().awaitLazyActivation()) {
             String path = className.substring(0, className.lastIndexOf('.')).replace('.', '/');
             if (lazyFilter.accept(path)) {
+                // A preload must not define a class that activates a bundle
+                if (ClassLoadProfiler.isPreloading())
+                    throw MESSAGES.illegalStatePreloadWouldActivate(getBundleState());
                 LazyActivationTracker.preDefineClass(getBundleState(), className);
             }
         }
@@ -79,6 +96,8 @@ final class HostBundleClassLoader extends BundleReferenceClassLoader<UserBundleS
 
     @Override
     protected void postDefine(ClassSpec classSpec, Class<?> definedClass) {
+        statistics.classDefined();
+        profiler.classDefined(getBundleState(), definedClass.getName());
         WeavingContext weavingContext = WeavingContext.getCurrentContext();
         if (weavingContext != null) {
             ContextClass wovenClass = weavingContext.getContextClass(definedClass.getName());
@@ -108,7 +127,9 @@ final class HostBundleClassLoader extends BundleReferenceClassLoader<UserBundleS
 
         @Override
         public ModuleClassLoader create(Configuration configuration) {
-            return new HostBundleClassLoader(configuration, bundleState, lazyFilter);
+            HostBundleClassLoader classLoader = new HostBundleClassLoader(configuration, bundleState, lazyFilter);
+            classLoader.profiler.classLoaderCreated(classLoader, bundleState, lazyFilter);
+            return classLoader;
         }
     }
 }
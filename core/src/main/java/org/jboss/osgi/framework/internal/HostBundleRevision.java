@@ -31,6 +31,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.Vector;
@@ -117,6 +118,9 @@ final class HostBundleRevision extends UserBundleRevision {
         LazyActivationTracker.startTracking(getBundleState(), className);
         try {
             Class<?> loadedClass = loadClassInternal(className);
+            if (loadedClass.getClassLoader() != getModuleClassLoader()) {
+                getBundleState().getClassLoadingStatistics().delegatedLoad();
+            }
             LazyActivationTracker.processLoadedClass(loadedClass);
             return loadedClass;
         } finally {
@@ -150,17 +154,41 @@ final class HostBundleRevision extends UserBundleRevision {
             return hostEntries;
 
         // If there are attached fragments, their entries also need to be included.
-        List<URL> allEntries = (hostEntries == null ? new ArrayList<URL>() : new ArrayList<URL>(Collections.list(hostEntries)));
+        // The enumerations are chained, so that the entry URLs are still created lazily.
+        final List<Enumeration<URL>> allEntries = new ArrayList<Enumeration<URL>>(fragments.size() + 1);
+        if (hostEntries != null && hostEntries.hasMoreElements())
+            allEntries.add(hostEntries);
         for (FragmentBundleRevision fragmentRevision : fragments) {
             Enumeration<URL> fragEntries = fragmentRevision.findEntries(path, pattern, recurse);
-            if (fragEntries != null)
-                allEntries.addAll(Collections.list(fragEntries));
+            if (fragEntries != null && fragEntries.hasMoreElements())
+                allEntries.add(fragEntries);
         }
 
         if (allEntries.size() == 0)
             return null;
-        else
-            return Collections.enumeration(allEntries);
+        if (allEntries.size() == 1)
+            return allEntries.get(0);
+
+        return new Enumeration<URL>() {
+            private int index;
+
+            @Override
+            public boolean hasMoreElements() {
+                while (index < allEntries.size()) {
+                    if (allEntries.get(index).hasMoreElements())
+                        return true;
+                    index++;
+                }
+                return false;
+            }
+
+            @Override
+            public URL nextElement() {
+                if (!hasMoreElements())
+                    throw new NoSuchElementException();
+                return allEntries.get(index).nextElement();
+            }
+        };
     }
 
     @Override
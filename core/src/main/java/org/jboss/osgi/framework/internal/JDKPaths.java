@@ -21,8 +21,24 @@
  */
 package org.jboss.osgi.framework.internal;
 
+import static org.jboss.osgi.framework.FrameworkLogger.LOGGER;
+
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Set;
@@ -32,27 +48,177 @@ import java.util.zip.ZipFile;
 /**
  * A utility class which maintains the set of JDK paths.
  *
+ * The packages of a modular runtime are taken from the boot module layer. The archives and directories on
+ * the boot and application class path are scanned. The paths found in the boot layer and the archives are
+ * cached in the storage area, keyed by the runtime and the class path, so that a warm start does not scan
+ * any archive. Directories are scanned on every start, their last modified time does not change when a
+ * nested file changes.
+ *
  * @author david.lloyd@redhat.com
  * @author thomas.diesler@jboss.com
  * @since 27-Jul-2011
  */
 final class JDKPaths {
-    static final Set<String> JDK;
 
-    static {
-        final Set<String> pathSet = new HashSet<String>(1024);
-        final Set<String> jarSet = new HashSet<String>(1024);
+    static final String CACHE_FILE = "jdk-paths.txt";
+
+    private static final String KEY_PREFIX = "# ";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static volatile Set<String> jdkPaths;
+
+    private JDKPaths() {
+    }
+
+    /**
+     * Get the JDK package paths.
+     *
+     * @param storageArea the storage area that holds the cached paths, or null
+     */
+    static Set<String> getJDKPaths(File storageArea) {
+        Set<String> result = jdkPaths;
+        if (result == null) {
+            synchronized (JDKPaths.class) {
+                result = jdkPaths;
+                if (result == null) {
+                    result = Collections.unmodifiableSet(loadJDKPaths(storageArea));
+                    jdkPaths = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> loadJDKPaths(File storageArea) {
         final String sunBootClassPath = SecurityActions.getSystemProperty("sun.boot.class.path", null);
         final String javaClassPath = SecurityActions.getSystemProperty("java.class.path", null);
-        processClassPathItem(sunBootClassPath, jarSet, pathSet);
-        processClassPathItem(javaClassPath, jarSet, pathSet);
-        JDK = pathSet;
+        return loadJDKPaths(storageArea, sunBootClassPath, javaClassPath);
     }
 
-    private JDKPaths() {
+    static Set<String> loadJDKPaths(File storageArea, String sunBootClassPath, String javaClassPath) {
+        final String cacheKey = getCacheKey(sunBootClassPath, javaClassPath);
+        final File cacheFile = storageArea != null && cacheKey != null ? new File(storageArea, CACHE_FILE) : null;
+        final Set<String> jarSet = new HashSet<String>(1024);
+        Set<String> pathSet = cacheFile != null ? readCache(cacheFile, cacheKey) : null;
+        if (pathSet != null) {
+            LOGGER.tracef("Using cached JDK paths: %s", cacheFile);
+        } else {
+            pathSet = new HashSet<String>(1024);
+            processBootModuleLayer(pathSet);
+            processClassPathItem(sunBootClassPath, jarSet, pathSet, false);
+            processClassPathItem(javaClassPath, jarSet, pathSet, false);
+            if (cacheFile != null) {
+                writeCache(cacheFile, cacheKey, pathSet);
+            }
+        }
+        // A change nested in a directory does not show in the cache key, so directories are always scanned
+        processClassPathItem(sunBootClassPath, jarSet, pathSet, true);
+        processClassPathItem(javaClassPath, jarSet, pathSet, true);
+        return pathSet;
+    }
+
+    // A modular runtime has no boot class path, its packages are those of the boot layer modules
+    private static void processBootModuleLayer(final Set<String> pathSet) {
+        try {
+            Class<?> layerClass = Class.forName("java.lang.ModuleLayer");
+            Object bootLayer = layerClass.getMethod("boot").invoke(null);
+            Set<?> modules = (Set<?>) layerClass.getMethod("modules").invoke(bootLayer);
+            Method getPackages = Class.forName("java.lang.Module").getMethod("getPackages");
+            for (Object module : modules) {
+                for (Object packageName : (Set<?>) getPackages.invoke(module)) {
+                    pathSet.add(((String) packageName).replace('.', '/'));
+                }
+            }
+        } catch (ClassNotFoundException ex) {
+            // not a modular runtime
+        } catch (Exception ex) {
+            LOGGER.debugf(ex, "Cannot obtain the packages of the boot module layer");
+        }
+    }
+
+    // The key covers the runtime, the class path and the state of every archive on it, directories are not cached
+    private static String getCacheKey(final String sunBootClassPath, final String javaClassPath) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(SecurityActions.getSystemProperty("java.home", null)).append('\n');
+        builder.append(SecurityActions.getSystemProperty("java.vm.version", null)).append('\n');
+        builder.append(SecurityActions.getSystemProperty("java.runtime.version", null)).append('\n');
+        for (String classPath : new String[] { sunBootClassPath, javaClassPath }) {
+            builder.append(classPath).append('\n');
+            if (classPath != null) {
+                for (String item : classPath.split(File.pathSeparator)) {
+                    File file = new File(item);
+                    if (!file.isDirectory()) {
+                        builder.append(file.length()).append(':').append(file.lastModified()).append('\n');
+                    }
+                }
+            }
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            StringBuilder result = new StringBuilder();
+            for (byte b : digest.digest(builder.toString().getBytes(UTF8))) {
+                result.append(Character.forDigit((b >> 4) & 0xF, 16));
+                result.append(Character.forDigit(b & 0xF, 16));
+            }
+            return result.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            return null;
+        }
+    }
+
+    private static Set<String> readCache(final File cacheFile, final String cacheKey) {
+        if (!cacheFile.isFile())
+            return null;
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(cacheFile), UTF8));
+            try {
+                if (!(KEY_PREFIX + cacheKey).equals(reader.readLine()))
+                    return null;
+                Set<String> pathSet = new HashSet<String>(1024);
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    pathSet.add(line);
+                }
+                return pathSet;
+            } finally {
+                reader.close();
+            }
+        } catch (IOException ex) {
+            LOGGER.debugf(ex, "Cannot read JDK paths: %s", cacheFile);
+            return null;
+        }
     }
 
-    private static void processClassPathItem(final String classPath, final Set<String> jarSet, final Set<String> pathSet) {
+    private static void writeCache(final File cacheFile, final String cacheKey, final Set<String> pathSet) {
+        try {
+            File parent = cacheFile.getParentFile();
+            if (!parent.isDirectory() && !parent.mkdirs())
+                return;
+            File tmpFile = File.createTempFile(CACHE_FILE, ".tmp", parent);
+            try {
+                Writer writer = new OutputStreamWriter(new FileOutputStream(tmpFile), UTF8);
+                try {
+                    writer.write(KEY_PREFIX + cacheKey + "\n");
+                    for (String path : pathSet) {
+                        writer.write(path + "\n");
+                    }
+                } finally {
+                    writer.close();
+                }
+                try {
+                    Files.move(tmpFile.toPath(), cacheFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException ex) {
+                    Files.move(tmpFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                tmpFile.delete();
+            }
+        } catch (IOException ex) {
+            LOGGER.debugf(ex, "Cannot write JDK paths: %s", cacheFile);
+        }
+    }
+
+    private static void processClassPathItem(final String classPath, final Set<String> jarSet, final Set<String> pathSet, final boolean directories) {
         if (classPath == null) return;
         int s = 0, e;
         do {
@@ -61,8 +227,10 @@ final class JDKPaths {
             if (! jarSet.contains(item)) {
                 final File file = new File(item);
                 if (file.isDirectory()) {
-                    processDirectory0(pathSet, file);
-                } else {
+                    if (directories) {
+                        processDirectory0(pathSet, file);
+                    }
+                } else if (!directories) {
                     try {
                         final ZipFile zipFile = new ZipFile(file);
                         try {
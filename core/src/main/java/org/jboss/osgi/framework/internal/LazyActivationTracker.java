@@ -86,6 +86,7 @@ final class LazyActivationTracker {
             while (stack.isEmpty() == false) {
                 UserBundleState userBundle = stack.pop();
                 if (userBundle.awaitLazyActivation()) {
+                    userBundle.getClassLoadingStatistics().lazyActivation();
                     try {
                         userBundle.activateLazily();
                     } catch (Throwable th) {
@@ -25,7 +25,6 @@ import static org.jboss.osgi.framework.FrameworkMessages.MESSAGES;
 import static org.jboss.osgi.framework.internal.InternalConstants.NATIVE_LIBRARY_METADATA_KEY;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
@@ -45,14 +44,12 @@ import org.jboss.osgi.framework.spi.BundleManager;
 import org.jboss.osgi.framework.spi.IntegrationConstants;
 import org.jboss.osgi.framework.spi.NativeCode;
 import org.jboss.osgi.framework.spi.NativeLibraryProvider;
-import org.jboss.osgi.framework.spi.StorageManager;
 import org.jboss.osgi.metadata.NativeLibrary;
 import org.jboss.osgi.metadata.NativeLibraryMetaData;
 import org.jboss.osgi.metadata.OSGiMetaData;
 import org.jboss.osgi.metadata.Parameter;
 import org.jboss.osgi.metadata.ParameterizedAttribute;
 import org.jboss.osgi.resolver.XBundleRevision;
-import org.jboss.osgi.vfs.VFSUtils;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.BundleException;
 import org.osgi.framework.Filter;
@@ -74,7 +71,7 @@ public final class NativeCodeImpl implements NativeCode {
      * The string that is to be replaced with the absolute path of the native library as specified by the core spec with the
      * org.osgi.framework.command.execpermission framework property.
      */
-    private static final String ABSPATH_VARIABLE = "${abspath}";
+    static final String ABSPATH_VARIABLE = "${abspath}";
 
     /** Maps an alias to an OSGi processor name */
     private static Map<String, String> processorAlias = new HashMap<String, String>();
@@ -303,6 +300,7 @@ public final class NativeCodeImpl implements NativeCode {
     }
 
     static class NativeLibraryProviderImpl implements NativeLibraryProvider {
+        private final HostBundleRevision hostrev;
         private final UserBundleState hostBundle;
         private final String libname;
         private final String libpath;
@@ -310,6 +308,7 @@ public final class NativeCodeImpl implements NativeCode {
         private File libraryFile;
 
         NativeLibraryProviderImpl(HostBundleRevision hostrev, String libname, String libpath) {
+            this.hostrev = hostrev;
             this.hostBundle = hostrev.getBundleState();
             this.libpath = libpath;
             this.libname = libname;
@@ -344,43 +343,16 @@ public final class NativeCodeImpl implements NativeCode {
         }
 
         @Override
-        public File getLibraryLocation() throws IOException {
+        public synchronized File getLibraryLocation() throws IOException {
             if (libraryFile == null) {
-                // Create a unique local file location
-                libraryFile = getUniqueLibraryFile(hostBundle, libpath);
-                libraryFile.deleteOnExit();
-
-                // Copy the native library to the bundle storage area
-                FileOutputStream fos = new FileOutputStream(libraryFile);
-                VFSUtils.copyStream(libURL.openStream(), fos);
-                fos.close();
-
-                handleExecPermission();
+                // Use the extracted copy from the persistent cache of this revision
+                File storageDir = hostrev.getStorageState().getStorageDir();
+                NativeLibraryCache cache = new NativeLibraryCache(new File(storageDir, NativeLibraryCache.CACHE_DIRECTORY));
+                String filename = libpath.substring(libpath.lastIndexOf('/') + 1);
+                String epProp = hostBundle.getBundleContext().getProperty(Constants.FRAMEWORK_EXECPERMISSION);
+                libraryFile = cache.getLibraryFile(libURL, filename, epProp);
             }
             return libraryFile;
         }
-
-        private void handleExecPermission() throws IOException {
-            String epProp = hostBundle.getBundleContext().getProperty(Constants.FRAMEWORK_EXECPERMISSION);
-            if (epProp == null)
-                return;
-
-            StringBuilder command = new StringBuilder(epProp);
-            int idx = command.indexOf(ABSPATH_VARIABLE);
-            if (idx >= 0) {
-                command.replace(idx, idx + ABSPATH_VARIABLE.length(), libraryFile.getAbsolutePath());
-            }
-            Process process = Runtime.getRuntime().exec(command.toString());
-            try {
-                process.waitFor();
-            } catch (InterruptedException e) {
-                // Move ahead when interrupted
-            }
-        }
-
-        private File getUniqueLibraryFile(UserBundleState userBundle, String libpath) {
-            StorageManager storagePlugin = userBundle.getFrameworkState().getStorageManager();
-            return storagePlugin.getDataFile(userBundle.getBundleId(), libpath);
-        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,204 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.internal;
+
+import static org.jboss.osgi.framework.FrameworkLogger.LOGGER;
+import static org.jboss.osgi.framework.FrameworkMessages.MESSAGES;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A persistent cache of extracted native libraries.
+ *
+ * Libraries are stored under the hash of their content, so that a library is extracted once and reused
+ * across framework restarts. The JVM allows a library file to be loaded by a single class loader only,
+ * which is why every bundle revision uses its own cache directory. Files are written to a temporary name
+ * and moved into place atomically. A marker file records that the exec permission command has been run
+ * for the copy. A cached copy is checked against its content hash before it gets used again.
+ *
+ * @since 18-Oct-2026
+ */
+final class NativeLibraryCache {
+
+    static final String CACHE_DIRECTORY = "native-cache";
+
+    private static final String MARKER_SUFFIX = ".verified";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final File cacheDir;
+
+    NativeLibraryCache(File cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    /**
+     * Get the local file for the given native library, extracting it if there is no verified copy.
+     *
+     * @param libURL the library entry in the bundle
+     * @param filename the file name of the library
+     * @param execPermission the exec permission command, or null
+     */
+    File getLibraryFile(URL libURL, String filename, String execPermission) throws IOException {
+        String hash = digest(libURL, null);
+        File libDir = new File(cacheDir, hash);
+        File libraryFile = new File(libDir, filename);
+        File markerFile = new File(libDir, filename + MARKER_SUFFIX);
+        String markerContent = execPermission != null ? execPermission : "";
+
+        if (libraryFile.isFile() && markerFile.isFile() && markerContent.equals(readMarker(markerFile))) {
+            if (hash.equals(digest(libraryFile))) {
+                LOGGER.tracef("Using cached native library: %s", libraryFile);
+                return libraryFile;
+            }
+            LOGGER.debugf("Discarding modified native library: %s", libraryFile);
+            markerFile.delete();
+            libraryFile.delete();
+        }
+
+        if (!libDir.isDirectory() && !libDir.mkdirs() && !libDir.isDirectory())
+            throw MESSAGES.cannotCreateDirectory(libDir);
+
+        if (!libraryFile.isFile()) {
+            File tmpFile = File.createTempFile(filename, ".tmp", libDir);
+            try {
+                OutputStream output = new FileOutputStream(tmpFile);
+                String copyHash;
+                try {
+                    copyHash = digest(libURL, output);
+                } finally {
+                    output.close();
+                }
+                if (!hash.equals(copyHash))
+                    throw MESSAGES.nativeLibraryContentChanged(libURL);
+
+                moveAtomically(tmpFile, libraryFile);
+            } finally {
+                tmpFile.delete();
+            }
+            LOGGER.debugf("Extracted native library: %s", libraryFile);
+        }
+
+        if (execPermission != null) {
+            runExecPermission(execPermission, libraryFile);
+        }
+        writeMarker(libDir, markerFile, markerContent);
+        return libraryFile;
+    }
+
+    private static void runExecPermission(String execPermission, File libraryFile) throws IOException {
+        StringBuilder command = new StringBuilder(execPermission);
+        int idx = command.indexOf(NativeCodeImpl.ABSPATH_VARIABLE);
+        if (idx >= 0) {
+            command.replace(idx, idx + NativeCodeImpl.ABSPATH_VARIABLE.length(), libraryFile.getAbsolutePath());
+        }
+        Process process = Runtime.getRuntime().exec(command.toString());
+        try {
+            process.waitFor();
+        } catch (InterruptedException e) {
+            // Move ahead when interrupted
+        }
+    }
+
+    private static String digest(URL libURL, OutputStream output) throws IOException {
+        return digest(libURL.openStream(), output);
+    }
+
+    private static String digest(File file) throws IOException {
+        return digest(new FileInputStream(file), null);
+    }
+
+    private static String digest(InputStream input, OutputStream output) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            input.close();
+            throw MESSAGES.cannotComputeContentDigest(ex);
+        }
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+                if (output != null) {
+                    output.write(buffer, 0, read);
+                }
+            }
+        } finally {
+            input.close();
+        }
+        StringBuilder builder = new StringBuilder();
+        for (byte b : digest.digest()) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+            builder.append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+
+    private static String readMarker(File markerFile) {
+        try {
+            return new String(Files.readAllBytes(markerFile.toPath()), UTF8);
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    private static void writeMarker(File libDir, File markerFile, String content) throws IOException {
+        File tmpFile = File.createTempFile(markerFile.getName(), ".tmp", libDir);
+        try {
+            Files.write(tmpFile.toPath(), content.getBytes(UTF8));
+            moveAtomically(tmpFile, markerFile);
+        } finally {
+            tmpFile.delete();
+        }
+    }
+
+    // A concurrent loader may have moved an identical copy into place already
+    private static void moveAtomically(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            if (!target.exists()) {
+                try {
+                    Files.move(source.toPath(), target.toPath());
+                } catch (FileAlreadyExistsException faex) {
+                    // another loader won
+                }
+            }
+        } catch (FileAlreadyExistsException ex) {
+            // another loader won
+        }
+    }
+}
@@ -24,12 +24,6 @@ package org.jboss.osgi.framework.internal;
 import java.net.ContentHandler;
 import java.net.ContentHandlerFactory;
 import java.net.URLConnection;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
 
 import org.osgi.framework.ServiceReference;
 
@@ -44,50 +38,27 @@ import org.osgi.framework.ServiceReference;
  */
 final class OSGiContentHandlerFactoryDelegate implements ContentHandlerFactory {
 
-    private ContentHandlerFactory delegate;
-    private Map<String, List<ServiceReference<ContentHandler>>> contentHandlers = new HashMap<String, List<ServiceReference<ContentHandler>>>();
+    private volatile ContentHandlerFactory delegate;
+    private final ServiceHandlerTable<ContentHandler> contentHandlers = new ServiceHandlerTable<ContentHandler>();
 
     void setDelegateFactory(OSGiContentHandlerFactory factory) {
         delegate = factory;
     }
 
-    void addHandler(String mimeType, ServiceReference<ContentHandler> reference) {
-        synchronized (contentHandlers) {
-            List<ServiceReference<ContentHandler>> list = contentHandlers.get(mimeType);
-            if (list == null) {
-                list = new ArrayList<ServiceReference<ContentHandler>>();
-                contentHandlers.put(mimeType, list);
-            }
-            list.add(reference);
-            Collections.sort(list, Collections.reverseOrder(ServiceReferenceComparator.getInstance()));
-        }
+    void addHandler(String mimeType, ServiceReference<ContentHandler> reference, ContentHandler service) {
+        contentHandlers.addHandler(mimeType, reference, service);
     }
 
-    List<ServiceReference<ContentHandler>> getContentHandlers(String mimetype) {
-        synchronized (contentHandlers) {
-            return contentHandlers.get(mimetype);
-        }
+    ServiceHandlerTable.Handlers<ContentHandler> getContentHandlers(String mimetype) {
+        return contentHandlers.getHandlers(mimetype);
     }
 
     void removeHandler(ServiceReference<ContentHandler> reference) {
-        synchronized (contentHandlers) {
-            for (List<ServiceReference<ContentHandler>> list : contentHandlers.values()) {
-                for (Iterator<ServiceReference<ContentHandler>> it = list.iterator(); it.hasNext();) {
-                    if (it.next().equals(reference)) {
-                        it.remove();
-                        break;
-                    }
-                }
-            }
-        }
+        contentHandlers.removeHandler(reference);
     }
 
     void clearHandlers() {
-        synchronized (contentHandlers) {
-            for (List<ServiceReference<ContentHandler>> list : contentHandlers.values()) {
-                list.clear();
-            }
-        }
+        contentHandlers.clearHandlers();
     }
 
     @Override
@@ -24,12 +24,6 @@ package org.jboss.osgi.framework.internal;
 import java.net.URL;
 import java.net.URLStreamHandler;
 import java.net.URLStreamHandlerFactory;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
 
 import org.osgi.framework.ServiceReference;
 import org.osgi.service.url.URLStreamHandlerService;
@@ -43,50 +37,27 @@ import org.osgi.service.url.URLStreamHandlerService;
  */
 final class OSGiStreamHandlerFactoryDelegate implements URLStreamHandlerFactory {
 
-    private URLStreamHandlerFactory delegate;
-    private Map<String, List<ServiceReference<URLStreamHandlerService>>> streamHandlers = new HashMap<String, List<ServiceReference<URLStreamHandlerService>>>();
+    private volatile URLStreamHandlerFactory delegate;
+    private final ServiceHandlerTable<URLStreamHandlerService> streamHandlers = new ServiceHandlerTable<URLStreamHandlerService>();
 
     void setDelegateFactory(URLStreamHandlerFactory factory) {
         delegate = factory;
     }
 
-    void addHandler(String protocol, ServiceReference<URLStreamHandlerService> reference) {
-        synchronized (streamHandlers) {
-            List<ServiceReference<URLStreamHandlerService>> list = streamHandlers.get(protocol);
-            if (list == null) {
-                list = new ArrayList<ServiceReference<URLStreamHandlerService>>();
-                streamHandlers.put(protocol, list);
-            }
-            list.add(reference);
-            Collections.sort(list, Collections.reverseOrder(ServiceReferenceComparator.getInstance()));
-        }
+    void addHandler(String protocol, ServiceReference<URLStreamHandlerService> reference, URLStreamHandlerService service) {
+        streamHandlers.addHandler(protocol, reference, service);
     }
 
-    List<ServiceReference<URLStreamHandlerService>> getStreamHandlers(String protocol) {
-        synchronized (streamHandlers) {
-            return streamHandlers.get(protocol);
-        }
+    ServiceHandlerTable.Handlers<URLStreamHandlerService> getStreamHandlers(String protocol) {
+        return streamHandlers.getHandlers(protocol);
     }
 
     void removeHandler(ServiceReference<URLStreamHandlerService> reference) {
-        synchronized (streamHandlers) {
-            for (List<ServiceReference<URLStreamHandlerService>> list : streamHandlers.values()) {
-                for (Iterator<ServiceReference<URLStreamHandlerService>> it = list.iterator(); it.hasNext();) {
-                    if (it.next().equals(reference)) {
-                        it.remove();
-                        break;
-                    }
-                }
-            }
-        }
+        streamHandlers.removeHandler(reference);
     }
 
     void clearHandlers() {
-        synchronized (streamHandlers) {
-            for (List<ServiceReference<URLStreamHandlerService>> list : streamHandlers.values()) {
-                list.clear();
-            }
-        }
+        streamHandlers.clearHandlers();
     }
 
     @Override
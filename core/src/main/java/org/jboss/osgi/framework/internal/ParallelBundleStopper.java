@@ -0,0 +1,202 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.internal;
+
+import static org.jboss.osgi.framework.FrameworkLogger.LOGGER;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.osgi.framework.spi.FrameworkEvents;
+import org.jboss.osgi.resolver.XBundle;
+import org.jboss.osgi.resolver.XBundleRevision;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.FrameworkEvent;
+
+/**
+ * Stops the bundles of a start level in parallel on framework shutdown.
+ *
+ * A bundle is only stopped after the bundles of the same level that are wired to it have been stopped.
+ * Every bundle has a stop budget. A bundle that does not stop within its budget is reported and left behind,
+ * so that it cannot hold up the shutdown. Providers that get stopped while such a bundle is still stopping
+ * are reported as well.
+ *
+ * @since 18-Oct-2026
+ */
+final class ParallelBundleStopper {
+
+    private final BundleManagerPlugin bundleManager;
+    private final FrameworkEvents events;
+    private final long bundleTimeout;
+    private final ExecutorService executor;
+    private final long startTime = System.currentTimeMillis();
+    private final AtomicInteger stoppedBundles = new AtomicInteger();
+    private final Set<XBundle> overruns = Collections.newSetFromMap(new ConcurrentHashMap<XBundle, Boolean>());
+    private final Set<XBundle> stopping = Collections.newSetFromMap(new ConcurrentHashMap<XBundle, Boolean>());
+
+    ParallelBundleStopper(BundleManagerPlugin bundleManager, FrameworkEvents events, long bundleTimeout) {
+        this.bundleManager = bundleManager;
+        this.events = events;
+        this.bundleTimeout = bundleTimeout;
+        final AtomicInteger count = new AtomicInteger();
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable run) {
+                Thread thread = new Thread(run);
+                thread.setName("Framework Shutdown Thread #" + count.incrementAndGet());
+                // A bundle that does not stop must not keep the VM alive
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Stop the given bundles of one start level. The list order is used within a wave.
+     */
+    void stopBundles(List<XBundle> bundles) {
+        List<XBundle> remaining = new ArrayList<XBundle>(bundles);
+        Map<XBundle, List<XBundle>> requirers = getRequirersInLevel(remaining);
+        while (!remaining.isEmpty()) {
+            List<XBundle> wave = new ArrayList<XBundle>();
+            for (XBundle bundle : remaining) {
+                boolean independent = true;
+                for (XBundle requirer : requirers.get(bundle)) {
+                    if (remaining.contains(requirer)) {
+                        independent = false;
+                        break;
+                    }
+                }
+                if (independent) {
+                    wave.add(bundle);
+                }
+            }
+            // Cyclic wiring, there is no order to keep
+            if (wave.isEmpty()) {
+                wave.addAll(remaining);
+            }
+            stopWave(wave);
+            remaining.removeAll(wave);
+        }
+    }
+
+    /**
+     * Shut down the stopper threads and report the result.
+     */
+    void close() {
+        executor.shutdownNow();
+        long duration = System.currentTimeMillis() - startTime;
+        LOGGER.infoParallelShutdownCompleted(stoppedBundles.get(), duration, overruns.size());
+    }
+
+    private Map<XBundle, List<XBundle>> getRequirersInLevel(List<XBundle> bundles) {
+        Map<XBundleRevision, XBundle> revisions = new HashMap<XBundleRevision, XBundle>();
+        for (XBundle bundle : bundles) {
+            revisions.put(bundle.getBundleRevision(), bundle);
+        }
+        WireIndex wireIndex = bundleManager.getWireIndex();
+        Map<XBundle, List<XBundle>> result = new HashMap<XBundle, List<XBundle>>();
+        for (XBundle bundle : bundles) {
+            List<XBundle> requirers = new ArrayList<XBundle>();
+            for (XBundleRevision brev : wireIndex.getRequirers(bundle.getBundleRevision())) {
+                XBundle requirer = revisions.get(brev);
+                if (requirer != null && requirer != bundle) {
+                    requirers.add(requirer);
+                }
+            }
+            result.put(bundle, requirers);
+        }
+        return result;
+    }
+
+    private void stopWave(List<XBundle> wave) {
+        Map<XBundle, CountDownLatch> latches = new LinkedHashMap<XBundle, CountDownLatch>();
+        for (final XBundle bundle : wave) {
+            final CountDownLatch latch = new CountDownLatch(1);
+            latches.put(bundle, latch);
+            stopping.add(bundle);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        stopBundle(bundle);
+                    } finally {
+                        stopping.remove(bundle);
+                        latch.countDown();
+                    }
+                }
+            });
+        }
+        // The bundles of a wave stop in parallel, so they share one budget
+        long deadline = System.currentTimeMillis() + bundleTimeout;
+        for (Entry<XBundle, CountDownLatch> entry : latches.entrySet()) {
+            try {
+                long timeout = Math.max(0, deadline - System.currentTimeMillis());
+                if (!entry.getValue().await(timeout, TimeUnit.MILLISECONDS) && overruns.add(entry.getKey())) {
+                    LOGGER.warnBundleStopTimeout(bundleTimeout, entry.getKey());
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void stopBundle(XBundle bundle) {
+        // A dependent that overran its budget may still use the services and classes of this bundle
+        XBundleRevision brev = bundle.getBundleRevision();
+        if (!overruns.isEmpty() && brev != null) {
+            for (XBundleRevision requirer : bundleManager.getWireIndex().getRequirers(brev)) {
+                XBundle dependent = requirer.getBundle();
+                if (dependent != bundle && overruns.contains(dependent) && stopping.contains(dependent)) {
+                    LOGGER.warnStoppingProviderOfPendingBundle(bundle, dependent);
+                }
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            bundle.stop(Bundle.STOP_TRANSIENT);
+        } catch (Throwable th) {
+            events.fireFrameworkEvent(bundle, FrameworkEvent.ERROR, th);
+        }
+        stoppedBundles.incrementAndGet();
+        long duration = System.currentTimeMillis() - start;
+        if (duration > bundleTimeout && overruns.add(bundle)) {
+            LOGGER.warnBundleStopOverrun(duration, bundleTimeout, bundle);
+        }
+    }
+}
@@ -24,13 +24,21 @@ package org.jboss.osgi.framework.internal;
 import static org.jboss.osgi.framework.FrameworkLogger.LOGGER;
 import static org.jboss.osgi.framework.FrameworkMessages.MESSAGES;
 
+import java.io.File;
 import java.io.IOException;
+import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLStreamHandler;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Vector;
 
+import org.jboss.osgi.framework.spi.SignerRecord;
+import org.jboss.osgi.framework.spi.StorageState;
 import org.jboss.osgi.metadata.OSGiMetaData;
 import org.jboss.osgi.vfs.AbstractVFS;
 import org.jboss.osgi.vfs.VFSUtils;
@@ -48,15 +56,31 @@ final class RevisionContent implements EntriesProvider {
 
     private final UserBundleRevision userRev;
     private final VirtualFile virtualFile;
+    private final ArchiveManager.Archive archive;
     private final String identity;
     private final int contentId;
     private boolean closedMarker;
+    private volatile RevisionEntryIndex entryIndex;
+    private volatile boolean entryIndexFailed;
 
     RevisionContent(UserBundleRevision brev, OSGiMetaData metadata, long bundleId, int contentId, VirtualFile rootFile) {
-        assert brev != null : "Null userRev";
+        this(brev, metadata, bundleId, contentId, rootFile, null);
         assert rootFile != null : "Null rootFile";
+    }
+
+    /**
+     * Create a content for an archive that is mounted on demand by the {@link ArchiveManager}.
+     */
+    RevisionContent(UserBundleRevision brev, OSGiMetaData metadata, long bundleId, int contentId, ArchiveManager.Archive archive) {
+        this(brev, metadata, bundleId, contentId, null, archive);
+        assert archive != null : "Null archive";
+    }
+
+    private RevisionContent(UserBundleRevision brev, OSGiMetaData metadata, long bundleId, int contentId, VirtualFile rootFile, ArchiveManager.Archive archive) {
+        assert brev != null : "Null userRev";
         this.userRev = brev;
         this.virtualFile = rootFile;
+        this.archive = archive;
         this.contentId = contentId;
 
         String symbolicName = metadata.getBundleSymbolicName();
@@ -105,15 +129,87 @@ final class RevisionContent implements EntriesProvider {
 
     VirtualFile getVirtualFile() {
         assertNotClosed();
-        return virtualFile;
+        try {
+            return getRootFile();
+        } catch (IOException ex) {
+            throw MESSAGES.illegalStateCannotMountArchive(ex, archive.getLocation());
+        }
+    }
+
+    /**
+     * Get the root file, an archive stays mounted until {@link #releaseVirtualFile()} is called.
+     */
+    VirtualFile acquireVirtualFile() {
+        assertNotClosed();
+        if (archive == null)
+            return virtualFile;
+        try {
+            return archive.acquire();
+        } catch (IOException ex) {
+            throw MESSAGES.illegalStateCannotMountArchive(ex, archive.getLocation());
+        }
+    }
+
+    void releaseVirtualFile() {
+        if (archive != null) {
+            archive.release();
+        }
+    }
+
+    /**
+     * True if this content is an archive that may be closed while idle.
+     */
+    boolean isEvictable() {
+        return archive != null;
+    }
+
+    /**
+     * Get the directory that holds the unpacked content of this root file.
+     *
+     * @return The directory or null if this content is not read from an unpacked storage revision
+     */
+    File getContentDirectory() {
+        if (archive == null) {
+            StorageState storageState = userRev.getStorageState();
+            if (storageState.getRootFile() == virtualFile) {
+                return storageState.getContentDirectory();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the verified signers of this content.
+     *
+     * @return The record or null if the signers are not recorded for this content
+     */
+    SignerRecord getSignerRecord() {
+        return archive == null ? userRev.getStorageState().getSignerRecord() : null;
+    }
+
+    // An archive content may have been closed while idle and is mounted again here
+    private VirtualFile getRootFile() throws IOException {
+        return archive != null ? archive.getVirtualFile() : virtualFile;
     }
 
     @Override
     public URL getEntry(String path) {
         assertNotClosed();
+        RevisionEntryIndex index = getEntryIndex();
+        if (index != null && path != null) {
+            String entryPath = RevisionEntryIndex.normalizeEntry(path);
+            if (entryPath.length() > 0) {
+                if (index.contains(entryPath))
+                    return getEntryURL(entryPath);
+                String dirPath = entryPath + "/";
+                if (!entryPath.endsWith("/") && index.contains(dirPath))
+                    return getEntryURL(dirPath);
+                return null;
+            }
+        }
         VirtualFile child;
         try {
-            child = virtualFile.getChild(path);
+            child = getRootFile().getChild(path);
             return child != null ? getBundleURL(child) : null;
         } catch (IOException ex) {
             LOGGER.errorCannotGetEntry(ex, path, userRev);
@@ -124,8 +220,14 @@ final class RevisionContent implements EntriesProvider {
     @Override
     public Enumeration<URL> findEntries(String path, String pattern, boolean recurse) {
         assertNotClosed();
+        RevisionEntryIndex index = getEntryIndex();
+        if (index != null && path != null) {
+            String dirPath = RevisionEntryIndex.normalizeDirectory(path);
+            List<String> entryPaths = index.findEntries(dirPath, pattern != null ? pattern : "*", recurse);
+            return entryPaths.isEmpty() ? null : new BundleURLEnumeration(entryPaths);
+        }
         try {
-            Enumeration<URL> urls = virtualFile.findEntries(path, pattern, recurse);
+            Enumeration<URL> urls = getRootFile().findEntries(path, pattern, recurse);
             return getBundleURLs(urls);
         } catch (IOException ex) {
             return null;
@@ -135,8 +237,13 @@ final class RevisionContent implements EntriesProvider {
     @Override
     public Enumeration<String> getEntryPaths(String path) {
         assertNotClosed();
+        RevisionEntryIndex index = getEntryIndex();
+        if (index != null && path != null) {
+            String[] children = index.getChildren(RevisionEntryIndex.normalizeDirectory(path));
+            return children != null && children.length > 0 ? Collections.enumeration(Arrays.asList(children)) : null;
+        }
         try {
-            Enumeration<String> entryPaths = virtualFile.getEntryPaths(path);
+            Enumeration<String> entryPaths = getRootFile().getEntryPaths(path);
             if (entryPaths != null && entryPaths.hasMoreElements())
                 return entryPaths;
             else
@@ -146,8 +253,54 @@ final class RevisionContent implements EntriesProvider {
         }
     }
 
+    /**
+     * Get the file entries below the given directory in index order.
+     *
+     * @return the entry paths or null if the content cannot be indexed
+     */
+    Iterator<String> iterateFileEntries(String startPath, boolean recurse) {
+        assertNotClosed();
+        RevisionEntryIndex index = getEntryIndex();
+        if (index == null)
+            return null;
+        return index.iterateFiles(RevisionEntryIndex.normalizeDirectory(startPath != null ? startPath : ""), recurse);
+    }
+
+    /**
+     * Get the entry index of this content, which is built on first use.
+     *
+     * @return the index or null if the content cannot be indexed
+     */
+    private RevisionEntryIndex getEntryIndex() {
+        RevisionEntryIndex result = entryIndex;
+        if (result == null && !entryIndexFailed) {
+            synchronized (this) {
+                result = entryIndex;
+                if (result == null && !entryIndexFailed) {
+                    try {
+                        VirtualFile rootFile = archive != null ? archive.acquire() : virtualFile;
+                        try {
+                            result = RevisionEntryIndex.build(rootFile);
+                            entryIndex = result;
+                        } finally {
+                            releaseVirtualFile();
+                        }
+                    } catch (IOException ex) {
+                        LOGGER.debugf(ex, "Cannot index entries of: %s", this);
+                        entryIndexFailed = true;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
     void close() {
-        VFSUtils.safeClose(virtualFile);
+        if (archive != null) {
+            archive.close();
+        } else {
+            VFSUtils.safeClose(virtualFile);
+        }
         closedMarker = true;
     }
 
@@ -179,7 +332,7 @@ final class RevisionContent implements EntriesProvider {
             @Override
             protected URLConnection openConnection(URL url) throws IOException {
                 String path = url.getPath();
-                VirtualFile real = (orgPath.equals(path) ? child : virtualFile.getChild(path));
+                VirtualFile real = (orgPath.equals(path) && archive == null ? child : getRootFile().getChild(path));
                 return real.getStreamURL().openConnection();
             }
 
@@ -187,7 +340,7 @@ final class RevisionContent implements EntriesProvider {
             // when offline the BundleEntriesTestCase is slow because of this
         };
 
-        String rootPath = virtualFile.getPathName();
+        String rootPath = getRootFile().getPathName();
         String pathName = child.getPathName().substring(rootPath.length());
 
         // The path can potentially be made characters longer (one leading and one trailing slash)
@@ -205,6 +358,47 @@ final class RevisionContent implements EntriesProvider {
         return new URL(BundleProtocolHandler.PROTOCOL_NAME, identity, -1, path.toString(), streamHandler);
     }
 
+    /**
+     * Get the bundle URL for an indexed entry path, the virtual file is only looked up when the URL is opened.
+     */
+    private URL getEntryURL(String entryPath) {
+        URLStreamHandler streamHandler = new URLStreamHandler() {
+            @Override
+            protected URLConnection openConnection(URL url) throws IOException {
+                VirtualFile real = getRootFile().getChild(url.getPath());
+                if (real == null)
+                    throw MESSAGES.cannotObtainContent(url);
+                return real.getStreamURL().openConnection();
+            }
+        };
+        try {
+            return new URL(BundleProtocolHandler.PROTOCOL_NAME, identity, -1, "/" + entryPath, streamHandler);
+        } catch (MalformedURLException ex) {
+            throw MESSAGES.illegalArgumentInvalidPath(ex, entryPath);
+        }
+    }
+
+    /**
+     * Creates the bundle URLs as the entries are enumerated.
+     */
+    private final class BundleURLEnumeration implements Enumeration<URL> {
+        private final Iterator<String> iterator;
+
+        BundleURLEnumeration(List<String> entryPaths) {
+            this.iterator = entryPaths.iterator();
+        }
+
+        @Override
+        public boolean hasMoreElements() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public URL nextElement() {
+            return getEntryURL(iterator.next());
+        }
+    }
+
     @Override
     public int hashCode() {
         return toString().hashCode();
@@ -222,6 +416,6 @@ final class RevisionContent implements EntriesProvider {
 
     @Override
     public String toString() {
-        return "[rev=" + userRev + ",id=" + identity + ",vfile=" + virtualFile + "]";
+        return "[rev=" + userRev + ",id=" + identity + ",vfile=" + (archive != null ? archive : virtualFile) + "]";
     }
 }
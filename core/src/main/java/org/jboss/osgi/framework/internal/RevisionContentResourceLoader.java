@@ -22,11 +22,15 @@ package org.jboss.osgi.framework.internal;
  */
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
-import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 import org.jboss.modules.ClassSpec;
 import org.jboss.modules.IterableResourceLoader;
@@ -36,6 +40,7 @@ import org.jboss.modules.ResourceLoader;
 import org.jboss.osgi.framework.spi.URLResource;
 import org.jboss.osgi.framework.spi.VirtualFileResourceLoader;
 import org.jboss.osgi.resolver.XPackageRequirement;
+import org.jboss.osgi.vfs.VirtualFile;
 import org.osgi.framework.namespace.PackageNamespace;
 import org.osgi.framework.wiring.BundleRequirement;
 import org.osgi.framework.wiring.BundleWiring;
@@ -50,29 +55,60 @@ final class RevisionContentResourceLoader implements IterableResourceLoader {
 
     private final HostBundleRevision hostRev;
     private final RevisionContent revContent;
-    private final IterableResourceLoader delegate;
+    private VirtualFile delegateFile;
+    private IterableResourceLoader delegate;
+    private volatile ImportedPaths importedPaths;
 
     RevisionContentResourceLoader(HostBundleRevision hostRev, RevisionContent revContent) {
         assert hostRev != null : "Null hostRev";
         assert revContent != null : "Null revContent";
-        this.delegate = new VirtualFileResourceLoader(revContent.getVirtualFile());
         this.revContent = revContent;
         this.hostRev = hostRev;
     }
 
+    // The content archive may have been closed while idle, in which case it is mounted again.
+    // It cannot be closed again until the delegate is released.
+    private synchronized IterableResourceLoader acquireDelegate() {
+        VirtualFile virtualFile = revContent.acquireVirtualFile();
+        if (virtualFile != delegateFile) {
+            delegate = new VirtualFileResourceLoader(virtualFile, revContent.getContentDirectory(), revContent.getSignerRecord());
+            delegateFile = virtualFile;
+        }
+        return delegate;
+    }
+
+    private void releaseDelegate() {
+        revContent.releaseVirtualFile();
+    }
+
     @Override
     public String getRootName() {
-        return delegate.getRootName();
+        IterableResourceLoader loader = acquireDelegate();
+        try {
+            return loader.getRootName();
+        } finally {
+            releaseDelegate();
+        }
     }
 
     @Override
     public ClassSpec getClassSpec(String fileName) throws IOException {
-        return delegate.getClassSpec(fileName);
+        IterableResourceLoader loader = acquireDelegate();
+        try {
+            return loader.getClassSpec(fileName);
+        } finally {
+            releaseDelegate();
+        }
     }
 
     @Override
     public PackageSpec getPackageSpec(String name) throws IOException {
-        return delegate.getPackageSpec(name);
+        IterableResourceLoader loader = acquireDelegate();
+        try {
+            return loader.getPackageSpec(name);
+        } finally {
+            releaseDelegate();
+        }
     }
 
     @Override
@@ -88,45 +124,186 @@ final class RevisionContentResourceLoader implements IterableResourceLoader {
 
     @Override
     public Collection<String> getPaths() {
-        return delegate.getPaths();
+        IterableResourceLoader loader = acquireDelegate();
+        try {
+            return loader.getPaths();
+        } finally {
+            releaseDelegate();
+        }
     }
 
     @Override
     public Iterator<Resource> iterateResources(String startPath, boolean recursive) {
-
-        // Collect paths for substituted packages
-        List<String> importedPaths = new ArrayList<String>();
-        BundleWiring wiring = hostRev.getBundle().adapt(BundleWiring.class);
-        List<BundleRequirement> preqs = wiring != null ? wiring.getRequirements(PackageNamespace.PACKAGE_NAMESPACE) : null;
-        if (preqs != null) {
-            for (BundleRequirement req : preqs) {
-                XPackageRequirement preq = (XPackageRequirement) req;
-                String packageName = preq.getPackageName();
-                importedPaths.add(packageName.replace('.', '/'));
+        Iterator<Resource> itres;
+        final Iterator<String> entries = revContent.iterateFileEntries(startPath, recursive);
+        if (entries != null) {
+            // Resources are created from the entry index as they are consumed
+            itres = new FilteredResourceIterator(Collections.<String> emptySet()) {
+                @Override
+                Resource nextCandidate() {
+                    while (entries.hasNext()) {
+                        Resource res = getEntryResource(entries.next());
+                        if (res != null)
+                            return res;
+                    }
+                    return null;
+                }
+            };
+        } else if (revContent.isEvictable()) {
+            // Do not hand out resources that point into the current mount of the archive
+            IterableResourceLoader loader = acquireDelegate();
+            final Iterator<Resource> candidates;
+            try {
+                candidates = loader.iterateResources(startPath, recursive);
+            } finally {
+                releaseDelegate();
+            }
+            itres = new FilteredResourceIterator(Collections.<String> emptySet()) {
+                @Override
+                Resource nextCandidate() {
+                    while (candidates.hasNext()) {
+                        Resource res = getEntryResource(candidates.next().getName());
+                        if (res != null)
+                            return res;
+                    }
+                    return null;
+                }
+            };
+        } else {
+            IterableResourceLoader loader = acquireDelegate();
+            try {
+                itres = loader.iterateResources(startPath, recursive);
+            } finally {
+                releaseDelegate();
             }
         }
-        Iterator<Resource> itres = delegate.iterateResources(startPath, recursive);
+
+        // Filter substituted packages
+        Set<String> importedPaths = getImportedPaths();
         if (importedPaths.isEmpty()) {
             return itres;
         }
+        final Iterator<Resource> candidates = itres;
+        return new FilteredResourceIterator(importedPaths) {
+            @Override
+            Resource nextCandidate() {
+                return candidates.hasNext() ? candidates.next() : null;
+            }
+        };
+    }
 
-        // Filter substituted packages
-        List<Resource> filteredResources = new ArrayList<Resource>();
-        while(itres.hasNext()) {
-            Resource res = itres.next();
-            String pathname = res.getName();
-            int lastIndex = pathname.lastIndexOf('/');
-            String respath = lastIndex > 0 ? pathname.substring(0, lastIndex) : pathname;
-            if (!importedPaths.contains(respath)) {
-                filteredResources.add(res);
+    // The entry is looked up through the revision content when it is opened, an idle archive is mounted again
+    private Resource getEntryResource(String path) {
+        URL url = revContent.getEntry(path);
+        return url != null ? new EntryResource(path, url) : null;
+    }
+
+    // The imported package paths are computed once per wiring of the host revision
+    private Set<String> getImportedPaths() {
+        BundleWiring wiring = hostRev.getWiring();
+        ImportedPaths result = importedPaths;
+        if (result == null || result.wiring != wiring) {
+            Set<String> paths = new HashSet<String>();
+            List<BundleRequirement> preqs = wiring != null ? wiring.getRequirements(PackageNamespace.PACKAGE_NAMESPACE) : null;
+            if (preqs != null) {
+                for (BundleRequirement req : preqs) {
+                    XPackageRequirement preq = (XPackageRequirement) req;
+                    String packageName = preq.getPackageName();
+                    paths.add(packageName.replace('.', '/'));
+                }
             }
+            result = new ImportedPaths(wiring, Collections.unmodifiableSet(paths));
+            importedPaths = result;
         }
-
-        return filteredResources.iterator();
+        return result.paths;
     }
 
     @Override
     public String toString() {
         return revContent.toString();
     }
+
+    private static final class EntryResource implements Resource {
+        private final String name;
+        private final URL url;
+
+        EntryResource(String name, URL url) {
+            this.name = name;
+            this.url = url;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public URL getURL() {
+            return url;
+        }
+
+        @Override
+        public InputStream openStream() throws IOException {
+            return url.openStream();
+        }
+
+        @Override
+        public long getSize() {
+            return 0L;
+        }
+    }
+
+    private static final class ImportedPaths {
+        private final BundleWiring wiring;
+        private final Set<String> paths;
+
+        ImportedPaths(BundleWiring wiring, Set<String> paths) {
+            this.wiring = wiring;
+            this.paths = paths;
+        }
+    }
+
+    /**
+     * Skips the resources in the given package paths as the candidates are consumed.
+     */
+    private abstract static class FilteredResourceIterator implements Iterator<Resource> {
+        private final Set<String> excludedPaths;
+        private Resource next;
+
+        FilteredResourceIterator(Set<String> excludedPaths) {
+            this.excludedPaths = excludedPaths;
+        }
+
+        abstract Resource nextCandidate();
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                Resource res = nextCandidate();
+                if (res == null)
+                    return false;
+                String pathname = res.getName();
+                int lastIndex = pathname.lastIndexOf('/');
+                String respath = lastIndex > 0 ? pathname.substring(0, lastIndex) : pathname;
+                if (!excludedPaths.contains(respath)) {
+                    next = res;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Resource next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            Resource res = next;
+            next = null;
+            return res;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
 }
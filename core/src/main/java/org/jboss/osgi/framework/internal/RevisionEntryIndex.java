@@ -0,0 +1,262 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.internal;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.jboss.osgi.vfs.VirtualFile;
+
+/**
+ * An immutable index of the entries in a revision content.
+ *
+ * The entry paths are relative to the content root and directories end with a '/'. The index holds the
+ * sorted paths, the children of each directory and the paths for each file name, so that entry lookups
+ * do not walk the virtual file tree.
+ *
+ * @since 18-Oct-2026
+ */
+final class RevisionEntryIndex {
+
+    private static final String[] NO_PATHS = new String[0];
+
+    private final String[] paths;
+    private final Map<String, String[]> directories;
+    private final Map<String, String[]> fileNames;
+
+    private RevisionEntryIndex(String[] paths, Map<String, String[]> directories, Map<String, String[]> fileNames) {
+        this.paths = paths;
+        this.directories = directories;
+        this.fileNames = fileNames;
+    }
+
+    static RevisionEntryIndex build(VirtualFile rootFile) throws IOException {
+        String rootPath = rootFile.getPathName();
+        List<String> pathList = new ArrayList<String>();
+        for (VirtualFile child : rootFile.getChildrenRecursively()) {
+            String path = child.getPathName().substring(rootPath.length());
+            if (path.startsWith("/"))
+                path = path.substring(1);
+            if (path.length() == 0)
+                continue;
+            if (child.isDirectory() && !path.endsWith("/"))
+                path = path + "/";
+            pathList.add(path);
+        }
+        String[] paths = pathList.toArray(new String[pathList.size()]);
+        Arrays.sort(paths);
+
+        Map<String, List<String>> dirLists = new HashMap<String, List<String>>();
+        Map<String, List<String>> nameLists = new HashMap<String, List<String>>();
+        dirLists.put("", new ArrayList<String>());
+        for (String path : paths) {
+            String parent = getParent(path);
+            List<String> children = dirLists.get(parent);
+            if (children == null) {
+                children = new ArrayList<String>();
+                dirLists.put(parent, children);
+            }
+            children.add(path);
+            if (path.endsWith("/") && !dirLists.containsKey(path)) {
+                dirLists.put(path, new ArrayList<String>());
+            }
+            String name = getName(path);
+            List<String> named = nameLists.get(name);
+            if (named == null) {
+                named = new ArrayList<String>(1);
+                nameLists.put(name, named);
+            }
+            named.add(path);
+        }
+        return new RevisionEntryIndex(paths, toArrays(dirLists), toArrays(nameLists));
+    }
+
+    /**
+     * True if the given normalized path is an entry, directories are given with a trailing '/'.
+     */
+    boolean contains(String path) {
+        return Arrays.binarySearch(paths, path) >= 0;
+    }
+
+    /**
+     * Get the paths of the direct children of the given normalized directory, or null if there is no such directory.
+     */
+    String[] getChildren(String dirPath) {
+        return directories.get(dirPath);
+    }
+
+    /**
+     * Find the entries below the given normalized directory whose name matches the given pattern.
+     */
+    List<String> findEntries(String dirPath, String pattern, boolean recurse) {
+        if (!directories.containsKey(dirPath))
+            return Collections.emptyList();
+
+        // A literal file name is looked up in the name index
+        if (pattern.indexOf('*') < 0) {
+            String[] named = fileNames.get(pattern);
+            if (named == null)
+                return Collections.emptyList();
+            List<String> result = new ArrayList<String>(named.length);
+            for (String path : named) {
+                if (recurse ? path.startsWith(dirPath) && path.length() > dirPath.length() : getParent(path).equals(dirPath))
+                    result.add(path);
+            }
+            return result;
+        }
+
+        List<String> result = new ArrayList<String>();
+        if (recurse) {
+            // The descendants of a directory are a contiguous range of the sorted paths
+            int index = Arrays.binarySearch(paths, dirPath);
+            index = index >= 0 ? index + 1 : -(index + 1);
+            for (int i = index; i < paths.length && paths[i].startsWith(dirPath); i++) {
+                if (matches(getName(paths[i]), pattern))
+                    result.add(paths[i]);
+            }
+        } else {
+            for (String path : directories.get(dirPath)) {
+                if (matches(getName(path), pattern))
+                    result.add(path);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Iterate over the file entries below the given normalized directory without copying them.
+     */
+    Iterator<String> iterateFiles(String dirPath, boolean recurse) {
+        if (recurse) {
+            // The descendants of a directory are a contiguous range of the sorted paths
+            int index = Arrays.binarySearch(paths, dirPath);
+            index = index >= 0 ? index + 1 : -(index + 1);
+            return new FileIterator(paths, index, dirPath);
+        }
+        String[] children = directories.get(dirPath);
+        return new FileIterator(children != null ? children : NO_PATHS, 0, "");
+    }
+
+    /**
+     * Normalize a directory path to the index form, without a leading and with a trailing '/'.
+     */
+    static String normalizeDirectory(String path) {
+        String result = normalizeEntry(path);
+        if (result.length() > 0 && !result.endsWith("/"))
+            result = result + "/";
+        return result;
+    }
+
+    /**
+     * Normalize an entry path to the index form, without a leading '/'.
+     */
+    static String normalizeEntry(String path) {
+        int start = 0;
+        while (start < path.length() && path.charAt(start) == '/')
+            start++;
+        return start > 0 ? path.substring(start) : path;
+    }
+
+    private static String getParent(String path) {
+        int end = path.endsWith("/") ? path.length() - 1 : path.length();
+        int idx = path.lastIndexOf('/', end - 1);
+        return idx >= 0 ? path.substring(0, idx + 1) : "";
+    }
+
+    private static String getName(String path) {
+        int end = path.endsWith("/") ? path.length() - 1 : path.length();
+        int idx = path.lastIndexOf('/', end - 1);
+        return path.substring(idx + 1, end);
+    }
+
+    // Match a name against a pattern where '*' matches any sequence of characters
+    static boolean matches(String name, String pattern) {
+        int n = 0, p = 0, star = -1, mark = 0;
+        while (n < name.length()) {
+            if (p < pattern.length() && pattern.charAt(p) == '*') {
+                star = p++;
+                mark = n;
+            } else if (p < pattern.length() && pattern.charAt(p) == name.charAt(n)) {
+                p++;
+                n++;
+            } else if (star >= 0) {
+                p = star + 1;
+                n = ++mark;
+            } else {
+                return false;
+            }
+        }
+        while (p < pattern.length() && pattern.charAt(p) == '*')
+            p++;
+        return p == pattern.length();
+    }
+
+    private static final class FileIterator implements Iterator<String> {
+        private final String[] array;
+        private final String prefix;
+        private int index;
+
+        FileIterator(String[] array, int index, String prefix) {
+            this.array = array;
+            this.index = index;
+            this.prefix = prefix;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (index < array.length && array[index].startsWith(prefix)) {
+                if (!array[index].endsWith("/"))
+                    return true;
+                index++;
+            }
+            return false;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            return array[index++];
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static Map<String, String[]> toArrays(Map<String, List<String>> lists) {
+        Map<String, String[]> result = new HashMap<String, String[]>(lists.size() * 2);
+        for (Map.Entry<String, List<String>> entry : lists.entrySet()) {
+            List<String> list = entry.getValue();
+            result.put(entry.getKey(), list.isEmpty() ? NO_PATHS : list.toArray(new String[list.size()]));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+}
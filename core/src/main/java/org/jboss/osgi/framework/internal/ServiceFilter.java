@@ -0,0 +1,867 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.internal;
+
+import static org.jboss.osgi.framework.FrameworkMessages.MESSAGES;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.osgi.metadata.CaseInsensitiveDictionary;
+import org.osgi.framework.Filter;
+import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.Version;
+
+/**
+ * A compiled RFC 1960 filter.
+ *
+ * Filters are parsed once into a tree of matchers and kept in a bounded cache keyed by the filter string.
+ * Attribute names are normalized at compile time, so that a service state can be matched through its
+ * normalized property map without a case insensitive key search. The filter values are converted to the
+ * numeric, boolean, character and version types up front, so that matching does not allocate.
+ *
+ * @since 18-Oct-2026
+ */
+final class ServiceFilter implements Filter {
+
+    private static final int CACHE_SIZE = 512;
+
+    // Lookups do not lock, they stamp the filter with a tick of the clock.
+    // When the cache is full the least recently used quarter of the entries is evicted
+    private static final ConcurrentMap<String, ServiceFilter> cache = new ConcurrentHashMap<String, ServiceFilter>(64);
+    private static final AtomicLong clock = new AtomicLong();
+    private static final AtomicBoolean evicting = new AtomicBoolean();
+
+    // The property sources a filter can be matched against
+    private static final int SERVICE_STATE = 0;
+    private static final int SERVICE_REFERENCE = 1;
+    private static final int DICTIONARY = 2;
+    private static final int DICTIONARY_CASE = 3;
+    private static final int MAP_CASE = 4;
+
+    private static final Dictionary<String, Object> EMPTY_DICTIONARY = new Hashtable<String, Object>();
+
+    private final Node root;
+    private final String normalized;
+    private volatile long lastAccess;
+
+    private ServiceFilter(Node root) {
+        this.root = root;
+        StringBuilder builder = new StringBuilder();
+        root.append(builder);
+        this.normalized = builder.toString();
+    }
+
+    /**
+     * Get the compiled filter for the given filter string.
+     */
+    static ServiceFilter getFilter(String filterStr) throws InvalidSyntaxException {
+        if (filterStr == null)
+            throw MESSAGES.illegalArgumentNull("filter");
+
+        ServiceFilter filter = cache.get(filterStr);
+        if (filter == null) {
+            ServiceFilter created = new ServiceFilter(new Parser(filterStr).parse());
+            created.lastAccess = clock.incrementAndGet();
+            filter = cache.putIfAbsent(filterStr, created);
+            if (filter == null) {
+                if (cache.size() > CACHE_SIZE) {
+                    evictEntries();
+                }
+                return created;
+            }
+        }
+        filter.lastAccess = clock.incrementAndGet();
+        return filter;
+    }
+
+    private static void evictEntries() {
+        // One thread evicts, the others carry on with a cache that is slightly over its size
+        if (!evicting.compareAndSet(false, true))
+            return;
+        try {
+            List<Entry<String, ServiceFilter>> entries = new ArrayList<Entry<String, ServiceFilter>>(cache.entrySet());
+            int count = entries.size() - CACHE_SIZE * 3 / 4;
+            if (count <= 0)
+                return;
+            long[] stamps = new long[entries.size()];
+            for (int i = 0; i < stamps.length; i++) {
+                stamps[i] = entries.get(i).getValue().lastAccess;
+            }
+            Arrays.sort(stamps);
+            long threshold = stamps[count - 1];
+            for (Entry<String, ServiceFilter> entry : entries) {
+                if (count > 0 && entry.getValue().lastAccess <= threshold && cache.remove(entry.getKey(), entry.getValue())) {
+                    count--;
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    @Override
+    public boolean match(ServiceReference<?> reference) {
+        if (reference == null)
+            return false;
+        Object source = reference;
+        if (reference instanceof ServiceReferenceWrapper) {
+            source = ((ServiceReferenceWrapper<?>) reference).getServiceState();
+        }
+        return root.match(source, source instanceof ServiceStateImpl ? SERVICE_STATE : SERVICE_REFERENCE);
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public boolean match(Dictionary dictionary) {
+        return root.match(dictionary != null ? dictionary : EMPTY_DICTIONARY, DICTIONARY);
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public boolean matchCase(Dictionary dictionary) {
+        return root.match(dictionary != null ? dictionary : EMPTY_DICTIONARY, DICTIONARY_CASE);
+    }
+
+    @Override
+    public boolean matches(Map<String, ?> map) {
+        return root.match(map != null ? map : Collections.emptyMap(), MAP_CASE);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this)
+            return true;
+        if (!(obj instanceof Filter))
+            return false;
+        return normalized.equals(obj.toString());
+    }
+
+    @Override
+    public int hashCode() {
+        return normalized.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return normalized;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static Object getProperty(Object source, int mode, String attr, String key) {
+        switch (mode) {
+            case SERVICE_STATE:
+                return ((ServiceStateImpl<?>) source).getNormalizedProperty(key);
+            case SERVICE_REFERENCE:
+                return ((ServiceReference) source).getProperty(attr);
+            case DICTIONARY: {
+                Dictionary dictionary = (Dictionary) source;
+                Object value = dictionary.get(attr);
+                if (value == null && !(dictionary instanceof CaseInsensitiveDictionary || dictionary instanceof ServiceProperties)) {
+                    Enumeration keys = dictionary.keys();
+                    while (keys.hasMoreElements()) {
+                        Object aux = keys.nextElement();
+                        if (aux instanceof String && attr.equalsIgnoreCase((String) aux)) {
+                            return dictionary.get(aux);
+                        }
+                    }
+                }
+                return value;
+            }
+            case DICTIONARY_CASE:
+                return ((Dictionary) source).get(attr);
+            default:
+                return ((Map) source).get(attr);
+        }
+    }
+
+    private static String normalizeKey(String attr) {
+        return attr.toLowerCase(Locale.ENGLISH);
+    }
+
+    private abstract static class Node {
+
+        abstract boolean match(Object source, int mode);
+
+        abstract void append(StringBuilder builder);
+    }
+
+    private static final class AndNode extends Node {
+        private final Node[] operands;
+
+        AndNode(Node[] operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        boolean match(Object source, int mode) {
+            for (Node operand : operands) {
+                if (!operand.match(source, mode))
+                    return false;
+            }
+            return true;
+        }
+
+        @Override
+        void append(StringBuilder builder) {
+            builder.append("(&");
+            for (Node operand : operands) {
+                operand.append(builder);
+            }
+            builder.append(')');
+        }
+    }
+
+    private static final class OrNode extends Node {
+        private final Node[] operands;
+
+        OrNode(Node[] operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        boolean match(Object source, int mode) {
+            for (Node operand : operands) {
+                if (operand.match(source, mode))
+                    return true;
+            }
+            return false;
+        }
+
+        @Override
+        void append(StringBuilder builder) {
+            builder.append("(|");
+            for (Node operand : operands) {
+                operand.append(builder);
+            }
+            builder.append(')');
+        }
+    }
+
+    private static final class NotNode extends Node {
+        private final Node operand;
+
+        NotNode(Node operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        boolean match(Object source, int mode) {
+            return !operand.match(source, mode);
+        }
+
+        @Override
+        void append(StringBuilder builder) {
+            builder.append("(!");
+            operand.append(builder);
+            builder.append(')');
+        }
+    }
+
+    private static final class PresentNode extends Node {
+        private final String attr;
+        private final String key;
+
+        PresentNode(String attr) {
+            this.attr = attr;
+            this.key = normalizeKey(attr);
+        }
+
+        @Override
+        boolean match(Object source, int mode) {
+            return getProperty(source, mode, attr, key) != null;
+        }
+
+        @Override
+        void append(StringBuilder builder) {
+            builder.append('(').append(attr).append("=*)");
+        }
+    }
+
+    private static final class SubstringNode extends Node {
+        private final String attr;
+        private final String key;
+        // A null element stands for a wildcard
+        private final String[] substrings;
+
+        SubstringNode(String attr, String[] substrings) {
+            this.attr = attr;
+            this.key = normalizeKey(attr);
+            this.substrings = substrings;
+        }
+
+        @Override
+        boolean match(Object source, int mode) {
+            return matchValue(getProperty(source, mode, attr, key));
+        }
+
+        private boolean matchValue(Object value) {
+            if (value instanceof String) {
+                return matchString((String) value);
+            } else if (value instanceof Object[]) {
+                for (Object element : (Object[]) value) {
+                    if (matchValue(element))
+                        return true;
+                }
+            } else if (value instanceof Collection) {
+                for (Object element : (Collection<?>) value) {
+                    if (matchValue(element))
+                        return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean matchString(String string) {
+            int pos = 0;
+            for (int i = 0, size = substrings.length; i < size; i++) {
+                String substr = substrings[i];
+                if (i + 1 < size) {
+                    if (substr == null) {
+                        String next = substrings[i + 1];
+                        if (next == null)
+                            continue;
+                        int index = string.indexOf(next, pos);
+                        if (index == -1)
+                            return false;
+                        pos = index + next.length();
+                        if (i + 2 < size)
+                            i++;
+                    } else {
+                        int len = substr.length();
+                        if (!string.regionMatches(pos, substr, 0, len))
+                            return false;
+                        pos += len;
+                    }
+                } else {
+                    if (substr == null)
+                        return true;
+                    return string.endsWith(substr) && string.length() - substr.length() >= pos;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        void append(StringBuilder builder) {
+            builder.append('(').append(attr).append('=');
+            for (String substr : substrings) {
+                if (substr == null) {
+                    builder.append('*');
+                } else {
+                    encodeValue(builder, substr);
+                }
+            }
+            builder.append(')');
+        }
+    }
+
+    private static final class CompareNode extends Node {
+        static final int EQUAL = 0;
+        static final int APPROX = 1;
+        static final int GREATER = 2;
+        static final int LESS = 3;
+
+        private final String attr;
+        private final String key;
+        private final int operation;
+        private final String value;
+
+        // The filter value converted to the property types, computed once
+        private final String approxValue;
+        private final boolean longValid;
+        private final long longValue;
+        private final boolean doubleValid;
+        private final double doubleValue;
+        private final float floatValue;
+        private final boolean booleanValue;
+        private final boolean charValid;
+        private final char charValue;
+        private final Version versionValue;
+
+        CompareNode(String attr, int operation, String value) {
+            this.attr = attr;
+            this.key = normalizeKey(attr);
+            this.operation = operation;
+            this.value = value;
+            this.approxValue = operation == APPROX ? approxString(value) : null;
+
+            String trimmed = value.trim();
+            long lval = 0;
+            boolean lvalid = true;
+            try {
+                lval = Long.parseLong(trimmed);
+            } catch (NumberFormatException ex) {
+                lvalid = false;
+            }
+            this.longValue = lval;
+            this.longValid = lvalid;
+
+            double dval = 0;
+            float fval = 0;
+            boolean dvalid = true;
+            try {
+                dval = Double.parseDouble(trimmed);
+                fval = Float.parseFloat(trimmed);
+            } catch (NumberFormatException ex) {
+                dvalid = false;
+            }
+            this.doubleValue = dval;
+            this.floatValue = fval;
+            this.doubleValid = dvalid;
+
+            this.booleanValue = Boolean.valueOf(trimmed).booleanValue();
+            this.charValid = trimmed.length() > 0;
+            this.charValue = charValid ? trimmed.charAt(0) : 0;
+
+            Version version = null;
+            try {
+                version = Version.parseVersion(trimmed);
+            } catch (IllegalArgumentException ex) {
+                // not a version
+            }
+            this.versionValue = version;
+        }
+
+        @Override
+        boolean match(Object source, int mode) {
+            return matchValue(getProperty(source, mode, attr, key));
+        }
+
+        private boolean matchValue(Object prop) {
+            if (prop == null) {
+                return false;
+            } else if (prop instanceof String) {
+                return compareString((String) prop);
+            } else if (prop instanceof Integer) {
+                return compareLong(((Integer) prop).intValue(), Integer.MIN_VALUE, Integer.MAX_VALUE);
+            } else if (prop instanceof Long) {
+                return compareLong(((Long) prop).longValue(), Long.MIN_VALUE, Long.MAX_VALUE);
+            } else if (prop instanceof Boolean) {
+                return compareBoolean(((Boolean) prop).booleanValue());
+            } else if (prop instanceof Double) {
+                return doubleValid && compareSign(Double.compare(((Double) prop).doubleValue(), doubleValue));
+            } else if (prop instanceof Float) {
+                return doubleValid && compareSign(Float.compare(((Float) prop).floatValue(), floatValue));
+            } else if (prop instanceof Short) {
+                return compareLong(((Short) prop).shortValue(), Short.MIN_VALUE, Short.MAX_VALUE);
+            } else if (prop instanceof Byte) {
+                return compareLong(((Byte) prop).byteValue(), Byte.MIN_VALUE, Byte.MAX_VALUE);
+            } else if (prop instanceof Character) {
+                return compareCharacter(((Character) prop).charValue());
+            } else if (prop instanceof Version) {
+                return versionValue != null && compareSign(((Version) prop).compareTo(versionValue));
+            } else if (prop instanceof Object[]) {
+                for (Object element : (Object[]) prop) {
+                    if (matchValue(element))
+                        return true;
+                }
+                return false;
+            } else if (prop.getClass().isArray()) {
+                for (int i = 0, length = Array.getLength(prop); i < length; i++) {
+                    if (matchValue(Array.get(prop, i)))
+                        return true;
+                }
+                return false;
+            } else if (prop instanceof Collection) {
+                for (Object element : (Collection<?>) prop) {
+                    if (matchValue(element))
+                        return true;
+                }
+                return false;
+            } else {
+                return compareObject(prop);
+            }
+        }
+
+        private boolean compareSign(int result) {
+            switch (operation) {
+                case GREATER:
+                    return result >= 0;
+                case LESS:
+                    return result <= 0;
+                default:
+                    return result == 0;
+            }
+        }
+
+        private boolean compareString(String prop) {
+            switch (operation) {
+                case APPROX:
+                    return approxString(prop).equalsIgnoreCase(approxValue);
+                case GREATER:
+                    return prop.compareTo(value) >= 0;
+                case LESS:
+                    return prop.compareTo(value) <= 0;
+                default:
+                    return prop.equals(value);
+            }
+        }
+
+        private boolean compareLong(long prop, long min, long max) {
+            if (!longValid || longValue < min || longValue > max)
+                return false;
+            return compareSign(prop < longValue ? -1 : (prop == longValue ? 0 : 1));
+        }
+
+        private boolean compareBoolean(boolean prop) {
+            return prop == booleanValue;
+        }
+
+        private boolean compareCharacter(char prop) {
+            if (!charValid)
+                return false;
+            switch (operation) {
+                case APPROX:
+                    return prop == charValue || Character.toUpperCase(prop) == Character.toUpperCase(charValue)
+                            || Character.toLowerCase(prop) == Character.toLowerCase(charValue);
+                default:
+                    return compareSign(prop < charValue ? -1 : (prop == charValue ? 0 : 1));
+            }
+        }
+
+        // Other types are converted through a public String constructor or a static valueOf(String) method
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        private boolean compareObject(Object prop) {
+            Object converted = converters.get(prop.getClass()).convert(value.trim());
+            if (converted == null)
+                return false;
+            if (prop instanceof Comparable) {
+                try {
+                    return compareSign(((Comparable) prop).compareTo(converted));
+                } catch (ClassCastException ex) {
+                    return false;
+                }
+            }
+            return prop.equals(converted);
+        }
+
+        @Override
+        void append(StringBuilder builder) {
+            builder.append('(').append(attr);
+            switch (operation) {
+                case APPROX:
+                    builder.append("~=");
+                    break;
+                case GREATER:
+                    builder.append(">=");
+                    break;
+                case LESS:
+                    builder.append("<=");
+                    break;
+                default:
+                    builder.append('=');
+            }
+            encodeValue(builder, value);
+            builder.append(')');
+        }
+    }
+
+    // The String constructor or valueOf(String) method of a property type, looked up once per class
+    private static final ClassValue<ValueConverter> converters = new ClassValue<ValueConverter>() {
+        @Override
+        protected ValueConverter computeValue(Class<?> type) {
+            try {
+                Constructor<?> constructor = type.getConstructor(String.class);
+                constructor.setAccessible(true);
+                return new ValueConverter(constructor, null);
+            } catch (Exception ex) {
+                // try valueOf
+            }
+            try {
+                Method method = type.getMethod("valueOf", String.class);
+                if (Modifier.isStatic(method.getModifiers()) && type.isAssignableFrom(method.getReturnType())) {
+                    method.setAccessible(true);
+                    return new ValueConverter(null, method);
+                }
+            } catch (Exception ex) {
+                // not convertible
+            }
+            return new ValueConverter(null, null);
+        }
+    };
+
+    private static final class ValueConverter {
+        private final Constructor<?> constructor;
+        private final Method valueOf;
+
+        ValueConverter(Constructor<?> constructor, Method valueOf) {
+            this.constructor = constructor;
+            this.valueOf = valueOf;
+        }
+
+        // Returns null if the value cannot be converted
+        Object convert(String value) {
+            try {
+                if (constructor != null) {
+                    return constructor.newInstance(value);
+                } else if (valueOf != null) {
+                    return valueOf.invoke(null, value);
+                }
+            } catch (Exception ex) {
+                // not convertible
+            }
+            return null;
+        }
+    }
+
+    private static String approxString(String input) {
+        StringBuilder builder = null;
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (Character.isWhitespace(c)) {
+                if (builder == null) {
+                    builder = new StringBuilder(input.substring(0, i));
+                }
+            } else if (builder != null) {
+                builder.append(c);
+            }
+        }
+        return builder != null ? builder.toString() : input;
+    }
+
+    private static void encodeValue(StringBuilder builder, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '(' || c == '*' || c == ')' || c == '\\') {
+                builder.append('\\');
+            }
+            builder.append(c);
+        }
+    }
+
+    /**
+     * The RFC 1960 filter parser.
+     */
+    private static final class Parser {
+        private final String filterString;
+        private final char[] filterChars;
+        private int pos;
+
+        Parser(String filterString) {
+            this.filterString = filterString;
+            this.filterChars = filterString.toCharArray();
+        }
+
+        Node parse() throws InvalidSyntaxException {
+            Node node;
+            try {
+                node = parseFilter();
+            } catch (ArrayIndexOutOfBoundsException ex) {
+                throw syntaxError("unexpected end");
+            }
+            if (pos != filterChars.length) {
+                throw syntaxError("extraneous trailing characters");
+            }
+            return node;
+        }
+
+        private Node parseFilter() throws InvalidSyntaxException {
+            skipWhiteSpace();
+            if (filterChars[pos] != '(')
+                throw syntaxError("missing '('");
+            pos++;
+            Node node = parseFilterComp();
+            skipWhiteSpace();
+            if (filterChars[pos] != ')')
+                throw syntaxError("missing ')'");
+            pos++;
+            skipWhiteSpace();
+            return node;
+        }
+
+        private Node parseFilterComp() throws InvalidSyntaxException {
+            skipWhiteSpace();
+            char c = filterChars[pos];
+            switch (c) {
+                case '&':
+                    pos++;
+                    return new AndNode(parseFilterList());
+                case '|':
+                    pos++;
+                    return new OrNode(parseFilterList());
+                case '!':
+                    pos++;
+                    return new NotNode(parseFilter());
+                default:
+                    return parseItem();
+            }
+        }
+
+        private Node[] parseFilterList() throws InvalidSyntaxException {
+            List<Node> operands = new ArrayList<Node>();
+            skipWhiteSpace();
+            while (filterChars[pos] == '(') {
+                operands.add(parseFilter());
+            }
+            if (operands.isEmpty())
+                throw syntaxError("missing '('");
+            return operands.toArray(new Node[operands.size()]);
+        }
+
+        private Node parseItem() throws InvalidSyntaxException {
+            String attr = parseAttr();
+            skipWhiteSpace();
+            switch (filterChars[pos]) {
+                case '~':
+                    if (filterChars[pos + 1] == '=') {
+                        pos += 2;
+                        return new CompareNode(attr, CompareNode.APPROX, parseValue());
+                    }
+                    break;
+                case '>':
+                    if (filterChars[pos + 1] == '=') {
+                        pos += 2;
+                        return new CompareNode(attr, CompareNode.GREATER, parseValue());
+                    }
+                    break;
+                case '<':
+                    if (filterChars[pos + 1] == '=') {
+                        pos += 2;
+                        return new CompareNode(attr, CompareNode.LESS, parseValue());
+                    }
+                    break;
+                case '=':
+                    if (filterChars[pos + 1] == '*') {
+                        int oldpos = pos;
+                        pos += 2;
+                        skipWhiteSpace();
+                        if (filterChars[pos] == ')') {
+                            return new PresentNode(attr);
+                        }
+                        pos = oldpos;
+                    }
+                    pos++;
+                    return parseSubstring(attr);
+            }
+            throw syntaxError("invalid operator");
+        }
+
+        private String parseAttr() throws InvalidSyntaxException {
+            skipWhiteSpace();
+            int begin = pos;
+            int end = pos;
+            char c = filterChars[pos];
+            while (c != '~' && c != '<' && c != '>' && c != '=' && c != '(' && c != ')') {
+                pos++;
+                if (!Character.isWhitespace(c)) {
+                    end = pos;
+                }
+                c = filterChars[pos];
+            }
+            int length = end - begin;
+            if (length == 0)
+                throw syntaxError("missing attribute");
+            return new String(filterChars, begin, length);
+        }
+
+        private String parseValue() throws InvalidSyntaxException {
+            StringBuilder builder = new StringBuilder(filterChars.length - pos);
+            while (true) {
+                char c = filterChars[pos];
+                switch (c) {
+                    case ')':
+                        return builder.toString();
+                    case '(':
+                        throw syntaxError("invalid value");
+                    case '\\':
+                        pos++;
+                        c = filterChars[pos];
+                        // fall through
+                    default:
+                        builder.append(c);
+                        pos++;
+                        break;
+                }
+            }
+        }
+
+        private Node parseSubstring(String attr) throws InvalidSyntaxException {
+            StringBuilder builder = new StringBuilder(filterChars.length - pos);
+            List<String> operands = new ArrayList<String>();
+            parseloop: while (true) {
+                char c = filterChars[pos];
+                switch (c) {
+                    case ')':
+                        if (builder.length() > 0) {
+                            operands.add(builder.toString());
+                        }
+                        break parseloop;
+                    case '(':
+                        throw syntaxError("invalid value");
+                    case '*':
+                        if (builder.length() > 0) {
+                            operands.add(builder.toString());
+                        }
+                        builder.setLength(0);
+                        operands.add(null);
+                        pos++;
+                        break;
+                    case '\\':
+                        pos++;
+                        c = filterChars[pos];
+                        // fall through
+                    default:
+                        builder.append(c);
+                        pos++;
+                        break;
+                }
+            }
+            int size = operands.size();
+            if (size == 0) {
+                return new CompareNode(attr, CompareNode.EQUAL, "");
+            }
+            if (size == 1 && operands.get(0) != null) {
+                return new CompareNode(attr, CompareNode.EQUAL, operands.get(0));
+            }
+            return new SubstringNode(attr, operands.toArray(new String[size]));
+        }
+
+        private void skipWhiteSpace() {
+            for (int length = filterChars.length; pos < length && Character.isWhitespace(filterChars[pos]);) {
+                pos++;
+            }
+        }
+
+        private InvalidSyntaxException syntaxError(String problem) {
+            return new InvalidSyntaxException(MESSAGES.invalidFilterSyntax(problem, pos), filterString);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.osgi.framework.ServiceReference;
+
+/**
+ * A table of handler service references keyed by protocol or MIME type.
+ *
+ * Each key has a copy on write list of references in ranking order and the top ranked service,
+ * so that the URL handler proxies can dispatch without locking or service lookups. The service objects
+ * are the ones that the tracker obtained for the references, the table does not get services itself.
+ *
+ * @since 18-Oct-2026
+ */
+final class ServiceHandlerTable<T> {
+
+    private final ConcurrentMap<String, Handlers<T>> handlers = new ConcurrentHashMap<String, Handlers<T>>();
+
+    /**
+     * Get the handlers for the given key, or null if no handler was ever added for it.
+     * The returned instance stays valid while references come and go.
+     */
+    Handlers<T> getHandlers(String key) {
+        return handlers.get(key);
+    }
+
+    void addHandler(String key, ServiceReference<T> reference, T service) {
+        Handlers<T> result = handlers.get(key);
+        if (result == null) {
+            result = new Handlers<T>();
+            Handlers<T> existing = handlers.putIfAbsent(key, result);
+            if (existing != null)
+                result = existing;
+        }
+        result.add(reference, service);
+    }
+
+    void removeHandler(ServiceReference<T> reference) {
+        for (Handlers<T> aux : handlers.values()) {
+            aux.remove(reference);
+        }
+    }
+
+    void clearHandlers() {
+        for (Handlers<T> aux : handlers.values()) {
+            aux.clear();
+        }
+    }
+
+    static final class Handlers<T> {
+
+        private final Map<ServiceReference<T>, T> services = new HashMap<ServiceReference<T>, T>();
+        private volatile List<ServiceReference<T>> references = Collections.emptyList();
+        private volatile T topService;
+
+        List<ServiceReference<T>> getReferences() {
+            return references;
+        }
+
+        boolean isEmpty() {
+            return references.isEmpty();
+        }
+
+        /**
+         * Get the top ranked service, or null if there is none.
+         */
+        T getTopService() {
+            return topService;
+        }
+
+        synchronized void add(ServiceReference<T> reference, T service) {
+            List<ServiceReference<T>> list = new ArrayList<ServiceReference<T>>(references);
+            list.add(reference);
+            Collections.sort(list, Collections.reverseOrder(ServiceReferenceComparator.getInstance()));
+            services.put(reference, service);
+            update(list);
+        }
+
+        synchronized void remove(ServiceReference<T> reference) {
+            if (references.contains(reference)) {
+                List<ServiceReference<T>> list = new ArrayList<ServiceReference<T>>(references);
+                list.remove(reference);
+                services.remove(reference);
+                update(list);
+            }
+        }
+
+        synchronized void clear() {
+            services.clear();
+            update(Collections.<ServiceReference<T>> emptyList());
+        }
+
+        private void update(List<ServiceReference<T>> list) {
+            references = Collections.unmodifiableList(list);
+            topService = list.isEmpty() ? null : services.get(list.get(0));
+        }
+    }
+}
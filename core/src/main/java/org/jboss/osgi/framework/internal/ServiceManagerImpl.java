@@ -43,7 +43,6 @@ import org.jboss.osgi.resolver.spi.RemoveOnlyCollection;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.Filter;
-import org.osgi.framework.FrameworkUtil;
 import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceEvent;
 import org.osgi.framework.ServiceException;
@@ -188,7 +187,7 @@ public final class ServiceManagerImpl implements ServiceManager {
     public List<ServiceState<?>> getServiceReferences(XBundle bundle, String clazz, String filterStr, boolean checkAssignable) throws InvalidSyntaxException {
         Filter filter = NoFilter.INSTANCE;
         if (filterStr != null)
-            filter = FrameworkUtil.createFilter(filterStr);
+            filter = ServiceFilter.getFilter(filterStr);
 
         List<ServiceState<?>> result = getServiceReferencesInternal(bundle, clazz, filter, checkAssignable);
         result = processFindHooks(bundle, clazz, filterStr, checkAssignable, result);
@@ -251,6 +250,17 @@ public final class ServiceManagerImpl implements ServiceManager {
         if (serviceState.isUnregistered())
             return null;
 
+        // A plain service object cannot call back into getService, so there is no recursion to guard.
+        // If the bundle already uses the service, only its use count needs to be bumped.
+        AbstractBundleState<?> bundleState = AbstractBundleState.assertBundleState(bundle);
+        if (serviceState instanceof ServiceStateImpl && !((ServiceStateImpl<S>) serviceState).isServiceFactory()) {
+            if (!bundleState.addServiceInUseIfUsed(serviceState)) {
+                bundleState.addServiceInUse(serviceState);
+                serviceState.addUsingBundle(bundleState);
+            }
+            return serviceState.getScopedValue(bundleState);
+        }
+
         // If this method is called recursively for the same bundle
         // then it must return null to break the recursion.
         if (getServiceRecursion.get() == bundle)
@@ -261,7 +271,6 @@ public final class ServiceManagerImpl implements ServiceManager {
             getServiceRecursion.set(bundle);
 
             // Add the given service ref to the list of used services
-            AbstractBundleState<?> bundleState = AbstractBundleState.assertBundleState(bundle);
             bundleState.addServiceInUse(serviceState);
             serviceState.addUsingBundle(bundleState);
 
@@ -0,0 +1,208 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.internal;
+
+import static org.jboss.osgi.framework.FrameworkMessages.MESSAGES;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Dictionary;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+import org.osgi.framework.Constants;
+
+/**
+ * The immutable properties of a registered service.
+ *
+ * The keys are held lower cased and interned in a sorted array with the values alongside, so that a lookup is a
+ * binary search that does not allocate. The service id, object class and service ranking are also held as fields.
+ *
+ * @since 18-Oct-2026
+ */
+final class ServiceProperties extends Dictionary<String, Object> {
+
+    private static final Comparator<String> KEY_COMPARATOR = String.CASE_INSENSITIVE_ORDER;
+
+    private final String[] keys;
+    private final String[] originalKeys;
+    private final Object[] values;
+    private final long serviceId;
+    private final String[] objectClass;
+    private final int serviceRanking;
+
+    @SuppressWarnings("rawtypes")
+    ServiceProperties(Dictionary properties, long serviceId, String[] objectClass) {
+        List<Entry> entries = new ArrayList<Entry>();
+        entries.add(new Entry(Constants.SERVICE_ID, serviceId));
+        entries.add(new Entry(Constants.OBJECTCLASS, objectClass));
+        if (properties != null) {
+            Enumeration enumeration = properties.keys();
+            while (enumeration.hasMoreElements()) {
+                Object key = enumeration.nextElement();
+                if (!(key instanceof String))
+                    continue;
+                String name = (String) key;
+                // The framework sets the service id and object class
+                if (name.equalsIgnoreCase(Constants.SERVICE_ID) || name.equalsIgnoreCase(Constants.OBJECTCLASS))
+                    continue;
+                entries.add(new Entry(name, properties.get(key)));
+            }
+        }
+
+        Entry[] sorted = entries.toArray(new Entry[entries.size()]);
+        Arrays.sort(sorted);
+
+        int size = sorted.length;
+        this.keys = new String[size];
+        this.originalKeys = new String[size];
+        this.values = new Object[size];
+        for (int i = 0; i < size; i++) {
+            Entry entry = sorted[i];
+            if (i > 0 && KEY_COMPARATOR.compare(keys[i - 1], entry.key) == 0)
+                throw MESSAGES.illegalArgumentDuplicatePropertyKey(originalKeys[i - 1], entry.originalKey);
+            keys[i] = entry.key;
+            originalKeys[i] = entry.originalKey;
+            values[i] = entry.value;
+        }
+
+        this.serviceId = serviceId;
+        this.objectClass = objectClass;
+        Object ranking = get(Constants.SERVICE_RANKING);
+        this.serviceRanking = ranking instanceof Integer ? ((Integer) ranking).intValue() : 0;
+    }
+
+    long getServiceId() {
+        return serviceId;
+    }
+
+    String[] getObjectClass() {
+        return objectClass;
+    }
+
+    int getServiceRanking() {
+        return serviceRanking;
+    }
+
+    String[] getPropertyKeys() {
+        return originalKeys.clone();
+    }
+
+    /**
+     * Get a property by a key that is already lower cased.
+     */
+    Object getNormalizedProperty(String lowerCaseKey) {
+        return get(lowerCaseKey);
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (!(key instanceof String))
+            return null;
+        int index = Arrays.binarySearch(keys, (String) key, KEY_COMPARATOR);
+        return index >= 0 ? values[index] : null;
+    }
+
+    @Override
+    public int size() {
+        return keys.length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return keys.length == 0;
+    }
+
+    @Override
+    public Enumeration<String> keys() {
+        return new ArrayEnumeration<String>(originalKeys);
+    }
+
+    @Override
+    public Enumeration<Object> elements() {
+        return new ArrayEnumeration<Object>(values);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Object remove(Object key) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        for (int i = 0; i < keys.length; i++) {
+            if (i > 0)
+                builder.append(", ");
+            Object value = values[i];
+            builder.append(originalKeys[i]).append('=');
+            builder.append(value instanceof Object[] ? Arrays.toString((Object[]) value) : value);
+        }
+        return builder.append('}').toString();
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+        private final String key;
+        private final String originalKey;
+        private final Object value;
+
+        Entry(String originalKey, Object value) {
+            this.key = originalKey.toLowerCase(Locale.ENGLISH).intern();
+            this.originalKey = originalKey.intern();
+            this.value = value;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            return KEY_COMPARATOR.compare(key, other.key);
+        }
+    }
+
+    private static final class ArrayEnumeration<T> implements Enumeration<T> {
+        private final T[] array;
+        private int index;
+
+        ArrayEnumeration(T[] array) {
+            this.array = array;
+        }
+
+        @Override
+        public boolean hasMoreElements() {
+            return index < array.length;
+        }
+
+        @Override
+        public T nextElement() {
+            if (index >= array.length)
+                throw new NoSuchElementException();
+            return array[index++];
+        }
+    }
+}
@@ -24,28 +24,22 @@ package org.jboss.osgi.framework.internal;
 import static org.jboss.osgi.framework.FrameworkLogger.LOGGER;
 import static org.jboss.osgi.framework.FrameworkMessages.MESSAGES;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Dictionary;
-import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Hashtable;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.jboss.osgi.framework.spi.ServiceManager;
 import org.jboss.osgi.framework.spi.ServiceState;
-import org.jboss.osgi.metadata.CaseInsensitiveDictionary;
 import org.jboss.osgi.resolver.XBundle;
 import org.jboss.osgi.resolver.XBundleRevision;
 import org.jboss.osgi.spi.ConstantsHelper;
 import org.osgi.framework.Bundle;
-import org.osgi.framework.Constants;
 import org.osgi.framework.FrameworkEvent;
 import org.osgi.framework.ServiceEvent;
 import org.osgi.framework.ServiceException;
@@ -71,11 +65,11 @@ final class ServiceStateImpl<S> implements ServiceState<S> {
     private final ServiceReference<S> reference;
     private ServiceRegistration<S> registration;
     private Set<XBundle> usingBundles;
-    private Map<Long, ServiceFactoryHolder<S>> factoryValues;
+    private final ConcurrentMap<Long, ServiceFactoryHolder<S>> factoryValues;
 
     // The properties
-    private CaseInsensitiveDictionary prevProperties;
-    private CaseInsensitiveDictionary currProperties;
+    private volatile ServiceProperties prevProperties;
+    private volatile ServiceProperties currProperties;
 
     @SuppressWarnings("unchecked")
     ServiceStateImpl(ServiceManager serviceManager, XBundle owner, long serviceId, String[] classNames, ValueProvider<S> valueProvider, Dictionary properties) {
@@ -89,16 +83,12 @@ final class ServiceStateImpl<S> implements ServiceState<S> {
         this.serviceId = serviceId;
         this.valueProvider = valueProvider;
         this.classNames = classNames;
+        this.factoryValues = valueProvider.isFactoryValue() ? new ConcurrentHashMap<Long, ServiceFactoryHolder<S>>() : null;
 
         if (!valueProvider.isFactoryValue() && !checkValidClassNames(owner, classNames, valueProvider.getValue()))
             throw MESSAGES.illegalArgumentInvalidObjectClass(Arrays.toString(classNames));
 
-        if (properties == null)
-            properties = new Hashtable();
-
-        properties.put(Constants.SERVICE_ID, serviceId);
-        properties.put(Constants.OBJECTCLASS, classNames);
-        this.currProperties = new CaseInsensitiveDictionary(properties);
+        this.currProperties = new ServiceProperties(properties, serviceId, classNames);
 
         // Create the {@link ServiceRegistration} and {@link ServiceReference}
         this.registration = new ServiceRegistrationWrapper(this);
@@ -128,14 +118,13 @@ final class ServiceStateImpl<S> implements ServiceState<S> {
         // Get the ServiceFactory value
         S result = null;
         try {
-            if (factoryValues == null)
-                factoryValues = new HashMap<Long, ServiceFactoryHolder<S>>();
-
             ServiceFactoryHolder<S> factoryHolder = getFactoryHolder(bundle);
             if (factoryHolder == null) {
                 ServiceFactory factory = (ServiceFactory) valueProvider.getValue();
                 factoryHolder = new ServiceFactoryHolder<S>(bundle, factory);
-                factoryValues.put(bundle.getBundleId(), factoryHolder);
+                ServiceFactoryHolder<S> existing = factoryValues.putIfAbsent(bundle.getBundleId(), factoryHolder);
+                if (existing != null)
+                    factoryHolder = existing;
             }
 
             result = factoryHolder.getService();
@@ -174,6 +163,10 @@ final class ServiceStateImpl<S> implements ServiceState<S> {
         return factoryValues != null ? factoryValues.get(bundle.getBundleId()) : null;
     }
 
+    boolean isServiceFactory() {
+        return valueProvider.isFactoryValue();
+    }
+
     @Override
     public ServiceRegistration<S> getRegistration() {
         return registration;
@@ -210,19 +203,19 @@ final class ServiceStateImpl<S> implements ServiceState<S> {
         return currProperties.get(key);
     }
 
+    /**
+     * Get a property by its lower case key, without a case insensitive key search.
+     */
+    Object getNormalizedProperty(String lowerCaseKey) {
+        return currProperties.getNormalizedProperty(lowerCaseKey);
+    }
+
     @Override
     public String[] getPropertyKeys() {
-        List<String> result = new ArrayList<String>();
-        if (currProperties != null) {
-            Enumeration<String> keys = currProperties.keys();
-            while (keys.hasMoreElements())
-                result.add(keys.nextElement());
-        }
-        return result.toArray(new String[result.size()]);
+        return currProperties.getPropertyKeys();
     }
 
     @Override
-    @SuppressWarnings({ "unchecked" })
     public void setProperties(Dictionary properties) {
         assertNotUnregistered();
 
@@ -230,19 +223,13 @@ final class ServiceStateImpl<S> implements ServiceState<S> {
         // delivery of the MODIFIED_ENDMATCH event
         prevProperties = currProperties;
 
-        if (properties == null)
-            properties = new Hashtable();
-
-        properties.put(Constants.SERVICE_ID, currProperties.get(Constants.SERVICE_ID));
-        properties.put(Constants.OBJECTCLASS, currProperties.get(Constants.OBJECTCLASS));
-        currProperties = new CaseInsensitiveDictionary(properties);
+        currProperties = new ServiceProperties(properties, serviceId, classNames);
 
         // This event is synchronously delivered after the service properties have been modified.
         serviceManager.fireServiceEvent(ownerBundle, ServiceEvent.MODIFIED, this);
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public Dictionary<String, ?> getPreviousProperties() {
         return prevProperties;
     }
@@ -389,11 +376,7 @@ final class ServiceStateImpl<S> implements ServiceState<S> {
 
     @Override
     public int getServiceRanking() {
-        Object prop = getProperty(Constants.SERVICE_RANKING);
-        if (prop instanceof Integer == false)
-            return 0;
-
-        return ((Integer) prop).intValue();
+        return currProperties.getServiceRanking();
     }
 
     @Override
@@ -440,61 +423,58 @@ final class ServiceStateImpl<S> implements ServiceState<S> {
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public String toString() {
-        Hashtable<String, Object> props = new Hashtable<String, Object>(currProperties);
-        String[] classes = (String[]) props.get(Constants.OBJECTCLASS);
-        props.put(Constants.OBJECTCLASS, Arrays.asList(classes));
-        return "ServiceState" + props;
+        return "ServiceState" + currProperties;
     }
 
+    /**
+     * The value of a {@link ServiceFactory} for one bundle.
+     *
+     * The holder is its own lock, so the factory is called once per bundle
+     * without blocking the factory calls for other bundles.
+     */
     class ServiceFactoryHolder<T> {
 
-        ServiceFactory factory;
-        XBundle bundle;
-        AtomicInteger useCount;
-        T value;
+        final ServiceFactory factory;
+        final XBundle bundle;
+        private int useCount;
+        private T value;
 
         ServiceFactoryHolder(XBundle bundle, ServiceFactory factory) {
             this.bundle = bundle;
             this.factory = factory;
-            this.useCount = new AtomicInteger();
         }
 
         @SuppressWarnings("unchecked")
-        T getService() {
+        synchronized T getService() {
             // Multiple calls to getService() return the same value
-            if (useCount.get() == 0) {
-                // The Framework must not allow this method to be concurrently called for the same bundle
-                synchronized (bundle) {
-                    T retValue = (T) factory.getService(bundle, getRegistration());
-                    if (retValue == null)
-                        return null;
-
-                    // The Framework will check if the returned service object is an instance of all the
-                    // classes named when the service was registered. If not, then null is returned to the bundle.
-                    if (checkValidClassNames(ownerBundle, (String[]) getProperty(Constants.OBJECTCLASS), retValue) == false)
-                        return null;
-
-                    value = retValue;
-                }
+            if (useCount == 0) {
+                T retValue = (T) factory.getService(bundle, getRegistration());
+                if (retValue == null)
+                    return null;
+
+                // The Framework will check if the returned service object is an instance of all the
+                // classes named when the service was registered. If not, then null is returned to the bundle.
+                if (checkValidClassNames(ownerBundle, classNames, retValue) == false)
+                    return null;
+
+                value = retValue;
             }
 
-            useCount.incrementAndGet();
+            useCount++;
             return value;
         }
 
         @SuppressWarnings("unchecked")
-        void ungetService() {
-            if (useCount.get() == 0)
+        synchronized void ungetService() {
+            if (useCount == 0)
                 return;
 
             // Call unget on the factory when done
-            if (useCount.decrementAndGet() == 0) {
-                synchronized (bundle) {
-                    factory.ungetService(bundle, getRegistration(), value);
-                    value = null;
-                }
+            if (--useCount == 0) {
+                T retValue = value;
+                value = null;
+                factory.ungetService(bundle, getRegistration(), retValue);
             }
         }
     }
@@ -0,0 +1,169 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.internal;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.jboss.osgi.framework.spi.ServiceState;
+
+/**
+ * The use counts of the services that a bundle has obtained.
+ *
+ * An open addressing table keyed by service id, so that bumping the count of a service that is already
+ * in use does not allocate.
+ *
+ * @since 18-Oct-2026
+ */
+final class ServiceUseCounts {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] serviceIds = new long[INITIAL_CAPACITY];
+    private ServiceState<?>[] serviceStates = new ServiceState<?>[INITIAL_CAPACITY];
+    private int[] counts = new int[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Increment the use count if the service is already in use.
+     *
+     * @return true if the service was in use
+     */
+    synchronized boolean incrementIfInUse(ServiceState<?> serviceState) {
+        int index = indexOf(serviceState.getServiceId());
+        if (index < 0)
+            return false;
+        counts[index]++;
+        return true;
+    }
+
+    /**
+     * Increment the use count of the service.
+     *
+     * @return the new use count
+     */
+    synchronized int increment(ServiceState<?> serviceState) {
+        long serviceId = serviceState.getServiceId();
+        int index = indexOf(serviceId);
+        if (index >= 0)
+            return ++counts[index];
+
+        if ((size + 1) * 2 > serviceIds.length)
+            resize(serviceIds.length * 2);
+
+        index = slot(serviceId, serviceIds.length);
+        while (serviceStates[index] != null)
+            index = (index + 1) & (serviceIds.length - 1);
+
+        serviceIds[index] = serviceId;
+        serviceStates[index] = serviceState;
+        counts[index] = 1;
+        size++;
+        return 1;
+    }
+
+    /**
+     * Decrement the use count of the service. The service is removed when the count drops to zero.
+     *
+     * @return the new use count or -1 if the service was not in use
+     */
+    synchronized int decrement(ServiceState<?> serviceState) {
+        int index = indexOf(serviceState.getServiceId());
+        if (index < 0)
+            return -1;
+
+        int count = --counts[index];
+        if (count == 0)
+            removeAt(index);
+
+        return count;
+    }
+
+    synchronized Set<ServiceState<?>> getServiceStates() {
+        if (size == 0)
+            return Collections.emptySet();
+
+        Set<ServiceState<?>> result = new HashSet<ServiceState<?>>();
+        for (ServiceState<?> aux : serviceStates) {
+            if (aux != null)
+                result.add(aux);
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    private int indexOf(long serviceId) {
+        int mask = serviceIds.length - 1;
+        int index = slot(serviceId, serviceIds.length);
+        while (serviceStates[index] != null) {
+            if (serviceIds[index] == serviceId)
+                return index;
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Backward shift deletion keeps the probe sequences intact without tombstones
+    private void removeAt(int index) {
+        int mask = serviceIds.length - 1;
+        int hole = index;
+        int next = (hole + 1) & mask;
+        while (serviceStates[next] != null) {
+            int home = slot(serviceIds[next], serviceIds.length);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                serviceIds[hole] = serviceIds[next];
+                serviceStates[hole] = serviceStates[next];
+                counts[hole] = counts[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        serviceIds[hole] = 0;
+        serviceStates[hole] = null;
+        counts[hole] = 0;
+        size--;
+    }
+
+    private void resize(int capacity) {
+        long[] oldIds = serviceIds;
+        ServiceState<?>[] oldStates = serviceStates;
+        int[] oldCounts = counts;
+        serviceIds = new long[capacity];
+        serviceStates = new ServiceState<?>[capacity];
+        counts = new int[capacity];
+        for (int i = 0; i < oldStates.length; i++) {
+            if (oldStates[i] != null) {
+                int index = slot(oldIds[i], capacity);
+                while (serviceStates[index] != null)
+                    index = (index + 1) & (capacity - 1);
+                serviceIds[index] = oldIds[i];
+                serviceStates[index] = oldStates[i];
+                counts[index] = oldCounts[i];
+            }
+        }
+    }
+
+    static int slot(long serviceId, int capacity) {
+        long hash = serviceId * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & (capacity - 1);
+    }
+}
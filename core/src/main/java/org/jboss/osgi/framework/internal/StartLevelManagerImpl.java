@@ -28,13 +28,19 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.jboss.osgi.framework.Constants;
+import org.jboss.osgi.framework.internal.FrameworkEventsImpl.EventBatch;
 import org.jboss.osgi.framework.spi.BundleManager;
 import org.jboss.osgi.framework.spi.FrameworkEvents;
 import org.jboss.osgi.framework.spi.StartLevelManager;
+import org.jboss.osgi.framework.spi.StorageManager;
 import org.jboss.osgi.framework.spi.StorageState;
 import org.jboss.osgi.resolver.XBundle;
 import org.jboss.osgi.spi.AttachmentKey;
@@ -61,6 +67,10 @@ public final class StartLevelManagerImpl implements StartLevelManager {
     private AtomicInteger initialBundleStartLevel = new AtomicInteger(1);
     private AtomicInteger startLevel = new AtomicInteger(0);
     private AtomicBoolean changingStartLevel = new AtomicBoolean();
+    private ParallelBundleStopper parallelStopper;
+
+    // The installed bundles by start level, each level sorted by bundle id
+    private final NavigableMap<Integer, TreeSet<BundleStartLevelState>> startLevelBuckets = new TreeMap<Integer, TreeSet<BundleStartLevelState>>();
 
     public StartLevelManagerImpl(BundleManager bundleManager, FrameworkEvents frameworkEvents, ExecutorService executorService, AtomicBoolean immediateExecution) {
         this.bundleManager = (BundleManagerPlugin) bundleManager;
@@ -91,7 +101,41 @@ public final class StartLevelManagerImpl implements StartLevelManager {
 
     @Override
     public void shutdownFramework(FrameworkListener... listeners) {
-        setFrameworkStartLevelInternal(0, true, listeners);
+        Object parallel = bundleManager.getProperty(Constants.PROPERTY_SHUTDOWN_PARALLEL);
+        if (parallel == null || !Boolean.parseBoolean(parallel.toString().trim())) {
+            setFrameworkStartLevelInternal(0, true, listeners);
+            return;
+        }
+
+        // Stop the bundles of a level in parallel and write their persistent state once at the end
+        StorageManager storageManager = bundleManager.getFrameworkState().getStorageManager();
+        StorageManagerImpl storageManagerImpl = storageManager instanceof StorageManagerImpl ? (StorageManagerImpl) storageManager : null;
+        if (storageManagerImpl != null) {
+            storageManagerImpl.deferStorageWrites();
+        }
+        synchronized (this) {
+            parallelStopper = new ParallelBundleStopper(bundleManager, events, getShutdownBundleTimeout());
+        }
+        try {
+            setFrameworkStartLevelInternal(0, true, listeners);
+        } finally {
+            synchronized (this) {
+                parallelStopper.close();
+                parallelStopper = null;
+            }
+            if (storageManagerImpl != null) {
+                storageManagerImpl.flushStorageStates();
+            }
+        }
+    }
+
+    private long getShutdownBundleTimeout() {
+        Object value = bundleManager.getProperty(Constants.PROPERTY_SHUTDOWN_BUNDLE_TIMEOUT);
+        try {
+            return value != null ? Long.parseLong(value.toString().trim()) : 10000;
+        } catch (NumberFormatException ex) {
+            return 10000;
+        }
     }
 
     private synchronized void setFrameworkStartLevelInternal(final int level, final boolean synchronous, final FrameworkListener... listeners) {
@@ -138,27 +182,20 @@ public final class StartLevelManagerImpl implements StartLevelManager {
     @Override
     public synchronized void increaseFrameworkStartLevel(int level) {
 
+        EventBatch batch = FrameworkEventsImpl.beginEventBatch(events);
         try {
             changingStartLevel.set(true);
 
-            // Sort the bundles after their bundle id
-            List<XBundle> bundles = new ArrayList<XBundle>(bundleManager.getBundles());
-            Comparator<XBundle> comparator = new Comparator<XBundle>() {
-                @Override
-                public int compare(XBundle b1, XBundle b2) {
-                    return (int) (b1.getBundleId() - b2.getBundleId());
-                }
-            };
-            Collections.sort(bundles, comparator);
-
             while (startLevel.get() < level) {
                 startLevel.incrementAndGet();
                 LOGGER.infoStartingBundlesForStartLevel(startLevel.get());
-                for (XBundle bundle : bundles) {
-                    if (bundle.getBundleId() == 0 || bundle.isFragment())
+                for (BundleStartLevelState state : getBucketSnapshot(startLevel.get())) {
+                    XBundle bundle = state.bundle;
+                    if (bundle.getState() == Bundle.UNINSTALLED) {
+                        bundleUninstalled(bundle);
                         continue;
+                    }
 
-                    BundleStartLevelState state = getBundleStartLevelState(bundle);
                     if (state.getLevel() == startLevel.get() && state.isStarted()) {
                         try {
                             int opts = Bundle.START_TRANSIENT;
@@ -174,6 +211,7 @@ public final class StartLevelManagerImpl implements StartLevelManager {
             }
         } finally {
             changingStartLevel.set(false);
+            batch.end();
         }
     }
 
@@ -184,28 +222,35 @@ public final class StartLevelManagerImpl implements StartLevelManager {
      */
     @Override
     public synchronized void decreaseFrameworkStartLevel(int level) {
+        EventBatch batch = FrameworkEventsImpl.beginEventBatch(events);
         try {
             changingStartLevel.set(true);
 
             while (startLevel.get() > level) {
                 LOGGER.infoStoppingBundlesForStartLevel(level);
 
-                // Sort the bundles after their bundle id
-                List<XBundle> bundles = new ArrayList<XBundle>(bundleManager.getBundles());
-                Comparator<XBundle> comparator = new Comparator<XBundle>() {
-                    @Override
-                    public int compare(XBundle b1, XBundle b2) {
-                        return (int) (b1.getBundleId() - b2.getBundleId());
+                // Stop the bundles of this level in reverse bundle id order
+                List<BundleStartLevelState> states = getBucketSnapshot(startLevel.get());
+                Collections.reverse(states);
+
+                if (parallelStopper != null) {
+                    List<XBundle> bundles = new ArrayList<XBundle>();
+                    for (BundleStartLevelState state : states) {
+                        if (state.bundle.getState() != Bundle.UNINSTALLED && state.getLevel() == startLevel.get()) {
+                            bundles.add(state.bundle);
+                        }
                     }
-                };
-                Collections.sort(bundles, comparator);
-                Collections.reverse(bundles);
+                    parallelStopper.stopBundles(bundles);
+                    states = Collections.emptyList();
+                }
 
-                for (XBundle bundle : bundles) {
-                    if (bundle.getBundleId() == 0 || bundle.isFragment())
+                for (BundleStartLevelState state : states) {
+                    XBundle bundle = state.bundle;
+                    if (bundle.getState() == Bundle.UNINSTALLED) {
+                        bundleUninstalled(bundle);
                         continue;
+                    }
 
-                    BundleStartLevelState state = getBundleStartLevelState(bundle);
                     if (state.getLevel() == startLevel.get()) {
                         try {
                             bundle.stop(Bundle.STOP_TRANSIENT);
@@ -218,6 +263,7 @@ public final class StartLevelManagerImpl implements StartLevelManager {
             }
         } finally {
             changingStartLevel.set(false);
+            batch.end();
         }
     }
 
@@ -318,6 +364,64 @@ public final class StartLevelManagerImpl implements StartLevelManager {
         return result;
     }
 
+    /**
+     * Called when a user bundle or a new revision of it was installed, so that the bundle is considered on start level changes.
+     */
+    void bundleInstalled(XBundle bundle) {
+        BundleStartLevelState state = getBundleStartLevelState(bundle);
+        synchronized (startLevelBuckets) {
+            if (bundle.isFragment()) {
+                removeFromBucket(state);
+            } else if (!state.bucketed) {
+                addToBucket(state);
+            }
+        }
+    }
+
+    /**
+     * Called when a bundle was removed from the framework.
+     */
+    void bundleUninstalled(XBundle bundle) {
+        BundleStartLevelState state = bundle.getAttachment(BUNDLE_STARTLEVEL_KEY);
+        if (state != null) {
+            synchronized (startLevelBuckets) {
+                removeFromBucket(state);
+            }
+        }
+    }
+
+    private List<BundleStartLevelState> getBucketSnapshot(int level) {
+        synchronized (startLevelBuckets) {
+            TreeSet<BundleStartLevelState> bucket = startLevelBuckets.get(level);
+            return bucket != null ? new ArrayList<BundleStartLevelState>(bucket) : new ArrayList<BundleStartLevelState>();
+        }
+    }
+
+    // Must be called while holding the startLevelBuckets lock
+    private void addToBucket(BundleStartLevelState state) {
+        TreeSet<BundleStartLevelState> bucket = startLevelBuckets.get(state.level);
+        if (bucket == null) {
+            bucket = new TreeSet<BundleStartLevelState>(BUNDLE_ID_COMPARATOR);
+            startLevelBuckets.put(state.level, bucket);
+        }
+        bucket.add(state);
+        state.bucketed = true;
+    }
+
+    // Must be called while holding the startLevelBuckets lock
+    private void removeFromBucket(BundleStartLevelState state) {
+        if (state.bucketed) {
+            TreeSet<BundleStartLevelState> bucket = startLevelBuckets.get(state.level);
+            if (bucket != null) {
+                bucket.remove(state);
+                if (bucket.isEmpty()) {
+                    startLevelBuckets.remove(state.level);
+                }
+            }
+            state.bucketed = false;
+        }
+    }
+
     private BundleStartLevelState getBundleStartLevelState(XBundle bundle) {
         if (bundle instanceof Framework)
             return new BundleStartLevelState(bundle);
@@ -326,6 +430,13 @@ public final class StartLevelManagerImpl implements StartLevelManager {
         if (state == null) {
             state = new BundleStartLevelState(bundle);
             bundle.putAttachment(BUNDLE_STARTLEVEL_KEY, state);
+
+            // User bundles get bucketed once their revision is installed, other bundles as soon as they have a start level
+            if (!(bundle instanceof UserBundleState) && !bundle.isFragment()) {
+                synchronized (startLevelBuckets) {
+                    addToBucket(state);
+                }
+            }
         }
         return state;
     }
@@ -340,10 +451,21 @@ public final class StartLevelManagerImpl implements StartLevelManager {
         }
     }
 
+    private static final Comparator<BundleStartLevelState> BUNDLE_ID_COMPARATOR = new Comparator<BundleStartLevelState>() {
+        @Override
+        public int compare(BundleStartLevelState s1, BundleStartLevelState s2) {
+            long id1 = s1.bundle.getBundleId();
+            long id2 = s2.bundle.getBundleId();
+            return id1 < id2 ? -1 : (id1 == id2 ? 0 : 1);
+        }
+    };
+
     class BundleStartLevelState {
         final XBundle bundle;
         boolean started;
         int level;
+        // Guarded by the startLevelBuckets lock
+        boolean bucketed;
 
         public BundleStartLevelState(XBundle bundle) {
             this.bundle = bundle;
@@ -359,7 +481,15 @@ public final class StartLevelManagerImpl implements StartLevelManager {
         }
 
         void setLevel(int level) {
-            this.level = level;
+            synchronized (startLevelBuckets) {
+                if (bucketed) {
+                    removeFromBucket(this);
+                    this.level = level;
+                    addToBucket(this);
+                } else {
+                    this.level = level;
+                }
+            }
             if (bundle instanceof UserBundleState) {
                 UserBundleState userBundle = (UserBundleState)bundle;
                 StorageState storageState = userBundle.getStorageState();
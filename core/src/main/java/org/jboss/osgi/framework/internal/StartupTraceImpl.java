@@ -0,0 +1,322 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.internal;
+
+import static org.jboss.osgi.framework.FrameworkLogger.LOGGER;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jboss.osgi.framework.spi.StartupTrace;
+
+/**
+ * The default {@link StartupTrace}.
+ *
+ * Recording stops when the framework reached the ACTIVE state. The records remain available afterwards.
+ *
+ * @since 18-Oct-2026
+ */
+final class StartupTraceImpl implements StartupTrace {
+
+    private static final int SLOWEST_LOG_LIMIT = 5;
+
+    private static final Span NOOP_SPAN = new Span() {
+        @Override
+        public void end() {
+        }
+    };
+
+    private final String reportFile;
+    private final List<Record> records = new ArrayList<Record>();
+    private final ThreadMXBean threadBean;
+    private final OperatingSystemMXBean osBean;
+    private final Method processCpuMethod;
+    private final long startTime;
+    private final long startMillis;
+    private final long startProcessCpu;
+    private volatile boolean enabled;
+
+    StartupTraceImpl(boolean enabled, String reportFile) {
+        this.enabled = enabled;
+        this.reportFile = reportFile;
+        this.threadBean = enabled ? getThreadMXBean() : null;
+        this.osBean = enabled ? ManagementFactory.getOperatingSystemMXBean() : null;
+        this.processCpuMethod = enabled ? getProcessCpuMethod(osBean) : null;
+        this.startTime = System.nanoTime();
+        this.startMillis = System.currentTimeMillis();
+        this.startProcessCpu = getProcessCpuTime();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public Span begin(Category category, String name) {
+        if (!enabled)
+            return NOOP_SPAN;
+        return new SpanImpl(category, name);
+    }
+
+    @Override
+    public List<Record> getRecords() {
+        synchronized (records) {
+            return new ArrayList<Record>(records);
+        }
+    }
+
+    @Override
+    public List<Record> getSlowestRecords(Category category, int limit) {
+        List<Record> result = new ArrayList<Record>();
+        for (Record rec : getRecords()) {
+            if (category == null || rec.getCategory() == category) {
+                result.add(rec);
+            }
+        }
+        Collections.sort(result, new Comparator<Record>() {
+            @Override
+            public int compare(Record r1, Record r2) {
+                long w1 = r1.getWallTime();
+                long w2 = r2.getWallTime();
+                return w1 < w2 ? 1 : (w1 == w2 ? 0 : -1);
+            }
+        });
+        return limit < result.size() ? new ArrayList<Record>(result.subList(0, limit)) : result;
+    }
+
+    @Override
+    public void writeReport(Writer writer) throws IOException {
+        writer.write("{\n");
+        writer.write("  \"startMillis\": " + startMillis + ",\n");
+        writer.write("  \"records\": [");
+        List<Record> list = getRecords();
+        for (int i = 0; i < list.size(); i++) {
+            Record rec = list.get(i);
+            writer.write(i == 0 ? "\n" : ",\n");
+            writer.write("    {\"category\": \"" + rec.getCategory() + "\"");
+            writer.write(", \"name\": " + quote(rec.getName()));
+            writer.write(", \"thread\": " + quote(rec.getThreadName()));
+            writer.write(", \"start\": " + rec.getStartTime());
+            writer.write(", \"wall\": " + rec.getWallTime());
+            writer.write(", \"cpu\": " + rec.getCpuTime());
+            writer.write(", \"processCpu\": " + rec.getProcessCpuTime() + "}");
+        }
+        writer.write("\n  ]\n}\n");
+        writer.flush();
+    }
+
+    /**
+     * Stop recording, log a summary and write the report to the storage area if configured.
+     */
+    void complete(File storageArea) {
+        if (!enabled)
+            return;
+
+        enabled = false;
+
+        long wallTime = System.nanoTime() - startTime;
+        long processCpu = startProcessCpu >= 0 ? getProcessCpuTime() - startProcessCpu : -1;
+        LOGGER.infoStartupTraceCompleted(toMillis(wallTime), toMillis(processCpu));
+        for (Category category : new Category[] { Category.ACTIVATOR, Category.RESOLVE }) {
+            for (Record rec : getSlowestRecords(category, SLOWEST_LOG_LIMIT)) {
+                LOGGER.infoStartupTraceRecord(category.name(), rec.getName(), toMillis(rec.getWallTime()));
+            }
+        }
+
+        if (reportFile != null && storageArea != null) {
+            File file = new File(storageArea, reportFile);
+            try {
+                Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+                try {
+                    writeReport(writer);
+                } finally {
+                    writer.close();
+                }
+            } catch (IOException ex) {
+                LOGGER.errorCannotWriteStartupTrace(ex, file);
+            }
+        }
+    }
+
+    // The thread CPU time is -1 unless its measurement was enabled for the JVM by someone else
+    private long getThreadCpuTime() {
+        return threadBean != null ? threadBean.getCurrentThreadCpuTime() : -1;
+    }
+
+    private long getProcessCpuTime() {
+        if (processCpuMethod != null) {
+            try {
+                return ((Long) processCpuMethod.invoke(osBean)).longValue();
+            } catch (Exception ex) {
+                // ignore
+            }
+        }
+        return -1;
+    }
+
+    private static ThreadMXBean getThreadMXBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        return bean.isCurrentThreadCpuTimeSupported() ? bean : null;
+    }
+
+    // The process CPU time is a proprietary extension of the platform bean
+    private static Method getProcessCpuMethod(OperatingSystemMXBean bean) {
+        try {
+            Class<?> beanClass = Class.forName("com.sun.management.OperatingSystemMXBean");
+            return beanClass.isInstance(bean) ? beanClass.getMethod("getProcessCpuTime") : null;
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+
+    private static long toMillis(long nanos) {
+        return nanos >= 0 ? TimeUnit.NANOSECONDS.toMillis(nanos) : -1;
+    }
+
+    private static String quote(String value) {
+        if (value == null)
+            return "null";
+        StringBuilder builder = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch == '"' || ch == '\\') {
+                builder.append('\\').append(ch);
+            } else if (ch < 0x20) {
+                builder.append(String.format("\\u%04x", (int) ch));
+            } else {
+                builder.append(ch);
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    private final class SpanImpl implements Span {
+
+        private final AtomicBoolean ended = new AtomicBoolean();
+        private final Category category;
+        private final String name;
+        private final Thread thread;
+        private final long start;
+        private final long threadCpu;
+        private final long processCpu;
+
+        SpanImpl(Category category, String name) {
+            this.category = category;
+            this.name = name;
+            this.thread = Thread.currentThread();
+            this.start = System.nanoTime();
+            this.threadCpu = getThreadCpuTime();
+            this.processCpu = getProcessCpuTime();
+        }
+
+        @Override
+        public void end() {
+            if (ended.compareAndSet(false, true)) {
+                long wallTime = System.nanoTime() - start;
+                long cpuTime = -1;
+                if (threadCpu >= 0 && thread == Thread.currentThread()) {
+                    cpuTime = getThreadCpuTime() - threadCpu;
+                }
+                long processCpuTime = processCpu >= 0 ? getProcessCpuTime() - processCpu : -1;
+                Record rec = new RecordImpl(category, name, thread.getName(), start - startTime, wallTime, cpuTime, processCpuTime);
+                synchronized (records) {
+                    records.add(rec);
+                }
+            }
+        }
+    }
+
+    private static final class RecordImpl implements Record {
+
+        private final Category category;
+        private final String name;
+        private final String threadName;
+        private final long startTime;
+        private final long wallTime;
+        private final long cpuTime;
+        private final long processCpuTime;
+
+        RecordImpl(Category category, String name, String threadName, long startTime, long wallTime, long cpuTime, long processCpuTime) {
+            this.category = category;
+            this.name = name;
+            this.threadName = threadName;
+            this.startTime = startTime;
+            this.wallTime = wallTime;
+            this.cpuTime = cpuTime;
+            this.processCpuTime = processCpuTime;
+        }
+
+        @Override
+        public Category getCategory() {
+            return category;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getThreadName() {
+            return threadName;
+        }
+
+        @Override
+        public long getStartTime() {
+            return startTime;
+        }
+
+        @Override
+        public long getWallTime() {
+            return wallTime;
+        }
+
+        @Override
+        public long getCpuTime() {
+            return cpuTime;
+        }
+
+        @Override
+        public long getProcessCpuTime() {
+            return processCpuTime;
+        }
+
+        @Override
+        public String toString() {
+            return category + "[" + name + ",wall=" + wallTime + ",cpu=" + cpuTime + "]";
+        }
+    }
+}
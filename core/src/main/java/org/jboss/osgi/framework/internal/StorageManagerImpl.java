@@ -27,20 +27,23 @@ import static org.jboss.osgi.framework.FrameworkMessages.MESSAGES;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.jar.Manifest;
 
+import org.jboss.osgi.framework.Constants;
 import org.jboss.osgi.framework.spi.BundleManager;
 import org.jboss.osgi.framework.spi.StartLevelManager;
 import org.jboss.osgi.framework.spi.StorageManager;
 import org.jboss.osgi.framework.spi.StorageState;
 import org.jboss.osgi.vfs.VFSUtils;
 import org.jboss.osgi.vfs.VirtualFile;
-import org.osgi.framework.Constants;
 
 /**
  * A simple implementation of a BundleStorage
@@ -50,9 +53,12 @@ import org.osgi.framework.Constants;
  */
 public final class StorageManagerImpl implements StorageManager {
 
+    static final String DEFAULT_STORAGE_AREA = "./osgi-store";
+
     private final BundleManagerPlugin bundleManager;
     private final Map<String, StorageState> storageStates = new HashMap<String, StorageState>();
     private File storageArea;
+    private boolean deferWrites;
 
     public StorageManagerImpl(BundleManager bundleManager) {
         this.bundleManager = (BundleManagerPlugin) bundleManager;
@@ -78,7 +84,7 @@ public final class StorageManagerImpl implements StorageManager {
         File[] storageDirs = getStorageArea().listFiles(filter);
         if (storageDirs != null) {
             for (File storageDir : storageDirs) {
-                StorageState storageState = StorageState.createStorageState(storageDir);
+                StorageState storageState = StorageState.createStorageState(storageDir, bundleManager.getArchiveManager());
                 if (storageState.getBundleId() != 0) {
                     storageStates.put(storageState.getLocation(), storageState);
                 }
@@ -111,8 +117,12 @@ public final class StorageManagerImpl implements StorageManager {
         props.put(StorageState.PROPERTY_START_LEVEL, new Integer(startlevel).toString());
         props.put(StorageState.PROPERTY_LAST_MODIFIED, new Long(System.currentTimeMillis()).toString());
 
-        StorageState storageState = StorageState.createStorageState(bundleDir, rootFile, props);
+        boolean exploded = rootFile != null && isExplodedStorage(rootFile);
+        StorageState storageState = StorageState.createStorageState(bundleDir, rootFile, props, exploded);
         synchronized (storageStates) {
+            if (deferWrites) {
+                storageState.deferWrites();
+            }
             if (storageState.getBundleId() != 0) {
                 storageStates.put(storageState.getLocation(), storageState);
             }
@@ -123,7 +133,7 @@ public final class StorageManagerImpl implements StorageManager {
     @Override
     public void deleteStorageState(StorageState storageState) {
         LOGGER.debugf("Deleting storage state: %s", storageState);
-        VFSUtils.safeClose(storageState.getRootFile());
+        storageState.closeRootFile();
         deleteRecursive(storageState.getStorageDir());
         synchronized (storageStates) {
             storageStates.remove(storageState.getLocation());
@@ -161,7 +171,7 @@ public final class StorageManagerImpl implements StorageManager {
             String dirName = (String) bundleManager.getProperty(Constants.FRAMEWORK_STORAGE);
             if (dirName == null) {
                 try {
-                    File storageDir = new File("./osgi-store");
+                    File storageDir = new File(DEFAULT_STORAGE_AREA);
                     dirName = storageDir.getCanonicalPath();
                 } catch (IOException ex) {
                     throw MESSAGES.illegalStateCannotCreateStorageArea(ex);
@@ -187,6 +197,59 @@ public final class StorageManagerImpl implements StorageManager {
         return new File(filePath);
     }
 
+    /**
+     * Defer the writes of the persistent bundle properties until {@link #flushStorageStates()} is called.
+     */
+    void deferStorageWrites() {
+        synchronized (storageStates) {
+            deferWrites = true;
+            for (StorageState storageState : storageStates.values()) {
+                storageState.deferWrites();
+            }
+        }
+    }
+
+    /**
+     * Write all deferred persistent bundle properties and return to immediate writes.
+     */
+    void flushStorageStates() {
+        List<StorageState> states;
+        synchronized (storageStates) {
+            deferWrites = false;
+            states = new ArrayList<StorageState>(storageStates.values());
+        }
+        for (StorageState storageState : states) {
+            storageState.flushProperties();
+        }
+    }
+
+    // The storage mode header of the bundle overrides the framework default
+    private boolean isExplodedStorage(VirtualFile rootFile) {
+        Object value = bundleManager.getProperty(Constants.PROPERTY_STORAGE_EXPLODED);
+        boolean result = value != null && Boolean.parseBoolean(value.toString().trim());
+        try {
+            Manifest manifest = VFSUtils.getManifest(rootFile);
+            String mode = manifest != null ? manifest.getMainAttributes().getValue(Constants.STORAGE_MODE_HEADER) : null;
+            if (mode != null) {
+                result = Constants.STORAGE_MODE_EXPLODED.equalsIgnoreCase(mode.trim());
+            }
+            // Signed content is kept as an archive so that the signatures can be verified
+            VirtualFile metaInf = result ? rootFile.getChild("META-INF") : null;
+            if (metaInf != null) {
+                for (VirtualFile child : metaInf.getChildren()) {
+                    if (child.getName().toUpperCase().endsWith(".SF")) {
+                        result = false;
+                        break;
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            LOGGER.debugf(ex, "Cannot determine storage mode for: %s", rootFile);
+            result = false;
+        }
+        return result;
+    }
+
     private void deleteRecursive(File file) {
         if (file.isDirectory()) {
             for (File aux : file.listFiles())
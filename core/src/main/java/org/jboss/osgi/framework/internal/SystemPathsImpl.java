@@ -27,9 +27,11 @@ import static org.osgi.framework.Constants.FRAMEWORK_BOOTDELEGATION;
 import static org.osgi.framework.Constants.FRAMEWORK_BUNDLE_PARENT;
 import static org.osgi.framework.Constants.FRAMEWORK_BUNDLE_PARENT_BOOT;
 import static org.osgi.framework.Constants.FRAMEWORK_BUNDLE_PARENT_EXT;
+import static org.osgi.framework.Constants.FRAMEWORK_STORAGE;
 import static org.osgi.framework.Constants.FRAMEWORK_SYSTEMPACKAGES;
 import static org.osgi.framework.Constants.FRAMEWORK_SYSTEMPACKAGES_EXTRA;
 
+import java.io.File;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashSet;
@@ -141,7 +143,7 @@ public final class SystemPathsImpl implements SystemPaths {
             }
             if (hasBootDelegationWildcards == true) {
                 PathFilter bootDelegationFilter = getBootDelegationFilter();
-                for (String path : JDKPaths.JDK) {
+                for (String path : JDKPaths.getJDKPaths(getStorageArea())) {
                     if (bootDelegationFilter.accept(path)) {
                         result.add(path);
                     }
@@ -241,6 +243,11 @@ public final class SystemPathsImpl implements SystemPaths {
         return !(allBootDelegation && (FRAMEWORK_BUNDLE_PARENT_BOOT.equals(property) || FRAMEWORK_BUNDLE_PARENT_EXT.equals(property)));
     }
 
+    private File getStorageArea() {
+        String dirName = frameworkBuilder.getProperty(FRAMEWORK_STORAGE);
+        return new File(dirName != null ? dirName : StorageManagerImpl.DEFAULT_STORAGE_AREA).getAbsoluteFile();
+    }
+
     private List<String> packagesAsList(String sysPackages) {
     	return ElementParser.parseDelimitedString(sysPackages, ',');
     }
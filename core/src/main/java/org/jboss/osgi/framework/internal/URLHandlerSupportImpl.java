@@ -38,7 +38,6 @@ import java.security.PrivilegedAction;
 import java.util.Arrays;
 import java.util.Dictionary;
 import java.util.Hashtable;
-import java.util.List;
 
 import org.jboss.osgi.framework.spi.URLHandlerSupport;
 import org.osgi.framework.BundleContext;
@@ -143,7 +142,7 @@ final class URLHandlerSupportImpl implements URLHandlerSupport {
                 if (mimeTypes != null && service instanceof ContentHandler) {
                     LOGGER.debugf("Adding content handler '%s' for: %s", service, Arrays.asList(mimeTypes));
                     for (String mimeType : mimeTypes) {
-                        contentHandlerDelegate.addHandler(mimeType, reference);
+                        contentHandlerDelegate.addHandler(mimeType, reference, service);
                     }
                 }
                 return service;
@@ -174,7 +173,7 @@ final class URLHandlerSupportImpl implements URLHandlerSupport {
                 if (protocols != null && service instanceof URLStreamHandlerService) {
                     LOGGER.tracef("Adding stream handler '%s' for: %s", service, Arrays.asList(protocols));
                     for (String protocol : protocols) {
-                        streamHandlerDelegate.addHandler(protocol, reference);
+                        streamHandlerDelegate.addHandler(protocol, reference, service);
                     }
                 }
                 return service;
@@ -202,11 +201,11 @@ final class URLHandlerSupportImpl implements URLHandlerSupport {
      */
     @Override
     public URLStreamHandler createURLStreamHandler(String protocol) {
-        List<ServiceReference<URLStreamHandlerService>> refList = streamHandlerDelegate.getStreamHandlers(protocol);
-        if (refList == null || refList.isEmpty())
+        ServiceHandlerTable.Handlers<URLStreamHandlerService> handlers = streamHandlerDelegate.getStreamHandlers(protocol);
+        if (handlers == null || handlers.isEmpty())
             return null;
 
-        return new URLStreamHandlerProxy(protocol, refList);
+        return new URLStreamHandlerProxy(protocol, handlers);
     }
 
     /**
@@ -217,12 +216,11 @@ final class URLHandlerSupportImpl implements URLHandlerSupport {
      */
     @Override
     public ContentHandler createContentHandler(String mimetype) {
-        List<ServiceReference<ContentHandler>> refList = contentHandlerDelegate.getContentHandlers(mimetype);
-        if (refList == null || refList.isEmpty())
+        ServiceHandlerTable.Handlers<ContentHandler> handlers = contentHandlerDelegate.getContentHandlers(mimetype);
+        if (handlers == null)
             return null;
 
-        ServiceReference<ContentHandler> ref = refList.get(0);
-        Object service = ref.getBundle().getBundleContext().getService(ref);
+        Object service = handlers.getTopService();
         if (service instanceof ContentHandler)
             return (ContentHandler) service;
 
@@ -250,14 +248,26 @@ final class URLHandlerSupportImpl implements URLHandlerSupport {
 
     private static final class URLStreamHandlerProxy extends URLStreamHandler implements URLStreamHandlerSetter {
 
-        // This list is maintained in the ServiceTracker that tracks the URLStreamHandlerService
-        // This proxy should always use to top element (if it contains any elements).
-        private final List<ServiceReference<URLStreamHandlerService>> serviceReferences;
+        // The openConnection(URL, Proxy) method is not part of URLStreamHandlerService
+        private static final ClassValue<Method> proxyOpenConnection = new ClassValue<Method>() {
+            @Override
+            protected Method computeValue(Class<?> type) {
+                try {
+                    return type.getDeclaredMethod("openConnection", URL.class, Proxy.class);
+                } catch (NoSuchMethodException ex) {
+                    return null;
+                }
+            }
+        };
+
+        // The handlers are maintained in the ServiceTracker that tracks the URLStreamHandlerService
+        // This proxy should always use to top ranked service (if there is any).
+        private final ServiceHandlerTable.Handlers<URLStreamHandlerService> handlers;
         private final String protocol;
 
-        public URLStreamHandlerProxy(String protocol, List<ServiceReference<URLStreamHandlerService>> refList) {
+        public URLStreamHandlerProxy(String protocol, ServiceHandlerTable.Handlers<URLStreamHandlerService> handlers) {
             this.protocol = protocol;
-            this.serviceReferences = refList;
+            this.handlers = handlers;
         }
 
         @Override
@@ -292,7 +302,9 @@ final class URLHandlerSupportImpl implements URLHandlerSupport {
         protected URLConnection openConnection(URL u, Proxy p) throws IOException {
             URLStreamHandlerService handler = getHandlerService();
             try {
-                Method method = handler.getClass().getDeclaredMethod("openConnection", URL.class, Proxy.class);
+                Method method = proxyOpenConnection.get(handler.getClass());
+                if (method == null)
+                    throw new NoSuchMethodException("openConnection(URL, Proxy)");
                 return (URLConnection) method.invoke(handler, u, p);
             } catch (Throwable th) {
                 if (th instanceof InvocationTargetException)
@@ -332,10 +344,9 @@ final class URLHandlerSupportImpl implements URLHandlerSupport {
         }
 
         private URLStreamHandlerService getHandlerService() {
-            if (serviceReferences.isEmpty())
+            URLStreamHandlerService service = handlers.getTopService();
+            if (service == null)
                 throw MESSAGES.illegalStateNoStreamHandlersForProtocol(protocol);
-            ServiceReference<URLStreamHandlerService> ref = serviceReferences.get(0);
-            URLStreamHandlerService service = ref.getBundle().getBundleContext().getService(ref);
             return service;
         }
     }
@@ -38,7 +38,6 @@ import org.jboss.osgi.deployment.deployer.Deployment;
 import org.jboss.osgi.framework.spi.IntegrationConstants;
 import org.jboss.osgi.framework.spi.StorageState;
 import org.jboss.osgi.metadata.OSGiMetaData;
-import org.jboss.osgi.vfs.AbstractVFS;
 import org.jboss.osgi.vfs.VirtualFile;
 import org.osgi.framework.BundleException;
 import org.osgi.framework.wiring.BundleRevision;
@@ -168,8 +167,9 @@ abstract class UserBundleRevision extends BundleStateRevision {
                 try {
                     VirtualFile child = rootFile.getChild(path);
                     if (child != null) {
-                        VirtualFile anotherRoot = AbstractVFS.toVirtualFile(child.toURL());
-                        RevisionContent revContent = new RevisionContent(this, metadata, bundleId, bundleClassPath.size(), anotherRoot);
+                        // The class path archive is mounted on first access
+                        ArchiveManager.Archive archive = getBundleManager().getArchiveManager().createArchive(child.toURL());
+                        RevisionContent revContent = new RevisionContent(this, metadata, bundleId, bundleClassPath.size(), archive);
                         bundleClassPath.add(revContent);
                     }
                 } catch (IOException ex) {
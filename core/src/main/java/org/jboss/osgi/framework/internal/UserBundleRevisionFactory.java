@@ -34,6 +34,7 @@ import org.jboss.msc.service.ServiceTarget;
 import org.jboss.osgi.deployment.deployer.Deployment;
 import org.jboss.osgi.framework.spi.FrameworkEvents;
 import org.jboss.osgi.framework.spi.NativeCode;
+import org.jboss.osgi.framework.spi.StartLevelManager;
 import org.jboss.osgi.framework.spi.StorageManager;
 import org.jboss.osgi.framework.spi.StorageState;
 import org.jboss.osgi.metadata.OSGiMetaData;
@@ -151,6 +152,10 @@ abstract class UserBundleRevisionFactory<R extends UserBundleRevision> {
         brev.setBundle(userBundle);
         frameworkState.getFrameworkEnvironment().installResources(brev);
         userBundle.addBundleRevision(bundleRevision);
+        StartLevelManager startLevelManager = frameworkState.getStartLevelManager();
+        if (startLevelManager instanceof StartLevelManagerImpl) {
+            ((StartLevelManagerImpl) startLevelManager).bundleInstalled(userBundle);
+        }
     }
 
     private void validateBundleRevision(R bundleRevision, OSGiMetaData metadata) throws BundleException {
@@ -29,12 +29,14 @@ import static org.jboss.osgi.framework.spi.IntegrationConstants.OSGI_METADATA_KE
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Dictionary;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -46,12 +48,16 @@ import org.jboss.osgi.deployment.interceptor.LifecycleInterceptorException;
 import org.jboss.osgi.framework.Constants;
 import org.jboss.osgi.framework.spi.BundleLifecycle;
 import org.jboss.osgi.framework.spi.BundleLifecycle.BundleRefreshPolicy;
+import org.jboss.osgi.framework.spi.ClassLoadingMetrics.BundleStatistics;
 import org.jboss.osgi.framework.spi.DeploymentProvider;
 import org.jboss.osgi.framework.spi.FrameworkEvents;
 import org.jboss.osgi.framework.spi.IntegrationConstants;
 import org.jboss.osgi.framework.spi.ModuleManager;
 import org.jboss.osgi.framework.spi.ServiceState;
+import org.jboss.osgi.framework.spi.SignerRecord;
 import org.jboss.osgi.framework.spi.StartLevelManager;
+import org.jboss.osgi.framework.spi.StartupTrace.Category;
+import org.jboss.osgi.framework.spi.StartupTrace.Span;
 import org.jboss.osgi.framework.spi.StorageManager;
 import org.jboss.osgi.framework.spi.StorageState;
 import org.jboss.osgi.metadata.ActivationPolicyMetaData;
@@ -89,11 +95,13 @@ class UserBundleState extends AbstractBundleState<UserBundleRevision> {
     private final AtomicBoolean awaitLazyActivation = new AtomicBoolean();
     private final AtomicInteger revisionIndex = new AtomicInteger();
     private final List<UserBundleRevision> revisions = new ArrayList<UserBundleRevision>();
+    private final ClassLoadingStatistics classLoadingStatistics;
 
     private BundleActivator bundleActivator;
 
     UserBundleState(FrameworkState frameworkState, UserBundleRevision brev) {
         super(frameworkState, brev, brev.getStorageState().getBundleId());
+        this.classLoadingStatistics = new ClassLoadingStatistics(this);
     }
 
     /**
@@ -105,6 +113,19 @@ class UserBundleState extends AbstractBundleState<UserBundleRevision> {
         return (UserBundleState) bundle;
     }
 
+    @Override
+    public Map<X509Certificate, List<X509Certificate>> getSignerCertificates(int signersType) {
+        if (signersType != SIGNERS_ALL && signersType != SIGNERS_TRUSTED)
+            throw MESSAGES.illegalArgumentInvalidSignersType(signersType);
+
+        // There is no trust store, so none of the signers is trusted
+        SignerRecord signerRecord = getStorageState().getSignerRecord();
+        if (signersType == SIGNERS_TRUSTED || signerRecord == null)
+            return Collections.emptyMap();
+
+        return signerRecord.getSignerCertificates();
+    }
+
     @Override
     public String getLocation() {
         return getBundleRevision().getLocation();
@@ -117,6 +138,8 @@ class UserBundleState extends AbstractBundleState<UserBundleRevision> {
         if (result == null) {
             if (type.isAssignableFrom(Deployment.class)) {
                 result = (T) getDeployment();
+            } else if (type.isAssignableFrom(BundleStatistics.class) && !isFragment()) {
+                result = (T) getClassLoadingStatistics();
             }
         }
         return result;
@@ -126,6 +149,10 @@ class UserBundleState extends AbstractBundleState<UserBundleRevision> {
         return getBundleRevision().getDeployment();
     }
 
+    ClassLoadingStatistics getClassLoadingStatistics() {
+        return classLoadingStatistics;
+    }
+
     @Override
     boolean isSingleton() {
         return getOSGiMetaData().isSingleton();
@@ -282,6 +309,7 @@ class UserBundleState extends AbstractBundleState<UserBundleRevision> {
 
             // Make the {@link BundleWiring} for the old {@link BundleRevision} uneffective
             currentRev.getWiringSupport().makeUneffective();
+            getBundleManager().getWireIndex().addRemovalPending(currentRev);
         } catch (Exception ex) {
             boolean isbe = (ex instanceof BundleException);
             BundleException be = isbe ? (BundleException) ex : MESSAGES.cannotUpdateBundle(ex, this);
@@ -409,6 +437,9 @@ class UserBundleState extends AbstractBundleState<UserBundleRevision> {
                 }
             }
 
+            // Drop the wires of the current revision, which get recreated on the next resolve
+            bundleManager.getWireIndex().removeRevision(currentRev);
+
             awaitLazyActivation.set(false);
             revisionIndex.set(1);
 
@@ -458,6 +489,7 @@ class UserBundleState extends AbstractBundleState<UserBundleRevision> {
 
         // Make the current {@link BundleWiring} uneffective and fire the UNRESOLVED event
         getBundleRevision().getWiringSupport().makeUneffective();
+        bundleManager.getWireIndex().addRemovalPending(getBundleRevision());
         FrameworkEvents eventsPlugin = getFrameworkState().getFrameworkEvents();
         eventsPlugin.fireBundleEvent(this, BundleEvent.UNRESOLVED);
 
@@ -597,7 +629,12 @@ class UserBundleState extends AbstractBundleState<UserBundleRevision> {
                     }
                 }
                 if (bundleActivator != null) {
-                    bundleActivator.start(getBundleContext());
+                    Span span = getBundleManager().getStartupTrace().begin(Category.ACTIVATOR, getCanonicalName());
+                    try {
+                        bundleActivator.start(getBundleContext());
+                    } finally {
+                        span.end();
+                    }
                 }
             }
 
@@ -57,6 +57,7 @@ class WeavingContext {
     private final List<HookRegistration> weavingHooks;
     private final List<String> weavingImports = new ArrayList<String>();
     private Map<String, ContextClass> wovenClasses = new HashMap<String, ContextClass>();
+    private String hookSetKey;
 
     static WeavingContext getCurrentContext() {
         return contextAssociation.get();
@@ -110,6 +111,14 @@ class WeavingContext {
 
     void blacklist(ServiceReference<WeavingHook> sref) {
         blacklist.add(sref);
+        hookSetKey = null;
+    }
+
+    String getHookSetKey() {
+        if (hookSetKey == null) {
+            hookSetKey = WovenClassCache.getHookSetKey(weavingHooks);
+        }
+        return hookSetKey;
     }
 
     synchronized ContextClass createContextClass(String className, Class<?> redefinedClass, ProtectionDomain protectionDomain, byte[] classfileBuffer) {
@@ -56,12 +56,16 @@ final class WeavingHookProcessor implements ClassFileTransformer {
 
     private final FrameworkEvents frameworkEvents;
     private final HostBundleRevision hostRev;
+    private final ClassLoadingStatistics statistics;
+    private final WovenClassCache wovenClassCache;
 
     private List<String> processedImports = new ArrayList<String>();
 
     WeavingHookProcessor(HostBundleRevision hostRev, FrameworkEvents frameworkEvents) {
         this.frameworkEvents = frameworkEvents;
         this.hostRev = hostRev;
+        this.statistics = hostRev.getBundleState().getClassLoadingStatistics();
+        this.wovenClassCache = hostRev.getBundleManager().getWovenClassCache();
     }
 
     @Override
@@ -73,9 +77,33 @@ final class WeavingHookProcessor implements ClassFileTransformer {
         }
 
         ContextClass wovenClass = context.createContextClass(className, classBeingRedefined, protectionDomain, classfileBuffer);
+
+        // Replay a cached result without calling the hooks
+        String hookSetKey = null;
+        String classKey = null;
+        List<String> previousImports = null;
+        if (classBeingRedefined == null && wovenClassCache.isEnabled()) {
+            hookSetKey = context.getHookSetKey();
+            classKey = WovenClassCache.getClassKey(hostRev.getBundleState(), wovenClass.getClassName(), classfileBuffer);
+            WovenClassCache.Entry entry = wovenClassCache.getEntry(hookSetKey, classKey);
+            if (entry != null) {
+                wovenClass.setBytes(entry.bytes);
+                List<String> dynamicImports = wovenClass.getDynamicImports();
+                for (String importSpec : entry.imports) {
+                    if (!dynamicImports.contains(importSpec)) {
+                        dynamicImports.add(importSpec);
+                    }
+                }
+                addDynamicWeavingImports(wovenClass);
+                return entry.bytes;
+            }
+            previousImports = new ArrayList<String>(wovenClass.getDynamicImports());
+        }
+
         for (Iterator<HookRegistration> iterator = context.getWeavingHooks().iterator(); iterator.hasNext();) {
             HookRegistration hookreg = iterator.next();
             WeavingHook hook = hookreg.hook;
+            long start = System.nanoTime();
             try {
                 hook.weave(wovenClass);
             } catch (RuntimeException rte) {
@@ -89,11 +117,19 @@ final class WeavingHookProcessor implements ClassFileTransformer {
                 BundleReferenceClassLoader<?> bref = (BundleReferenceClassLoader<?>) hook.getClass().getClassLoader();
                 frameworkEvents.fireFrameworkEvent(bref.getBundleState(), FrameworkEvent.ERROR, rte, (FrameworkListener[]) null);
                 throw rte;
+            } finally {
+                statistics.weavingTime(hook.getClass().getName(), System.nanoTime() - start);
             }
         }
 
         addDynamicWeavingImports(wovenClass);
 
+        if (classKey != null) {
+            List<String> addedImports = new ArrayList<String>(wovenClass.getDynamicImports());
+            addedImports.removeAll(previousImports);
+            wovenClassCache.putEntry(hookSetKey, classKey, wovenClass.getBytes(), addedImports);
+        }
+
         return wovenClass.getBytes();
     }
 
@@ -0,0 +1,172 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.jboss.osgi.resolver.XBundleRevision;
+import org.jboss.osgi.resolver.XWiringSupport;
+import org.osgi.framework.namespace.HostNamespace;
+import org.osgi.framework.wiring.BundleWiring;
+import org.osgi.resource.Resource;
+import org.osgi.resource.Wire;
+
+/**
+ * An incrementally maintained index of the wires between {@link XBundleRevision}s.
+ *
+ * The index is updated when resolver results are applied, when a dynamic import gets wired
+ * and when a revision gets refreshed or removed.
+ * It also tracks the revisions that were made uneffective, so that removal pending bundles can be computed
+ * without walking every bundle in the framework.
+ *
+ * @since 18-Oct-2026
+ */
+final class WireIndex {
+
+    // provider -> requirers
+    private final Map<XBundleRevision, Set<XBundleRevision>> requirers = new HashMap<XBundleRevision, Set<XBundleRevision>>();
+    // requirer -> providers
+    private final Map<XBundleRevision, Set<XBundleRevision>> providers = new HashMap<XBundleRevision, Set<XBundleRevision>>();
+    // fragment -> hosts
+    private final Map<XBundleRevision, Set<XBundleRevision>> hosts = new HashMap<XBundleRevision, Set<XBundleRevision>>();
+    // revisions with an uneffective wiring
+    private final Set<XBundleRevision> removalPending = new LinkedHashSet<XBundleRevision>();
+
+    /**
+     * Add the wires of an applied resolver result
+     */
+    synchronized void addWires(Map<Resource, List<Wire>> wiremap) {
+        for (Entry<Resource, List<Wire>> entry : wiremap.entrySet()) {
+            XBundleRevision requirer = (XBundleRevision) entry.getKey();
+            for (Wire wire : entry.getValue()) {
+                addWireInternal(requirer, wire);
+            }
+        }
+    }
+
+    /**
+     * Add a single wire that was created outside of the resolver, i.e. for a dynamic import
+     */
+    synchronized void addWire(Wire wire) {
+        addWireInternal((XBundleRevision) wire.getRequirer(), wire);
+    }
+
+    private void addWireInternal(XBundleRevision requirer, Wire wire) {
+        XBundleRevision provider = (XBundleRevision) wire.getProvider();
+        addValue(requirers, provider, requirer);
+        addValue(providers, requirer, provider);
+        if (HostNamespace.HOST_NAMESPACE.equals(wire.getCapability().getNamespace())) {
+            addValue(hosts, requirer, provider);
+        }
+    }
+
+    /**
+     * Remove all wires from and to the given revision
+     */
+    synchronized void removeRevision(XBundleRevision brev) {
+        Set<XBundleRevision> provset = providers.remove(brev);
+        if (provset != null) {
+            for (XBundleRevision provider : provset) {
+                removeValue(requirers, provider, brev);
+            }
+        }
+        Set<XBundleRevision> reqset = requirers.remove(brev);
+        if (reqset != null) {
+            for (XBundleRevision requirer : reqset) {
+                removeValue(providers, requirer, brev);
+                removeValue(hosts, requirer, brev);
+            }
+        }
+        hosts.remove(brev);
+        removalPending.remove(brev);
+    }
+
+    /**
+     * Record a revision whose wiring was made uneffective
+     */
+    synchronized void addRemovalPending(XBundleRevision brev) {
+        removalPending.add(brev);
+    }
+
+    /**
+     * Get the revisions that have an uneffective wiring that is still in use
+     */
+    synchronized List<XBundleRevision> getRemovalPendingRevisions() {
+        List<XBundleRevision> result = new ArrayList<XBundleRevision>();
+        for (XBundleRevision brev : new ArrayList<XBundleRevision>(removalPending)) {
+            XWiringSupport wiringSupport = brev.getWiringSupport();
+            BundleWiring bwiring = (BundleWiring) wiringSupport.getWiring(false);
+            if (bwiring == null || wiringSupport.isEffective()) {
+                removalPending.remove(brev);
+            } else if (bwiring.isInUse()) {
+                result.add(brev);
+            }
+        }
+        return result;
+    }
+
+    synchronized Set<XBundleRevision> getRequirers(XBundleRevision provider) {
+        return copyOf(requirers.get(provider));
+    }
+
+    synchronized Set<XBundleRevision> getProviders(XBundleRevision requirer) {
+        return copyOf(providers.get(requirer));
+    }
+
+    synchronized Set<XBundleRevision> getHosts(XBundleRevision fragment) {
+        return copyOf(hosts.get(fragment));
+    }
+
+    private static Set<XBundleRevision> copyOf(Set<XBundleRevision> values) {
+        if (values == null)
+            return Collections.emptySet();
+
+        return new HashSet<XBundleRevision>(values);
+    }
+
+    private static void addValue(Map<XBundleRevision, Set<XBundleRevision>> map, XBundleRevision key, XBundleRevision value) {
+        Set<XBundleRevision> values = map.get(key);
+        if (values == null) {
+            values = new HashSet<XBundleRevision>();
+            map.put(key, values);
+        }
+        values.add(value);
+    }
+
+    private static void removeValue(Map<XBundleRevision, Set<XBundleRevision>> map, XBundleRevision key, XBundleRevision value) {
+        Set<XBundleRevision> values = map.get(key);
+        if (values != null) {
+            values.remove(value);
+            if (values.isEmpty()) {
+                map.remove(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.internal;
+
+import static org.jboss.osgi.framework.FrameworkLogger.LOGGER;
+import static org.jboss.osgi.framework.FrameworkMessages.MESSAGES;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jboss.osgi.framework.Constants;
+import org.jboss.osgi.framework.internal.WeavingContext.HookRegistration;
+import org.jboss.osgi.vfs.VFSUtils;
+import org.osgi.framework.Bundle;
+
+/**
+ * A persistent cache of woven classes.
+ *
+ * An entry holds the woven bytes and the dynamic imports that the hooks added for a class. Entries are grouped
+ * by the identity of the ordered set of {@link org.osgi.framework.hooks.weaving.WeavingHook}s, which includes the
+ * last modified time of each hook bundle. An update to a hook bundle therefore yields a new group and the groups
+ * of previous hook sets are deleted when a new group is created. Within a group entries are keyed by the hash of
+ * the original class bytes.
+ *
+ * @since 18-Oct-2026
+ */
+final class WovenClassCache {
+
+    static final String CACHE_DIRECTORY = "weaving-cache";
+
+    private static final int MAGIC = 0x4A425743;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final BundleManagerPlugin bundleManager;
+    private volatile Boolean enabled;
+
+    WovenClassCache(BundleManagerPlugin bundleManager) {
+        this.bundleManager = bundleManager;
+    }
+
+    boolean isEnabled() {
+        Boolean result = enabled;
+        if (result == null) {
+            Object value = bundleManager.getProperty(Constants.PROPERTY_WEAVING_CACHE);
+            result = value != null && Boolean.parseBoolean(value.toString().trim());
+            enabled = result;
+        }
+        return result;
+    }
+
+    /**
+     * Get the identity of the given ordered hook set.
+     */
+    static String getHookSetKey(List<HookRegistration> hooks) {
+        StringBuilder builder = new StringBuilder();
+        for (HookRegistration hookreg : hooks) {
+            Bundle bundle = hookreg.sref.getBundle();
+            builder.append(hookreg.hook.getClass().getName());
+            if (bundle != null) {
+                builder.append('|').append(bundle.getBundleId());
+                builder.append('|').append(bundle.getSymbolicName());
+                builder.append('|').append(bundle.getVersion());
+                builder.append('|').append(bundle.getLastModified());
+            }
+            builder.append('\n');
+        }
+        return digest(builder.toString().getBytes(UTF8), null);
+    }
+
+    /**
+     * Get the key of a class within a hook set.
+     */
+    static String getClassKey(Bundle host, String className, byte[] classBytes) {
+        String prefix = host.getSymbolicName() + "|" + host.getVersion() + "|" + className + "\n";
+        return digest(prefix.getBytes(UTF8), classBytes);
+    }
+
+    /**
+     * Get the cached entry for the given keys, or null.
+     */
+    Entry getEntry(String hookSetKey, String classKey) {
+        File entryFile = new File(new File(getCacheDir(), hookSetKey), classKey);
+        if (!entryFile.isFile())
+            return null;
+
+        DataInputStream input = null;
+        try {
+            input = new DataInputStream(new FileInputStream(entryFile));
+            if (input.readInt() != MAGIC)
+                throw new IOException("Invalid magic: " + entryFile);
+            byte[] bytes = new byte[input.readInt()];
+            input.readFully(bytes);
+            int count = input.readInt();
+            List<String> imports = new ArrayList<String>(count);
+            for (int i = 0; i < count; i++) {
+                imports.add(input.readUTF());
+            }
+            return new Entry(bytes, imports);
+        } catch (IOException ex) {
+            LOGGER.debugf(ex, "Cannot read woven class: %s", entryFile);
+            VFSUtils.safeClose(input);
+            input = null;
+            entryFile.delete();
+            return null;
+        } finally {
+            VFSUtils.safeClose(input);
+        }
+    }
+
+    /**
+     * Store the woven bytes and added dynamic imports for the given keys.
+     */
+    void putEntry(String hookSetKey, String classKey, byte[] bytes, List<String> imports) {
+        File hookSetDir = new File(getCacheDir(), hookSetKey);
+        try {
+            if (!hookSetDir.isDirectory()) {
+                deleteStaleHookSets(hookSetDir);
+                if (!hookSetDir.mkdirs() && !hookSetDir.isDirectory())
+                    throw MESSAGES.cannotCreateDirectory(hookSetDir);
+            }
+
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(bytes.length + 64);
+            DataOutputStream output = new DataOutputStream(baos);
+            output.writeInt(MAGIC);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+            output.writeInt(imports.size());
+            for (String importSpec : imports) {
+                output.writeUTF(importSpec);
+            }
+            output.close();
+
+            File entryFile = new File(hookSetDir, classKey);
+            File tmpFile = File.createTempFile(classKey, ".tmp", hookSetDir);
+            try {
+                FileOutputStream fos = new FileOutputStream(tmpFile);
+                try {
+                    baos.writeTo(fos);
+                } finally {
+                    fos.close();
+                }
+                try {
+                    Files.move(tmpFile.toPath(), entryFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException ex) {
+                    Files.move(tmpFile.toPath(), entryFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                tmpFile.delete();
+            }
+        } catch (IOException ex) {
+            LOGGER.debugf(ex, "Cannot cache woven class in: %s", hookSetDir);
+        }
+    }
+
+    private File getCacheDir() {
+        File storageArea = bundleManager.getFrameworkState().getStorageManager().getStorageArea();
+        return new File(storageArea, CACHE_DIRECTORY);
+    }
+
+    private static void deleteStaleHookSets(File hookSetDir) {
+        File[] groups = hookSetDir.getParentFile().listFiles();
+        if (groups != null) {
+            for (File group : groups) {
+                if (!group.equals(hookSetDir)) {
+                    LOGGER.debugf("Delete stale woven classes: %s", group);
+                    deleteRecursively(group);
+                }
+            }
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static String digest(byte[] prefix, byte[] content) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(MESSAGES.cannotComputeContentDigest(ex));
+        }
+        digest.update(prefix);
+        if (content != null) {
+            digest.update(content);
+        }
+        StringBuilder builder = new StringBuilder();
+        for (byte b : digest.digest()) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+            builder.append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+
+    static final class Entry {
+        final byte[] bytes;
+        final List<String> imports;
+
+        Entry(byte[] bytes, List<String> imports) {
+            this.bytes = bytes;
+            this.imports = Collections.unmodifiableList(imports);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.spi;
+
+/**
+ * The statistics of the bundle archives that the framework mounts on demand.
+ *
+ * The metrics are available by adapting the system bundle to this type and are also registered as a system service.
+ *
+ * @since 18-Oct-2026
+ */
+public interface ArchiveMetrics {
+
+    /** The number of currently open archives */
+    int getOpenArchives();
+
+    /** The maximum number of open archives, 0 if unbounded */
+    int getMaxOpenArchives();
+
+    /** The number of times an archive was opened */
+    long getOpenCount();
+
+    /** The number of times an idle archive was closed to stay within the bound */
+    long getEvictionCount();
+}
@@ -35,12 +35,18 @@ import org.jboss.msc.service.ServiceName;
 import org.jboss.msc.service.ServiceTarget;
 import org.jboss.msc.service.StartContext;
 import org.jboss.msc.service.StartException;
+import org.jboss.msc.value.InjectedValue;
+import org.jboss.osgi.framework.Services;
+import org.jboss.osgi.framework.internal.FrameworkEventsImpl;
+import org.jboss.osgi.framework.internal.FrameworkEventsImpl.EventBatch;
 import org.jboss.osgi.resolver.XBundle;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleException;
 
 public class BootstrapBundlesActivate<T> extends BootstrapBundlesService<T> {
 
+    private final InjectedValue<BundleManager> injectedBundleManager = new InjectedValue<BundleManager>();
+    private final InjectedValue<FrameworkEvents> injectedFrameworkEvents = new InjectedValue<FrameworkEvents>();
     private final Set<XBundle> resolvedBundles;
 
     public BootstrapBundlesActivate(ServiceName baseName, Set<XBundle> resolvedBundles) {
@@ -50,9 +56,15 @@ public class BootstrapBundlesActivate<T> extends BootstrapBundlesService<T> {
 
     @Override
     protected void addServiceDependencies(ServiceBuilder<T> builder) {
+        builder.addDependency(Services.BUNDLE_MANAGER, BundleManager.class, injectedBundleManager);
+        builder.addDependency(IntegrationServices.FRAMEWORK_EVENTS_PLUGIN, FrameworkEvents.class, injectedFrameworkEvents);
         builder.addDependencies(getPreviousService());
     }
 
+    protected BundleManager getBundleManager() {
+        return injectedBundleManager.getValue();
+    }
+
     @Override
     public void start(StartContext startContext) throws StartException {
         super.start(startContext);
@@ -66,13 +78,20 @@ public class BootstrapBundlesActivate<T> extends BootstrapBundlesService<T> {
             }
         });
 
-        // Start the resolved bundles
-        for (XBundle bundle : bundles) {
-            try {
-                bundle.start(Bundle.START_ACTIVATION_POLICY);
-            } catch (BundleException ex) {
-                LOGGER.errorCannotStartBundle(ex, bundle);
+        // Start the resolved bundles, the async bundle events are delivered as one batch
+        StartupTrace.Span span = beginStartupTrace(getBundleManager());
+        EventBatch batch = FrameworkEventsImpl.beginEventBatch(injectedFrameworkEvents.getValue());
+        try {
+            for (XBundle bundle : bundles) {
+                try {
+                    bundle.start(Bundle.START_ACTIVATION_POLICY);
+                } catch (BundleException ex) {
+                    LOGGER.errorCannotStartBundle(ex, bundle);
+                }
             }
+        } finally {
+            batch.end();
+            span.end();
         }
 
         // We are done
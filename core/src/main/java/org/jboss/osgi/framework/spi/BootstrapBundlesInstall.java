@@ -75,13 +75,18 @@ public class BootstrapBundlesInstall<T> extends BootstrapBundlesService<T> {
         Set<XBundleRevision> installedRevisions = new HashSet<XBundleRevision>();
 
         // Install the auto install bundles
-        for (Deployment dep : deployments) {
-            try {
-                XBundleRevision brev = getBundleManager().createBundleRevision(getBundleContext(), dep, serviceTarget);
-                installedRevisions.add(brev);
-            } catch (BundleException ex) {
-                LOGGER.errorStateCannotInstallInitialBundle(ex, dep.getLocation());
+        StartupTrace.Span span = beginStartupTrace(getBundleManager());
+        try {
+            for (Deployment dep : deployments) {
+                try {
+                    XBundleRevision brev = getBundleManager().createBundleRevision(getBundleContext(), dep, serviceTarget);
+                    installedRevisions.add(brev);
+                } catch (BundleException ex) {
+                    LOGGER.errorStateCannotInstallInitialBundle(ex, dep.getLocation());
+                }
             }
+        } finally {
+            span.end();
         }
 
         installResolveService(serviceTarget, installedRevisions);
@@ -39,6 +39,8 @@ import org.jboss.msc.value.InjectedValue;
 import org.jboss.osgi.deployment.deployer.Deployment;
 import org.jboss.osgi.framework.Constants;
 import org.jboss.osgi.framework.Services;
+import org.jboss.osgi.framework.internal.FrameworkEventsImpl;
+import org.jboss.osgi.framework.internal.FrameworkEventsImpl.EventBatch;
 import org.jboss.osgi.resolver.XBundle;
 import org.jboss.osgi.resolver.XBundleRevision;
 import org.jboss.osgi.resolver.XEnvironment;
@@ -51,6 +53,7 @@ import org.osgi.service.resolver.ResolutionException;
 public class BootstrapBundlesResolve<T> extends BootstrapBundlesService<T> {
 
     private final InjectedValue<BundleManager> injectedBundleManager = new InjectedValue<BundleManager>();
+    private final InjectedValue<FrameworkEvents> injectedFrameworkEvents = new InjectedValue<FrameworkEvents>();
     private final InjectedValue<FrameworkWiring> injectedFrameworkWiring = new InjectedValue<FrameworkWiring>();
     private final InjectedValue<XEnvironment> injectedEnvironment = new InjectedValue<XEnvironment>();
     private final InjectedValue<XBundle> injectedSystemBundle = new InjectedValue<XBundle>();
@@ -68,6 +71,7 @@ public class BootstrapBundlesResolve<T> extends BootstrapBundlesService<T> {
         builder.addDependency(Services.RESOLVER, XResolver.class, injectedResolver);
         builder.addDependency(IntegrationServices.FRAMEWORK_WIRING_PLUGIN, FrameworkWiring.class, injectedFrameworkWiring);
         builder.addDependency(Services.BUNDLE_MANAGER, BundleManager.class, injectedBundleManager);
+        builder.addDependency(IntegrationServices.FRAMEWORK_EVENTS_PLUGIN, FrameworkEvents.class, injectedFrameworkEvents);
         builder.addDependency(Services.ENVIRONMENT, XEnvironment.class, injectedEnvironment);
         builder.addDependencies(getPreviousService());
     }
@@ -78,6 +82,17 @@ public class BootstrapBundlesResolve<T> extends BootstrapBundlesService<T> {
 
     @Override
     public void start(final StartContext context) throws StartException {
+        StartupTrace.Span span = beginStartupTrace(getBundleManager());
+        EventBatch batch = FrameworkEventsImpl.beginEventBatch(injectedFrameworkEvents.getValue());
+        try {
+            resolveBootstrapBundles(context);
+        } finally {
+            batch.end();
+            span.end();
+        }
+    }
+
+    private void resolveBootstrapBundles(final StartContext context) throws StartException {
 
         int targetLevel = getBeginningStartLevel();
 
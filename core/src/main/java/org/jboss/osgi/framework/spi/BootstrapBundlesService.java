@@ -27,9 +27,16 @@ import org.jboss.msc.service.ServiceName;
 import org.jboss.msc.service.ServiceTarget;
 import org.jboss.msc.service.StartContext;
 import org.jboss.msc.service.StartException;
+import org.jboss.osgi.resolver.XBundle;
 
 public abstract class BootstrapBundlesService<T> extends AbstractIntegrationService<T> {
 
+    private static final StartupTrace.Span NOOP_SPAN = new StartupTrace.Span() {
+        @Override
+        public void end() {
+        }
+    };
+
     private final ServiceName baseName;
     private final IntegrationServices.BootstrapPhase phase;
     private ServiceListener<Object> listener;
@@ -58,6 +65,17 @@ public abstract class BootstrapBundlesService<T> extends AbstractIntegrationServ
         return IntegrationServices.BootstrapPhase.serviceName(baseName, phase.next());
     }
 
+    /**
+     * Begin a span in the startup trace that covers the work done in this phase.
+     */
+    protected StartupTrace.Span beginStartupTrace(BundleManager bundleManager) {
+        XBundle sysbundle = bundleManager.getSystemBundle();
+        StartupTrace startupTrace = sysbundle != null ? sysbundle.adapt(StartupTrace.class) : null;
+        if (startupTrace == null)
+            return NOOP_SPAN;
+        return startupTrace.begin(StartupTrace.Category.PHASE, getServiceName().getCanonicalName());
+    }
+
     @Override
     protected T createServiceValue(StartContext startContext) throws StartException {
         return null;
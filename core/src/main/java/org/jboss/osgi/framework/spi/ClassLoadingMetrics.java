@@ -0,0 +1,86 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.spi;
+
+import java.util.List;
+import java.util.Map;
+
+import org.osgi.framework.Bundle;
+
+/**
+ * Class loading statistics of the installed bundles.
+ *
+ * The metrics are available by adapting the system bundle to this type and are also registered as a system service.
+ * The statistics of a single bundle can be obtained by adapting the bundle to {@link BundleStatistics}.
+ *
+ * @since 18-Oct-2026
+ */
+public interface ClassLoadingMetrics {
+
+    /** The class loading statistics of a single bundle */
+    interface BundleStatistics {
+
+        long getBundleId();
+
+        String getSymbolicName();
+
+        /** The number of classes defined by the bundle class loader */
+        long getClassesDefined();
+
+        /** The number of class loads served from the bundle content */
+        long getLocalLoads();
+
+        /** The number of class loads for which the bundle content had no class */
+        long getLocalMisses();
+
+        /** The number of class loads through Bundle.loadClass() served by another class loader */
+        long getDelegatedLoads();
+
+        /** The accumulated time in nanoseconds spent in local class loads, including nested loads */
+        long getClassLoadTime();
+
+        /** The number of class bytes read from the bundle content */
+        long getClassBytesRead();
+
+        /** The number of dynamic imports that were wired to a provider */
+        long getDynamicImportHits();
+
+        /** The number of dynamic imports that matched a pattern but found no provider */
+        long getDynamicImportMisses();
+
+        /** The accumulated weaving time in nanoseconds by weaving hook class name */
+        Map<String, Long> getWeavingTimes();
+
+        /** The number of lazy activations triggered by a class load */
+        long getLazyActivations();
+    }
+
+    /**
+     * Get the statistics for the given bundle, or null if the bundle has no class loader of its own.
+     */
+    BundleStatistics getStatistics(Bundle bundle);
+
+    /**
+     * Get the statistics for all installed bundles.
+     */
+    List<BundleStatistics> getStatistics();
+}
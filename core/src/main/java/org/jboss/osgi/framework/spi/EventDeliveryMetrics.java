@@ -0,0 +1,76 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.spi;
+
+import java.util.List;
+
+/**
+ * Delivery statistics of framework, bundle and service events.
+ *
+ * The metrics are available by adapting the system bundle to this type and are also registered as a system service.
+ *
+ * @since 18-Oct-2026
+ */
+public interface EventDeliveryMetrics {
+
+    /** The distribution of listener call times for one event type */
+    interface Histogram {
+
+        /** The event class and type, for example ServiceEvent.REGISTERED */
+        String getName();
+
+        /** The number of listener calls */
+        long getCount();
+
+        /** The accumulated listener call time in nanoseconds */
+        long getTotalTime();
+
+        /** The longest listener call in nanoseconds */
+        long getMaxTime();
+
+        /** The exclusive upper bounds of the buckets in nanoseconds. The last bucket has no upper bound. */
+        long[] getBucketBounds();
+
+        /** The number of listener calls per bucket */
+        long[] getBucketCounts();
+    }
+
+    /**
+     * Get the histograms of the event types that have been delivered so far.
+     */
+    List<Histogram> getHistograms();
+
+    /**
+     * Get the number of asynchronous deliveries that are queued or running.
+     */
+    int getQueueDepth();
+
+    /**
+     * Get the number of listener calls that exceeded the slow listener threshold.
+     */
+    long getSlowListenerCount();
+
+    /**
+     * Get the number of asynchronous deliveries that were dropped because the backlog of the listener was full.
+     */
+    long getDroppedEventCount();
+}
@@ -0,0 +1,47 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.spi;
+
+/**
+ * Runtime statistics of an executor used by the framework.
+ *
+ * @since 18-Oct-2026
+ */
+public interface ExecutorMetrics {
+
+    String getName();
+
+    /** The number of threads in the pool */
+    int getPoolSize();
+
+    /** The number of threads that are currently running a task */
+    int getActiveThreads();
+
+    /** The number of tasks that were submitted but not yet started */
+    int getQueueDepth();
+
+    /** The number of tasks that have completed */
+    long getCompletedTasks();
+
+    /** The number of tasks that were rejected because the queue was full */
+    long getRejectedTasks();
+}
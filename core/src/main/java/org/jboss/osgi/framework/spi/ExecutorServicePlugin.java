@@ -22,9 +22,12 @@ package org.jboss.osgi.framework.spi;
  * #L%
  */
 
+import static org.jboss.osgi.framework.FrameworkLogger.LOGGER;
+
+import java.lang.reflect.Method;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jboss.msc.service.ServiceBuilder;
 import org.jboss.msc.service.ServiceName;
@@ -32,11 +35,16 @@ import org.jboss.msc.service.StartContext;
 import org.jboss.msc.service.StartException;
 import org.jboss.msc.service.StopContext;
 import org.jboss.msc.value.InjectedValue;
+import org.jboss.osgi.framework.Constants;
 import org.jboss.osgi.framework.Services;
 
 /**
  * Plugin that provides an ExecutorService.
  *
+ * By default the executor runs its tasks on a single thread, see {@link #getDefaultThreads()}. The number of threads, the queue size and the
+ * use of virtual threads can be configured through the PROPERTY_EXECUTOR_* framework properties, which can be
+ * qualified with the simple name of the plugin's service name.
+ *
  * @author thomas.diesler@jboss.com
  * @since 10-Mar-2011
  */
@@ -78,15 +86,74 @@ public abstract class ExecutorServicePlugin<T> extends AbstractIntegrationServic
         return executorService;
     }
 
-    private ExecutorService createExecutorService(final String threadName) {
-        ExecutorService service = Executors.newSingleThreadExecutor(new ThreadFactory() {
-            @Override
-            public Thread newThread(Runnable run) {
-                Thread thread = new Thread(run);
-                thread.setName(threadName);
-                return thread;
+    /**
+     * Create the executor service for this plugin.
+     * Tasks that are submitted through {@link ExecutorService#execute(Runnable)} run in submission order.
+     */
+    protected ExecutorService createExecutorService(final String threadName) {
+        String executorName = getServiceName().getSimpleName();
+        int threads = Math.max(1, (int) getLongProperty(executorName, Constants.PROPERTY_EXECUTOR_THREADS, getDefaultThreads()));
+        int queueSize = (int) getLongProperty(executorName, Constants.PROPERTY_EXECUTOR_QUEUE_SIZE, 0);
+        long offerTimeout = getLongProperty(executorName, Constants.PROPERTY_EXECUTOR_OFFER_TIMEOUT, 30000);
+
+        ThreadFactory threadFactory = null;
+        if (Boolean.parseBoolean(getProperty(executorName, Constants.PROPERTY_EXECUTOR_VIRTUAL_THREADS))) {
+            threadFactory = getVirtualThreadFactory(threadName);
+            if (threadFactory == null) {
+                LOGGER.warnVirtualThreadsNotSupported(executorName);
             }
-        });
-        return service;
+        }
+        if (threadFactory == null) {
+            final boolean numbered = threads > 1;
+            final AtomicInteger count = new AtomicInteger();
+            threadFactory = new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable run) {
+                    Thread thread = new Thread(run);
+                    thread.setName(numbered ? threadName + " #" + count.incrementAndGet() : threadName);
+                    return thread;
+                }
+            };
+        }
+        return new ManagedExecutorService(executorName, threads, queueSize, offerTimeout, threadFactory);
+    }
+
+    /**
+     * The number of threads if it is not configured by a framework property.
+     */
+    protected int getDefaultThreads() {
+        return 1;
+    }
+
+    private String getProperty(String executorName, String key) {
+        // Look for the qualified key first, i.e. org.jboss.osgi.framework.executor.[name].threads
+        int index = key.lastIndexOf('.');
+        Object value = getBundleManager().getProperty(key.substring(0, index) + "." + executorName + key.substring(index));
+        if (value == null) {
+            value = getBundleManager().getProperty(key);
+        }
+        return value != null ? value.toString().trim() : null;
+    }
+
+    private long getLongProperty(String executorName, String key, long defaultValue) {
+        String value = getProperty(executorName, key);
+        try {
+            return value != null ? Long.parseLong(value) : defaultValue;
+        } catch (NumberFormatException ex) {
+            return defaultValue;
+        }
+    }
+
+    // Thread.ofVirtual().name(prefix, 1).factory() is only available on recent runtimes
+    private static ThreadFactory getVirtualThreadFactory(String threadName) {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Object builder = ofVirtual.invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, threadName + " #", 1L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (Exception ex) {
+            return null;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.spi;
+
+import java.util.concurrent.Executor;
+
+/**
+ * An {@link Executor} that runs the tasks submitted with the same key in submission order,
+ * one at a time. Tasks with different keys may run concurrently.
+ *
+ * @since 18-Oct-2026
+ */
+public interface KeyedExecutor extends Executor {
+
+    /**
+     * Execute the given task after all tasks previously submitted with an equal key.
+     */
+    void execute(Object key, Runnable task);
+}
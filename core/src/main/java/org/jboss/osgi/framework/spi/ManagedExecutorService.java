@@ -0,0 +1,368 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.spi;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An executor that runs tasks on a fixed pool of threads while preserving submission order per key.
+ *
+ * Tasks submitted through {@link #execute(Runnable)} share a single default key and therefore run
+ * one at a time in submission order, just like a single threaded executor. Tasks submitted through
+ * {@link #execute(Object, Runnable)} are only ordered with respect to tasks of an equal key.
+ *
+ * If a queue capacity is given, a submitting thread waits up to the offer timeout for a free slot
+ * before the task is rejected. A task submitted from one of the executor's own threads is rejected
+ * right away when the queue is full, because waiting for a slot there could deadlock the pool.
+ *
+ * @since 18-Oct-2026
+ */
+public final class ManagedExecutorService extends AbstractExecutorService implements KeyedExecutor, ExecutorMetrics {
+
+    // The maximum number of tasks a key may run before it yields its thread to other keys
+    private static final int TASKS_PER_TURN = 32;
+
+    private static final ThreadLocal<ManagedExecutorService> currentExecutor = new ThreadLocal<ManagedExecutorService>();
+
+    private final String name;
+    private final ThreadPoolExecutor pool;
+    private final Semaphore capacity;
+    private final long offerTimeout;
+    private final Object defaultKey = new Object();
+    private final ConcurrentMap<Object, SerialQueue> serialQueues = new ConcurrentHashMap<Object, SerialQueue>();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicInteger activeThreads = new AtomicInteger();
+    private final AtomicLong completedTasks = new AtomicLong();
+    private final AtomicLong rejectedTasks = new AtomicLong();
+
+    /**
+     * Create an executor
+     *
+     * @param name the name of this executor
+     * @param threads the number of pool threads
+     * @param queueSize the maximum number of pending tasks, or zero for an unbounded queue
+     * @param offerTimeout the time in milliseconds a submitter waits for a free slot in a bounded queue
+     * @param threadFactory the factory for the pool threads
+     */
+    public ManagedExecutorService(String name, int threads, int queueSize, long offerTimeout, ThreadFactory threadFactory) {
+        if (name == null)
+            throw new IllegalArgumentException("Null name");
+        if (threads < 1)
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+        if (threadFactory == null)
+            throw new IllegalArgumentException("Null threadFactory");
+        this.name = name;
+        this.capacity = queueSize > 0 ? new Semaphore(queueSize) : null;
+        this.offerTimeout = Math.max(0, offerTimeout);
+        this.pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), threadFactory);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        execute(defaultKey, task);
+    }
+
+    @Override
+    public void execute(Object key, Runnable task) {
+        if (key == null)
+            throw new IllegalArgumentException("Null key");
+        if (task == null)
+            throw new IllegalArgumentException("Null task");
+        if (pool.isShutdown())
+            throw new RejectedExecutionException("Executor shut down: " + name);
+
+        Task entry = new Task(task, acquireSlot());
+        queueDepth.incrementAndGet();
+        try {
+            while (true) {
+                SerialQueue queue = serialQueues.get(key);
+                if (queue == null) {
+                    SerialQueue newQueue = new SerialQueue(key);
+                    queue = serialQueues.putIfAbsent(key, newQueue);
+                    if (queue == null) {
+                        queue = newQueue;
+                    }
+                }
+                if (queue.add(entry)) {
+                    break;
+                }
+            }
+        } catch (RuntimeException ex) {
+            queueDepth.decrementAndGet();
+            releaseSlot(entry);
+            throw ex;
+        }
+    }
+
+    // Returns true if a slot was taken that must be released when the task is done
+    private boolean acquireSlot() {
+        if (capacity == null)
+            return false;
+        if (capacity.tryAcquire())
+            return true;
+
+        // Never block one of our own threads, we might be waiting for ourselves
+        boolean acquired = false;
+        if (currentExecutor.get() != this) {
+            try {
+                acquired = capacity.tryAcquire(offerTimeout, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!acquired) {
+            rejectedTasks.incrementAndGet();
+            throw new RejectedExecutionException("Queue of executor '" + name + "' is full");
+        }
+        return true;
+    }
+
+    private void releaseSlot(Task entry) {
+        if (entry.slot) {
+            capacity.release();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getPoolSize() {
+        return pool.getPoolSize();
+    }
+
+    @Override
+    public int getActiveThreads() {
+        return activeThreads.get();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    @Override
+    public long getCompletedTasks() {
+        return completedTasks.get();
+    }
+
+    @Override
+    public long getRejectedTasks() {
+        return rejectedTasks.get();
+    }
+
+    @Override
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        // The pool only knows about the serial queues, hand back the tasks they hold
+        pool.shutdownNow();
+        List<Runnable> result = new ArrayList<Runnable>();
+        for (SerialQueue queue : serialQueues.values()) {
+            for (Task entry : queue.retire()) {
+                queueDepth.decrementAndGet();
+                releaseSlot(entry);
+                result.add(entry.runnable);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return pool.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return pool.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return pool.awaitTermination(timeout, unit);
+    }
+
+    @Override
+    public String toString() {
+        return "ManagedExecutorService[" + name + ",threads=" + pool.getCorePoolSize() + "]";
+    }
+
+    private void runTask(Task entry) {
+        queueDepth.decrementAndGet();
+        activeThreads.incrementAndGet();
+        try {
+            entry.runnable.run();
+        } finally {
+            activeThreads.decrementAndGet();
+            completedTasks.incrementAndGet();
+            releaseSlot(entry);
+        }
+    }
+
+    private static final class Task {
+        private final Runnable runnable;
+        private final boolean slot;
+
+        Task(Runnable runnable, boolean slot) {
+            this.runnable = runnable;
+            this.slot = slot;
+        }
+    }
+
+    /**
+     * The pending tasks of one key. At most one pool thread drains a queue at any time.
+     */
+    private final class SerialQueue implements Runnable {
+
+        private final Object key;
+        private final Queue<Task> tasks = new ArrayDeque<Task>();
+        private boolean scheduled;
+        private boolean retired;
+
+        SerialQueue(Object key) {
+            this.key = key;
+        }
+
+        // Returns false if this queue was retired and the caller must obtain a new one
+        boolean add(Task task) {
+            synchronized (this) {
+                if (retired)
+                    return false;
+                tasks.add(task);
+                if (scheduled)
+                    return true;
+                scheduled = true;
+            }
+            try {
+                pool.execute(this);
+            } catch (RejectedExecutionException ex) {
+                synchronized (this) {
+                    tasks.remove(task);
+                    scheduled = false;
+                }
+                throw ex;
+            }
+            return true;
+        }
+
+        @Override
+        public void run() {
+            ManagedExecutorService previous = currentExecutor.get();
+            currentExecutor.set(ManagedExecutorService.this);
+            try {
+                while (drain()) {
+                    // Yield the thread to other keys and continue later
+                    if (!pool.isShutdown()) {
+                        try {
+                            pool.execute(this);
+                            return;
+                        } catch (RejectedExecutionException ex) {
+                            // Shut down concurrently, keep draining on this thread
+                        }
+                    }
+                }
+            } finally {
+                if (previous != null) {
+                    currentExecutor.set(previous);
+                } else {
+                    currentExecutor.remove();
+                }
+            }
+        }
+
+        // Returns true if there are tasks left after this turn
+        private boolean drain() {
+            for (int count = 0; count < TASKS_PER_TURN; count++) {
+                Task task;
+                synchronized (this) {
+                    task = tasks.poll();
+                    if (task == null) {
+                        scheduled = false;
+                        retired = true;
+                        serialQueues.remove(key, this);
+                        return false;
+                    }
+                }
+                try {
+                    runTask(task);
+                } catch (RuntimeException ex) {
+                    Thread thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, ex);
+                } catch (Error err) {
+                    // This thread is going away, hand the remaining tasks to another one
+                    resume();
+                    throw err;
+                }
+            }
+            return true;
+        }
+
+        // Removes the pending tasks and retires this queue
+        List<Task> retire() {
+            synchronized (this) {
+                List<Task> result = new ArrayList<Task>(tasks);
+                tasks.clear();
+                retired = true;
+                serialQueues.remove(key, this);
+                return result;
+            }
+        }
+
+        private void resume() {
+            synchronized (this) {
+                if (tasks.isEmpty()) {
+                    scheduled = false;
+                    retired = true;
+                    serialQueues.remove(key, this);
+                    return;
+                }
+            }
+            try {
+                pool.execute(this);
+            } catch (RejectedExecutionException ex) {
+                synchronized (this) {
+                    scheduled = false;
+                }
+            }
+        }
+    }
+}
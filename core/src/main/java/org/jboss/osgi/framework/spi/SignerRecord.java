@@ -0,0 +1,317 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.spi;
+
+import static org.jboss.osgi.framework.FrameworkMessages.MESSAGES;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSigner;
+import java.security.Timestamp;
+import java.security.cert.CertPath;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * The verified signers of a stored bundle revision.
+ *
+ * The record is created once when a revision is stored and is persisted next to it. Every signed entry
+ * refers to one of the distinct signer sets of the archive, so that neither class loading nor the signer
+ * queries of a bundle verify the signatures again.
+ *
+ * @since 18-Oct-2026
+ */
+public final class SignerRecord {
+
+    private static final int MAGIC = 0x4A425352;
+    private static final int VERSION = 1;
+    private static final String CERTPATH_ENCODING = "PkiPath";
+
+    private final CodeSigner[][] signerSets;
+    private final Map<String, Integer> entries;
+    private final boolean complete;
+    private Map<X509Certificate, List<X509Certificate>> signerCertificates;
+
+    private SignerRecord(CodeSigner[][] signerSets, Map<String, Integer> entries, boolean complete) {
+        this.signerSets = signerSets;
+        this.entries = entries;
+        this.complete = complete;
+    }
+
+    /**
+     * Verify the signatures of the given archive.
+     *
+     * @throws SecurityException if an entry does not match its signature
+     */
+    public static SignerRecord verify(File archiveFile) throws IOException {
+        JarFile jarFile = new JarFile(archiveFile, true);
+        try {
+            if (!hasSignatureFiles(jarFile))
+                return new SignerRecord(new CodeSigner[0][], Collections.<String, Integer> emptyMap(), false);
+
+            Map<List<CodeSigner>, Integer> setIndexes = new LinkedHashMap<List<CodeSigner>, Integer>();
+            Map<String, Integer> entries = new HashMap<String, Integer>();
+            boolean complete = true;
+            byte[] buffer = new byte[8192];
+            Enumeration<JarEntry> jarEntries = jarFile.entries();
+            while (jarEntries.hasMoreElements()) {
+                JarEntry entry = jarEntries.nextElement();
+                if (entry.isDirectory())
+                    continue;
+
+                // The signers of an entry are known once it has been read completely
+                InputStream input = jarFile.getInputStream(entry);
+                try {
+                    while (input.read(buffer) != -1) {
+                    }
+                } finally {
+                    input.close();
+                }
+
+                CodeSigner[] signers = entry.getCodeSigners();
+                if (signers == null || signers.length == 0) {
+                    if (!isSignatureRelated(entry.getName()))
+                        complete = false;
+                    continue;
+                }
+                List<CodeSigner> key = Arrays.asList(signers);
+                Integer index = setIndexes.get(key);
+                if (index == null) {
+                    index = setIndexes.size();
+                    setIndexes.put(key, index);
+                }
+                entries.put(entry.getName(), index);
+            }
+
+            CodeSigner[][] signerSets = new CodeSigner[setIndexes.size()][];
+            for (Map.Entry<List<CodeSigner>, Integer> entry : setIndexes.entrySet()) {
+                List<CodeSigner> signers = entry.getKey();
+                signerSets[entry.getValue()] = signers.toArray(new CodeSigner[signers.size()]);
+            }
+            return new SignerRecord(signerSets, entries, complete && !entries.isEmpty());
+        } finally {
+            jarFile.close();
+        }
+    }
+
+    /**
+     * Read a record that was written by {@link #write(File)}.
+     */
+    public static SignerRecord read(File file) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION)
+                throw MESSAGES.invalidSignerRecord(null, file);
+
+            CertificateFactory factory = CertificateFactory.getInstance("X.509");
+            boolean complete = input.readBoolean();
+            CodeSigner[][] signerSets = new CodeSigner[input.readInt()][];
+            for (int i = 0; i < signerSets.length; i++) {
+                signerSets[i] = new CodeSigner[input.readInt()];
+                for (int j = 0; j < signerSets[i].length; j++) {
+                    CertPath signerPath = readCertPath(input, factory);
+                    Timestamp timestamp = null;
+                    if (input.readBoolean()) {
+                        Date date = new Date(input.readLong());
+                        timestamp = new Timestamp(date, readCertPath(input, factory));
+                    }
+                    signerSets[i][j] = new CodeSigner(signerPath, timestamp);
+                }
+            }
+            int count = input.readInt();
+            Map<String, Integer> entries = new HashMap<String, Integer>(count * 2);
+            for (int i = 0; i < count; i++) {
+                String name = input.readUTF();
+                int index = input.readInt();
+                if (index < 0 || index >= signerSets.length)
+                    throw MESSAGES.invalidSignerRecord(null, file);
+                entries.put(name, index);
+            }
+            return new SignerRecord(signerSets, entries, complete);
+        } catch (CertificateException ex) {
+            throw MESSAGES.invalidSignerRecord(ex, file);
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Write this record to the given file.
+     */
+    public void write(File file) throws IOException {
+        // Write to a temporary file that replaces the record in one step, so that a reader never sees a partial record
+        File tmpFile = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+        try {
+            writeRecord(tmpFile, file);
+            try {
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            tmpFile.delete();
+        }
+    }
+
+    private void writeRecord(File tmpFile, File file) throws IOException {
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+        try {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeBoolean(complete);
+            output.writeInt(signerSets.length);
+            for (CodeSigner[] signers : signerSets) {
+                output.writeInt(signers.length);
+                for (CodeSigner signer : signers) {
+                    writeCertPath(output, signer.getSignerCertPath());
+                    Timestamp timestamp = signer.getTimestamp();
+                    output.writeBoolean(timestamp != null);
+                    if (timestamp != null) {
+                        output.writeLong(timestamp.getTimestamp().getTime());
+                        writeCertPath(output, timestamp.getSignerCertPath());
+                    }
+                }
+            }
+            output.writeInt(entries.size());
+            for (Map.Entry<String, Integer> entry : entries.entrySet()) {
+                output.writeUTF(entry.getKey());
+                output.writeInt(entry.getValue());
+            }
+        } catch (CertificateException ex) {
+            throw MESSAGES.invalidSignerRecord(ex, file);
+        } finally {
+            output.close();
+        }
+    }
+
+    /**
+     * Get the number of distinct signer sets.
+     */
+    public int getSignerSetCount() {
+        return signerSets.length;
+    }
+
+    /**
+     * Get the index of the signer set of the given entry.
+     *
+     * @return the index or -1 if the entry is not signed
+     */
+    public int getSignerSetIndex(String entryName) {
+        Integer index = entries.get(entryName);
+        return index != null ? index.intValue() : -1;
+    }
+
+    /**
+     * Get the signers of the signer set with the given index.
+     */
+    public CodeSigner[] getSignerSet(int index) {
+        return signerSets[index].clone();
+    }
+
+    /**
+     * Get the signers that signed every entry of the archive, mapped to their certificate chains.
+     */
+    public synchronized Map<X509Certificate, List<X509Certificate>> getSignerCertificates() {
+        if (signerCertificates == null) {
+            Map<X509Certificate, List<X509Certificate>> result = new LinkedHashMap<X509Certificate, List<X509Certificate>>();
+            if (complete) {
+                Set<CertPath> common = new LinkedHashSet<CertPath>();
+                for (CodeSigner signer : signerSets[0]) {
+                    common.add(signer.getSignerCertPath());
+                }
+                for (int i = 1; i < signerSets.length; i++) {
+                    Set<CertPath> paths = new LinkedHashSet<CertPath>();
+                    for (CodeSigner signer : signerSets[i]) {
+                        paths.add(signer.getSignerCertPath());
+                    }
+                    common.retainAll(paths);
+                }
+                for (CertPath path : common) {
+                    List<X509Certificate> chain = new ArrayList<X509Certificate>();
+                    for (Certificate cert : path.getCertificates()) {
+                        if (cert instanceof X509Certificate) {
+                            chain.add((X509Certificate) cert);
+                        }
+                    }
+                    if (!chain.isEmpty()) {
+                        result.put(chain.get(0), Collections.unmodifiableList(chain));
+                    }
+                }
+            }
+            signerCertificates = Collections.unmodifiableMap(result);
+        }
+        return signerCertificates;
+    }
+
+    private static boolean hasSignatureFiles(JarFile jarFile) {
+        Enumeration<JarEntry> jarEntries = jarFile.entries();
+        while (jarEntries.hasMoreElements()) {
+            String name = jarEntries.nextElement().getName().toUpperCase();
+            if (name.startsWith("META-INF/") && name.endsWith(".SF"))
+                return true;
+        }
+        return false;
+    }
+
+    // The manifest and signature files in META-INF are not signed themselves
+    private static boolean isSignatureRelated(String name) {
+        return name.startsWith("META-INF/") && name.indexOf('/', "META-INF/".length()) < 0;
+    }
+
+    private static CertPath readCertPath(DataInputStream input, CertificateFactory factory) throws IOException, CertificateException {
+        byte[] encoded = new byte[input.readInt()];
+        input.readFully(encoded);
+        return factory.generateCertPath(new ByteArrayInputStream(encoded), CERTPATH_ENCODING);
+    }
+
+    private static void writeCertPath(DataOutputStream output, CertPath certPath) throws IOException, CertificateException {
+        byte[] encoded = certPath.getEncoded(CERTPATH_ENCODING);
+        output.writeInt(encoded.length);
+        output.write(encoded);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.spi;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * A timeline of the framework startup.
+ *
+ * The trace records wall and CPU time for the framework phases, bundle installs,
+ * resolver runs and calls to BundleActivator.start(). It can be obtained by
+ * adapting the system bundle to this type.
+ *
+ * @since 18-Oct-2026
+ */
+public interface StartupTrace {
+
+    /** The kind of work a record describes */
+    enum Category {
+        PHASE, INSTALL, RESOLVE, ACTIVATOR
+    }
+
+    /** A span of work that is in progress */
+    interface Span {
+
+        /** End the span and add its record to the trace */
+        void end();
+    }
+
+    /** A completed span of work */
+    interface Record {
+
+        Category getCategory();
+
+        String getName();
+
+        /** The name of the thread that began the span */
+        String getThreadName();
+
+        /** The start time in nanoseconds relative to the start of the trace */
+        long getStartTime();
+
+        /** The elapsed time in nanoseconds */
+        long getWallTime();
+
+        /** The CPU time of the executing thread in nanoseconds, or -1 if the span ended on another thread or the VM does not measure thread CPU time */
+        long getCpuTime();
+
+        /** The CPU time of the whole process in nanoseconds, or -1 if not supported by the VM */
+        long getProcessCpuTime();
+    }
+
+    /**
+     * True if spans are currently being recorded.
+     */
+    boolean isEnabled();
+
+    /**
+     * Begin a span of work. If the trace is not enabled, the returned span does nothing.
+     */
+    Span begin(Category category, String name);
+
+    /**
+     * Get all records in the order they were completed.
+     */
+    List<Record> getRecords();
+
+    /**
+     * Get the records of the given category ordered by decreasing wall time.
+     */
+    List<Record> getSlowestRecords(Category category, int limit);
+
+    /**
+     * Write the trace as JSON to the given writer.
+     */
+    void writeReport(Writer writer) throws IOException;
+}
@@ -30,9 +30,22 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Properties;
 import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import org.jboss.osgi.vfs.AbstractVFS;
 import org.jboss.osgi.vfs.VFSUtils;
@@ -47,6 +60,9 @@ import org.jboss.osgi.vfs.VirtualFile;
 public class StorageState {
 
     public static final String PROPERTY_BUNDLE_FILE = "BundleFile";
+    public static final String PROPERTY_BUNDLE_DIRECTORY = "BundleDirectory";
+    public static final String PROPERTY_BUNDLE_HASH = "BundleHash";
+    public static final String PROPERTY_BUNDLE_SIGNERS = "BundleSigners";
     public static final String PROPERTY_BUNDLE_ID = "BundleId";
     public static final String PROPERTY_BUNDLE_LOCATION = "Location";
     public static final String PROPERTY_BUNDLE_REV = "BundleRev";
@@ -57,12 +73,23 @@ public class StorageState {
     public static final String BUNDLE_PERSISTENT_PROPERTIES = "bundle-persistent.properties";
     public static final String BUNDLE_DIRECTORY_PREFIX = "bundle-";
 
+    private static final String HASH_SUFFIX = ".sha256";
+    private static final String SIGNERS_SUFFIX = ".signers";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
     private final File storageDir;
-    private final VirtualFile rootFile;
+    private final URL rootArchive;
+    private final RootArchiveProvider rootProvider;
+    private VirtualFile rootFile;
+    private final File contentDir;
     private final Properties props;
     private final String location;
     private final long bundleId;
     private final int revision;
+    private boolean deferWrites;
+    private boolean dirty;
+    private SignerRecord signerRecord;
+    private boolean signerRecordFailed;
 
     static Set<String> requiredProps = new HashSet<String>();
     static {
@@ -73,27 +100,91 @@ public class StorageState {
         requiredProps.add(PROPERTY_LAST_MODIFIED);
     }
 
+    /**
+     * Mounts the root archives of restored storage states.
+     */
+    public interface RootArchiveProvider {
+
+        /**
+         * Mount the archive at the given location. It stays mounted until {@link #closeArchive(URL)} is called.
+         */
+        VirtualFile mountArchive(URL location) throws IOException;
+
+        void closeArchive(URL location);
+    }
+
     public static StorageState createStorageState(File storageDir) throws IOException {
+        return createStorageState(storageDir, null);
+    }
+
+    /**
+     * Restore the storage state from the given directory.
+     *
+     * An unpacked root is mounted right away. A root archive is mounted through the given provider when
+     * the root file is first used, or through the VFS if there is no provider.
+     */
+    public static StorageState createStorageState(File storageDir, RootArchiveProvider rootProvider) throws IOException {
         VirtualFile rootFile = null;
+        URL rootArchive = null;
+        File contentDir = null;
+        boolean hashChanged = false;
         Properties props = loadProperties(storageDir);
         String vfsLocation = props.getProperty(PROPERTY_BUNDLE_FILE);
         if (vfsLocation != null) {
             File revFile = new File(storageDir + "/" + vfsLocation);
-            rootFile = AbstractVFS.toVirtualFile(revFile.toURI());
+            String dirLocation = props.getProperty(PROPERTY_BUNDLE_DIRECTORY);
+            if (dirLocation != null) {
+                contentDir = new File(storageDir + "/" + dirLocation);
+                String hash = props.getProperty(PROPERTY_BUNDLE_HASH);
+                if (hash == null || !hash.equals(readContentHash(contentDir))) {
+                    // The unpacked content is incomplete or does not match the archive
+                    try {
+                        hash = explode(revFile, contentDir, digest(revFile));
+                        props.setProperty(PROPERTY_BUNDLE_HASH, hash);
+                        hashChanged = true;
+                    } catch (IOException ex) {
+                        LOGGER.debugf(ex, "Cannot unpack %s, using the archive", revFile);
+                        contentDir = null;
+                    }
+                }
+            }
+            if (contentDir != null) {
+                rootFile = AbstractVFS.toVirtualFile(contentDir.toURI());
+            } else {
+                rootArchive = revFile.toURI().toURL();
+            }
+        }
+        StorageState storageState = new StorageState(storageDir, rootFile, rootArchive, rootProvider, contentDir, props);
+        if (hashChanged) {
+            storageState.writeProperties();
         }
-        StorageState storageState = new StorageState(storageDir, rootFile, props);
         LOGGER.debugf("Restored storage state: %s", storageState);
         return storageState;
     }
 
     public static StorageState createStorageState(File storageDir, VirtualFile rootFile, Properties props) throws IOException {
-        StorageState storageState = new StorageState(storageDir, rootFile, props);
+        return createStorageState(storageDir, rootFile, props, false);
+    }
+
+    /**
+     * Create the storage state for a new bundle revision.
+     *
+     * The content is copied to an archive in the storage directory. If exploded is true, the archive is also
+     * unpacked into a directory, from which the content is read when the bundle is restored.
+     */
+    public static StorageState createStorageState(File storageDir, VirtualFile rootFile, Properties props, boolean exploded) throws IOException {
+        StorageState storageState = new StorageState(storageDir, rootFile, null, null, null, props);
         LOGGER.debugf("Created storage state: %s", storageState);
+        props.remove(StorageState.PROPERTY_BUNDLE_DIRECTORY);
+        props.remove(StorageState.PROPERTY_BUNDLE_HASH);
+        props.remove(StorageState.PROPERTY_BUNDLE_SIGNERS);
         if (rootFile != null) {
             String bundleId = props.getProperty(StorageState.PROPERTY_BUNDLE_ID);
             String revision = props.getProperty(StorageState.PROPERTY_BUNDLE_REV);
-            File revFile = new File(storageDir + File.separator + StorageState.BUNDLE_DIRECTORY_PREFIX + bundleId + "-rev-" + revision + ".jar");
-            FileOutputStream output = new FileOutputStream(revFile);
+            String revName = StorageState.BUNDLE_DIRECTORY_PREFIX + bundleId + "-rev-" + revision;
+            File revFile = new File(storageDir + File.separator + revName + ".jar");
+            MessageDigest digest = createDigest();
+            OutputStream output = new DigestOutputStream(new FileOutputStream(revFile), digest);
             storageDir.mkdirs();
             InputStream input = rootFile.openStream();
             try {
@@ -103,6 +194,18 @@ public class StorageState {
                 output.close();
             }
             props.put(StorageState.PROPERTY_BUNDLE_FILE, revFile.getName());
+            if (exploded) {
+                File contentDir = new File(storageDir + File.separator + revName);
+                try {
+                    String hash = explode(revFile, contentDir, toHex(digest.digest()));
+                    props.put(StorageState.PROPERTY_BUNDLE_DIRECTORY, contentDir.getName());
+                    props.put(StorageState.PROPERTY_BUNDLE_HASH, hash);
+                } catch (IOException ex) {
+                    LOGGER.debugf(ex, "Cannot unpack %s, using the archive", revFile);
+                }
+            }
+            // Verify the signatures once when the revision is stored
+            storageState.getSignerRecord();
         }
         storageState.writeProperties();
         return storageState;
@@ -123,6 +226,10 @@ public class StorageState {
     }
 
     public StorageState(File storageDir, VirtualFile rootFile, Properties props) {
+        this(storageDir, rootFile, null, null, null, props);
+    }
+
+    private StorageState(File storageDir, VirtualFile rootFile, URL rootArchive, RootArchiveProvider rootProvider, File contentDir, Properties props) {
         assert storageDir != null : "Null storageFile";
         assert props != null : "Null properties";
         assert storageDir.isDirectory() : "Not a directory: " + storageDir;
@@ -134,6 +241,9 @@ public class StorageState {
 
         this.storageDir = storageDir;
         this.rootFile = rootFile;
+        this.rootArchive = rootArchive;
+        this.rootProvider = rootProvider;
+        this.contentDir = contentDir;
         this.props = props;
 
         this.location = props.getProperty(PROPERTY_BUNDLE_LOCATION);
@@ -153,10 +263,81 @@ public class StorageState {
         return location;
     }
 
-    public VirtualFile getRootFile() {
+    /**
+     * Get the root file, a restored root archive is mounted on first use.
+     */
+    public synchronized VirtualFile getRootFile() {
+        if (rootFile == null && rootArchive != null) {
+            try {
+                rootFile = rootProvider != null ? rootProvider.mountArchive(rootArchive) : AbstractVFS.toVirtualFile(rootArchive);
+            } catch (IOException ex) {
+                throw MESSAGES.illegalStateCannotMountArchive(ex, rootArchive);
+            }
+        }
         return rootFile;
     }
 
+    /**
+     * Close the root file if it is mounted.
+     */
+    public synchronized void closeRootFile() {
+        if (rootArchive != null && rootProvider != null) {
+            rootProvider.closeArchive(rootArchive);
+            rootFile = null;
+        } else {
+            VFSUtils.safeClose(rootFile);
+        }
+    }
+
+    /**
+     * Get the directory that holds the unpacked content of the root file.
+     *
+     * @return The directory or null if the root file is not backed by unpacked content
+     */
+    public File getContentDirectory() {
+        return contentDir;
+    }
+
+    /**
+     * Get the verified signers of the stored revision.
+     *
+     * The record is read from the storage directory. If there is none, the stored archive is verified and
+     * the record is written next to it.
+     *
+     * @return The record or null if there is no stored archive or it cannot be verified
+     */
+    public synchronized SignerRecord getSignerRecord() {
+        String vfsLocation = props.getProperty(PROPERTY_BUNDLE_FILE);
+        if (signerRecord != null || signerRecordFailed || vfsLocation == null)
+            return signerRecord;
+
+        File revFile = new File(storageDir + "/" + vfsLocation);
+        File recordFile = new File(storageDir + "/" + vfsLocation + SIGNERS_SUFFIX);
+        try {
+            if (recordFile.getName().equals(props.getProperty(PROPERTY_BUNDLE_SIGNERS)) && recordFile.isFile()) {
+                try {
+                    signerRecord = SignerRecord.read(recordFile);
+                } catch (IOException | RuntimeException ex) {
+                    // A damaged record is replaced by verifying the archive again
+                    LOGGER.debugf(ex, "Cannot read signer record: %s", recordFile);
+                }
+            }
+            if (signerRecord == null) {
+                signerRecord = SignerRecord.verify(revFile);
+                signerRecord.write(recordFile);
+                props.setProperty(PROPERTY_BUNDLE_SIGNERS, recordFile.getName());
+                writeProperties();
+            }
+        } catch (IOException ex) {
+            LOGGER.debugf(ex, "Cannot obtain signers of: %s", revFile);
+            signerRecordFailed = true;
+        } catch (SecurityException ex) {
+            LOGGER.debugf(ex, "Cannot verify signers of: %s", revFile);
+            signerRecordFailed = true;
+        }
+        return signerRecord;
+    }
+
     public long getBundleId() {
         return bundleId;
     }
@@ -205,7 +386,29 @@ public class StorageState {
         writeProperties();
     }
 
-    private void writeProperties() {
+    /**
+     * Keep changes of the persistent properties in memory until {@link #flushProperties()} is called.
+     */
+    public synchronized void deferWrites() {
+        deferWrites = true;
+    }
+
+    /**
+     * Write the deferred changes of the persistent properties and return to immediate writes.
+     */
+    public synchronized void flushProperties() {
+        deferWrites = false;
+        if (dirty) {
+            dirty = false;
+            writeProperties();
+        }
+    }
+
+    private synchronized void writeProperties() {
+        if (deferWrites) {
+            dirty = true;
+            return;
+        }
         try {
             File propsFile = new File(getStorageDir() + "/" + BUNDLE_PERSISTENT_PROPERTIES);
             FileOutputStream output = new FileOutputStream(propsFile);
@@ -219,6 +422,107 @@ public class StorageState {
         }
     }
 
+    // Unpack the archive next to it and record the content hash once the directory is in place
+    private static String explode(File archiveFile, File contentDir, String hash) throws IOException {
+        Path tmpDir = Files.createTempDirectory(archiveFile.getParentFile().toPath(), contentDir.getName() + ".tmp");
+        try {
+            ZipFile zipFile = new ZipFile(archiveFile);
+            try {
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    Path path = tmpDir.resolve(entry.getName()).normalize();
+                    if (!path.startsWith(tmpDir) || path.equals(tmpDir))
+                        throw MESSAGES.invalidArchiveEntry(entry.getName(), archiveFile);
+                    if (entry.isDirectory()) {
+                        Files.createDirectories(path);
+                    } else {
+                        Files.createDirectories(path.getParent());
+                        InputStream input = zipFile.getInputStream(entry);
+                        try {
+                            Files.copy(input, path, StandardCopyOption.REPLACE_EXISTING);
+                        } finally {
+                            input.close();
+                        }
+                    }
+                }
+            } finally {
+                zipFile.close();
+            }
+            File hashFile = new File(contentDir.getPath() + HASH_SUFFIX);
+            hashFile.delete();
+            deleteRecursive(contentDir);
+            moveAtomically(tmpDir, contentDir.toPath());
+            Path tmpHash = Files.createTempFile(archiveFile.getParentFile().toPath(), hashFile.getName(), ".tmp");
+            Files.write(tmpHash, hash.getBytes(UTF8));
+            moveAtomically(tmpHash, hashFile.toPath());
+        } finally {
+            deleteRecursive(tmpDir.toFile());
+        }
+        return hash;
+    }
+
+    private static String readContentHash(File contentDir) {
+        File hashFile = new File(contentDir.getPath() + HASH_SUFFIX);
+        if (!contentDir.isDirectory() || !hashFile.isFile())
+            return null;
+        try {
+            return new String(Files.readAllBytes(hashFile.toPath()), UTF8);
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    private static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void deleteRecursive(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursive(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static String digest(File file) throws IOException {
+        MessageDigest digest = createDigest();
+        InputStream input = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        } finally {
+            input.close();
+        }
+        return toHex(digest.digest());
+    }
+
+    private static MessageDigest createDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw MESSAGES.cannotComputeContentDigest(ex);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder();
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+            builder.append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+
     @Override
     public String toString() {
         int startlevel = getStartLevel();
@@ -84,6 +84,22 @@ public class SystemServicesPlugin extends AbstractIntegrationService<SystemServi
         public void registerServices(BundleContext context) {
             registrations.add(context.registerService(XEnvironment.class, injectedEnvironment.getValue(), null));
             registrations.add(context.registerService(XResolver.class, injectedResolver.getValue(), null));
+            ClassLoadingMetrics metrics = context.getBundle().adapt(ClassLoadingMetrics.class);
+            if (metrics != null) {
+                registrations.add(context.registerService(ClassLoadingMetrics.class, metrics, null));
+            }
+            EventDeliveryMetrics events = context.getBundle().adapt(EventDeliveryMetrics.class);
+            if (events != null) {
+                registrations.add(context.registerService(EventDeliveryMetrics.class, events, null));
+            }
+            ExecutionMetrics executors = context.getBundle().adapt(ExecutionMetrics.class);
+            if (executors != null) {
+                registrations.add(context.registerService(ExecutionMetrics.class, executors, null));
+            }
+            ArchiveMetrics archives = context.getBundle().adapt(ArchiveMetrics.class);
+            if (archives != null) {
+                registrations.add(context.registerService(ArchiveMetrics.class, archives, null));
+            }
         }
 
         @Override
@@ -26,18 +26,22 @@ import static org.jboss.osgi.framework.FrameworkMessages.MESSAGES;
 
 import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.CodeSigner;
 import java.security.CodeSource;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.jar.Attributes;
 import java.util.jar.Manifest;
 
@@ -59,12 +63,39 @@ import org.jboss.osgi.vfs.VirtualFile;
 public final class VirtualFileResourceLoader implements IterableResourceLoader {
 
     private final VirtualFile virtualFile;
+    private final Path contentDir;
+    private final SignerRecord signerRecord;
+    private final AtomicReferenceArray<CodeSource> codeSources;
     private final Set<String> localPaths;
 
     public VirtualFileResourceLoader(VirtualFile virtualFile) {
+        this(virtualFile, null);
+    }
+
+    /**
+     * Create a loader for a virtual file whose content is unpacked in the given directory.
+     * Class and resource bytes are then read from the directory directly.
+     *
+     * @param contentDir the directory that holds the content of the virtual file, or null
+     */
+    public VirtualFileResourceLoader(VirtualFile virtualFile, File contentDir) {
+        this(virtualFile, contentDir, null);
+    }
+
+    /**
+     * Create a loader that takes the signers of its classes from the given record.
+     * The classes of one signer set then share a single {@link CodeSource}.
+     *
+     * @param contentDir the directory that holds the content of the virtual file, or null
+     * @param signerRecord the verified signers of the virtual file, or null
+     */
+    public VirtualFileResourceLoader(VirtualFile virtualFile, File contentDir, SignerRecord signerRecord) {
         if (virtualFile == null)
             throw MESSAGES.illegalArgumentNull("virtualFile");
         this.virtualFile = virtualFile;
+        this.contentDir = contentDir != null ? contentDir.toPath() : null;
+        this.signerRecord = signerRecord;
+        this.codeSources = signerRecord != null ? new AtomicReferenceArray<CodeSource>(signerRecord.getSignerSetCount() + 1) : null;
         this.localPaths = getLocalPaths();
     }
 
@@ -75,6 +106,21 @@ public final class VirtualFileResourceLoader implements IterableResourceLoader {
 
     @Override
     public ClassSpec getClassSpec(String fileName) throws IOException {
+        if (contentDir != null) {
+            Path path = contentDir.resolve(fileName);
+            if (!Files.isRegularFile(path))
+                return null;
+
+            ClassSpec classSpec = new ClassSpec();
+            classSpec.setBytes(Files.readAllBytes(path));
+            if (signerRecord != null) {
+                classSpec.setCodeSource(getCodeSource(fileName));
+            } else {
+                classSpec.setCodeSource(new CodeSource(new URL("jar", null, -1, path.getFileName().toString()), (CodeSigner[]) null));
+            }
+            return classSpec;
+        }
+
         VirtualFile child = virtualFile.getChild(fileName);
         if (child == null)
             return null;
@@ -89,12 +135,29 @@ public final class VirtualFileResourceLoader implements IterableResourceLoader {
             safeClose(is);
         }
 
-        CodeSigner[] codeSigners = child.getCodeSigners();
-        classSpec.setCodeSource(new CodeSource(new URL("jar", null, -1, child.getName()), codeSigners));
+        if (signerRecord != null) {
+            classSpec.setCodeSource(getCodeSource(fileName));
+        } else {
+            CodeSigner[] codeSigners = child.getCodeSigners();
+            classSpec.setCodeSource(new CodeSource(new URL("jar", null, -1, child.getName()), codeSigners));
+        }
 
         return classSpec;
     }
 
+    // One code source per signer set, the last slot is for unsigned entries
+    private CodeSource getCodeSource(String fileName) throws IOException {
+        int index = signerRecord.getSignerSetIndex(fileName);
+        int slot = index >= 0 ? index : codeSources.length() - 1;
+        CodeSource result = codeSources.get(slot);
+        if (result == null) {
+            CodeSigner[] signers = index >= 0 ? signerRecord.getSignerSet(index) : null;
+            codeSources.compareAndSet(slot, null, new CodeSource(virtualFile.toURL(), signers));
+            result = codeSources.get(slot);
+        }
+        return result;
+    }
+
     @Override
     public PackageSpec getPackageSpec(String name) throws IOException {
         PackageSpec spec = new PackageSpec();
@@ -146,32 +209,53 @@ public final class VirtualFileResourceLoader implements IterableResourceLoader {
 
     @Override
     public Iterator<Resource> iterateResources(String startPath, boolean recurse) {
-        List<Resource> result = new ArrayList<Resource>();
-        List<VirtualFile> entryPaths;
+        final Iterator<VirtualFile> entries;
         try {
-            if (recurse) {
-                entryPaths = virtualFile.getChildrenRecursively();
+            VirtualFile parent = startPath == null || startPath.length() == 0 || startPath.equals("/") ? virtualFile : virtualFile.getChild(startPath);
+            if (parent == null) {
+                entries = Collections.<VirtualFile> emptyList().iterator();
+            } else if (recurse) {
+                entries = parent.getChildrenRecursively().iterator();
             } else {
-                VirtualFile parent = virtualFile.getChild(startPath);
-                if (parent != null) {
-                    entryPaths = parent.getChildren();
-                } else {
-                    entryPaths = Collections.emptyList();
-                }
+                entries = parent.getChildren().iterator();
             }
         } catch (IOException ex) {
             throw new IllegalStateException(ex);
         }
-        for (VirtualFile entry: entryPaths) {
-            try {
-                if (entry.isFile()) {
-                    result.add(new VirtualFileResource(entry));
+
+        // Resources are created as the entries are consumed
+        return new Iterator<Resource>() {
+            private Resource next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && entries.hasNext()) {
+                    VirtualFile entry = entries.next();
+                    try {
+                        if (entry.isFile()) {
+                            next = new VirtualFileResource(entry);
+                        }
+                    } catch (IOException ex) {
+                        throw MESSAGES.illegalArgumentCannotObtainPaths(ex, virtualFile);
+                    }
                 }
-            } catch (IOException ex) {
-                throw MESSAGES.illegalArgumentCannotObtainPaths(ex, virtualFile);
+                return next != null;
             }
-        }
-        return result.iterator();
+
+            @Override
+            public Resource next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                Resource result = next;
+                next = null;
+                return result;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
     }
 
     private Set<String> getLocalPaths() {
@@ -235,11 +319,21 @@ public final class VirtualFileResourceLoader implements IterableResourceLoader {
 
         @Override
         public InputStream openStream() throws IOException {
+            if (contentDir != null) {
+                return Files.newInputStream(contentDir.resolve(getName()));
+            }
             return child.openStream();
         }
 
         @Override
         public long getSize() {
+            if (contentDir != null) {
+                try {
+                    return Files.size(contentDir.resolve(getName()));
+                } catch (IOException ex) {
+                    // unknown size
+                }
+            }
             return 0;
         }
     }
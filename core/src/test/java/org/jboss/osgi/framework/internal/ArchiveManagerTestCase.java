@@ -0,0 +1,139 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import org.jboss.osgi.framework.internal.ArchiveManager.Archive;
+import org.jboss.osgi.vfs.VirtualFile;
+import org.junit.Test;
+
+/**
+ * Test the {@link ArchiveManager}
+ *
+ * @since 18-Oct-2026
+ */
+public class ArchiveManagerTestCase extends AbstractFrameworkTest {
+
+    @Test
+    public void testArchiveInUseIsNotEvicted() throws Exception {
+        ArchiveManager archiveManager = new ArchiveManager(getBundleManager(), 1, 0);
+        Archive archiveA = archiveManager.createArchive(createJar("archive-a").toURI().toURL());
+        Archive archiveB = archiveManager.createArchive(createJar("archive-b").toURI().toURL());
+        try {
+            VirtualFile fileA = archiveA.acquire();
+            archiveB.getVirtualFile();
+            assertEquals(2, archiveManager.getOpenArchives());
+            assertEquals(0, archiveManager.getEvictionCount());
+            assertNotNull(fileA.getChild("entry.txt"));
+
+            // The idle archive is closed on the next access once it is released
+            archiveA.release();
+            archiveB.getVirtualFile();
+            assertEquals(1, archiveManager.getOpenArchives());
+            assertEquals(1, archiveManager.getEvictionCount());
+
+            // The closed archive is mounted again
+            VirtualFile remounted = archiveA.getVirtualFile();
+            assertNotNull(remounted.getChild("entry.txt"));
+            assertEquals(3, archiveManager.getOpenCount());
+        } finally {
+            archiveA.close();
+            archiveB.close();
+        }
+        assertEquals(0, archiveManager.getOpenArchives());
+    }
+
+    @Test
+    public void testRootArchiveIsPinned() throws Exception {
+        ArchiveManager archiveManager = new ArchiveManager(getBundleManager(), 1, 0);
+        URL rootLocation = createJar("root").toURI().toURL();
+        Archive archive = archiveManager.createArchive(createJar("archive").toURI().toURL());
+        try {
+            VirtualFile rootFile = archiveManager.mountArchive(rootLocation);
+            assertSame(rootFile, archiveManager.mountArchive(rootLocation));
+            archive.getVirtualFile();
+            archive.getVirtualFile();
+
+            // The root archive is over the limit but stays mounted
+            assertEquals(2, archiveManager.getOpenArchives());
+            assertEquals(0, archiveManager.getEvictionCount());
+            assertNotNull(rootFile.getChild("entry.txt"));
+
+            archiveManager.closeArchive(rootLocation);
+            assertEquals(1, archiveManager.getOpenArchives());
+        } finally {
+            archive.close();
+            archiveManager.closeArchive(rootLocation);
+        }
+        assertEquals(0, archiveManager.getOpenArchives());
+    }
+
+    @Test
+    public void testClosedArchiveIsNotTracked() throws Exception {
+        ArchiveManager archiveManager = new ArchiveManager(getBundleManager(), 1, 0);
+        Archive archiveA = archiveManager.createArchive(createJar("closed-a").toURI().toURL());
+        Archive archiveB = archiveManager.createArchive(createJar("closed-b").toURI().toURL());
+        try {
+            archiveA.getVirtualFile();
+            archiveA.close();
+            assertFalse(archiveA.isMounted());
+            try {
+                archiveA.getVirtualFile();
+                fail("IOException expected");
+            } catch (IOException ex) {
+                // expected
+            }
+            archiveB.getVirtualFile();
+            assertEquals(1, archiveManager.getOpenArchives());
+            assertEquals(0, archiveManager.getEvictionCount());
+        } finally {
+            archiveB.close();
+        }
+        assertEquals(0, archiveManager.getOpenArchives());
+    }
+
+    private File createJar(String name) throws IOException {
+        File file = File.createTempFile(name, ".jar");
+        file.deleteOnExit();
+        JarOutputStream output = new JarOutputStream(new FileOutputStream(file));
+        try {
+            output.putNextEntry(new ZipEntry("entry.txt"));
+            output.write(name.getBytes());
+            output.closeEntry();
+        } finally {
+            output.close();
+        }
+        return file;
+    }
+}
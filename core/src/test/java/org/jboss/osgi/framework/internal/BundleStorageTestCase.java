@@ -21,6 +21,8 @@ package org.jboss.osgi.framework.internal;
  * #L%
  */
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
@@ -29,7 +31,10 @@ import static org.junit.Assert.assertTrue;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Properties;
 
+import org.jboss.osgi.framework.Constants;
 import org.jboss.osgi.framework.spi.StorageManager;
 import org.jboss.osgi.framework.spi.StorageState;
 import org.jboss.osgi.metadata.OSGiManifestBuilder;
@@ -98,6 +103,86 @@ public class BundleStorageTestCase extends AbstractFrameworkTest {
         assertFalse("Storage dir deleted", storageDir.exists());
     }
 
+    @Test
+    public void testExplodedStorageRestore() throws Exception {
+
+        StorageManager storagePlugin = getFrameworkState().getStorageManager();
+        JavaArchive archive = getArchive(true);
+        StorageState storageState = storagePlugin.createStorageState(3, archive.getName(), 1, toVirtualFile(archive));
+        try {
+            File contentDir = getContentDirectory(storageState);
+            assertTrue("Content unpacked", getClassFile(contentDir).isFile());
+
+            // The unpacked content is the root of the restored revision
+            StorageState restored = StorageState.createStorageState(storageState.getStorageDir());
+            try {
+                assertEquals(contentDir, restored.getContentDirectory());
+                assertNotNull("Manifest found", restored.getRootFile().getChild("META-INF/MANIFEST.MF"));
+            } finally {
+                VFSUtils.safeClose(restored.getRootFile());
+            }
+        } finally {
+            storagePlugin.deleteStorageState(storageState);
+        }
+    }
+
+    @Test
+    public void testExplodedStorageRehash() throws Exception {
+
+        StorageManager storagePlugin = getFrameworkState().getStorageManager();
+        JavaArchive archive = getArchive(true);
+        StorageState storageState = storagePlugin.createStorageState(4, archive.getName(), 1, toVirtualFile(archive));
+        try {
+            File storageDir = storageState.getStorageDir();
+            File contentDir = getContentDirectory(storageState);
+            File classFile = getClassFile(contentDir);
+            File hashFile = new File(contentDir.getPath() + ".sha256");
+            byte[] classBytes = Files.readAllBytes(classFile.toPath());
+            assertTrue("Hash file exists", hashFile.isFile());
+
+            // An unpack that did not complete is done again
+            assertTrue(hashFile.delete());
+            assertTrue(classFile.delete());
+            StorageState restored = StorageState.createStorageState(storageDir);
+            VFSUtils.safeClose(restored.getRootFile());
+            assertEquals(contentDir, restored.getContentDirectory());
+            assertArrayEquals(classBytes, Files.readAllBytes(classFile.toPath()));
+            assertTrue("Hash file exists", hashFile.isFile());
+
+            // A missing hash is computed from the archive and written back
+            Properties props = StorageState.loadProperties(storageDir);
+            String hash = props.getProperty(StorageState.PROPERTY_BUNDLE_HASH);
+            assertNotNull("Hash recorded", hash);
+            props.remove(StorageState.PROPERTY_BUNDLE_HASH);
+            writeProperties(storageDir, props);
+            restored = StorageState.createStorageState(storageDir);
+            VFSUtils.safeClose(restored.getRootFile());
+            assertEquals(contentDir, restored.getContentDirectory());
+            assertEquals(hash, StorageState.loadProperties(storageDir).getProperty(StorageState.PROPERTY_BUNDLE_HASH));
+        } finally {
+            storagePlugin.deleteStorageState(storageState);
+        }
+    }
+
+    private File getContentDirectory(StorageState storageState) {
+        String dirName = storageState.getProperties().getProperty(StorageState.PROPERTY_BUNDLE_DIRECTORY);
+        assertNotNull("Content directory recorded", dirName);
+        return new File(storageState.getStorageDir(), dirName);
+    }
+
+    private File getClassFile(File contentDir) {
+        return new File(contentDir, SimpleService.class.getName().replace('.', '/') + ".class");
+    }
+
+    private void writeProperties(File storageDir, Properties props) throws Exception {
+        FileOutputStream output = new FileOutputStream(new File(storageDir, StorageState.BUNDLE_PERSISTENT_PROPERTIES));
+        try {
+            props.store(output, null);
+        } finally {
+            output.close();
+        }
+    }
+
     private void assertStorageState(StorageState storageState) {
         assertNotNull("BundleStorageState not null", storageState);
 
@@ -111,7 +196,11 @@ public class BundleStorageTestCase extends AbstractFrameworkTest {
     }
 
     private JavaArchive getArchive() {
-        final JavaArchive archive = ShrinkWrap.create(JavaArchive.class, "simple-bundle");
+        return getArchive(false);
+    }
+
+    private JavaArchive getArchive(final boolean exploded) {
+        final JavaArchive archive = ShrinkWrap.create(JavaArchive.class, exploded ? "exploded-bundle" : "simple-bundle");
         archive.addClasses(SimpleService.class, SimpleActivator.class);
         archive.setManifest(new Asset() {
 
@@ -122,6 +211,9 @@ public class BundleStorageTestCase extends AbstractFrameworkTest {
                 builder.addBundleVersion("1.0.0");
                 builder.addBundleActivator(SimpleActivator.class);
                 builder.addImportPackages(BundleActivator.class);
+                if (exploded) {
+                    builder.addManifestHeader(Constants.STORAGE_MODE_HEADER, Constants.STORAGE_MODE_EXPLODED);
+                }
                 return builder.openStream();
             }
         });
@@ -0,0 +1,92 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+
+import org.jboss.modules.filter.PathFilters;
+import org.jboss.osgi.metadata.OSGiManifestBuilder;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.jboss.test.osgi.framework.subA.SimpleActivator;
+import org.jboss.test.osgi.framework.subA.SimpleService;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.Constants;
+
+/**
+ * Test the {@link ClassLoadProfiler}
+ *
+ * @since 18-Oct-2026
+ */
+public class ClassLoadProfilerTestCase extends AbstractFrameworkTest {
+
+    @Test
+    public void testPreloadDoesNotActivate() throws Exception {
+        Bundle bundle = installBundle(getLazyBundleArchive());
+        try {
+            bundle.start(Bundle.START_ACTIVATION_POLICY);
+            assertEquals(Bundle.STARTING, bundle.getState());
+
+            UserBundleState bundleState = UserBundleState.assertBundleState(bundle);
+            HostBundleClassLoader loader = (HostBundleClassLoader) bundleState.getBundleRevision().getModuleClassLoader();
+            ClassLoadProfiler profiler = new ClassLoadProfiler(getBundleManager());
+            List<String> classNames = Collections.singletonList(SimpleService.class.getName());
+
+            // The lazy classes of the bundle are skipped
+            assertEquals(0, profiler.preloadClasses(loader, bundleState, PathFilters.acceptAll(), classNames));
+            assertEquals(Bundle.STARTING, bundle.getState());
+
+            // A class that gets past the profile filter is not defined by the class loader
+            assertEquals(0, profiler.preloadClasses(loader, bundleState, PathFilters.rejectAll(), classNames));
+            assertEquals(Bundle.STARTING, bundle.getState());
+
+            // A regular class load still activates the bundle
+            bundle.loadClass(SimpleService.class.getName());
+            assertEquals(Bundle.ACTIVE, bundle.getState());
+        } finally {
+            bundle.uninstall();
+        }
+    }
+
+    private JavaArchive getLazyBundleArchive() {
+        final JavaArchive archive = ShrinkWrap.create(JavaArchive.class, "preload-lazy");
+        archive.addClasses(SimpleActivator.class, SimpleService.class);
+        archive.setManifest(new Asset() {
+            public InputStream openStream() {
+                OSGiManifestBuilder builder = OSGiManifestBuilder.newInstance();
+                builder.addBundleManifestVersion(2);
+                builder.addBundleSymbolicName(archive.getName());
+                builder.addBundleActivator(SimpleActivator.class);
+                builder.addBundleActivationPolicy(Constants.ACTIVATION_LAZY);
+                builder.addImportPackages("org.osgi.framework");
+                return builder.openStream();
+            }
+        });
+        return archive;
+    }
+}
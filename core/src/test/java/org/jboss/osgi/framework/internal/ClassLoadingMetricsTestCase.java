@@ -0,0 +1,132 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+
+import org.jboss.osgi.framework.spi.ClassLoadingMetrics;
+import org.jboss.osgi.framework.spi.ClassLoadingMetrics.BundleStatistics;
+import org.jboss.osgi.metadata.OSGiManifestBuilder;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.jboss.test.osgi.framework.subA.SimpleActivator;
+import org.jboss.test.osgi.framework.subA.SimpleService;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+
+/**
+ * Test the {@link ClassLoadingMetrics}
+ *
+ * @since 18-Oct-2026
+ */
+public class ClassLoadingMetricsTestCase extends AbstractFrameworkTest {
+
+    @Test
+    public void testClassLoadingCounters() throws Exception {
+        BundleContext context = getSystemContext();
+        ServiceReference<ClassLoadingMetrics> sref = context.getServiceReference(ClassLoadingMetrics.class);
+        assertNotNull("ClassLoadingMetrics service registered", sref);
+        ClassLoadingMetrics metrics = context.getService(sref);
+        try {
+            Bundle providerBundle = installBundle(getProviderArchive());
+            Bundle requirerBundle = installBundle(getRequirerArchive());
+            try {
+                // Loaded from the provider content and defined by its class loader
+                Class<?> providerClass = providerBundle.loadClass(SimpleService.class.getName());
+                BundleStatistics providerStats = metrics.getStatistics(providerBundle);
+                assertNotNull("Provider statistics", providerStats);
+                assertEquals(providerBundle.getBundleId(), providerStats.getBundleId());
+                assertEquals(1, providerStats.getClassesDefined());
+                assertTrue("Local load", providerStats.getLocalLoads() >= 1);
+                assertTrue("Class bytes read", providerStats.getClassBytesRead() > 0);
+                assertEquals(0, providerStats.getDelegatedLoads());
+
+                // Loaded through the import and served by the provider class loader
+                Class<?> requirerClass = requirerBundle.loadClass(SimpleService.class.getName());
+                assertSame(providerClass, requirerClass);
+                BundleStatistics requirerStats = metrics.getStatistics(requirerBundle);
+                assertNotNull("Requirer statistics", requirerStats);
+                assertEquals(0, requirerStats.getClassesDefined());
+                assertEquals(1, requirerStats.getDelegatedLoads());
+
+                // The provider already defined the class
+                providerStats = metrics.getStatistics(providerBundle);
+                assertEquals(1, providerStats.getClassesDefined());
+                assertEquals(0, providerStats.getDelegatedLoads());
+
+                assertTrue("Provider listed", contains(metrics, providerBundle));
+                assertTrue("Requirer listed", contains(metrics, requirerBundle));
+            } finally {
+                requirerBundle.uninstall();
+                providerBundle.uninstall();
+            }
+        } finally {
+            context.ungetService(sref);
+        }
+    }
+
+    private boolean contains(ClassLoadingMetrics metrics, Bundle bundle) {
+        for (BundleStatistics stats : metrics.getStatistics()) {
+            if (stats.getBundleId() == bundle.getBundleId())
+                return true;
+        }
+        return false;
+    }
+
+    private JavaArchive getProviderArchive() {
+        final JavaArchive archive = ShrinkWrap.create(JavaArchive.class, "metrics-provider");
+        archive.addClasses(SimpleService.class, SimpleActivator.class);
+        archive.setManifest(new Asset() {
+            public InputStream openStream() {
+                OSGiManifestBuilder builder = OSGiManifestBuilder.newInstance();
+                builder.addBundleManifestVersion(2);
+                builder.addBundleSymbolicName(archive.getName());
+                builder.addExportPackages(SimpleService.class);
+                builder.addImportPackages("org.osgi.framework");
+                return builder.openStream();
+            }
+        });
+        return archive;
+    }
+
+    private JavaArchive getRequirerArchive() {
+        final JavaArchive archive = ShrinkWrap.create(JavaArchive.class, "metrics-requirer");
+        archive.setManifest(new Asset() {
+            public InputStream openStream() {
+                OSGiManifestBuilder builder = OSGiManifestBuilder.newInstance();
+                builder.addBundleManifestVersion(2);
+                builder.addBundleSymbolicName(archive.getName());
+                builder.addImportPackages(SimpleService.class);
+                return builder.openStream();
+            }
+        });
+        return archive;
+    }
+}
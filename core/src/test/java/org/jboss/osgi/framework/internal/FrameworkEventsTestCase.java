@@ -0,0 +1,339 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.osgi.framework.Constants;
+import org.jboss.osgi.framework.internal.FrameworkEventsImpl.EventBatch;
+import org.jboss.osgi.framework.internal.FrameworkEventsImpl.EventMailbox;
+import org.jboss.osgi.framework.spi.EventDeliveryMetrics.Histogram;
+import org.jboss.osgi.metadata.OSGiManifestBuilder;
+import org.jboss.osgi.resolver.XBundle;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.BundleListener;
+import org.osgi.framework.FrameworkEvent;
+import org.osgi.framework.FrameworkListener;
+import org.osgi.framework.SynchronousBundleListener;
+import org.osgi.framework.startlevel.BundleStartLevel;
+import org.osgi.framework.startlevel.FrameworkStartLevel;
+
+/**
+ * Test asynchronous event delivery
+ *
+ * @since 18-Oct-2026
+ */
+public class FrameworkEventsTestCase extends AbstractFrameworkTest {
+
+    @Test
+    public void testMailboxCountsEvents() throws Exception {
+        EventMailbox mailbox = new EventMailbox();
+        assertEquals(3, mailbox.offer(4, 3));
+        assertEquals(1, mailbox.offer(4, 3));
+        assertEquals(0, mailbox.offer(4, 1));
+        assertTrue("First overflow reported", mailbox.overflow());
+
+        mailbox.done(3);
+        assertEquals(3, mailbox.offer(4, 5));
+        mailbox.done(4);
+
+        // The overflow is reported again after the backlog was drained
+        assertTrue("Overflow reported again", mailbox.overflow());
+
+        // Zero means unbounded
+        assertEquals(1000, new EventMailbox().offer(0, 1000));
+    }
+
+    @Test
+    public void testBundleEventsBeforeStartLevelChanged() throws Exception {
+        FrameworkStartLevel frameworkStartLevel = getSystemContext().getBundle().adapt(FrameworkStartLevel.class);
+        int initialLevel = frameworkStartLevel.getStartLevel();
+
+        List<Bundle> bundles = new ArrayList<Bundle>();
+        for (int i = 0; i < 3; i++) {
+            Bundle bundle = installBundle(getBundleArchive("ordered-events-" + i));
+            bundle.adapt(BundleStartLevel.class).setStartLevel(initialLevel + 1);
+            bundle.start();
+            bundles.add(bundle);
+        }
+
+        // A slow listener for bundle and framework events
+        final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch levelChanged = new CountDownLatch(1);
+        OrderedListener listener = new OrderedListener(received, levelChanged);
+        getSystemContext().addBundleListener(listener);
+        getSystemContext().addFrameworkListener(listener);
+        try {
+            frameworkStartLevel.setStartLevel(initialLevel + 1);
+            assertTrue("STARTLEVEL_CHANGED received", levelChanged.await(10, TimeUnit.SECONDS));
+
+            List<String> expected = new ArrayList<String>();
+            for (Bundle bundle : bundles) {
+                expected.add("STARTED:" + bundle.getSymbolicName());
+            }
+            expected.add("STARTLEVEL_CHANGED");
+            List<String> actual = new ArrayList<String>(received);
+            actual.retainAll(expected);
+            assertEquals(expected, actual);
+        } finally {
+            getSystemContext().removeBundleListener(listener);
+            getSystemContext().removeFrameworkListener(listener);
+            final CountDownLatch levelRestored = new CountDownLatch(1);
+            frameworkStartLevel.setStartLevel(initialLevel, new FrameworkListener() {
+                public void frameworkEvent(FrameworkEvent event) {
+                    levelRestored.countDown();
+                }
+            });
+            levelRestored.await(10, TimeUnit.SECONDS);
+            for (Bundle bundle : bundles) {
+                bundle.uninstall();
+            }
+        }
+    }
+
+    @Test
+    public void testNestedBatch() throws Exception {
+        FrameworkEventsImpl events = (FrameworkEventsImpl) getFrameworkState().getFrameworkEvents();
+        XBundle bundle = (XBundle) installBundle(getBundleArchive("batch-nested"));
+        RecordingListener listener = new RecordingListener(bundle, 3);
+        getSystemContext().addBundleListener(listener);
+        try {
+            EventBatch outer = FrameworkEventsImpl.beginEventBatch(events);
+            EventBatch inner = FrameworkEventsImpl.beginEventBatch(events);
+            assertSame(outer, inner);
+            for (int i = 0; i < 3; i++) {
+                events.fireBundleEvent(bundle, BundleEvent.STARTED);
+            }
+
+            // The events are held until the outermost batch ends
+            inner.end();
+            Thread.sleep(200);
+            assertEquals(0, listener.received.size());
+            outer.end();
+            assertTrue("Events delivered", listener.latch.await(10, TimeUnit.SECONDS));
+            assertEquals(3, listener.received.size());
+        } finally {
+            getSystemContext().removeBundleListener(listener);
+            bundle.uninstall();
+        }
+    }
+
+    @Test
+    public void testLargeBatchIsFlushed() throws Exception {
+        FrameworkEventsImpl events = (FrameworkEventsImpl) getFrameworkState().getFrameworkEvents();
+        XBundle bundle = (XBundle) installBundle(getBundleArchive("batch-large"));
+        RecordingListener listener = new RecordingListener(bundle, 256);
+        getSystemContext().addBundleListener(listener);
+        EventBatch batch = FrameworkEventsImpl.beginEventBatch(events);
+        try {
+            for (int i = 0; i < 255; i++) {
+                events.fireBundleEvent(bundle, BundleEvent.STARTED);
+            }
+            Thread.sleep(200);
+            assertEquals(0, listener.received.size());
+
+            // The 256th event delivers the batch while it is still open
+            events.fireBundleEvent(bundle, BundleEvent.STARTED);
+            assertTrue("Events delivered", listener.latch.await(10, TimeUnit.SECONDS));
+        } finally {
+            batch.end();
+            getSystemContext().removeBundleListener(listener);
+            bundle.uninstall();
+        }
+    }
+
+    @Test
+    public void testFrameworkEventFlushesBatch() throws Exception {
+        FrameworkEventsImpl events = (FrameworkEventsImpl) getFrameworkState().getFrameworkEvents();
+        XBundle bundle = (XBundle) installBundle(getBundleArchive("batch-framework-event"));
+        RecordingListener listener = new RecordingListener(bundle, 3);
+        getSystemContext().addBundleListener(listener);
+        getSystemContext().addFrameworkListener(listener);
+        EventBatch batch = FrameworkEventsImpl.beginEventBatch(events);
+        try {
+            events.fireBundleEvent(bundle, BundleEvent.STARTED);
+            events.fireBundleEvent(bundle, BundleEvent.STARTED);
+            events.fireFrameworkEvent(bundle, FrameworkEvent.INFO, null);
+
+            // The framework event does not overtake the bundle events of the open batch
+            assertTrue("Events delivered", listener.latch.await(10, TimeUnit.SECONDS));
+            assertEquals(Arrays.asList("STARTED", "STARTED", "INFO"), new ArrayList<String>(listener.received));
+        } finally {
+            batch.end();
+            getSystemContext().removeBundleListener(listener);
+            getSystemContext().removeFrameworkListener(listener);
+            bundle.uninstall();
+        }
+    }
+
+    @Test
+    public void testSlowListenerIsReported() throws Exception {
+        XBundle bundle = (XBundle) installBundle(getBundleArchive("slow-listener"));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        System.setProperty(Constants.PROPERTY_EVENTS_SLOW_LISTENER_THRESHOLD, "20");
+        try {
+            // The threshold is read when the events plugin is created
+            FrameworkEventsImpl events = new FrameworkEventsImpl(getBundleManager(), executor, getFrameworkState().getLockManager());
+            EventDeliveryStatistics statistics = events.getDeliveryStatistics();
+
+            final BlockingQueue<FrameworkEvent> warnings = new LinkedBlockingQueue<FrameworkEvent>();
+            SlowListener listener = new SlowListener();
+            events.addBundleListener(bundle, listener);
+            events.addFrameworkListener(bundle, new FrameworkListener() {
+                public void frameworkEvent(FrameworkEvent event) {
+                    if (event.getType() == FrameworkEvent.WARNING) {
+                        warnings.add(event);
+                    }
+                }
+            });
+
+            events.fireBundleEvent(bundle, BundleEvent.STARTED);
+
+            assertEquals(1, statistics.getSlowListenerCount());
+            Histogram histogram = getHistogram(statistics, "BundleEvent.STARTED");
+            assertEquals(1, histogram.getCount());
+            assertTrue("Max time recorded", histogram.getMaxTime() >= TimeUnit.MILLISECONDS.toNanos(20));
+
+            FrameworkEvent warning = warnings.poll(10, TimeUnit.SECONDS);
+            assertNotNull("Slow listener warning", warning);
+            assertSame(bundle, warning.getBundle());
+            String message = warning.getThrowable().getMessage();
+            assertTrue(message, message.contains("JBOSGI011288"));
+            assertTrue(message, message.contains(SlowListener.class.getName()));
+
+            // The slow listener is reported once, a listener of the warning itself is never reported
+            assertNull("No further warning", warnings.poll(100, TimeUnit.MILLISECONDS));
+            assertEquals(1, statistics.getSlowListenerCount());
+            events.removeBundleListeners(bundle);
+            events.removeFrameworkListeners(bundle);
+        } finally {
+            System.clearProperty(Constants.PROPERTY_EVENTS_SLOW_LISTENER_THRESHOLD);
+            executor.shutdownNow();
+            bundle.uninstall();
+        }
+    }
+
+    private Histogram getHistogram(EventDeliveryStatistics statistics, String name) {
+        for (Histogram histogram : statistics.getHistograms()) {
+            if (histogram.getName().equals(name))
+                return histogram;
+        }
+        throw new AssertionError("No histogram for " + name + " in " + statistics.getHistograms());
+    }
+
+    static class SlowListener implements SynchronousBundleListener {
+        public void bundleChanged(BundleEvent event) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    static class RecordingListener implements BundleListener, FrameworkListener {
+        private final Bundle bundle;
+        private final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+        private final CountDownLatch latch;
+
+        RecordingListener(Bundle bundle, int count) {
+            this.bundle = bundle;
+            this.latch = new CountDownLatch(count);
+        }
+
+        public void bundleChanged(BundleEvent event) {
+            if (event.getBundle() == bundle && event.getType() == BundleEvent.STARTED) {
+                received.add("STARTED");
+                latch.countDown();
+            }
+        }
+
+        public void frameworkEvent(FrameworkEvent event) {
+            if (event.getBundle() == bundle && event.getType() == FrameworkEvent.INFO) {
+                received.add("INFO");
+                latch.countDown();
+            }
+        }
+    }
+
+    static class OrderedListener implements BundleListener, FrameworkListener {
+        private final List<String> received;
+        private final CountDownLatch levelChanged;
+
+        OrderedListener(List<String> received, CountDownLatch levelChanged) {
+            this.received = received;
+            this.levelChanged = levelChanged;
+        }
+
+        public void bundleChanged(BundleEvent event) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            if (event.getType() == BundleEvent.STARTED) {
+                received.add("STARTED:" + event.getBundle().getSymbolicName());
+            }
+        }
+
+        public void frameworkEvent(FrameworkEvent event) {
+            if (event.getType() == FrameworkEvent.STARTLEVEL_CHANGED) {
+                received.add("STARTLEVEL_CHANGED");
+                levelChanged.countDown();
+            }
+        }
+    }
+
+    private JavaArchive getBundleArchive(String name) {
+        final JavaArchive archive = ShrinkWrap.create(JavaArchive.class, name);
+        archive.setManifest(new Asset() {
+            public InputStream openStream() {
+                OSGiManifestBuilder builder = OSGiManifestBuilder.newInstance();
+                builder.addBundleManifestVersion(2);
+                builder.addBundleSymbolicName(archive.getName());
+                return builder.openStream();
+            }
+        });
+        return archive;
+    }
+}
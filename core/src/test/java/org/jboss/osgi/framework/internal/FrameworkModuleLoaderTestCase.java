@@ -0,0 +1,206 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.modules.Module;
+import org.jboss.modules.ModuleClassLoader;
+import org.jboss.modules.ModuleClassLoaderFactory;
+import org.jboss.modules.ModuleIdentifier;
+import org.jboss.modules.ModuleSpec;
+import org.jboss.msc.service.ServiceRegistry;
+import org.jboss.osgi.resolver.XBundleRevision;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test concurrent preload and removal in the {@link FrameworkModuleLoaderImpl}
+ *
+ * @since 18-Oct-2026
+ */
+public class FrameworkModuleLoaderTestCase {
+
+    private static final int THREADS = 8;
+
+    private FrameworkModuleLoaderImpl moduleLoader;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        moduleLoader = new FrameworkModuleLoaderImpl(mock(ServiceRegistry.class));
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentPreloadDefinesModuleOnce() throws Exception {
+        final ModuleIdentifier identifier = ModuleIdentifier.create("preload.once");
+        CountingFactory factory = new CountingFactory(null, null);
+        moduleLoader.addModuleSpec(null, createModuleSpec(identifier, factory));
+
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        List<Future<Module>> futures = new ArrayList<Future<Module>>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(new Callable<Module>() {
+                public Module call() throws Exception {
+                    startLatch.await();
+                    return moduleLoader.preloadModule(identifier);
+                }
+            }));
+        }
+        startLatch.countDown();
+
+        Module module = futures.get(0).get(10, TimeUnit.SECONDS);
+        assertNotNull("Module loaded", module);
+        for (Future<Module> future : futures) {
+            assertSame(module, future.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, factory.count.get());
+    }
+
+    @Test
+    public void testPreloadOfDifferentModulesInParallel() throws Exception {
+        final ModuleIdentifier identifierA = ModuleIdentifier.create("preload.a");
+        final ModuleIdentifier identifierB = ModuleIdentifier.create("preload.b");
+        CountDownLatch enteredA = new CountDownLatch(1);
+        CountDownLatch releaseA = new CountDownLatch(1);
+        moduleLoader.addModuleSpec(null, createModuleSpec(identifierA, new CountingFactory(enteredA, releaseA)));
+        moduleLoader.addModuleSpec(null, createModuleSpec(identifierB, new CountingFactory(null, null)));
+        try {
+            Future<Module> futureA = executor.submit(new Callable<Module>() {
+                public Module call() throws Exception {
+                    return moduleLoader.preloadModule(identifierA);
+                }
+            });
+            assertTrue("Module A is being defined", enteredA.await(10, TimeUnit.SECONDS));
+
+            // Module B loads while module A is still being defined
+            Future<Module> futureB = executor.submit(new Callable<Module>() {
+                public Module call() throws Exception {
+                    return moduleLoader.preloadModule(identifierB);
+                }
+            });
+            assertNotNull("Module B loaded", futureB.get(10, TimeUnit.SECONDS));
+            assertFalse("Module A still loading", futureA.isDone());
+
+            releaseA.countDown();
+            assertNotNull("Module A loaded", futureA.get(10, TimeUnit.SECONDS));
+        } finally {
+            releaseA.countDown();
+        }
+    }
+
+    @Test
+    public void testRemovedModuleIsNotLoadedAgain() throws Exception {
+        final ModuleIdentifier identifier = ModuleIdentifier.create("preload.removed");
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountingFactory factory = new CountingFactory(entered, release);
+        moduleLoader.addModuleSpec(null, createModuleSpec(identifier, factory));
+        final XBundleRevision brev = mock(XBundleRevision.class);
+        when(brev.getModuleIdentifier()).thenReturn(identifier);
+        try {
+            Future<Module> preload = executor.submit(new Callable<Module>() {
+                public Module call() throws Exception {
+                    return moduleLoader.preloadModule(identifier);
+                }
+            });
+            assertTrue("Module is being defined", entered.await(10, TimeUnit.SECONDS));
+
+            // The removal waits for the preload in progress
+            Future<Void> remove = executor.submit(new Callable<Void>() {
+                public Void call() throws Exception {
+                    moduleLoader.removeModule(brev);
+                    return null;
+                }
+            });
+            Thread.sleep(200);
+            assertFalse("Removal waits for the preload", remove.isDone());
+
+            release.countDown();
+            preload.get(10, TimeUnit.SECONDS);
+            remove.get(10, TimeUnit.SECONDS);
+
+            // The removed module is neither found nor defined again
+            assertNull(moduleLoader.findModule(identifier));
+            assertNull(moduleLoader.preloadModule(identifier));
+            assertEquals(1, factory.count.get());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private ModuleSpec createModuleSpec(ModuleIdentifier identifier, ModuleClassLoaderFactory factory) {
+        ModuleSpec.Builder builder = ModuleSpec.build(identifier);
+        builder.setModuleClassLoaderFactory(factory);
+        return builder.create();
+    }
+
+    // Counts the modules that are defined for a spec, optionally blocking until released
+    static class CountingFactory implements ModuleClassLoaderFactory {
+        private final AtomicInteger count = new AtomicInteger();
+        private final CountDownLatch entered;
+        private final CountDownLatch release;
+
+        CountingFactory(CountDownLatch entered, CountDownLatch release) {
+            this.entered = entered;
+            this.release = release;
+        }
+
+        public ModuleClassLoader create(ModuleClassLoader.Configuration configuration) {
+            count.incrementAndGet();
+            if (entered != null) {
+                entered.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return new ModuleClassLoader(configuration) {
+            };
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.internal;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the {@link JDKPaths}
+ *
+ * @since 18-Oct-2026
+ */
+public class JDKPathsTestCase {
+
+    private File workDir;
+    private File storageArea;
+    private File archive;
+    private File directory;
+
+    @Before
+    public void setUp() throws Exception {
+        workDir = Files.createTempDirectory("jdk-paths").toFile();
+        storageArea = new File(workDir, "storage");
+        archive = new File(workDir, "lib.jar");
+        directory = new File(workDir, "classes");
+        writeArchive(archive, "org/acme/jar/A.class");
+        writeFile(new File(directory, "org/acme/dir/D.class"));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        deleteRecursive(workDir);
+    }
+
+    @Test
+    public void testCachedPathsAreUsed() throws Exception {
+        String classPath = getClassPath();
+        Set<String> paths = JDKPaths.loadJDKPaths(storageArea, null, classPath);
+        assertTrue("Archive path in " + paths, paths.contains("org/acme/jar"));
+        assertTrue("Directory path in " + paths, paths.contains("org/acme/dir"));
+
+        File cacheFile = new File(storageArea, JDKPaths.CACHE_FILE);
+        assertTrue("Cache written", cacheFile.isFile());
+        String cache = new String(Files.readAllBytes(cacheFile.toPath()), "UTF-8");
+        assertFalse("Directory paths not cached", cache.contains("org/acme/dir"));
+
+        // A warm start with the same key reads the cache instead of the archive
+        Writer writer = new FileWriter(cacheFile, true);
+        try {
+            writer.write("org/acme/cached\n");
+        } finally {
+            writer.close();
+        }
+        paths = JDKPaths.loadJDKPaths(storageArea, null, classPath);
+        assertTrue("Cached path in " + paths, paths.contains("org/acme/cached"));
+        assertTrue("Directory path in " + paths, paths.contains("org/acme/dir"));
+    }
+
+    @Test
+    public void testChangedArchiveForcesRescan() throws Exception {
+        String classPath = getClassPath();
+        Set<String> paths = JDKPaths.loadJDKPaths(storageArea, null, classPath);
+        assertTrue("Archive path in " + paths, paths.contains("org/acme/jar"));
+
+        long lastModified = archive.lastModified();
+        writeArchive(archive, "org/acme/changed/jar/B.class");
+        archive.setLastModified(lastModified + 2000);
+
+        paths = JDKPaths.loadJDKPaths(storageArea, null, classPath);
+        assertTrue("New archive path in " + paths, paths.contains("org/acme/changed/jar"));
+        assertFalse("Old archive path in " + paths, paths.contains("org/acme/jar"));
+    }
+
+    @Test
+    public void testChangedDirectoryIsScanned() throws Exception {
+        String classPath = getClassPath();
+        Set<String> paths = JDKPaths.loadJDKPaths(storageArea, null, classPath);
+        assertFalse("New path in " + paths, paths.contains("org/acme/dir/nested"));
+
+        // A nested file does not change the last modified time of the class path directory
+        long lastModified = directory.lastModified();
+        writeFile(new File(directory, "org/acme/dir/nested/N.class"));
+        directory.setLastModified(lastModified);
+
+        paths = JDKPaths.loadJDKPaths(storageArea, null, classPath);
+        assertTrue("New path in " + paths, paths.contains("org/acme/dir/nested"));
+    }
+
+    private String getClassPath() {
+        return archive.getPath() + File.pathSeparator + directory.getPath();
+    }
+
+    private static void writeArchive(File file, String entryName) throws IOException {
+        ZipOutputStream output = new ZipOutputStream(new FileOutputStream(file));
+        try {
+            output.putNextEntry(new ZipEntry(entryName));
+            output.write(new byte[] { 1, 2, 3 });
+            output.closeEntry();
+        } finally {
+            output.close();
+        }
+    }
+
+    private static void writeFile(File file) throws IOException {
+        file.getParentFile().mkdirs();
+        OutputStream output = new FileOutputStream(file);
+        try {
+            output.write(new byte[] { 1, 2, 3 });
+        } finally {
+            output.close();
+        }
+    }
+
+    private static void deleteRecursive(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursive(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jboss.osgi.framework.spi.ManagedExecutorService;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Test the {@link ManagedExecutorService}
+ *
+ * @since 18-Oct-2026
+ */
+public class ManagedExecutorServiceTestCase {
+
+    private ManagedExecutorService executor;
+
+    @After
+    public void tearDown() throws Exception {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testPerKeyOrdering() throws Exception {
+        executor = new ManagedExecutorService("ordering", 4, 0, 0, new QuietThreadFactory());
+        int count = 500;
+        final String[] keys = new String[] { "a", "b", "c" };
+        final List<List<Integer>> results = new ArrayList<List<Integer>>();
+        for (int i = 0; i < keys.length; i++) {
+            results.add(Collections.synchronizedList(new ArrayList<Integer>()));
+        }
+        final CountDownLatch latch = new CountDownLatch(count * keys.length);
+        for (int i = 0; i < count; i++) {
+            for (int k = 0; k < keys.length; k++) {
+                final List<Integer> result = results.get(k);
+                final int value = i;
+                executor.execute(keys[k], new Runnable() {
+                    public void run() {
+                        result.add(value);
+                        latch.countDown();
+                    }
+                });
+            }
+        }
+        assertTrue("All tasks done", latch.await(10, TimeUnit.SECONDS));
+        for (List<Integer> result : results) {
+            assertEquals(count, result.size());
+            for (int i = 0; i < count; i++) {
+                assertEquals(Integer.valueOf(i), result.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testDefaultKeyIsSerial() throws Exception {
+        executor = new ManagedExecutorService("serial", 4, 0, 0, new QuietThreadFactory());
+        final List<Integer> result = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch latch = new CountDownLatch(100);
+        for (int i = 0; i < 100; i++) {
+            final int value = i;
+            executor.execute(new Runnable() {
+                public void run() {
+                    result.add(value);
+                    latch.countDown();
+                }
+            });
+        }
+        assertTrue("All tasks done", latch.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Integer.valueOf(i), result.get(i));
+        }
+    }
+
+    @Test
+    public void testBacklogBoundAndRejection() throws Exception {
+        executor = new ManagedExecutorService("bounded", 1, 2, 50, new QuietThreadFactory());
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            public void run() {
+                started.countDown();
+                awaitQuietly(release);
+            }
+        });
+        assertTrue("Blocking task started", started.await(5, TimeUnit.SECONDS));
+        executor.execute(new Runnable() {
+            public void run() {
+            }
+        });
+        assertEquals(1, executor.getQueueDepth());
+
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                }
+            });
+            fail("RejectedExecutionException expected");
+        } catch (RejectedExecutionException ex) {
+            // expected
+        }
+        assertEquals(1, executor.getRejectedTasks());
+        assertEquals(1, executor.getQueueDepth());
+
+        // Slots become available again once the tasks are done
+        release.countDown();
+        final CountDownLatch done = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            public void run() {
+                done.countDown();
+            }
+        });
+        assertTrue("Task accepted after drain", done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, executor.getRejectedTasks());
+    }
+
+    @Test
+    public void testOwnThreadRejectedWhenFull() throws Exception {
+        executor = new ManagedExecutorService("own-thread", 2, 1, 5000, new QuietThreadFactory());
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        executor.execute("outer", new Runnable() {
+            public void run() {
+                // The only slot is taken by this task, the nested submit must not wait for it
+                long start = System.currentTimeMillis();
+                try {
+                    executor.execute("inner", new Runnable() {
+                        public void run() {
+                        }
+                    });
+                } catch (Throwable th) {
+                    failure.set(th);
+                }
+                if (System.currentTimeMillis() - start > 1000) {
+                    failure.set(new AssertionError("Nested submit waited for a slot"));
+                }
+                done.countDown();
+                awaitQuietly(release);
+            }
+        });
+        assertTrue("Outer task done", done.await(5, TimeUnit.SECONDS));
+        assertTrue("Rejected: " + failure.get(), failure.get() instanceof RejectedExecutionException);
+        assertEquals(1, executor.getRejectedTasks());
+        release.countDown();
+    }
+
+    @Test
+    public void testShutdownNowReturnsPendingTasks() throws Exception {
+        executor = new ManagedExecutorService("shutdown", 1, 0, 0, new QuietThreadFactory());
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            public void run() {
+                started.countDown();
+                awaitQuietly(release);
+            }
+        });
+        assertTrue("Blocking task started", started.await(5, TimeUnit.SECONDS));
+
+        final AtomicInteger runs = new AtomicInteger();
+        List<Runnable> pending = new ArrayList<Runnable>();
+        for (int i = 0; i < 3; i++) {
+            Runnable task = new Runnable() {
+                public void run() {
+                    runs.incrementAndGet();
+                }
+            };
+            pending.add(task);
+            executor.execute(i == 0 ? "a" : "b", task);
+        }
+
+        List<Runnable> result = executor.shutdownNow();
+        assertEquals(new HashSet<Runnable>(pending), new HashSet<Runnable>(result));
+        assertEquals(3, result.size());
+        assertEquals(0, executor.getQueueDepth());
+
+        release.countDown();
+        assertTrue("Terminated", executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    public void testRecoveryAfterRuntimeException() throws Exception {
+        executor = new ManagedExecutorService("runtime", 2, 0, 0, new QuietThreadFactory());
+        assertRecovery(new IllegalStateException("expected"));
+    }
+
+    @Test
+    public void testRecoveryAfterError() throws Exception {
+        executor = new ManagedExecutorService("error", 2, 0, 0, new QuietThreadFactory());
+        assertRecovery(new AssertionError("expected"));
+    }
+
+    private void assertRecovery(final Throwable failure) throws Exception {
+        final CountDownLatch done = new CountDownLatch(2);
+        executor.execute(new Runnable() {
+            public void run() {
+                if (failure instanceof Error)
+                    throw (Error) failure;
+                throw (RuntimeException) failure;
+            }
+        });
+        executor.execute(new Runnable() {
+            public void run() {
+                done.countDown();
+            }
+        });
+        assertTrue("Queued task runs after failure", awaitCount(done, 1));
+
+        // The key is not stuck for later submissions either
+        executor.execute(new Runnable() {
+            public void run() {
+                done.countDown();
+            }
+        });
+        assertTrue("New task runs after failure", done.await(5, TimeUnit.SECONDS));
+        assertEquals(0, executor.getQueueDepth());
+    }
+
+    private static boolean awaitCount(CountDownLatch latch, long count) throws InterruptedException {
+        long end = System.currentTimeMillis() + 5000;
+        while (latch.getCount() > count && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        return latch.getCount() <= count;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Swallow the expected task failures instead of printing them
+    private static class QuietThreadFactory implements ThreadFactory {
+        public Thread newThread(Runnable run) {
+            Thread thread = new Thread(run);
+            thread.setDaemon(true);
+            thread.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+                public void uncaughtException(Thread t, Throwable e) {
+                }
+            });
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+import org.jboss.osgi.framework.spi.NativeLibraryProvider;
+import org.jboss.osgi.metadata.OSGiManifestBuilder;
+import org.jboss.osgi.resolver.XBundle;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.asset.ByteArrayAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+
+/**
+ * Test the {@link NativeLibraryCache}
+ *
+ * @since 18-Oct-2026
+ */
+public class NativeLibraryCacheTestCase extends AbstractFrameworkTest {
+
+    private static final String LIBPATH = "lib/libshared.so";
+    private static final byte[] LIBRARY = "not really a native library".getBytes();
+
+    @Test
+    public void testBundlesSharingALibrary() throws Exception {
+        Bundle bundleA = installBundle(getBundleArchive("native-shared-a"));
+        Bundle bundleB = installBundle(getBundleArchive("native-shared-b"));
+        try {
+            bundleA.start();
+            bundleB.start();
+
+            File fileA = getLibraryLocation(bundleA);
+            File fileB = getLibraryLocation(bundleB);
+            assertTrue("Library extracted", fileA.isFile());
+            assertTrue("Library extracted", fileB.isFile());
+            assertFalse("Each bundle loads its own copy", fileA.getCanonicalFile().equals(fileB.getCanonicalFile()));
+            assertArrayEquals(LIBRARY, Files.readAllBytes(fileA.toPath()));
+            assertArrayEquals(LIBRARY, Files.readAllBytes(fileB.toPath()));
+
+            // The cached copy is reused
+            assertEquals(fileA, getLibraryLocation(bundleA));
+        } finally {
+            bundleA.uninstall();
+            bundleB.uninstall();
+        }
+    }
+
+    @Test
+    public void testModifiedCopyIsReplaced() throws Exception {
+        Bundle bundle = installBundle(getBundleArchive("native-modified"));
+        try {
+            bundle.start();
+
+            File file = getLibraryLocation(bundle);
+            Files.write(file.toPath(), "tampered".getBytes());
+
+            File other = getLibraryLocation(bundle);
+            assertEquals(file, other);
+            assertArrayEquals(LIBRARY, Files.readAllBytes(other.toPath()));
+        } finally {
+            bundle.uninstall();
+        }
+    }
+
+    private File getLibraryLocation(Bundle bundle) throws Exception {
+        HostBundleRevision hostrev = (HostBundleRevision) ((XBundle) bundle).getBundleRevision();
+        NativeLibraryProvider provider = new NativeCodeImpl.NativeLibraryProviderImpl(hostrev, "shared", LIBPATH);
+        return provider.getLibraryLocation();
+    }
+
+    private JavaArchive getBundleArchive(String name) {
+        final JavaArchive archive = ShrinkWrap.create(JavaArchive.class, name);
+        archive.add(new ByteArrayAsset(LIBRARY), LIBPATH);
+        archive.setManifest(new Asset() {
+            public InputStream openStream() {
+                OSGiManifestBuilder builder = OSGiManifestBuilder.newInstance();
+                builder.addBundleManifestVersion(2);
+                builder.addBundleSymbolicName(archive.getName());
+                return builder.openStream();
+            }
+        });
+        return archive;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.internal;
+
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.jboss.osgi.framework.spi.FrameworkEvents;
+import org.jboss.osgi.resolver.XBundle;
+import org.jboss.osgi.resolver.XBundleRevision;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.osgi.framework.Bundle;
+
+/**
+ * Test the {@link ParallelBundleStopper}
+ *
+ * @since 18-Oct-2026
+ */
+public class ParallelBundleStopperTestCase extends AbstractFrameworkTest {
+
+    private static final long BUNDLE_TIMEOUT = 500;
+
+    @Test
+    public void testWaveSharesOneTimeout() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<XBundle> bundles = new ArrayList<XBundle>();
+        for (int i = 0; i < 3; i++) {
+            bundles.add(mockBlockingBundle(1000 + i, release));
+        }
+        ParallelBundleStopper stopper = new ParallelBundleStopper(getBundleManager(), mock(FrameworkEvents.class), BUNDLE_TIMEOUT);
+        try {
+            long start = System.currentTimeMillis();
+            stopper.stopBundles(bundles);
+            long duration = System.currentTimeMillis() - start;
+            assertTrue("Wave returned after one timeout: " + duration, duration >= BUNDLE_TIMEOUT && duration < 2 * BUNDLE_TIMEOUT);
+        } finally {
+            release.countDown();
+            stopper.close();
+        }
+    }
+
+    // An unwired bundle whose stop blocks until it is released
+    private XBundle mockBlockingBundle(long bundleId, final CountDownLatch release) throws Exception {
+        XBundle bundle = mock(XBundle.class);
+        XBundleRevision brev = mock(XBundleRevision.class);
+        when(bundle.getBundleId()).thenReturn(bundleId);
+        when(bundle.getBundleRevision()).thenReturn(brev);
+        when(brev.getBundle()).thenReturn(bundle);
+        doAnswer(new Answer<Object>() {
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                release.await();
+                return null;
+            }
+        }).when(bundle).stop(Bundle.STOP_TRANSIENT);
+        return bundle;
+    }
+}
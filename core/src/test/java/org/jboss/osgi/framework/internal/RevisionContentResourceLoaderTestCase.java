@@ -0,0 +1,116 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.internal;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.jboss.modules.Resource;
+import org.jboss.osgi.metadata.OSGiManifestBuilder;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.jboss.test.osgi.framework.subA.SimpleService;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.wiring.FrameworkWiring;
+
+/**
+ * Test the {@link RevisionContentResourceLoader}
+ *
+ * @since 18-Oct-2026
+ */
+public class RevisionContentResourceLoaderTestCase extends AbstractFrameworkTest {
+
+    @Test
+    public void testSubstitutedPackageIsFiltered() throws Exception {
+        Bundle providerBundle = installBundle(getArchive("substitution-provider", false));
+        try {
+            assertTrue("Provider resolved", resolveBundles(providerBundle));
+            Bundle substituteBundle = installBundle(getArchive("substitution-substitute", true));
+            try {
+                assertTrue("Substitute resolved", resolveBundles(substituteBundle));
+
+                HostBundleRevision hostRev = (HostBundleRevision) AbstractBundleState.assertBundleState(substituteBundle).getBundleRevision();
+                RevisionContent revContent = hostRev.getClassPathContent().get(0);
+                RevisionContentResourceLoader loader = new RevisionContentResourceLoader(hostRev, revContent);
+
+                String className = SimpleService.class.getName().replace('.', '/') + ".class";
+                List<String> recursive = getResourceNames(loader.iterateResources("", true));
+                assertTrue("Other resource in " + recursive, recursive.contains("other/res.txt"));
+                assertFalse("Substituted class in " + recursive, recursive.contains(className));
+
+                String packagePath = SimpleService.class.getPackage().getName().replace('.', '/');
+                List<String> nonRecursive = getResourceNames(loader.iterateResources(packagePath, false));
+                assertTrue("No substituted resources in " + nonRecursive, nonRecursive.isEmpty());
+            } finally {
+                substituteBundle.uninstall();
+            }
+        } finally {
+            providerBundle.uninstall();
+        }
+    }
+
+    private boolean resolveBundles(Bundle... bundles) throws Exception {
+        FrameworkWiring frameworkWiring = getSystemContext().getBundle().adapt(FrameworkWiring.class);
+        Collection<Bundle> list = new ArrayList<Bundle>();
+        Collections.addAll(list, bundles);
+        return frameworkWiring.resolveBundles(list);
+    }
+
+    private List<String> getResourceNames(Iterator<Resource> itres) {
+        List<String> result = new ArrayList<String>();
+        while (itres.hasNext()) {
+            result.add(itres.next().getName());
+        }
+        return result;
+    }
+
+    private JavaArchive getArchive(final String name, final boolean substitute) {
+        final JavaArchive archive = ShrinkWrap.create(JavaArchive.class, name);
+        archive.addClasses(SimpleService.class);
+        if (substitute) {
+            archive.add(new StringAsset("other"), "other/res.txt");
+        }
+        archive.setManifest(new Asset() {
+            public InputStream openStream() {
+                OSGiManifestBuilder builder = OSGiManifestBuilder.newInstance();
+                builder.addBundleManifestVersion(2);
+                builder.addBundleSymbolicName(archive.getName());
+                builder.addExportPackages(SimpleService.class);
+                if (substitute) {
+                    builder.addImportPackages(SimpleService.class);
+                }
+                return builder.openStream();
+            }
+        });
+        return archive;
+    }
+}
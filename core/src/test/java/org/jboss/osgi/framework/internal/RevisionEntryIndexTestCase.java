@@ -0,0 +1,157 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.jboss.osgi.testing.OSGiTestHelper;
+import org.jboss.osgi.vfs.VirtualFile;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test the {@link RevisionEntryIndex}
+ *
+ * @since 18-Oct-2026
+ */
+public class RevisionEntryIndexTestCase {
+
+    private static VirtualFile rootFile;
+    private static RevisionEntryIndex index;
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        JavaArchive archive = ShrinkWrap.create(JavaArchive.class, "entry-index");
+        archive.add(new StringAsset("root"), "A.class");
+        archive.add(new StringAsset("a"), "org/acme/A.class");
+        archive.add(new StringAsset("b"), "org/acme/b.txt");
+        archive.add(new StringAsset("sub-a"), "org/acme/sub/A.class");
+        archive.add(new StringAsset("c"), "org/acme/sub/c.txt");
+        rootFile = OSGiTestHelper.toVirtualFile(archive);
+        index = RevisionEntryIndex.build(rootFile);
+    }
+
+    @AfterClass
+    public static void afterClass() throws Exception {
+        rootFile.close();
+    }
+
+    @Test
+    public void testContains() throws Exception {
+        assertTrue(index.contains("A.class"));
+        assertTrue(index.contains("org/acme/b.txt"));
+        assertTrue(index.contains("org/acme/"));
+        assertFalse(index.contains("org/acme"));
+        assertFalse(index.contains("org/acme/missing.txt"));
+    }
+
+    @Test
+    public void testChildren() throws Exception {
+        assertArrayEquals(new String[] { "org/acme/A.class", "org/acme/b.txt", "org/acme/sub/" }, index.getChildren("org/acme/"));
+        assertArrayEquals(new String[] { "org/acme/sub/A.class", "org/acme/sub/c.txt" }, index.getChildren("org/acme/sub/"));
+        assertTrue(Arrays.asList(index.getChildren("")).contains("org/"));
+        assertNull(index.getChildren("missing/"));
+    }
+
+    @Test
+    public void testFindEntriesByName() throws Exception {
+        assertEquals(Arrays.asList("org/acme/A.class"), index.findEntries("org/acme/", "A.class", false));
+        assertEquals(Arrays.asList("org/acme/A.class", "org/acme/sub/A.class"), sorted(index.findEntries("org/acme/", "A.class", true)));
+        assertEquals(Arrays.asList("A.class", "org/acme/A.class", "org/acme/sub/A.class"), sorted(index.findEntries("", "A.class", true)));
+        assertEquals(Arrays.asList("org/acme/sub/"), index.findEntries("org/acme/", "sub", false));
+
+        // The directory that is searched is not one of its own entries
+        assertTrue(index.findEntries("org/acme/sub/", "sub", true).isEmpty());
+        assertTrue(index.findEntries("org/acme/", "missing", true).isEmpty());
+        assertTrue(index.findEntries("missing/", "A.class", true).isEmpty());
+    }
+
+    @Test
+    public void testFindEntriesByPattern() throws Exception {
+        assertEquals(Arrays.asList("org/acme/b.txt", "org/acme/sub/c.txt"), index.findEntries("org/", "*.txt", true));
+        assertEquals(Arrays.asList("org/acme/A.class", "org/acme/b.txt", "org/acme/sub/"), index.findEntries("org/acme/", "*", false));
+        assertEquals(Arrays.asList("org/acme/sub/A.class", "org/acme/sub/c.txt"), index.findEntries("org/acme/sub/", "*", true));
+        assertEquals(Arrays.asList("org/acme/b.txt"), index.findEntries("org/acme/", "b*", false));
+        assertTrue(index.findEntries("org/acme/", "*.xml", true).isEmpty());
+        assertTrue(index.findEntries("missing/", "*", true).isEmpty());
+    }
+
+    @Test
+    public void testIterateFiles() throws Exception {
+        assertEquals(Arrays.asList("org/acme/A.class", "org/acme/b.txt", "org/acme/sub/A.class", "org/acme/sub/c.txt"), toList(index.iterateFiles("org/acme/", true)));
+        assertEquals(Arrays.asList("org/acme/A.class", "org/acme/b.txt"), toList(index.iterateFiles("org/acme/", false)));
+        assertTrue(toList(index.iterateFiles("missing/", true)).isEmpty());
+        assertTrue(toList(index.iterateFiles("missing/", false)).isEmpty());
+    }
+
+    @Test
+    public void testNormalize() throws Exception {
+        assertEquals("org/acme/", RevisionEntryIndex.normalizeDirectory("/org/acme"));
+        assertEquals("org/acme/", RevisionEntryIndex.normalizeDirectory("org/acme/"));
+        assertEquals("", RevisionEntryIndex.normalizeDirectory("/"));
+        assertEquals("org/acme/b.txt", RevisionEntryIndex.normalizeEntry("//org/acme/b.txt"));
+    }
+
+    @Test
+    public void testMatches() throws Exception {
+        assertTrue(RevisionEntryIndex.matches("A.class", "*.class"));
+        assertTrue(RevisionEntryIndex.matches("A.class", "A.class"));
+        assertTrue(RevisionEntryIndex.matches("A.class", "*"));
+        assertTrue(RevisionEntryIndex.matches("", "*"));
+        assertTrue(RevisionEntryIndex.matches("abc", "a*c"));
+        assertTrue(RevisionEntryIndex.matches("aXbXc", "a*b*c"));
+        assertTrue(RevisionEntryIndex.matches("abab", "*ab"));
+        assertTrue(RevisionEntryIndex.matches("abc", "**c"));
+        assertFalse(RevisionEntryIndex.matches("abc", "a*d"));
+        assertFalse(RevisionEntryIndex.matches("ab", "abc"));
+        assertFalse(RevisionEntryIndex.matches("abc", "ab"));
+        assertFalse(RevisionEntryIndex.matches("A.class", "a.class"));
+    }
+
+    private static List<String> sorted(List<String> paths) {
+        List<String> result = new ArrayList<String>(paths);
+        Collections.sort(result);
+        return result;
+    }
+
+    private static List<String> toList(Iterator<String> iterator) {
+        List<String> result = new ArrayList<String>();
+        while (iterator.hasNext()) {
+            result.add(iterator.next());
+        }
+        return result;
+    }
+}
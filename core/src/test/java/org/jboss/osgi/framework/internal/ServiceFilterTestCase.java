@@ -0,0 +1,192 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.osgi.framework.Filter;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.framework.Version;
+
+/**
+ * Test that a {@link ServiceFilter} matches like the filter created by {@link FrameworkUtil#createFilter(String)}
+ *
+ * @since 18-Oct-2026
+ */
+public class ServiceFilterTestCase {
+
+    private static final String[] OPERATORS = new String[] { "=", "~=", ">=", "<=" };
+
+    private static final String[] VALUES = new String[] { "1", " 1", "1 ", "2", "-1", "0", "1.5", "true", "TRUE", "false",
+        "x", " x", "X", "y", "1.2.3", " 1.2.3 ", "1.2", "abc", "ABC", "a b c", "", "127", "128", "32768", "2147483648" };
+
+    @Test
+    public void testComparisonParity() throws Exception {
+        List<Dictionary<String, Object>> dictionaries = getDictionaries();
+        for (String operator : OPERATORS) {
+            for (String value : VALUES) {
+                String filter = "(prop" + operator + value + ")";
+                assertParity(filter, dictionaries);
+            }
+        }
+    }
+
+    @Test
+    public void testSubstringAndPresenceParity() throws Exception {
+        List<Dictionary<String, Object>> dictionaries = getDictionaries();
+        String[] filters = new String[] { "(prop=*)", "(prop=a*)", "(prop=*c)", "(prop=a*c)", "(prop=*b*)", "(prop=a*b*c)",
+            "(prop=**)", "(prop=a**c)", "(prop=\\2a*)", "(PROP=a*)", "(other=*)" };
+        for (String filter : filters) {
+            assertParity(filter, dictionaries);
+        }
+    }
+
+    @Test
+    public void testCompositeParity() throws Exception {
+        List<Dictionary<String, Object>> dictionaries = getDictionaries();
+        String[] filters = new String[] { "(&(prop=1)(other=value))", "(|(prop=1)(prop=x))", "(!(prop=1))",
+            "(&(|(prop>=1)(prop<=x))(!(other=value)))", "( & (prop=1) (other=value) )", "(|(PROP=1)(Other=VALUE))" };
+        for (String filter : filters) {
+            assertParity(filter, dictionaries);
+        }
+    }
+
+    @Test
+    public void testToStringParity() throws Exception {
+        String[] filters = new String[] { "(prop=1)", "( prop = 1 )", "(&(a=b)(c~=d))", "(prop=a\\*b*)", "(!(a<=1))" };
+        for (String filter : filters) {
+            Filter expected = FrameworkUtil.createFilter(filter);
+            Filter actual = ServiceFilter.getFilter(filter);
+            assertEquals(filter, expected.toString(), actual.toString());
+            assertEquals(filter, expected, actual);
+        }
+    }
+
+    @Test
+    public void testInvalidSyntax() throws Exception {
+        String[] filters = new String[] { "", "prop=1", "(prop=1", "(=1)", "(prop1)", "(&)", "(prop=1))", "(prop=(1)" };
+        for (String filter : filters) {
+            try {
+                FrameworkUtil.createFilter(filter);
+                fail("InvalidSyntaxException expected: " + filter);
+            } catch (InvalidSyntaxException ex) {
+                // expected
+            }
+            try {
+                ServiceFilter.getFilter(filter);
+                fail("InvalidSyntaxException expected: " + filter);
+            } catch (InvalidSyntaxException ex) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testCachedFilter() throws Exception {
+        ServiceFilter filter = ServiceFilter.getFilter("(cached=true)");
+        assertSame(filter, ServiceFilter.getFilter("(cached=true)"));
+
+        // The cache stays bounded and evicted filters are compiled again
+        for (int i = 0; i < 2000; i++) {
+            ServiceFilter.getFilter("(evict=" + i + ")");
+        }
+        assertEquals(ServiceFilter.getFilter("(cached=true)"), filter);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() throws Exception {
+        ServiceFilter hot = ServiceFilter.getFilter("(lru=hot)");
+        ServiceFilter cold = ServiceFilter.getFilter("(lru=cold)");
+
+        // A filter that is looked up keeps its place while the others are evicted
+        for (int i = 0; i < 2000; i++) {
+            ServiceFilter.getFilter("(lru=" + i + ")");
+            assertSame(hot, ServiceFilter.getFilter("(lru=hot)"));
+        }
+        assertNotSame(cold, ServiceFilter.getFilter("(lru=cold)"));
+    }
+
+    private void assertParity(String filter, List<Dictionary<String, Object>> dictionaries) throws InvalidSyntaxException {
+        Filter expected = FrameworkUtil.createFilter(filter);
+        Filter actual = ServiceFilter.getFilter(filter);
+        for (Dictionary<String, Object> dictionary : dictionaries) {
+            String message = filter + " " + describe(dictionary);
+            assertEquals(message, expected.match(dictionary), actual.match(dictionary));
+            assertEquals(message, expected.matchCase(dictionary), actual.matchCase(dictionary));
+            Map<String, Object> map = new HashMap<String, Object>();
+            for (String key : new String[] { "prop", "other" }) {
+                Object value = dictionary.get(key);
+                if (value != null) {
+                    map.put(key, value);
+                }
+            }
+            assertEquals(message, expected.matches(map), actual.matches(map));
+        }
+    }
+
+    private static String describe(Dictionary<String, Object> dictionary) {
+        Object value = dictionary.get("prop");
+        if (value == null)
+            return "{}";
+        if (value.getClass().isArray())
+            return value.getClass().getComponentType().getSimpleName() + "[]";
+        return value.getClass().getSimpleName() + ":" + value;
+    }
+
+    private List<Dictionary<String, Object>> getDictionaries() {
+        Object[] values = new Object[] { "1", " 1", "x", "abc", "ABC", "a b c", "*abc", "", Integer.valueOf(1), Integer.valueOf(-1),
+            Long.valueOf(1), Long.valueOf(2147483648L), Short.valueOf((short) 1), Short.valueOf((short) 128), Byte.valueOf((byte) 1),
+            Byte.valueOf((byte) 127), Double.valueOf(1.5), Double.valueOf(1), Float.valueOf(1.5f), Boolean.TRUE, Boolean.FALSE,
+            Character.valueOf('x'), Character.valueOf('X'), Character.valueOf('1'), Version.parseVersion("1.2.3"),
+            new BigDecimal("1.5"), new BigDecimal("1"), new String[] { "y", "abc" }, new int[] { 2, 1 }, new long[] { 0 },
+            new boolean[] { true }, new char[] { 'x' }, Arrays.asList("x", "1"), Arrays.<Object>asList(Integer.valueOf(1), "x") };
+
+        List<Dictionary<String, Object>> result = new ArrayList<Dictionary<String, Object>>();
+        result.add(new Hashtable<String, Object>());
+        for (Object value : values) {
+            Dictionary<String, Object> dictionary = new Hashtable<String, Object>();
+            dictionary.put("prop", value);
+            dictionary.put("other", "value");
+            result.add(dictionary);
+
+            // Mixed case keys only match case insensitive
+            Dictionary<String, Object> mixed = new Hashtable<String, Object>();
+            mixed.put("Prop", value);
+            result.add(mixed);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.List;
+
+import org.junit.Test;
+import org.osgi.framework.Constants;
+
+/**
+ * Test the {@link ServiceProperties}
+ *
+ * @since 18-Oct-2026
+ */
+public class ServicePropertiesTestCase {
+
+    private static final String[] OBJECT_CLASS = new String[] { Runnable.class.getName() };
+
+    @Test
+    public void testCaseInsensitiveLookup() throws Exception {
+        Hashtable<String, Object> props = new Hashtable<String, Object>();
+        props.put("Foo", "bar");
+        props.put("someKey", Integer.valueOf(1));
+        ServiceProperties serviceProps = new ServiceProperties(props, 7, OBJECT_CLASS);
+
+        assertEquals("bar", serviceProps.get("Foo"));
+        assertEquals("bar", serviceProps.get("foo"));
+        assertEquals("bar", serviceProps.get("FOO"));
+        assertEquals(Integer.valueOf(1), serviceProps.get("SOMEKEY"));
+        assertEquals(Integer.valueOf(1), serviceProps.getNormalizedProperty("somekey"));
+        assertNull(serviceProps.get("other"));
+        assertNull(serviceProps.get(Integer.valueOf(1)));
+
+        // The keys keep their original case
+        HashSet<String> expected = new HashSet<String>(Arrays.asList("Foo", "someKey", Constants.SERVICE_ID, Constants.OBJECTCLASS));
+        assertEquals(expected, new HashSet<String>(Arrays.asList(serviceProps.getPropertyKeys())));
+        assertEquals(expected, new HashSet<String>(Collections.list(serviceProps.keys())));
+        assertEquals(4, serviceProps.size());
+    }
+
+    @Test
+    public void testKeysAndElementsAlign() throws Exception {
+        Hashtable<String, Object> props = new Hashtable<String, Object>();
+        props.put("b", "2");
+        props.put("A", "1");
+        props.put("c", "3");
+        ServiceProperties serviceProps = new ServiceProperties(props, 7, OBJECT_CLASS);
+
+        List<String> keys = Collections.list(serviceProps.keys());
+        List<Object> elements = Collections.list(serviceProps.elements());
+        assertEquals(keys.size(), elements.size());
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals(serviceProps.get(keys.get(i)), elements.get(i));
+        }
+    }
+
+    @Test
+    public void testFrameworkProperties() throws Exception {
+        Hashtable<Object, Object> props = new Hashtable<Object, Object>();
+        props.put("SERVICE.ID", Long.valueOf(99));
+        props.put("ObjectClass", new String[] { "other" });
+        props.put(Integer.valueOf(1), "not a string key");
+        ServiceProperties serviceProps = new ServiceProperties(props, 7, OBJECT_CLASS);
+
+        assertEquals(Long.valueOf(7), serviceProps.get(Constants.SERVICE_ID));
+        assertArrayEquals(OBJECT_CLASS, (String[]) serviceProps.get(Constants.OBJECTCLASS));
+        assertEquals(7, serviceProps.getServiceId());
+        assertArrayEquals(OBJECT_CLASS, serviceProps.getObjectClass());
+        assertEquals(2, serviceProps.size());
+    }
+
+    @Test
+    public void testServiceRanking() throws Exception {
+        Hashtable<String, Object> props = new Hashtable<String, Object>();
+        assertEquals(0, new ServiceProperties(props, 7, OBJECT_CLASS).getServiceRanking());
+        assertEquals(0, new ServiceProperties(null, 7, OBJECT_CLASS).getServiceRanking());
+
+        props.put("Service.Ranking", Integer.valueOf(10));
+        assertEquals(10, new ServiceProperties(props, 7, OBJECT_CLASS).getServiceRanking());
+
+        // Only an Integer ranking is honoured
+        props.put("Service.Ranking", "10");
+        assertEquals(0, new ServiceProperties(props, 7, OBJECT_CLASS).getServiceRanking());
+    }
+
+    @Test
+    public void testDuplicateKeys() throws Exception {
+        Hashtable<String, Object> props = new Hashtable<String, Object>();
+        props.put("foo", "a");
+        props.put("FOO", "b");
+        try {
+            new ServiceProperties(props, 7, OBJECT_CLASS);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testImmutable() throws Exception {
+        Dictionary<String, Object> serviceProps = new ServiceProperties(new Hashtable<String, Object>(), 7, OBJECT_CLASS);
+        try {
+            serviceProps.put("foo", "bar");
+            fail("UnsupportedOperationException expected");
+        } catch (UnsupportedOperationException ex) {
+            // expected
+        }
+        try {
+            serviceProps.remove(Constants.SERVICE_ID);
+            fail("UnsupportedOperationException expected");
+        } catch (UnsupportedOperationException ex) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.osgi.framework.spi.ServiceManager;
+import org.jboss.osgi.framework.spi.ServiceState.ValueProvider;
+import org.jboss.osgi.resolver.XBundle;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.ServiceFactory;
+import org.osgi.framework.ServiceRegistration;
+
+/**
+ * Test the {@link ServiceFactory} values of a {@link ServiceStateImpl}
+ *
+ * @since 18-Oct-2026
+ */
+public class ServiceStateImplTestCase {
+
+    private static final int THREADS = 8;
+
+    @Test
+    public void testFactoryCalledOncePerBundle() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        ServiceFactory<Runnable> factory = new ServiceFactory<Runnable>() {
+            public Runnable getService(Bundle bundle, ServiceRegistration<Runnable> registration) {
+                calls.incrementAndGet();
+                sleep(50);
+                return new TestService();
+            }
+
+            public void ungetService(Bundle bundle, ServiceRegistration<Runnable> registration, Runnable service) {
+            }
+        };
+        final ServiceStateImpl<Runnable> serviceState = createServiceState(factory);
+        final XBundle bundle = mockBundle(1);
+
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Runnable>> futures = new ArrayList<Future<Runnable>>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(new Callable<Runnable>() {
+                    public Runnable call() throws Exception {
+                        startLatch.await();
+                        return serviceState.getScopedValue(bundle);
+                    }
+                }));
+            }
+            startLatch.countDown();
+
+            Runnable service = futures.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<Runnable> future : futures) {
+                assertSame(service, future.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(1, calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFactoryCallsForBundlesDoNotBlock() throws Exception {
+        final XBundle bundleA = mockBundle(1);
+        final XBundle bundleB = mockBundle(2);
+        final CountDownLatch enteredA = new CountDownLatch(1);
+        final CountDownLatch releaseA = new CountDownLatch(1);
+        ServiceFactory<Runnable> factory = new ServiceFactory<Runnable>() {
+            public Runnable getService(Bundle bundle, ServiceRegistration<Runnable> registration) {
+                if (bundle == bundleA) {
+                    enteredA.countDown();
+                    try {
+                        releaseA.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return new TestService();
+            }
+
+            public void ungetService(Bundle bundle, ServiceRegistration<Runnable> registration, Runnable service) {
+            }
+        };
+        final ServiceStateImpl<Runnable> serviceState = createServiceState(factory);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Runnable> futureA = executor.submit(new Callable<Runnable>() {
+                public Runnable call() throws Exception {
+                    return serviceState.getScopedValue(bundleA);
+                }
+            });
+            assertTrue("Factory called for bundle A", enteredA.await(10, TimeUnit.SECONDS));
+
+            // The factory call for bundle B completes while the one for bundle A is still in progress
+            Runnable serviceB = serviceState.getScopedValue(bundleB);
+            assertTrue(serviceB instanceof TestService);
+            assertEquals(1, releaseA.getCount());
+
+            releaseA.countDown();
+            Runnable serviceA = futureA.get(10, TimeUnit.SECONDS);
+            assertTrue(serviceA instanceof TestService);
+            assertTrue(serviceA != serviceB);
+        } finally {
+            releaseA.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private ServiceStateImpl<Runnable> createServiceState(final ServiceFactory<Runnable> factory) {
+        ValueProvider valueProvider = new ValueProvider() {
+            public boolean isFactoryValue() {
+                return true;
+            }
+
+            public Object getValue() {
+                return factory;
+            }
+        };
+        String[] classNames = new String[] { Runnable.class.getName() };
+        return new ServiceStateImpl<Runnable>(mock(ServiceManager.class), mockBundle(0), 1, classNames, valueProvider, null);
+    }
+
+    private XBundle mockBundle(long bundleId) {
+        XBundle bundle = mock(XBundle.class);
+        when(bundle.getBundleId()).thenReturn(bundleId);
+        return bundle;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static class TestService implements Runnable {
+        public void run() {
+        }
+    }
+}
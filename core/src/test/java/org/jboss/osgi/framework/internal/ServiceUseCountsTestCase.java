@@ -0,0 +1,142 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.jboss.osgi.framework.spi.ServiceState;
+import org.junit.Test;
+
+/**
+ * Test the {@link ServiceUseCounts}
+ *
+ * @since 18-Oct-2026
+ */
+public class ServiceUseCountsTestCase {
+
+    private static final int CAPACITY = 16;
+
+    @Test
+    public void testCollisions() throws Exception {
+        List<ServiceState<?>> states = getServiceStates(3, 5);
+        ServiceUseCounts useCounts = new ServiceUseCounts();
+        for (ServiceState<?> state : states) {
+            assertFalse(useCounts.incrementIfInUse(state));
+            assertEquals(1, useCounts.increment(state));
+        }
+        for (ServiceState<?> state : states) {
+            assertTrue(useCounts.incrementIfInUse(state));
+            assertEquals(3, useCounts.increment(state));
+        }
+
+        // Remove the head of the probe sequence
+        ServiceState<?> head = states.get(0);
+        assertEquals(2, useCounts.decrement(head));
+        assertEquals(1, useCounts.decrement(head));
+        assertEquals(0, useCounts.decrement(head));
+        assertEquals(-1, useCounts.decrement(head));
+        assertFalse(useCounts.incrementIfInUse(head));
+
+        assertEquals(2, useCounts.decrement(states.get(1)));
+        assertEquals(2, useCounts.decrement(states.get(2)));
+        assertEquals(new HashSet<ServiceState<?>>(states.subList(1, 3)), useCounts.getServiceStates());
+    }
+
+    @Test
+    public void testWrapAroundDeletion() throws Exception {
+        // Entries at the end of the table continue at its start
+        List<ServiceState<?>> tail = getServiceStates(3, CAPACITY - 1);
+        List<ServiceState<?>> head = getServiceStates(1, 0);
+        ServiceUseCounts useCounts = new ServiceUseCounts();
+        for (ServiceState<?> state : tail) {
+            useCounts.increment(state);
+        }
+        useCounts.increment(head.get(0));
+
+        // The entries that wrapped around are shifted back across the end of the table
+        assertEquals(0, useCounts.decrement(tail.get(0)));
+        assertTrue(useCounts.incrementIfInUse(tail.get(1)));
+        assertTrue(useCounts.incrementIfInUse(tail.get(2)));
+        assertTrue(useCounts.incrementIfInUse(head.get(0)));
+        assertEquals(1, useCounts.decrement(tail.get(1)));
+        assertEquals(0, useCounts.decrement(tail.get(1)));
+        assertEquals(1, useCounts.increment(tail.get(0)));
+        assertTrue(useCounts.incrementIfInUse(tail.get(0)));
+
+        assertEquals(1, useCounts.decrement(tail.get(2)));
+        assertEquals(0, useCounts.decrement(tail.get(2)));
+        assertEquals(1, useCounts.decrement(head.get(0)));
+        assertEquals(0, useCounts.decrement(head.get(0)));
+        assertEquals(1, useCounts.decrement(tail.get(0)));
+        assertEquals(0, useCounts.decrement(tail.get(0)));
+        assertTrue(useCounts.getServiceStates().isEmpty());
+    }
+
+    @Test
+    public void testResize() throws Exception {
+        List<ServiceState<?>> states = new ArrayList<ServiceState<?>>();
+        ServiceUseCounts useCounts = new ServiceUseCounts();
+        for (int i = 0; i < 100; i++) {
+            ServiceState<?> state = mockServiceState(i);
+            states.add(state);
+            for (int j = 0; j <= i % 3; j++) {
+                useCounts.increment(state);
+            }
+        }
+        assertEquals(new HashSet<ServiceState<?>>(states), useCounts.getServiceStates());
+
+        // The counts are carried over to the grown table
+        for (int i = 0; i < 100; i++) {
+            ServiceState<?> state = states.get(i);
+            for (int j = i % 3; j >= 0; j--) {
+                assertEquals(j, useCounts.decrement(state));
+            }
+            assertFalse(useCounts.incrementIfInUse(state));
+        }
+        assertTrue(useCounts.getServiceStates().isEmpty());
+    }
+
+    // Service ids that have the given home slot in the initial table
+    private List<ServiceState<?>> getServiceStates(int count, int slot) {
+        List<ServiceState<?>> result = new ArrayList<ServiceState<?>>();
+        for (long serviceId = 1; result.size() < count; serviceId++) {
+            if (ServiceUseCounts.slot(serviceId, CAPACITY) == slot) {
+                result.add(mockServiceState(serviceId));
+            }
+        }
+        return result;
+    }
+
+    private ServiceState<?> mockServiceState(long serviceId) {
+        ServiceState<?> state = mock(ServiceState.class);
+        when(state.getServiceId()).thenReturn(serviceId);
+        return state;
+    }
+}
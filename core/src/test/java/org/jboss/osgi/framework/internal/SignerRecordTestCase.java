@@ -0,0 +1,218 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Enumeration;
+import java.util.Properties;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import org.jboss.osgi.framework.spi.SignerRecord;
+import org.jboss.osgi.framework.spi.StorageState;
+import org.jboss.osgi.vfs.VFSUtils;
+import org.junit.Test;
+
+/**
+ * Test the {@link SignerRecord}
+ *
+ * @since 18-Oct-2026
+ */
+public class SignerRecordTestCase {
+
+    private static final String SIGNED_ARCHIVE = "/signer-record/signed.jar";
+
+    @Test
+    public void testSignedArchive() throws Exception {
+        SignerRecord record = SignerRecord.verify(getSignedArchive());
+        assertEquals(1, record.getSignerSetCount());
+        assertEquals(0, record.getSignerSetIndex("org/acme/a.txt"));
+        assertEquals(0, record.getSignerSetIndex("org/acme/b.txt"));
+        assertEquals(1, record.getSignerCertificates().size());
+
+        assertRoundTrip(record);
+    }
+
+    @Test
+    public void testPartiallySignedArchive() throws Exception {
+        File archiveFile = File.createTempFile("partially-signed", ".jar");
+        archiveFile.deleteOnExit();
+        JarFile jarFile = new JarFile(getSignedArchive());
+        try {
+            JarOutputStream output = new JarOutputStream(new FileOutputStream(archiveFile));
+            try {
+                Enumeration<JarEntry> entries = jarFile.entries();
+                while (entries.hasMoreElements()) {
+                    JarEntry entry = entries.nextElement();
+                    output.putNextEntry(new ZipEntry(entry.getName()));
+                    InputStream input = jarFile.getInputStream(entry);
+                    try {
+                        VFSUtils.copyStream(input, output);
+                    } finally {
+                        input.close();
+                    }
+                    output.closeEntry();
+                }
+                output.putNextEntry(new ZipEntry("org/acme/unsigned.txt"));
+                output.write("unsigned".getBytes());
+                output.closeEntry();
+            } finally {
+                output.close();
+            }
+        } finally {
+            jarFile.close();
+        }
+
+        // An entry that is not signed leaves no common signers
+        SignerRecord record = SignerRecord.verify(archiveFile);
+        assertEquals(1, record.getSignerSetCount());
+        assertEquals(0, record.getSignerSetIndex("org/acme/a.txt"));
+        assertEquals(-1, record.getSignerSetIndex("org/acme/unsigned.txt"));
+        assertTrue(record.getSignerCertificates().isEmpty());
+
+        assertRoundTrip(record);
+    }
+
+    @Test
+    public void testUnsignedArchive() throws Exception {
+        File archiveFile = File.createTempFile("unsigned", ".jar");
+        archiveFile.deleteOnExit();
+        JarOutputStream output = new JarOutputStream(new FileOutputStream(archiveFile));
+        try {
+            output.putNextEntry(new ZipEntry("org/acme/a.txt"));
+            output.write("a".getBytes());
+            output.closeEntry();
+        } finally {
+            output.close();
+        }
+
+        SignerRecord record = SignerRecord.verify(archiveFile);
+        assertEquals(0, record.getSignerSetCount());
+        assertEquals(-1, record.getSignerSetIndex("org/acme/a.txt"));
+        assertTrue(record.getSignerCertificates().isEmpty());
+
+        assertRoundTrip(record);
+    }
+
+    @Test
+    public void testInvalidRecord() throws Exception {
+        File recordFile = File.createTempFile("invalid", ".signers");
+        recordFile.deleteOnExit();
+        Files.write(recordFile.toPath(), "not a signer record".getBytes());
+        try {
+            SignerRecord.read(recordFile);
+            fail("IOException expected");
+        } catch (IOException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testWriteReplacesRecord() throws Exception {
+        File recordDir = Files.createTempDirectory("signer-record").toFile();
+        File recordFile = new File(recordDir, "signed.jar.signers");
+        Files.write(recordFile.toPath(), "not a signer record".getBytes());
+        try {
+            SignerRecord record = SignerRecord.verify(getSignedArchive());
+            record.write(recordFile);
+            assertEquals(1, SignerRecord.read(recordFile).getSignerSetCount());
+
+            // The record is written next to the target and moved over it
+            assertArrayEquals(new String[] { recordFile.getName() }, recordDir.list());
+        } finally {
+            recordFile.delete();
+            recordDir.delete();
+        }
+    }
+
+    @Test
+    public void testDamagedRecordIsVerifiedAgain() throws Exception {
+        File storageDir = Files.createTempDirectory("signer-storage").toFile();
+        File revFile = new File(storageDir, "bundle-1-rev-0.jar");
+        File recordFile = new File(storageDir, revFile.getName() + ".signers");
+        Files.copy(getSignedArchive().toPath(), revFile.toPath());
+        Files.write(recordFile.toPath(), "not a signer record".getBytes());
+        Properties props = new Properties();
+        props.setProperty(StorageState.PROPERTY_BUNDLE_ID, "1");
+        props.setProperty(StorageState.PROPERTY_BUNDLE_REV, "0");
+        props.setProperty(StorageState.PROPERTY_BUNDLE_LOCATION, "signed");
+        props.setProperty(StorageState.PROPERTY_START_LEVEL, "1");
+        props.setProperty(StorageState.PROPERTY_LAST_MODIFIED, "0");
+        props.setProperty(StorageState.PROPERTY_BUNDLE_FILE, revFile.getName());
+        props.setProperty(StorageState.PROPERTY_BUNDLE_SIGNERS, recordFile.getName());
+        try {
+            StorageState storageState = new StorageState(storageDir, null, props);
+            SignerRecord record = storageState.getSignerRecord();
+            assertNotNull("Archive verified again", record);
+            assertEquals(1, record.getSignerSetCount());
+
+            // The damaged record was replaced
+            assertEquals(1, SignerRecord.read(recordFile).getSignerSetCount());
+        } finally {
+            for (File file : storageDir.listFiles()) {
+                file.delete();
+            }
+            storageDir.delete();
+        }
+    }
+
+    private void assertRoundTrip(SignerRecord record) throws Exception {
+        File recordFile = File.createTempFile("record", ".signers");
+        recordFile.deleteOnExit();
+        record.write(recordFile);
+
+        SignerRecord other = SignerRecord.read(recordFile);
+        assertEquals(record.getSignerSetCount(), other.getSignerSetCount());
+        for (int i = 0; i < record.getSignerSetCount(); i++) {
+            assertArrayEquals(record.getSignerSet(i), other.getSignerSet(i));
+        }
+        for (String entryName : new String[] { "org/acme/a.txt", "org/acme/b.txt", "org/acme/unsigned.txt", "META-INF/MANIFEST.MF" }) {
+            assertEquals(record.getSignerSetIndex(entryName), other.getSignerSetIndex(entryName));
+        }
+        assertEquals(record.getSignerCertificates(), other.getSignerCertificates());
+    }
+
+    private File getSignedArchive() throws Exception {
+        File archiveFile = File.createTempFile("signed", ".jar");
+        archiveFile.deleteOnExit();
+        InputStream input = getClass().getResourceAsStream(SIGNED_ARCHIVE);
+        try {
+            Files.copy(input, archiveFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            input.close();
+        }
+        return archiveFile;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.osgi.metadata.OSGiManifestBuilder;
+import org.jboss.osgi.resolver.XBundle;
+import org.jboss.osgi.spi.AttachmentKey;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.SynchronousBundleListener;
+import org.osgi.framework.startlevel.BundleStartLevel;
+
+/**
+ * Test start level changes across bundles on several levels
+ *
+ * @since 18-Oct-2026
+ */
+public class StartLevelManagerTestCase extends AbstractFrameworkTest {
+
+    @Test
+    public void testStartLevelChangeAcrossLevels() throws Exception {
+        StartLevelManagerImpl startLevelManager = (StartLevelManagerImpl) getFrameworkState().getStartLevelManager();
+        int initialLevel = startLevelManager.getFrameworkStartLevel();
+
+        final List<Bundle> started = Collections.synchronizedList(new ArrayList<Bundle>());
+        final List<Bundle> stopped = Collections.synchronizedList(new ArrayList<Bundle>());
+        SynchronousBundleListener listener = new SynchronousBundleListener() {
+            public void bundleChanged(BundleEvent event) {
+                if (event.getType() == BundleEvent.STARTED) {
+                    started.add(event.getBundle());
+                } else if (event.getType() == BundleEvent.STOPPED) {
+                    stopped.add(event.getBundle());
+                }
+            }
+        };
+
+        // Install in reverse level order so that bundle ids do not match the start order
+        Bundle bundleC = installBundle(getBundleArchive("startlevel-c"));
+        Bundle bundleB = installBundle(getBundleArchive("startlevel-b"));
+        Bundle bundleA = installBundle(getBundleArchive("startlevel-a"));
+        XBundle adaptor = mockBundle(1000);
+        getSystemContext().addBundleListener(listener);
+        try {
+            bundleA.adapt(BundleStartLevel.class).setStartLevel(initialLevel + 1);
+            bundleB.adapt(BundleStartLevel.class).setStartLevel(initialLevel + 2);
+            bundleC.adapt(BundleStartLevel.class).setStartLevel(initialLevel + 3);
+            startLevelManager.setBundleStartLevel(adaptor, initialLevel + 2);
+            startLevelManager.setBundlePersistentlyStarted(adaptor, true);
+            bundleA.start();
+            bundleB.start();
+            bundleC.start();
+            assertTrue("No bundle started", started.isEmpty());
+
+            startLevelManager.increaseFrameworkStartLevel(initialLevel + 2);
+            assertEquals(Arrays.asList(bundleA, bundleB), started);
+            verify(adaptor).start(Bundle.START_TRANSIENT);
+
+            startLevelManager.increaseFrameworkStartLevel(initialLevel + 3);
+            assertEquals(Arrays.asList(bundleA, bundleB, bundleC), started);
+
+            startLevelManager.decreaseFrameworkStartLevel(initialLevel + 1);
+            assertEquals(Arrays.asList(bundleC, bundleB), stopped);
+            assertBundleState(Bundle.ACTIVE, bundleA.getState());
+            verify(adaptor).stop(Bundle.STOP_TRANSIENT);
+
+            // An uninstalled adaptor is dropped from its level and not started again
+            when(adaptor.getState()).thenReturn(Bundle.UNINSTALLED);
+            startLevelManager.increaseFrameworkStartLevel(initialLevel + 2);
+            verify(adaptor).start(Bundle.START_TRANSIENT);
+
+            startLevelManager.decreaseFrameworkStartLevel(initialLevel);
+            assertBundleState(Bundle.RESOLVED, bundleA.getState());
+            assertEquals(Arrays.asList(bundleC, bundleB, bundleA), stopped);
+        } finally {
+            getSystemContext().removeBundleListener(listener);
+            if (startLevelManager.getFrameworkStartLevel() > initialLevel) {
+                startLevelManager.decreaseFrameworkStartLevel(initialLevel);
+            }
+            bundleA.uninstall();
+            bundleB.uninstall();
+            bundleC.uninstall();
+        }
+    }
+
+    // A bundle that is not a {@link UserBundleState}, like the ones provided through an AbstractBundleAdaptor
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private XBundle mockBundle(long bundleId) {
+        final Map<AttachmentKey, Object> attachments = new HashMap<AttachmentKey, Object>();
+        XBundle bundle = mock(XBundle.class);
+        when(bundle.getBundleId()).thenReturn(bundleId);
+        when(bundle.getState()).thenReturn(Bundle.RESOLVED);
+        when(bundle.isFragment()).thenReturn(false);
+        when(bundle.getAttachment(any(AttachmentKey.class))).thenAnswer(new Answer<Object>() {
+            public Object answer(InvocationOnMock invocation) {
+                return attachments.get(invocation.getArguments()[0]);
+            }
+        });
+        when(bundle.putAttachment(any(AttachmentKey.class), any())).thenAnswer(new Answer<Object>() {
+            public Object answer(InvocationOnMock invocation) {
+                Object[] args = invocation.getArguments();
+                return attachments.put((AttachmentKey) args[0], args[1]);
+            }
+        });
+        return bundle;
+    }
+
+    private JavaArchive getBundleArchive(String name) {
+        final JavaArchive archive = ShrinkWrap.create(JavaArchive.class, name);
+        archive.setManifest(new Asset() {
+            public InputStream openStream() {
+                OSGiManifestBuilder builder = OSGiManifestBuilder.newInstance();
+                builder.addBundleManifestVersion(2);
+                builder.addBundleSymbolicName(archive.getName());
+                return builder.openStream();
+            }
+        });
+        return archive;
+    }
+}
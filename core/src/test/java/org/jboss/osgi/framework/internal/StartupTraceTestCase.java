@@ -0,0 +1,126 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.jboss.osgi.framework.spi.StartupTrace.Category;
+import org.jboss.osgi.framework.spi.StartupTrace.Record;
+import org.jboss.osgi.framework.spi.StartupTrace.Span;
+import org.junit.Test;
+
+/**
+ * Test the {@link StartupTraceImpl}
+ *
+ * @since 18-Oct-2026
+ */
+public class StartupTraceTestCase {
+
+    @Test
+    public void testSpansAreRecorded() throws Exception {
+        StartupTraceImpl trace = new StartupTraceImpl(true, null);
+        assertTrue("Enabled", trace.isEnabled());
+
+        Span span = trace.begin(Category.ACTIVATOR, "bundle-a");
+        trace.begin(Category.RESOLVE, "FrameworkResolver.resolve[1]").end();
+        Thread.sleep(5);
+        span.end();
+        span.end();
+
+        List<Record> records = trace.getRecords();
+        assertEquals(2, records.size());
+        assertEquals("FrameworkResolver.resolve[1]", records.get(0).getName());
+        assertEquals(Category.RESOLVE, records.get(0).getCategory());
+        assertEquals("bundle-a", records.get(1).getName());
+        assertEquals(Thread.currentThread().getName(), records.get(1).getThreadName());
+        assertTrue("Wall time measured", records.get(1).getWallTime() >= 5000000L);
+
+        List<Record> slowest = trace.getSlowestRecords(null, 1);
+        assertEquals(1, slowest.size());
+        assertSame(records.get(1), slowest.get(0));
+        assertEquals(1, trace.getSlowestRecords(Category.RESOLVE, 5).size());
+    }
+
+    @Test
+    public void testThreadCpuTimeSettingUnchanged() throws Exception {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        boolean cpuTimeEnabled = bean.isThreadCpuTimeSupported() && bean.isThreadCpuTimeEnabled();
+        StartupTraceImpl trace = new StartupTraceImpl(true, null);
+        trace.begin(Category.PHASE, "Framework.init").end();
+        assertEquals(cpuTimeEnabled, bean.isThreadCpuTimeSupported() && bean.isThreadCpuTimeEnabled());
+        if (!cpuTimeEnabled) {
+            assertEquals(-1, trace.getRecords().get(0).getCpuTime());
+        }
+    }
+
+    @Test
+    public void testReportWrittenOnComplete() throws Exception {
+        File storageArea = Files.createTempDirectory("startup-trace").toFile();
+        File reportFile = new File(storageArea, "trace.json");
+        try {
+            StartupTraceImpl trace = new StartupTraceImpl(true, reportFile.getName());
+            trace.begin(Category.PHASE, "Framework.init").end();
+            trace.begin(Category.INSTALL, "location \"quoted\"").end();
+            trace.complete(storageArea);
+
+            assertFalse("Disabled after complete", trace.isEnabled());
+            trace.begin(Category.PHASE, "ignored").end();
+            assertEquals(2, trace.getRecords().size());
+
+            String report = readFile(reportFile);
+            assertTrue(report, report.contains("\"category\": \"PHASE\", \"name\": \"Framework.init\""));
+            assertTrue(report, report.contains("\"category\": \"INSTALL\", \"name\": \"location \\\"quoted\\\"\""));
+        } finally {
+            reportFile.delete();
+            storageArea.delete();
+        }
+    }
+
+    @Test
+    public void testDisabledTraceRecordsNothing() throws Exception {
+        File storageArea = Files.createTempDirectory("startup-trace").toFile();
+        try {
+            StartupTraceImpl trace = new StartupTraceImpl(false, "trace.json");
+            trace.begin(Category.PHASE, "Framework.init").end();
+            trace.complete(storageArea);
+            assertTrue("No records", trace.getRecords().isEmpty());
+            assertFalse("No report", new File(storageArea, "trace.json").exists());
+        } finally {
+            storageArea.delete();
+        }
+    }
+
+    private static String readFile(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), Charset.forName("UTF-8"));
+    }
+}
@@ -25,6 +25,7 @@ import org.jboss.osgi.framework.Constants;
 import org.jboss.osgi.testing.OSGiFrameworkTest;
 import org.junit.Assert;
 import org.junit.Test;
+import org.osgi.framework.ServiceReference;
 import org.osgi.framework.ServiceRegistration;
 import org.osgi.service.url.AbstractURLStreamHandlerService;
 import org.osgi.service.url.URLConstants;
@@ -156,6 +157,38 @@ public class URLHandlerTestCase extends OSGiFrameworkTest {
         reg5.unregister();
     }
 
+    @Test
+    public void testHigherRankedHandlerReplacesCachedHandler() throws Exception {
+        URLStreamHandlerService svc1 = new TestURLStreamHandlerService("cached");
+        Dictionary<String, Object> props1 = new Hashtable<String, Object>();
+        props1.put(URLConstants.URL_HANDLER_PROTOCOL, "p2");
+        props1.put(Constants.SERVICE_RANKING, 10);
+        ServiceRegistration<URLStreamHandlerService> reg1 = getSystemContext().registerService(URLStreamHandlerService.class, svc1, props1);
+        ServiceRegistration<URLStreamHandlerService> reg2 = null;
+        try {
+            // The URL keeps the handler proxy, which dispatches to the current top service
+            URL url = new URL("p2://testing");
+            assertEquals("cachedtesting", new String(suckStream(url.openStream())));
+
+            URLStreamHandlerService svc2 = new TestURLStreamHandlerService("replaced");
+            Dictionary<String, Object> props2 = new Hashtable<String, Object>();
+            props2.put(URLConstants.URL_HANDLER_PROTOCOL, "p2");
+            props2.put(Constants.SERVICE_RANKING, 20);
+            reg2 = getSystemContext().registerService(URLStreamHandlerService.class, svc2, props2);
+            assertEquals("replacedtesting", new String(suckStream(url.openStream())));
+            assertEquals("replacedtesting", new String(suckStream(new URL("p2://testing").openStream())));
+
+            // Only the handler tracker uses the services, dispatch does not add uses
+            assertUsedOnce(reg1.getReference());
+            assertUsedOnce(reg2.getReference());
+        } finally {
+            reg1.unregister();
+            if (reg2 != null) {
+                reg2.unregister();
+            }
+        }
+    }
+
     @Test
     public void testContentHandler() throws Exception {
         URLStreamHandlerService svc1 = new TestURLStreamHandlerService("tp1", "foo/bar");
@@ -259,6 +292,12 @@ public class URLHandlerTestCase extends OSGiFrameworkTest {
         Assert.assertNotNull("ServiceLoader should find our factory", factory);
     }
 
+    // Releases the use of the handler tracker, so the reference must not be used afterwards
+    private void assertUsedOnce(ServiceReference<?> reference) throws Exception {
+        assertTrue("Service in use", getSystemContext().ungetService(reference));
+        assertFalse("Service used once", getSystemContext().ungetService(reference));
+    }
+
     private static void pumpStream(InputStream is, OutputStream os) throws IOException {
         byte[] bytes = new byte[8192];
 
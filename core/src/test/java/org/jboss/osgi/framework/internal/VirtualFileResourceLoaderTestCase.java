@@ -39,7 +39,11 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -120,4 +124,49 @@ public class VirtualFileResourceLoaderTestCase {
         assertTrue(paths.contains("META-INF"));
         assertTrue(paths.contains(""));
     }
+
+    @Test
+    public void testIterateResourcesRecursive() throws Exception {
+        VirtualFileResourceLoader loader = new VirtualFileResourceLoader(rootFile);
+        List<String> names = getResourceNames(loader.iterateResources("org/jboss/test/osgi/framework", true));
+        assertEquals(2, names.size());
+        assertTrue(names.contains(getClassFileName(SimpleService.class)));
+        assertTrue(names.contains(getClassFileName(SimpleActivator.class)));
+
+        // Iteration from the root covers all entries
+        names = getResourceNames(loader.iterateResources("", true));
+        assertTrue(names.contains("logging.properties"));
+        assertTrue(names.contains("META-INF/MANIFEST.MF"));
+        assertTrue(names.contains(getClassFileName(SimpleService.class)));
+    }
+
+    @Test
+    public void testIterateResourcesNonRecursive() throws Exception {
+        VirtualFileResourceLoader loader = new VirtualFileResourceLoader(rootFile);
+        List<String> names = getResourceNames(loader.iterateResources("org/jboss/test/osgi/framework/subA", false));
+        assertEquals(2, names.size());
+        assertTrue(names.contains(getClassFileName(SimpleService.class)));
+
+        // Only the files directly in the start path
+        names = getResourceNames(loader.iterateResources("org/jboss/test/osgi/framework", false));
+        assertTrue(names.isEmpty());
+        names = getResourceNames(loader.iterateResources("/", false));
+        assertEquals(Collections.singletonList("logging.properties"), names);
+
+        // A start path that does not exist has no resources
+        names = getResourceNames(loader.iterateResources("org/acme", true));
+        assertTrue(names.isEmpty());
+    }
+
+    private static List<String> getResourceNames(Iterator<Resource> iterator) {
+        List<String> names = new ArrayList<String>();
+        while (iterator.hasNext()) {
+            names.add(iterator.next().getName());
+        }
+        return names;
+    }
+
+    private static String getClassFileName(Class<?> clazz) {
+        return clazz.getName().replace('.', '/') + ".class";
+    }
 }
\ No newline at end of file
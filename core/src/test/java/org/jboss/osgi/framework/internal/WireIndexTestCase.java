@@ -0,0 +1,160 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.jboss.osgi.metadata.OSGiManifestBuilder;
+import org.jboss.osgi.resolver.XBundle;
+import org.jboss.osgi.resolver.XBundleRevision;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.jboss.test.osgi.framework.subA.SimpleActivator;
+import org.jboss.test.osgi.framework.subA.SimpleService;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.wiring.FrameworkWiring;
+
+/**
+ * Test the {@link WireIndex}
+ *
+ * @since 18-Oct-2026
+ */
+public class WireIndexTestCase extends AbstractFrameworkTest {
+
+    @Test
+    public void testStaticImport() throws Exception {
+        XBundle providerBundle = (XBundle) installBundle(getProviderArchive());
+        XBundle requirerBundle = (XBundle) installBundle(getRequirerArchive("static-requirer", false));
+        try {
+            assertTrue("Resolved", resolveBundles(providerBundle, requirerBundle));
+
+            WireIndex wireIndex = getBundleManager().getWireIndex();
+            XBundleRevision provider = providerBundle.getBundleRevision();
+            XBundleRevision requirer = requirerBundle.getBundleRevision();
+            assertEquals(Collections.singleton(requirer), wireIndex.getRequirers(provider));
+            assertTrue("Provider wired", wireIndex.getProviders(requirer).contains(provider));
+            assertTrue("No hosts", wireIndex.getHosts(requirer).isEmpty());
+
+            assertDependencyClosure(providerBundle, providerBundle, requirerBundle);
+
+            requirerBundle.uninstall();
+            assertTrue("No requirers", wireIndex.getRequirers(provider).isEmpty());
+            assertTrue("No providers", wireIndex.getProviders(requirer).isEmpty());
+        } finally {
+            uninstallIfInstalled(requirerBundle);
+            providerBundle.uninstall();
+        }
+    }
+
+    @Test
+    public void testDynamicImport() throws Exception {
+        XBundle providerBundle = (XBundle) installBundle(getProviderArchive());
+        XBundle requirerBundle = (XBundle) installBundle(getRequirerArchive("dynamic-requirer", true));
+        try {
+            assertTrue("Resolved", resolveBundles(providerBundle, requirerBundle));
+
+            WireIndex wireIndex = getBundleManager().getWireIndex();
+            XBundleRevision provider = providerBundle.getBundleRevision();
+            XBundleRevision requirer = requirerBundle.getBundleRevision();
+            assertTrue("No requirers before dynamic load", wireIndex.getRequirers(provider).isEmpty());
+
+            Class<?> result = requirerBundle.loadClass(SimpleService.class.getName());
+            assertEquals(SimpleService.class.getName(), result.getName());
+
+            assertEquals(Collections.singleton(requirer), wireIndex.getRequirers(provider));
+            assertTrue("Provider wired", wireIndex.getProviders(requirer).contains(provider));
+
+            assertDependencyClosure(providerBundle, providerBundle, requirerBundle);
+
+            requirerBundle.uninstall();
+            assertTrue("No requirers", wireIndex.getRequirers(provider).isEmpty());
+        } finally {
+            uninstallIfInstalled(requirerBundle);
+            providerBundle.uninstall();
+        }
+    }
+
+    private boolean resolveBundles(Bundle... bundles) throws Exception {
+        FrameworkWiring frameworkWiring = getSystemContext().getBundle().adapt(FrameworkWiring.class);
+        Collection<Bundle> list = new ArrayList<Bundle>();
+        Collections.addAll(list, bundles);
+        return frameworkWiring.resolveBundles(list);
+    }
+
+    private void assertDependencyClosure(Bundle root, Bundle... expected) throws Exception {
+        FrameworkWiring frameworkWiring = getSystemContext().getBundle().adapt(FrameworkWiring.class);
+        Collection<Bundle> closure = frameworkWiring.getDependencyClosure(Collections.singleton(root));
+        Set<Bundle> expectedSet = new HashSet<Bundle>();
+        Collections.addAll(expectedSet, expected);
+        assertEquals(expectedSet, new HashSet<Bundle>(closure));
+    }
+
+    private void uninstallIfInstalled(Bundle bundle) throws Exception {
+        if (bundle.getState() != Bundle.UNINSTALLED) {
+            bundle.uninstall();
+        }
+    }
+
+    private JavaArchive getProviderArchive() {
+        final JavaArchive archive = ShrinkWrap.create(JavaArchive.class, "wire-provider");
+        archive.addClasses(SimpleService.class, SimpleActivator.class);
+        archive.setManifest(new Asset() {
+            public InputStream openStream() {
+                OSGiManifestBuilder builder = OSGiManifestBuilder.newInstance();
+                builder.addBundleManifestVersion(2);
+                builder.addBundleSymbolicName(archive.getName());
+                builder.addExportPackages(SimpleService.class);
+                builder.addImportPackages("org.osgi.framework");
+                return builder.openStream();
+            }
+        });
+        return archive;
+    }
+
+    private JavaArchive getRequirerArchive(final String name, final boolean dynamic) {
+        final JavaArchive archive = ShrinkWrap.create(JavaArchive.class, name);
+        archive.setManifest(new Asset() {
+            public InputStream openStream() {
+                OSGiManifestBuilder builder = OSGiManifestBuilder.newInstance();
+                builder.addBundleManifestVersion(2);
+                builder.addBundleSymbolicName(archive.getName());
+                if (dynamic) {
+                    builder.addDynamicImportPackages(SimpleService.class.getPackage().getName());
+                } else {
+                    builder.addImportPackages(SimpleService.class);
+                }
+                return builder.openStream();
+            }
+        });
+        return archive;
+    }
+}
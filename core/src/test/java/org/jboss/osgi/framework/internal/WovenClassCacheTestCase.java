@@ -0,0 +1,183 @@
+/*
+ * #%L
+ * JBossOSGi Framework
+ * %%
+ * Copyright (C) 2010 - 2012 JBoss by Red Hat
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.jboss.osgi.framework.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.osgi.framework.Constants;
+import org.jboss.osgi.framework.internal.WeavingContext.HookRegistration;
+import org.jboss.osgi.metadata.OSGiManifestBuilder;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.jboss.test.osgi.framework.subA.SimpleService;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.framework.Version;
+import org.osgi.framework.hooks.weaving.WeavingHook;
+import org.osgi.framework.hooks.weaving.WovenClass;
+
+/**
+ * Test the {@link WovenClassCache}
+ *
+ * @since 18-Oct-2026
+ */
+public class WovenClassCacheTestCase extends AbstractFrameworkTest {
+
+    private static final byte[] WOVEN_BYTES = new byte[] { 1, 2, 3, 4 };
+
+    @Test
+    public void testCachedEntryIsReplayed() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        WeavingHook hook = new WeavingHook() {
+            public void weave(WovenClass wovenClass) {
+                if (wovenClass.getClassName().equals(SimpleService.class.getName())) {
+                    calls.incrementAndGet();
+                    wovenClass.getDynamicImports().add("org.acme.woven");
+                }
+            }
+        };
+        WovenClassCache cache = getBundleManager().getWovenClassCache();
+        System.setProperty(Constants.PROPERTY_WEAVING_CACHE, "true");
+        ServiceRegistration<WeavingHook> sreg = getSystemContext().registerService(WeavingHook.class, hook, null);
+        try {
+            assertTrue("Cache enabled", cache.isEnabled());
+
+            Bundle bundle = installBundle(getBundleArchive("woven-class"));
+            bundle.loadClass(SimpleService.class.getName());
+            bundle.uninstall();
+            assertEquals(1, calls.get());
+
+            // The same class in a new bundle with the same identity is replayed from the cache
+            bundle = installBundle(getBundleArchive("woven-class"));
+            bundle.loadClass(SimpleService.class.getName());
+            bundle.uninstall();
+            assertEquals(1, calls.get());
+        } finally {
+            sreg.unregister();
+            System.clearProperty(Constants.PROPERTY_WEAVING_CACHE);
+        }
+    }
+
+    @Test
+    public void testEntryKeepsBytesAndImports() throws Exception {
+        WovenClassCache cache = new WovenClassCache(getBundleManager());
+        String hookSetKey = WovenClassCache.getHookSetKey(getHooks(1000));
+        String classKey = WovenClassCache.getClassKey(getSystemContext().getBundle(), "org.acme.Foo", new byte[] { 0 });
+        List<String> imports = Arrays.asList("org.acme.a", "org.acme.b;version=1.0");
+        cache.putEntry(hookSetKey, classKey, WOVEN_BYTES, imports);
+
+        WovenClassCache.Entry entry = cache.getEntry(hookSetKey, classKey);
+        assertNotNull("Entry cached", entry);
+        assertArrayEquals(WOVEN_BYTES, entry.bytes);
+        assertEquals(imports, entry.imports);
+    }
+
+    @Test
+    public void testUpdatedHookBundleInvalidatesEntries() throws Exception {
+        WovenClassCache cache = new WovenClassCache(getBundleManager());
+        String classKey = WovenClassCache.getClassKey(getSystemContext().getBundle(), "org.acme.Bar", new byte[] { 0 });
+        String oldKey = WovenClassCache.getHookSetKey(getHooks(1000));
+        cache.putEntry(oldKey, classKey, WOVEN_BYTES, Collections.<String> emptyList());
+        assertNotNull(cache.getEntry(oldKey, classKey));
+
+        // A hook bundle with a new last modified time yields a new group
+        String newKey = WovenClassCache.getHookSetKey(getHooks(2000));
+        assertNotEquals(oldKey, newKey);
+        assertNull(cache.getEntry(newKey, classKey));
+
+        // The stale group is deleted when the new one is created
+        cache.putEntry(newKey, classKey, WOVEN_BYTES, Collections.<String> emptyList());
+        assertNotNull(cache.getEntry(newKey, classKey));
+        assertNull(cache.getEntry(oldKey, classKey));
+        assertFalse(new File(getCacheDir(), oldKey).exists());
+    }
+
+    @Test
+    public void testCorruptEntryIsDiscarded() throws Exception {
+        WovenClassCache cache = new WovenClassCache(getBundleManager());
+        String hookSetKey = WovenClassCache.getHookSetKey(getHooks(3000));
+        String classKey = WovenClassCache.getClassKey(getSystemContext().getBundle(), "org.acme.Baz", new byte[] { 0 });
+        cache.putEntry(hookSetKey, classKey, WOVEN_BYTES, Collections.<String> emptyList());
+
+        File entryFile = new File(new File(getCacheDir(), hookSetKey), classKey);
+        assertTrue("Entry file exists", entryFile.isFile());
+        FileOutputStream output = new FileOutputStream(entryFile);
+        try {
+            output.write(new byte[] { 0x4A, 0x42 });
+        } finally {
+            output.close();
+        }
+
+        assertNull(cache.getEntry(hookSetKey, classKey));
+        assertFalse("Corrupt entry deleted", entryFile.exists());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<HookRegistration> getHooks(long lastModified) {
+        Bundle bundle = mock(Bundle.class);
+        when(bundle.getBundleId()).thenReturn(100L);
+        when(bundle.getSymbolicName()).thenReturn("weaving-hook");
+        when(bundle.getVersion()).thenReturn(Version.parseVersion("1.0"));
+        when(bundle.getLastModified()).thenReturn(lastModified);
+        ServiceReference<WeavingHook> sref = mock(ServiceReference.class);
+        when(sref.getBundle()).thenReturn(bundle);
+        return Collections.singletonList(new HookRegistration(sref, mock(WeavingHook.class)));
+    }
+
+    private File getCacheDir() throws Exception {
+        File storageArea = getFrameworkState().getStorageManager().getStorageArea();
+        return new File(storageArea, WovenClassCache.CACHE_DIRECTORY);
+    }
+
+    private JavaArchive getBundleArchive(String name) {
+        final JavaArchive archive = ShrinkWrap.create(JavaArchive.class, name);
+        archive.addClasses(SimpleService.class);
+        archive.setManifest(new Asset() {
+            public InputStream openStream() {
+                OSGiManifestBuilder builder = OSGiManifestBuilder.newInstance();
+                builder.addBundleManifestVersion(2);
+                builder.addBundleSymbolicName(archive.getName());
+                return builder.openStream();
+            }
+        });
+        return archive;
+    }
+}